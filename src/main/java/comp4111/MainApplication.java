@@ -1,9 +1,16 @@
 package comp4111;
 
+import comp4111.controller.ExecutorManager;
+import comp4111.controller.SignedTokenBackend;
+import comp4111.controller.TokenManager;
+import comp4111.controller.TransactionManager;
+import comp4111.dal.BookCatalog;
+import comp4111.dal.BookUpdateBatcher;
 import comp4111.dal.DatabaseConnectionPoolV2;
 import comp4111.dal.DatabaseUtils;
 import comp4111.handler.*;
 import comp4111.listener.GenericExceptionCallback;
+import comp4111.util.SecurityUtils;
 import org.apache.hc.core5.http.impl.bootstrap.AsyncServerBootstrap;
 import org.apache.hc.core5.http.impl.bootstrap.HttpAsyncServer;
 import org.apache.hc.core5.io.CloseMode;
@@ -26,17 +33,28 @@ public class MainApplication {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(MainApplication.class);
 
+    /**
+     * Environment variable holding the Base64-encoded key for signing tokens.
+     */
+    private static final String TOKEN_KEY_ENV = "COMP4111_TOKEN_KEY";
+
     public static final Map<String, HttpAsyncPathHandler> PATTERN_HANDLER = List.of(
             WildcardHandler.getInstance(),
             LoginHandler.getInstance(),
             LogoutHandler.getInstance(),
             BooksHandler.getInstance(),
-            TransactionHandler.getInstance()
+            TransactionHandler.getInstance(),
+            MetricsHandler.getInstance()
     ).stream().collect(Collectors.toUnmodifiableMap(HttpAsyncPathHandler::getHandlePattern, Function.identity()));
 
     public static void main(String[] args) {
         boolean recreateTables = Arrays.asList(args).contains("--recreate-tables");
         boolean recreateDb = Arrays.asList(args).contains("--recreate-db");
+        boolean useVirtualThreads = Arrays.asList(args).contains("--virtual-threads");
+        boolean useSignedTokens = Arrays.asList(args).contains("--signed-tokens");
+        boolean useCatalog = Arrays.asList(args).contains("--catalog");
+        boolean useDeferredTransactions = Arrays.asList(args).contains("--deferred-transactions");
+        boolean useGroupCommit = Arrays.asList(args).contains("--group-commit");
 
         final var config = IOReactorConfig.custom()
                 .setSoKeepAlive(false)
@@ -69,6 +87,31 @@ public class MainApplication {
 
             DatabaseConnectionPoolV2.getInstance().setDefaultLockTimeout(Duration.ofSeconds(3));
 
+            if (useVirtualThreads) {
+                ExecutorManager.getInstance().setMode(ExecutorManager.ExecutionMode.THREAD_PER_REQUEST);
+                DatabaseConnectionPoolV2.getInstance().setInlineExecution(true);
+            }
+
+            if (useSignedTokens) {
+                TokenManager.getInstance().setBackend(new SignedTokenBackend(getTokenKey()));
+            }
+
+            if (useDeferredTransactions) {
+                TransactionManager.getInstance().setDeferredExecution(true);
+            }
+
+            if (useGroupCommit) {
+                BookUpdateBatcher.getInstance().setEnabled(true);
+            }
+
+            if (useCatalog) {
+                try {
+                    BookCatalog.getInstance().load();
+                } catch (Exception e) {
+                    LOGGER.error("Unable to load book catalog: Querying books from the database", e);
+                }
+            }
+
             server.start();
             final var future = server.listen(new InetSocketAddress(8080));
             final var listenerEndpoint = future.get();
@@ -78,4 +121,18 @@ public class MainApplication {
             LOGGER.error("Received unknown exception while running server", e);
         }
     }
+
+    /**
+     * @return The key for signing tokens, read from {@link MainApplication#TOKEN_KEY_ENV}. If the variable is not set,
+     * a random key is generated, and tokens will only be accepted by this instance.
+     */
+    private static byte[] getTokenKey() {
+        final var encodedKey = System.getenv(TOKEN_KEY_ENV);
+        if (encodedKey != null) {
+            return SecurityUtils.decodeBase64(encodedKey);
+        }
+
+        LOGGER.warn(TOKEN_KEY_ENV + " is not set: Tokens will not be accepted by other server instances");
+        return SecurityUtils.decodeBase64(SecurityUtils.generateRandomBase64String(SignedTokenBackend.MIN_KEY_LENGTH));
+    }
 }
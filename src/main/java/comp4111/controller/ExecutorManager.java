@@ -0,0 +1,196 @@
+package comp4111.controller;
+
+import comp4111.metrics.MetricsRegistry;
+import comp4111.util.ExecutorUtils;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadPoolExecutor;
+
+/**
+ * Manager for the executors running the request pipeline.
+ *
+ * In {@link ExecutionMode#ASYNC} mode, stages which block on the database should not run on the pipeline executor; use
+ * the executor of {@link comp4111.dal.DatabaseConnectionPoolV2} instead.
+ */
+public class ExecutorManager {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ExecutorManager.class);
+
+    /**
+     * The modes which requests can be executed in.
+     */
+    public enum ExecutionMode {
+        /**
+         * Requests are executed as a chain of asynchronous stages, where CPU-only stages run on the pipeline executor
+         * and blocking stages run on the executor of the connection pool.
+         */
+        ASYNC,
+        /**
+         * Each request is executed from start to end on its own virtual thread, which blocks on database calls. This
+         * mode requires Java {@link ExecutorManager#MIN_VIRTUAL_THREADS_VERSION} or above.
+         */
+        THREAD_PER_REQUEST
+    }
+
+    /**
+     * The default number of threads of the pipeline executor.
+     */
+    static final int DEFAULT_PIPELINE_THREADS = Runtime.getRuntime().availableProcessors();
+    /**
+     * The maximum number of pipeline stages waiting to be executed.
+     */
+    static final int DEFAULT_PIPELINE_QUEUE_CAPACITY = 65536;
+    /**
+     * The minimum feature version of the runtime for {@link ExecutionMode#THREAD_PER_REQUEST} mode.
+     *
+     * Virtual threads are available from Java 21, but before Java 24 a virtual thread blocking inside a
+     * {@code synchronized} block pins its carrier thread. The MySQL driver performs its socket I/O inside its own
+     * {@code synchronized} blocks, so on earlier versions every request blocked on the database would hold a carrier
+     * thread, and requests would be limited by the number of carriers instead of the number of connections.
+     */
+    static final int MIN_VIRTUAL_THREADS_VERSION = 24;
+    /**
+     * An executor which runs tasks on the calling thread.
+     */
+    private static final Executor DIRECT_EXECUTOR = Runnable::run;
+
+    @Nullable
+    private static ExecutorManager INSTANCE;
+
+    /**
+     * @return The singleton instance of this class.
+     */
+    @NotNull
+    public synchronized static ExecutorManager getInstance() {
+        if (INSTANCE == null) {
+            INSTANCE = new ExecutorManager(DEFAULT_PIPELINE_THREADS, DEFAULT_PIPELINE_QUEUE_CAPACITY);
+
+            final var executorMgr = INSTANCE;
+            final var registry = MetricsRegistry.getInstance();
+            registry.gauge("pipeline_executor_queue_depth", "Number of pipeline stages waiting to be executed", executorMgr::getPipelineQueueDepth);
+            registry.gauge("pipeline_executor_active_threads", "Number of threads executing pipeline stages", executorMgr::getPipelineActiveCount);
+        }
+
+        return INSTANCE;
+    }
+
+    @NotNull
+    private final ThreadPoolExecutor pipelineExecutor;
+    /**
+     * Executor for running each request on its own thread. Only created when
+     * {@link ExecutionMode#THREAD_PER_REQUEST} is first selected.
+     */
+    @Nullable
+    private volatile ExecutorService requestExecutor;
+    @NotNull
+    private volatile ExecutionMode mode = ExecutionMode.ASYNC;
+
+    ExecutorManager(int threads, int queueCapacity) {
+        pipelineExecutor = ExecutorUtils.newBoundedExecutor(
+                ExecutorUtils.newDaemonThreadFactory("pipeline"),
+                threads,
+                queueCapacity);
+    }
+
+    /**
+     * Creates an executor which runs each task on a new virtual thread.
+     *
+     * The project is compiled for Java 11, so the factory method is looked up at runtime. There is no fallback to
+     * platform threads, since an unbounded number of platform threads blocked on the database is not what this mode
+     * is meant to measure.
+     *
+     * @return An executor which runs each task on its own virtual thread.
+     * @throws IllegalStateException if the runtime is older than {@link ExecutorManager#MIN_VIRTUAL_THREADS_VERSION}.
+     */
+    @NotNull
+    private static ExecutorService newThreadPerTaskExecutor() {
+        final var version = Runtime.version().feature();
+        if (version < MIN_VIRTUAL_THREADS_VERSION) {
+            throw new IllegalStateException("Running requests on virtual threads requires Java "
+                    + MIN_VIRTUAL_THREADS_VERSION + " or above, but the runtime is Java " + version);
+        }
+
+        try {
+            final var factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            LOGGER.info("Using virtual threads for requests");
+            return (ExecutorService) factory.invoke(null);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Virtual threads are not supported by this runtime", e);
+        }
+    }
+
+    /**
+     * @return The execution mode of requests.
+     */
+    @NotNull
+    public ExecutionMode getMode() {
+        return mode;
+    }
+
+    /**
+     * Sets the execution mode of requests.
+     *
+     * @param mode New execution mode.
+     * @throws IllegalStateException if {@code mode} is {@link ExecutionMode#THREAD_PER_REQUEST}, and the runtime does
+     *                               not support it.
+     */
+    public synchronized void setMode(@NotNull ExecutionMode mode) {
+        if (mode == ExecutionMode.THREAD_PER_REQUEST && requestExecutor == null) {
+            requestExecutor = newThreadPerTaskExecutor();
+        }
+
+        this.mode = mode;
+    }
+
+    /**
+     * @return The executor for running CPU-only stages of the request pipeline. In
+     * {@link ExecutionMode#THREAD_PER_REQUEST} mode, stages are run on the thread of the request.
+     */
+    @NotNull
+    public Executor getPipelineExecutor() {
+        return mode == ExecutionMode.THREAD_PER_REQUEST ? DIRECT_EXECUTOR : pipelineExecutor;
+    }
+
+    /**
+     * @return The executor for dispatching requests to their own thread, or {@code null} if requests are not executed
+     * in {@link ExecutionMode#THREAD_PER_REQUEST} mode.
+     */
+    @Nullable
+    public Executor getRequestExecutor() {
+        return mode == ExecutionMode.THREAD_PER_REQUEST ? requestExecutor : null;
+    }
+
+    /**
+     * Sets the number of threads of the pipeline executor.
+     *
+     * @param threads New number of threads.
+     * @throws IllegalArgumentException if {@code threads} is not a positive value.
+     */
+    public synchronized void setPipelineThreads(int threads) {
+        if (threads <= 0) {
+            throw new IllegalArgumentException("Number of threads must be a positive value");
+        }
+
+        ExecutorUtils.resizeBoundedExecutor(pipelineExecutor, threads);
+    }
+
+    /**
+     * @return The number of pipeline stages waiting to be executed.
+     */
+    public int getPipelineQueueDepth() {
+        return pipelineExecutor.getQueue().size();
+    }
+
+    /**
+     * @return The approximate number of threads actively executing pipeline stages.
+     */
+    public int getPipelineActiveCount() {
+        return pipelineExecutor.getActiveCount();
+    }
+}
@@ -0,0 +1,470 @@
+package comp4111.controller;
+
+import comp4111.util.SecurityUtils;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.LongSupplier;
+
+/**
+ * A {@link TokenBackend} which stores tokens in memory.
+ *
+ * Tokens are indexed both by token and by user, so that all operations are lock-free and never scan the token map.
+ *
+ * Tokens expire after an absolute time-to-live since creation, or after an idle time-to-live since the token was last
+ * used. Expiry is lazy: Expired tokens are removed when they are next looked up, or when they reach the head of the
+ * creation-ordered expiry queue, which is drained whenever a new token is created. Since a token which is still in use
+ * holds back the tokens created after it, each new token also advances a bounded sweep through the queue, which removes
+ * the idle-expired tokens behind the head. When the number of tokens exceeds the maximum, the oldest token is evicted.
+ */
+public class InMemoryTokenBackend implements TokenBackend {
+
+    /**
+     * The default time for which a token is valid after it is created.
+     */
+    static final Duration DEFAULT_ABSOLUTE_TTL = Duration.ofHours(24);
+    /**
+     * The default time for which a token is valid after it is last used.
+     */
+    static final Duration DEFAULT_IDLE_TTL = Duration.ofHours(1);
+    /**
+     * The default maximum number of tokens held at the same time.
+     */
+    static final int DEFAULT_MAX_TOKENS = 1 << 20;
+    /**
+     * The number of stale entries tolerated in the expiry queue before it is compacted.
+     */
+    private static final int EXPIRY_QUEUE_SLACK = 1024;
+    /**
+     * The number of entries of the expiry queue checked by the idle sweep whenever a new token is created.
+     */
+    private static final int IDLE_SWEEP_BATCH = 16;
+
+    /**
+     * The reasons for which a token is removed.
+     */
+    private enum RemovalCause {
+        LOGOUT,
+        ABSOLUTE_EXPIRY,
+        IDLE_EXPIRY,
+        EVICTION
+    }
+
+    /**
+     * Bookkeeping information of a token.
+     */
+    private static final class TokenEntry {
+
+        @NotNull
+        final String token;
+        @NotNull
+        final String user;
+        final long createdAt;
+        volatile long lastAccessedAt;
+
+        TokenEntry(@NotNull String token, @NotNull String user, long now) {
+            this.token = token;
+            this.user = user;
+            this.createdAt = now;
+            this.lastAccessedAt = now;
+        }
+    }
+
+    /**
+     * Map of tokens to the user holding the token.
+     */
+    private final Map<@NotNull String, @NotNull String> inFlightTokens;
+    /**
+     * Map of users to their token. This is the reverse index of {@link InMemoryTokenBackend#inFlightTokens}, and is the
+     * authoritative record of whether a token is live.
+     */
+    private final ConcurrentMap<@NotNull String, @NotNull TokenEntry> userTokens = new ConcurrentHashMap<>();
+    /**
+     * Token entries in order of creation. Entries of removed tokens are skipped when they reach the head of the queue.
+     */
+    private final Queue<@NotNull TokenEntry> expiryQueue = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger expiryQueueSize = new AtomicInteger();
+    private final AtomicInteger tokenCount = new AtomicInteger();
+    /**
+     * The position of the idle sweep in {@link InMemoryTokenBackend#expiryQueue}, or {@code null} if the sweep restarts
+     * from the head. Guarded by {@link InMemoryTokenBackend#sweepLock}.
+     */
+    @Nullable
+    private Iterator<@NotNull TokenEntry> sweepCursor;
+    private final ReentrantLock sweepLock = new ReentrantLock();
+
+    private final LongAdder absoluteExpiredCount = new LongAdder();
+    private final LongAdder idleExpiredCount = new LongAdder();
+    private final LongAdder evictedCount = new LongAdder();
+
+    /**
+     * Source of the current time in nanoseconds.
+     */
+    @NotNull
+    private final LongSupplier clock;
+
+    private volatile long absoluteTtlNanos = DEFAULT_ABSOLUTE_TTL.toNanos();
+    private volatile long idleTtlNanos = DEFAULT_IDLE_TTL.toNanos();
+    private volatile int maxTokens = DEFAULT_MAX_TOKENS;
+
+    public InMemoryTokenBackend() {
+        this(new ConcurrentHashMap<>());
+    }
+
+    /**
+     * @param backingMap The map to use for storing tokens. The map must be safe for concurrent access.
+     */
+    InMemoryTokenBackend(@NotNull Map<String, String> backingMap) {
+        this(backingMap, System::nanoTime);
+    }
+
+    /**
+     * @param backingMap The map to use for storing tokens.
+     * @param clock The source of the current time in nanoseconds.
+     */
+    InMemoryTokenBackend(@NotNull Map<String, String> backingMap, @NotNull LongSupplier clock) {
+        inFlightTokens = backingMap;
+        this.clock = clock;
+    }
+
+    /**
+     * Creates a new token.
+     *
+     * @param user The user requesting the token.
+     * @return The token generated for the user, or {@code null} if a token is already generated for the user.
+     */
+    @Nullable
+    @Override
+    public String newToken(@NotNull String user) {
+        final var now = clock.getAsLong();
+        drainExpiryQueue(now);
+        sweepIdleTokens(now);
+
+        if (containsUser(user)) {
+            return null;
+        }
+
+        final String token = SecurityUtils.generateRandomBase64String(24);
+        final var entry = new TokenEntry(token, user, now);
+        // Claiming the user atomically ensures that only one of the concurrent logins of the same user succeeds.
+        if (userTokens.putIfAbsent(user, entry) != null) {
+            return null;
+        }
+        inFlightTokens.put(token, user);
+        tokenCount.incrementAndGet();
+        if (isRemoved(entry)) {
+            // The entry expired before the token was published; Do not leave the token behind.
+            inFlightTokens.remove(token, user);
+            return null;
+        }
+
+        expiryQueue.add(entry);
+        expiryQueueSize.incrementAndGet();
+
+        while (tokenCount.get() > maxTokens && evictOldest()) {
+            // Keep evicting until the token count is within bounds.
+        }
+        return token;
+    }
+
+    /**
+     * Checks whether a token is present, and refreshes its idle time if so.
+     *
+     * @return Whether the token is present.
+     */
+    @Override
+    public boolean containsToken(@NotNull String token) {
+        final var entry = findEntry(token);
+        if (entry == null) {
+            return false;
+        }
+
+        final var now = clock.getAsLong();
+        if (expireIfNeeded(entry, now)) {
+            return false;
+        }
+
+        entry.lastAccessedAt = now;
+        return true;
+    }
+
+    /**
+     * @return Whether the user has generated a token.
+     */
+    @Override
+    public boolean containsUser(@NotNull String user) {
+        final var entry = userTokens.get(user);
+        return entry != null && !expireIfNeeded(entry, clock.getAsLong());
+    }
+
+    /**
+     * Removes a token.
+     *
+     * @param token Token to remove.
+     * @return {@code true} if the token was present in the cache and has been removed.
+     */
+    @Override
+    public boolean removeToken(@NotNull String token) {
+        final var entry = findEntry(token);
+        if (entry == null || expireIfNeeded(entry, clock.getAsLong())) {
+            return false;
+        }
+
+        return removeEntry(entry, RemovalCause.LOGOUT);
+    }
+
+    /**
+     * Removes all expired tokens.
+     *
+     * This method scans all tokens, and is not required for correctness; expired tokens are otherwise removed lazily.
+     */
+    public void purgeExpiredTokens() {
+        final var now = clock.getAsLong();
+        if (expiryQueue.removeIf(entry -> isRemoved(entry) || expireIfNeeded(entry, now))) {
+            expiryQueueSize.set(expiryQueue.size());
+        }
+    }
+
+    /**
+     * @param token The token to look up.
+     * @return The entry of the token, or {@code null} if the token is not present.
+     */
+    @Nullable
+    private TokenEntry findEntry(@NotNull String token) {
+        final var user = inFlightTokens.get(token);
+        if (user == null) {
+            return null;
+        }
+
+        final var entry = userTokens.get(user);
+        return entry != null && entry.token.equals(token) ? entry : null;
+    }
+
+    /**
+     * Removes a token entry if it has expired.
+     *
+     * @return {@code true} if the entry has expired.
+     */
+    private boolean expireIfNeeded(@NotNull TokenEntry entry, long now) {
+        final var absoluteTtl = absoluteTtlNanos;
+        if (absoluteTtl > 0 && now - entry.createdAt >= absoluteTtl) {
+            removeEntry(entry, RemovalCause.ABSOLUTE_EXPIRY);
+            return true;
+        }
+
+        final var idleTtl = idleTtlNanos;
+        if (idleTtl > 0 && now - entry.lastAccessedAt >= idleTtl) {
+            removeEntry(entry, RemovalCause.IDLE_EXPIRY);
+            return true;
+        }
+
+        return false;
+    }
+
+    /**
+     * Removes a token entry.
+     *
+     * @return {@code true} if this call removed the entry, or {@code false} if the entry has already been removed.
+     */
+    private boolean removeEntry(@NotNull TokenEntry entry, @NotNull RemovalCause cause) {
+        if (!userTokens.remove(entry.user, entry)) {
+            return false;
+        }
+
+        inFlightTokens.remove(entry.token, entry.user);
+        tokenCount.decrementAndGet();
+        switch (cause) {
+            case ABSOLUTE_EXPIRY:
+                absoluteExpiredCount.increment();
+                break;
+            case IDLE_EXPIRY:
+                idleExpiredCount.increment();
+                break;
+            case EVICTION:
+                evictedCount.increment();
+                break;
+            default:
+                break;
+        }
+        return true;
+    }
+
+    private boolean isRemoved(@NotNull TokenEntry entry) {
+        return userTokens.get(entry.user) != entry;
+    }
+
+    /**
+     * Removes entries from the head of the expiry queue which are either removed or expired, and compacts the queue if
+     * too many removed entries are queued behind live ones.
+     */
+    private void drainExpiryQueue(long now) {
+        TokenEntry head;
+        while ((head = expiryQueue.peek()) != null) {
+            if (!isRemoved(head) && !expireIfNeeded(head, now)) {
+                break;
+            }
+            if (expiryQueue.remove(head)) {
+                expiryQueueSize.decrementAndGet();
+            }
+        }
+
+        if (expiryQueueSize.get() > 2 * tokenCount.get() + EXPIRY_QUEUE_SLACK) {
+            purgeExpiredTokens();
+        }
+    }
+
+    /**
+     * Checks the next {@link InMemoryTokenBackend#IDLE_SWEEP_BATCH} entries of the expiry queue for expiry, continuing
+     * from where the previous sweep stopped.
+     *
+     * Expired tokens are removed, but their entries are left in the queue, and are discarded when they reach the head
+     * or when the queue is compacted. The sweep is skipped if another thread is sweeping.
+     */
+    private void sweepIdleTokens(long now) {
+        if (idleTtlNanos <= 0 || !sweepLock.tryLock()) {
+            return;
+        }
+
+        try {
+            for (int i = 0; i < IDLE_SWEEP_BATCH; ++i) {
+                if (sweepCursor == null || !sweepCursor.hasNext()) {
+                    sweepCursor = expiryQueue.iterator();
+                    if (!sweepCursor.hasNext()) {
+                        break;
+                    }
+                }
+
+                final var entry = sweepCursor.next();
+                if (!isRemoved(entry)) {
+                    expireIfNeeded(entry, now);
+                }
+            }
+        } finally {
+            sweepLock.unlock();
+        }
+    }
+
+    /**
+     * Evicts the oldest live token.
+     *
+     * @return {@code false} if there are no tokens to evict.
+     */
+    private boolean evictOldest() {
+        TokenEntry head;
+        while ((head = expiryQueue.poll()) != null) {
+            expiryQueueSize.decrementAndGet();
+            if (removeEntry(head, RemovalCause.EVICTION)) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Sets the time for which a token is valid after it is created.
+     *
+     * @param ttl New absolute time-to-live, or {@link Duration#ZERO} to disable absolute expiry.
+     */
+    public void setAbsoluteTtl(@NotNull Duration ttl) {
+        if (ttl.isNegative()) {
+            throw new IllegalArgumentException("TTL must not be negative");
+        }
+
+        this.absoluteTtlNanos = ttl.toNanos();
+    }
+
+    /**
+     * Resets the time for which a token is valid after it is created.
+     *
+     * The default value is {@link InMemoryTokenBackend#DEFAULT_ABSOLUTE_TTL}.
+     */
+    public void resetAbsoluteTtl() {
+        setAbsoluteTtl(DEFAULT_ABSOLUTE_TTL);
+    }
+
+    /**
+     * Sets the time for which a token is valid after it is last used.
+     *
+     * @param ttl New idle time-to-live, or {@link Duration#ZERO} to disable idle expiry.
+     */
+    public void setIdleTtl(@NotNull Duration ttl) {
+        if (ttl.isNegative()) {
+            throw new IllegalArgumentException("TTL must not be negative");
+        }
+
+        this.idleTtlNanos = ttl.toNanos();
+    }
+
+    /**
+     * Resets the time for which a token is valid after it is last used.
+     *
+     * The default value is {@link InMemoryTokenBackend#DEFAULT_IDLE_TTL}.
+     */
+    public void resetIdleTtl() {
+        setIdleTtl(DEFAULT_IDLE_TTL);
+    }
+
+    /**
+     * Sets the maximum number of tokens held at the same time.
+     *
+     * If the number of tokens exceeds this value, the oldest tokens are evicted when new tokens are created.
+     *
+     * @param maxTokens New maximum number of tokens.
+     * @throws IllegalArgumentException if {@code maxTokens} is not a positive value.
+     */
+    public void setMaxTokens(int maxTokens) {
+        if (maxTokens <= 0) {
+            throw new IllegalArgumentException("Maximum number of tokens must be a positive value");
+        }
+
+        this.maxTokens = maxTokens;
+    }
+
+    /**
+     * Resets the maximum number of tokens held at the same time.
+     *
+     * The default value is {@link InMemoryTokenBackend#DEFAULT_MAX_TOKENS}.
+     */
+    public void resetMaxTokens() {
+        setMaxTokens(DEFAULT_MAX_TOKENS);
+    }
+
+    /**
+     * @return The number of tokens currently held, including expired tokens which have not been removed yet.
+     */
+    public int getTokenCount() {
+        return tokenCount.get();
+    }
+
+    /**
+     * @return The number of tokens removed due to exceeding the absolute time-to-live.
+     */
+    public long getAbsoluteExpiredCount() {
+        return absoluteExpiredCount.sum();
+    }
+
+    /**
+     * @return The number of tokens removed due to exceeding the idle time-to-live.
+     */
+    public long getIdleExpiredCount() {
+        return idleExpiredCount.sum();
+    }
+
+    /**
+     * @return The number of tokens evicted due to exceeding the maximum number of tokens.
+     */
+    public long getEvictedCount() {
+        return evictedCount.sum();
+    }
+}
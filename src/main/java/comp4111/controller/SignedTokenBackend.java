@@ -0,0 +1,250 @@
+package comp4111.controller;
+
+import comp4111.util.SecurityUtils;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import javax.crypto.Mac;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.time.Duration;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.LongSupplier;
+
+/**
+ * A {@link TokenBackend} which issues self-validating tokens signed with a secret key.
+ *
+ * A token has the form {@code <payload>.<signature>}, where the payload encodes the user and the expiry time of the
+ * token, and the signature is the HMAC of the payload. Validating a token only requires checking its signature and
+ * expiry time, so tokens issued by one server instance are accepted by any other instance sharing the same key.
+ *
+ * Revoked tokens are kept in a local set until they expire, so a token revoked by {@code /logout} is only rejected by
+ * the instance which revoked it. Similarly, a user is only prevented from logging in twice on the same instance.
+ */
+public class SignedTokenBackend implements TokenBackend {
+
+    /**
+     * The default time for which a token is valid after it is created.
+     */
+    static final Duration DEFAULT_TTL = Duration.ofHours(24);
+    /**
+     * The minimum length of the secret key in bytes.
+     */
+    public static final int MIN_KEY_LENGTH = 32;
+    /**
+     * The number of random bytes in each token, so that tokens issued to the same user at the same time are distinct.
+     */
+    private static final int NONCE_LENGTH = 9;
+    /**
+     * The number of revoked tokens held before expired revocations are purged.
+     */
+    private static final int REVOCATION_PURGE_THRESHOLD = 1024;
+    /**
+     * The maximum number of idle {@link Mac} instances kept for reuse.
+     */
+    private static final int MAC_POOL_SIZE = 16;
+
+    /**
+     * Claims carried by a valid token.
+     */
+    private static final class Claims {
+
+        @NotNull
+        final String user;
+        final long expiresAt;
+
+        Claims(@NotNull String user, long expiresAt) {
+            this.user = user;
+            this.expiresAt = expiresAt;
+        }
+    }
+
+    /**
+     * The {@link Mac} initialized with the secret key, from which instances are cloned. It is never used for signing.
+     */
+    @NotNull
+    private final Mac macPrototype;
+    /**
+     * Idle {@link Mac} instances. Since instances are not thread-safe, each signature takes an instance from this pool
+     * and returns it afterwards. Instances are pooled rather than kept per thread, since threads may be created for
+     * each request.
+     */
+    @NotNull
+    private final BlockingQueue<@NotNull Mac> macPool = new ArrayBlockingQueue<>(MAC_POOL_SIZE);
+    /**
+     * Source of the current wall-clock time in milliseconds. Wall-clock time is used since tokens are validated by
+     * other server instances.
+     */
+    @NotNull
+    private final LongSupplier clock;
+    private final long ttlMillis;
+
+    /**
+     * Map of revoked tokens to their expiry time.
+     */
+    private final ConcurrentMap<@NotNull String, @NotNull Long> revokedTokens = new ConcurrentHashMap<>();
+    /**
+     * Map of users to the last token issued by this instance.
+     */
+    private final ConcurrentMap<@NotNull String, @NotNull String> issuedTokens = new ConcurrentHashMap<>();
+    private volatile int nextPurgeSize = REVOCATION_PURGE_THRESHOLD;
+
+    /**
+     * @param key The secret key for signing tokens. All server instances which accept each other's tokens must use the
+     *            same key.
+     * @throws IllegalArgumentException if {@code key} is shorter than {@link SignedTokenBackend#MIN_KEY_LENGTH}.
+     */
+    public SignedTokenBackend(byte @NotNull [] key) {
+        this(key, DEFAULT_TTL, System::currentTimeMillis);
+    }
+
+    /**
+     * @param key The secret key for signing tokens.
+     * @param ttl The time for which a token is valid after it is created.
+     * @param clock The source of the current time in milliseconds.
+     */
+    SignedTokenBackend(byte @NotNull [] key, @NotNull Duration ttl, @NotNull LongSupplier clock) {
+        if (key.length < MIN_KEY_LENGTH) {
+            throw new IllegalArgumentException("Key must be at least " + MIN_KEY_LENGTH + " bytes long");
+        }
+        if (ttl.isNegative() || ttl.isZero()) {
+            throw new IllegalArgumentException("TTL must be a positive value");
+        }
+
+        this.macPrototype = SecurityUtils.newHmac(key);
+        this.clock = clock;
+        this.ttlMillis = ttl.toMillis();
+    }
+
+    @Nullable
+    @Override
+    public String newToken(@NotNull String user) {
+        final var existing = issuedTokens.get(user);
+        if (existing != null && containsToken(existing)) {
+            return null;
+        }
+
+        final var token = sign(user, clock.getAsLong() + ttlMillis);
+        final var claimed = existing == null
+                ? issuedTokens.putIfAbsent(user, token) == null
+                : issuedTokens.replace(user, existing, token);
+        return claimed ? token : null;
+    }
+
+    @Override
+    public boolean containsToken(@NotNull String token) {
+        return verify(token) != null && !revokedTokens.containsKey(token);
+    }
+
+    @Override
+    public boolean containsUser(@NotNull String user) {
+        final var existing = issuedTokens.get(user);
+        if (existing == null) {
+            return false;
+        }
+        if (!containsToken(existing)) {
+            issuedTokens.remove(user, existing);
+            return false;
+        }
+
+        return true;
+    }
+
+    @Override
+    public boolean removeToken(@NotNull String token) {
+        final var claims = verify(token);
+        if (claims == null || revokedTokens.putIfAbsent(token, claims.expiresAt) != null) {
+            return false;
+        }
+
+        issuedTokens.remove(claims.user, token);
+        if (revokedTokens.size() >= nextPurgeSize) {
+            purgeRevokedTokens();
+        }
+        return true;
+    }
+
+    /**
+     * @return The number of revoked tokens which have not expired yet.
+     */
+    public int getRevokedCount() {
+        return revokedTokens.size();
+    }
+
+    /**
+     * Removes revoked tokens which have expired, since they are rejected by their expiry time anyway.
+     */
+    private synchronized void purgeRevokedTokens() {
+        final var now = clock.getAsLong();
+        revokedTokens.values().removeIf(expiresAt -> expiresAt <= now);
+        // Purge again only after the set doubles in size, so that purges take amortized constant time per revocation.
+        nextPurgeSize = Math.max(REVOCATION_PURGE_THRESHOLD, revokedTokens.size() * 2);
+    }
+
+    /**
+     * Creates a signed token.
+     */
+    @NotNull
+    private String sign(@NotNull String user, long expiresAt) {
+        final var nonce = SecurityUtils.generateRandomBase64String(NONCE_LENGTH);
+        final var payload = (expiresAt + ":" + nonce + ":" + user).getBytes(StandardCharsets.UTF_8);
+        final var signature = computeSignature(payload);
+        return SecurityUtils.encodeBase64(payload) + "." + SecurityUtils.encodeBase64(signature);
+    }
+
+    /**
+     * @return The signature of {@code payload}, computed with an instance from {@link SignedTokenBackend#macPool}.
+     */
+    private byte @NotNull [] computeSignature(byte @NotNull [] payload) {
+        var mac = macPool.poll();
+        if (mac == null) {
+            try {
+                mac = (Mac) macPrototype.clone();
+            } catch (CloneNotSupportedException e) {
+                throw new IllegalStateException("Cannot clone HMAC for signing", e);
+            }
+        }
+
+        final var signature = mac.doFinal(payload);
+        // doFinal() resets the instance, so it can be reused. It is dropped if the pool is full.
+        macPool.offer(mac);
+        return signature;
+    }
+
+    /**
+     * Verifies the signature and expiry time of a token.
+     *
+     * @return The claims of the token, or {@code null} if the token is malformed, forged or expired.
+     */
+    @Nullable
+    private Claims verify(@NotNull String token) {
+        final var delimiter = token.indexOf('.');
+        if (delimiter == -1) {
+            return null;
+        }
+
+        final byte[] payload;
+        final byte[] signature;
+        try {
+            payload = SecurityUtils.decodeBase64(token.substring(0, delimiter));
+            signature = SecurityUtils.decodeBase64(token.substring(delimiter + 1));
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+        if (!MessageDigest.isEqual(computeSignature(payload), signature)) {
+            return null;
+        }
+
+        // The payload is signed by us, so it is well-formed.
+        final var fields = new String(payload, StandardCharsets.UTF_8).split(":", 3);
+        final var expiresAt = Long.parseLong(fields[0]);
+        if (clock.getAsLong() >= expiresAt) {
+            return null;
+        }
+
+        return new Claims(fields[2], expiresAt);
+    }
+}
@@ -0,0 +1,39 @@
+package comp4111.controller;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Storage and validation of tokens used by {@link TokenManager}.
+ *
+ * Implementations must be safe for concurrent access.
+ */
+public interface TokenBackend {
+
+    /**
+     * Creates a new token.
+     *
+     * @param user The user requesting the token.
+     * @return The token generated for the user, or {@code null} if a token is already generated for the user.
+     */
+    @Nullable
+    String newToken(@NotNull String user);
+
+    /**
+     * @return Whether the token is valid.
+     */
+    boolean containsToken(@NotNull String token);
+
+    /**
+     * @return Whether the user has generated a token.
+     */
+    boolean containsUser(@NotNull String user);
+
+    /**
+     * Removes a token, such that it will no longer be valid.
+     *
+     * @param token Token to remove.
+     * @return {@code true} if the token was valid and has been removed.
+     */
+    boolean removeToken(@NotNull String token);
+}
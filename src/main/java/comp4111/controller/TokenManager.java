@@ -1,15 +1,20 @@
 package comp4111.controller;
 
-import comp4111.util.SecurityUtils;
+import comp4111.metrics.MetricsRegistry;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.Supplier;
+import java.util.function.ToLongFunction;
 
 /**
  * Manager for caching tokens.
+ *
+ * Tokens are stored and validated by a {@link TokenBackend}. By default, tokens are stored in memory by
+ * {@link InMemoryTokenBackend}; Use {@link SignedTokenBackend} when tokens must be accepted by multiple server
+ * instances.
  */
 public class TokenManager {
 
@@ -30,7 +35,7 @@ public class TokenManager {
      * This method is for cases where a custom {@link Map} class is required for backing the token map, such as for
      * mocking and testing.
      *
-     * @param backingMap The map to use for storing tokens.
+     * @param backingMap The map to use for storing tokens. The map must be safe for concurrent access.
      * @return The singleton instance of this class.
      */
     @NotNull
@@ -39,15 +44,60 @@ public class TokenManager {
             final var map = backingMap != null ? backingMap : DEFAULT_MAP_SUPPLIER.get();
 
             INSTANCE = new TokenManager(map);
+
+            final var tokenMgr = INSTANCE;
+            final var registry = MetricsRegistry.getInstance();
+            registry.gauge("tokens", "Number of tokens held in memory, including expired tokens not removed yet",
+                    () -> tokenMgr.getInMemoryCount(InMemoryTokenBackend::getTokenCount));
+            registry.counterCallback("token_expirations_total", "Tokens removed from memory after expiring",
+                    () -> tokenMgr.getInMemoryCount(InMemoryTokenBackend::getAbsoluteExpiredCount), "ttl", "absolute");
+            registry.counterCallback("token_expirations_total", "Tokens removed from memory after expiring",
+                    () -> tokenMgr.getInMemoryCount(InMemoryTokenBackend::getIdleExpiredCount), "ttl", "idle");
+            registry.counterCallback("token_evictions_total", "Tokens evicted from memory as the maximum number of tokens is exceeded",
+                    () -> tokenMgr.getInMemoryCount(InMemoryTokenBackend::getEvictedCount));
         }
 
         return INSTANCE;
     }
 
-    private final Map<@NotNull String, @NotNull String> inFlightTokens;
+    @NotNull
+    private volatile TokenBackend backend;
 
     TokenManager(@NotNull Map<String, String> backingMap) {
-        inFlightTokens = backingMap;
+        this(new InMemoryTokenBackend(backingMap));
+    }
+
+    TokenManager(@NotNull TokenBackend backend) {
+        this.backend = backend;
+    }
+
+    /**
+     * @param count The function reading a count from an {@link InMemoryTokenBackend}.
+     * @return The count read from the current backend, or {@code 0} if the current backend does not store tokens in
+     * memory.
+     */
+    private long getInMemoryCount(@NotNull ToLongFunction<InMemoryTokenBackend> count) {
+        final var currentBackend = backend;
+        return currentBackend instanceof InMemoryTokenBackend ? count.applyAsLong((InMemoryTokenBackend) currentBackend) : 0;
+    }
+
+    /**
+     * @return The backend storing the tokens.
+     */
+    @NotNull
+    public TokenBackend getBackend() {
+        return backend;
+    }
+
+    /**
+     * Sets the backend storing the tokens.
+     *
+     * Tokens issued by the previous backend will no longer be valid.
+     *
+     * @param backend New token backend.
+     */
+    public void setBackend(@NotNull TokenBackend backend) {
+        this.backend = backend;
     }
 
     /**
@@ -57,28 +107,22 @@ public class TokenManager {
      * @return The token generated for the user, or {@code null} if a token is already generated for the user.
      */
     @Nullable
-    public synchronized String newToken(@NotNull String user) {
-        if (containsUser(user)) {
-            return null;
-        }
-
-        final String token = SecurityUtils.generateRandomBase64String(24);
-        inFlightTokens.put(token, user);
-        return token;
+    public String newToken(@NotNull String user) {
+        return backend.newToken(user);
     }
 
     /**
      * @return Whether the token is present.
      */
-    public synchronized boolean containsToken(@NotNull String token) {
-        return inFlightTokens.containsKey(token);
+    public boolean containsToken(@NotNull String token) {
+        return backend.containsToken(token);
     }
 
     /**
      * @return Whether the user has generated a token.
      */
-    public synchronized boolean containsUser(@NotNull String user) {
-        return inFlightTokens.containsValue(user);
+    public boolean containsUser(@NotNull String user) {
+        return backend.containsUser(user);
     }
 
     /**
@@ -87,7 +131,7 @@ public class TokenManager {
      * @param token Token to remove.
      * @return {@code true} if the token was present in the cache and has been removed.
      */
-    public synchronized boolean removeToken(@NotNull String token) {
-        return inFlightTokens.remove(token) != null;
+    public boolean removeToken(@NotNull String token) {
+        return backend.removeToken(token);
     }
 }
@@ -5,14 +5,28 @@ import comp4111.model.TransactionPutRequest;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
+import java.time.Duration;
 import java.util.*;
 import java.util.function.Supplier;
 
 /**
  * Manager for caching transaction requests.
+ *
+ * When deferred execution is enabled, transactions are held by this manager instead of a database connection. Actions
+ * of a transaction are validated and buffered as they are pushed, and are only applied to the database when the
+ * transaction is committed, such that open transactions do not hold any connections or row locks.
  */
 public class TransactionManager {
 
+    /**
+     * The default duration after which an uncommitted transaction is discarded.
+     */
+    private static final Duration DEFAULT_TX_TIMEOUT = Duration.ofSeconds(90);
+    /**
+     * The number of stale entries tolerated in {@link TransactionManager#expiryQueue} before it is purged.
+     */
+    private static final int EXPIRY_QUEUE_SLACK = 64;
+
     static final Supplier<Map<Long, List<TransactionPutRequest>>> DEFAULT_MAP_SUPPLIER = () -> Collections.synchronizedMap(new HashMap<>());
     static final Supplier<List<TransactionPutRequest>> DEFAULT_TRANSACTION_LIST_SUPPLIER = () -> Collections.synchronizedList(new ArrayList<>());
 
@@ -53,6 +67,22 @@ public class TransactionManager {
     private final Supplier<@NotNull List<@NotNull TransactionPutRequest>> listCreator;
     @NotNull
     private final Random random = new Random();
+    /**
+     * The {@link System#nanoTime()} after which each transaction is discarded.
+     */
+    @NotNull
+    private final Map<@NotNull Long, @NotNull Long> deadlines = new HashMap<>();
+    /**
+     * The deadlines of transactions, ordered by the deadline.
+     *
+     * Entries are not removed when their transactions are erased, and are discarded as stale when they are drained
+     * instead. Since the timeout may change, deadlines are not in the order of creation, so a heap is used.
+     */
+    @NotNull
+    private final Queue<@NotNull Deadline> expiryQueue = new PriorityQueue<>();
+    @NotNull
+    private Duration txTimeout = DEFAULT_TX_TIMEOUT;
+    private volatile boolean isDeferredExecution = false;
 
     TransactionManager(@NotNull Map<Long, List<TransactionPutRequest>> backingMap, @NotNull Supplier<List<TransactionPutRequest>> listCreator) {
         this.inFlightTransactions = backingMap;
@@ -66,12 +96,25 @@ public class TransactionManager {
      */
     @NotNull
     public synchronized Long newTransaction() {
+        removeExpiredTransactions();
+
         final var id = random.nextLong();
         inFlightTransactions.put(id, listCreator.get());
+        final var deadline = System.nanoTime() + txTimeout.toNanos();
+        deadlines.put(id, deadline);
+        expiryQueue.add(new Deadline(id, deadline));
 
         return id;
     }
 
+    /**
+     * @param id The ID of the transaction.
+     * @return Whether the transaction is held by this manager.
+     */
+    public synchronized boolean containsTransaction(long id) {
+        return getTransaction(id) != null;
+    }
+
     /**
      * Adds a plan to the given transaction.
      *
@@ -79,9 +122,7 @@ public class TransactionManager {
      * @return {@code true} if the operation was successful.
      */
     public synchronized boolean addTransactionPlan(@NotNull final TransactionPutRequest putRequest) {
-        final var uuid = putRequest.getTransaction();
-
-        final var transaction = inFlightTransactions.get(uuid);
+        final var transaction = getTransaction(putRequest.getTransaction());
         if (transaction == null) {
             return false;
         }
@@ -90,6 +131,32 @@ public class TransactionManager {
         return true;
     }
 
+    /**
+     * Finds the availability of a book after the plans of the given transaction are applied.
+     *
+     * @param id The ID of the transaction.
+     * @param bookId The ID of the book.
+     * @return Whether the book is available after the last plan of the transaction on the book, or {@code null} if the
+     * transaction does not exist or has no plans on the book.
+     */
+    @Nullable
+    public synchronized Boolean getPlannedAvailability(long id, long bookId) {
+        final var transaction = getTransaction(id);
+        if (transaction == null) {
+            return null;
+        }
+
+        Boolean isAvailable = null;
+        synchronized (transaction) {
+            for (final var plan : transaction) {
+                if (plan.getId() == bookId) {
+                    isAvailable = plan.getAction() == TransactionPutRequest.Action.RETURN;
+                }
+            }
+        }
+        return isAvailable;
+    }
+
     /**
      * Commits or aborts the given transaction.
      *
@@ -126,8 +193,113 @@ public class TransactionManager {
      */
     @Nullable
     public synchronized List<TransactionPutRequest> getAndEraseTransaction(@NotNull final TransactionPostRequest postRequest) {
-        final var uuid = postRequest.getTransaction();
+        return getAndEraseTransaction(postRequest.getTransaction());
+    }
 
-        return inFlightTransactions.remove(uuid);
+    /**
+     * Returns the transaction given by the transaction ID, and clears it from this manager.
+     *
+     * @param id The ID of the transaction.
+     * @return The transaction, or {@code null} if the transaction does not exist.
+     */
+    @Nullable
+    public synchronized List<TransactionPutRequest> getAndEraseTransaction(long id) {
+        final var transaction = getTransaction(id);
+        inFlightTransactions.remove(id);
+        deadlines.remove(id);
+        return transaction;
+    }
+
+    /**
+     * @return The transaction, or {@code null} if the transaction does not exist or has expired.
+     */
+    @Nullable
+    private List<TransactionPutRequest> getTransaction(long id) {
+        final var deadline = deadlines.get(id);
+        if (deadline != null && System.nanoTime() - deadline >= 0) {
+            inFlightTransactions.remove(id);
+            deadlines.remove(id);
+            return null;
+        }
+
+        return inFlightTransactions.get(id);
+    }
+
+    /**
+     * Removes the expired transactions from the head of {@link TransactionManager#expiryQueue}, stopping at the first
+     * transaction which has not expired.
+     */
+    private void removeExpiredTransactions() {
+        final var now = System.nanoTime();
+        Deadline head;
+        while ((head = expiryQueue.peek()) != null && now - head.nanoTime >= 0) {
+            expiryQueue.poll();
+            if (deadlines.remove(head.id, head.nanoTime)) {
+                inFlightTransactions.remove(head.id);
+            }
+        }
+
+        // Erased transactions leave stale entries behind, which would otherwise stay until their deadlines.
+        if (expiryQueue.size() > 2 * deadlines.size() + EXPIRY_QUEUE_SLACK) {
+            expiryQueue.removeIf(entry -> !Objects.equals(deadlines.get(entry.id), entry.nanoTime));
+        }
+    }
+
+    /**
+     * @return Whether new transactions are held by this manager instead of a database connection.
+     */
+    public boolean isDeferredExecution() {
+        return isDeferredExecution;
+    }
+
+    /**
+     * Sets whether new transactions are held by this manager instead of a database connection. Existing transactions
+     * are not affected.
+     *
+     * @param isDeferredExecution Whether to defer the execution of transactions until they are committed.
+     */
+    public void setDeferredExecution(boolean isDeferredExecution) {
+        this.isDeferredExecution = isDeferredExecution;
+    }
+
+    /**
+     * Sets the duration after which an uncommitted transaction is discarded. Existing transactions are not affected.
+     *
+     * @param timeout New timeout.
+     */
+    public synchronized void setTransactionTimeout(@NotNull Duration timeout) {
+        this.txTimeout = timeout;
+    }
+
+    /**
+     * Resets the duration after which an uncommitted transaction is discarded.
+     *
+     * The default value is {@link TransactionManager#DEFAULT_TX_TIMEOUT}.
+     */
+    public synchronized void resetTransactionTimeout() {
+        this.txTimeout = DEFAULT_TX_TIMEOUT;
+    }
+
+    /**
+     * The deadline of a transaction.
+     */
+    private static final class Deadline implements Comparable<Deadline> {
+
+        private final long id;
+        /**
+         * The {@link System#nanoTime()} after which the transaction is discarded.
+         */
+        private final long nanoTime;
+
+        Deadline(long id, long nanoTime) {
+            this.id = id;
+            this.nanoTime = nanoTime;
+        }
+
+        @Override
+        public int compareTo(@NotNull Deadline other) {
+            // Compared by difference, since System.nanoTime() may overflow.
+            return Long.signum(nanoTime - other.nanoTime);
+        }
     }
 }
@@ -0,0 +1,588 @@
+package comp4111.dal;
+
+import comp4111.dal.model.Book;
+import comp4111.metrics.MetricsRegistry;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * A bounded cache of {@link Book} records keyed by ID, together with an index of book titles to IDs.
+ *
+ * The cache only holds the committed state of books. Since transactions may modify a book for an unbounded time before
+ * committing, records are only put into the cache if they are read after waiting for the lock of the row, and every
+ * write to a book invalidates its record. To prevent a slow reader from putting a record which is invalidated while it
+ * is being read, writers call {@link BookCache#getStamp()} before reading the database, and the record is discarded if
+ * the book is invalidated after the stamp is obtained.
+ *
+ * Titles of books never change, so the title index may be filled from non-locking reads. An entry in the title index
+ * only records that a book with the title exists, and does not carry the availability of the book.
+ *
+ * Books are partitioned into segments by their IDs. Each segment has its own lock, capacity and {@link EvictionPolicy},
+ * so that writers of books in different segments do not contend. When the number of books in a segment exceeds its
+ * share of the capacity, a book of the segment is evicted as selected by the policy of the segment; eviction is
+ * therefore only approximately least-recently-used across the whole cache.
+ *
+ * Lookups do not take any lock. A lookup only reports the access to the eviction policy if the lock of the segment is
+ * free, so that concurrent lookups of hot books never wait for each other.
+ */
+public class BookCache {
+
+    /**
+     * The default number of books held by the cache.
+     */
+    static final int DEFAULT_CAPACITY = 65536;
+    /**
+     * The number of stripes tracking the time of the last invalidation of books.
+     */
+    private static final int INVALIDATION_STRIPES = 1024;
+    /**
+     * The default number of segments of the cache.
+     */
+    static final int DEFAULT_SEGMENTS = 64;
+
+    /**
+     * A policy for selecting the book to evict when the cache is full.
+     *
+     * Each segment of the cache has its own policy, whose methods are only called while holding the lock of the
+     * segment, so implementations need not be thread-safe.
+     */
+    public interface EvictionPolicy {
+
+        /**
+         * Called when a book is added to the cache.
+         */
+        void onInsert(long id);
+
+        /**
+         * Called when a cached book is read or replaced.
+         */
+        void onAccess(long id);
+
+        /**
+         * Called when a book is removed from the cache, either by invalidation or by eviction.
+         */
+        void onRemove(long id);
+
+        /**
+         * @return The ID of the book to evict. Only called when the cache is not empty.
+         */
+        long selectVictim();
+
+        /**
+         * Called when all books are removed from the cache.
+         */
+        void clear();
+    }
+
+    /**
+     * An {@link EvictionPolicy} which evicts the least-recently-used book.
+     */
+    public static class LruEvictionPolicy implements EvictionPolicy {
+
+        /**
+         * Books in order of their last access, from least to most recently used.
+         */
+        private final LinkedHashSet<Long> order = new LinkedHashSet<>();
+
+        @Override
+        public void onInsert(long id) {
+            order.add(id);
+        }
+
+        @Override
+        public void onAccess(long id) {
+            order.remove(id);
+            order.add(id);
+        }
+
+        @Override
+        public void onRemove(long id) {
+            order.remove(id);
+        }
+
+        @Override
+        public long selectVictim() {
+            return order.iterator().next();
+        }
+
+        @Override
+        public void clear() {
+            order.clear();
+        }
+    }
+
+    /**
+     * An {@link EvictionPolicy} which evicts the book which has been in the cache for the longest time, regardless of
+     * how often it is used.
+     */
+    public static class FifoEvictionPolicy extends LruEvictionPolicy {
+
+        @Override
+        public void onAccess(long id) {
+            // The order of insertion is kept.
+        }
+    }
+
+    /**
+     * A partition of the cache, holding the books whose IDs map to it.
+     */
+    private static final class Segment {
+
+        /**
+         * Lock guarding the changes to the books of this segment, and the calls to its eviction policy.
+         */
+        final ReentrantLock lock = new ReentrantLock();
+        @NotNull
+        EvictionPolicy evictionPolicy;
+        /**
+         * The maximum number of books held by this segment.
+         */
+        int capacity;
+        /**
+         * The number of books held by this segment.
+         */
+        int size = 0;
+
+        Segment(@NotNull EvictionPolicy evictionPolicy, int capacity) {
+            this.evictionPolicy = evictionPolicy;
+            this.capacity = capacity;
+        }
+    }
+
+    /**
+     * A cached book.
+     */
+    private static final class Entry {
+
+        @NotNull
+        final String title;
+        /**
+         * The record of the book, or {@code null} if only the title of the book is known.
+         */
+        @Nullable
+        final Book book;
+
+        Entry(@NotNull String title, @Nullable Book book) {
+            this.title = title;
+            this.book = book;
+        }
+    }
+
+    @Nullable
+    private static BookCache INSTANCE;
+
+    /**
+     * @return The singleton instance of this class.
+     */
+    @NotNull
+    public synchronized static BookCache getInstance() {
+        if (INSTANCE == null) {
+            INSTANCE = new BookCache(DEFAULT_CAPACITY, LruEvictionPolicy::new, DEFAULT_SEGMENTS);
+
+            final var cache = INSTANCE;
+            final var registry = MetricsRegistry.getInstance();
+            registry.counterCallback("book_cache_hits_total", "Lookups served from the book cache", cache::getHitCount);
+            registry.counterCallback("book_cache_misses_total", "Lookups not served from the book cache", cache::getMissCount);
+            registry.counterCallback("book_cache_evictions_total", "Books evicted from the book cache", cache::getEvictionCount);
+            registry.gauge("book_cache_hit_ratio", "Fraction of lookups served from the book cache", cache::getHitRate);
+            registry.gauge("book_cache_books", "Number of books held by the book cache", cache::size);
+        }
+
+        return INSTANCE;
+    }
+
+    /**
+     * Books of all segments. Entries are only changed while holding the lock of the segment of the book.
+     */
+    private final Map<@NotNull Long, @NotNull Entry> entries = new ConcurrentHashMap<>();
+    private final Map<@NotNull String, @NotNull Long> titleIndex = new ConcurrentHashMap<>();
+    @NotNull
+    private final Segment[] segments;
+
+    /**
+     * Source of the stamps returned by {@link BookCache#getStamp()}.
+     */
+    private final AtomicLong clock = new AtomicLong(0);
+    /**
+     * The stamp of the last invalidation of the books in each stripe. Every stripe maps to a single segment, and is
+     * only accessed while holding the lock of that segment.
+     */
+    private final long[] lastInvalidated = new long[INVALIDATION_STRIPES];
+
+    private final LongAdder hitCount = new LongAdder();
+    private final LongAdder missCount = new LongAdder();
+    private final LongAdder evictionCount = new LongAdder();
+
+    /**
+     * Creates a cache with a single segment, which evicts books exactly as selected by its policy.
+     *
+     * @param capacity The maximum number of books to hold in the cache.
+     * @param evictionPolicy Factory of the policy for selecting books to evict.
+     */
+    BookCache(int capacity, @NotNull Supplier<EvictionPolicy> evictionPolicy) {
+        this(capacity, evictionPolicy, 1);
+    }
+
+    /**
+     * @param capacity The maximum number of books to hold in the cache, which is divided evenly among the segments.
+     * @param evictionPolicy Factory of the policy for selecting books to evict. A policy is created for each segment.
+     * @param segmentCount The number of segments. Must be a power of two not larger than
+     *                     {@link BookCache#INVALIDATION_STRIPES}.
+     */
+    BookCache(int capacity, @NotNull Supplier<EvictionPolicy> evictionPolicy, int segmentCount) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Capacity must be a positive value");
+        }
+        if (segmentCount <= 0 || Integer.bitCount(segmentCount) != 1 || segmentCount > INVALIDATION_STRIPES) {
+            throw new IllegalArgumentException("Segment count must be a power of two not larger than " + INVALIDATION_STRIPES);
+        }
+
+        segments = new Segment[segmentCount];
+        for (int i = 0; i < segmentCount; ++i) {
+            segments[i] = new Segment(evictionPolicy.get(), segmentCapacity(capacity, segmentCount));
+        }
+    }
+
+    /**
+     * Obtains a stamp for putting records into the cache. The stamp must be obtained before the records are read from
+     * the database.
+     *
+     * @return A stamp representing the current time of the cache.
+     */
+    public long getStamp() {
+        return clock.get();
+    }
+
+    /**
+     * @param id The ID of the book to look up.
+     * @return The cached record of the book, or {@code null} if the record of the book is not in the cache.
+     */
+    @Nullable
+    public Book get(long id) {
+        final var entry = entries.get(id);
+        if (entry == null || entry.book == null) {
+            missCount.increment();
+            return null;
+        }
+
+        hitCount.increment();
+        recordAccess(id, entry);
+        return entry.book;
+    }
+
+    /**
+     * @param title The title of the book to look up.
+     * @return The ID of the book with the title, or {@code 0} if the title is not in the cache.
+     */
+    public long getIdByTitle(@NotNull String title) {
+        final var id = titleIndex.get(title);
+        final var entry = id != null ? entries.get(id) : null;
+        if (entry == null) {
+            missCount.increment();
+            return 0;
+        }
+
+        hitCount.increment();
+        recordAccess(id, entry);
+        return id;
+    }
+
+    /**
+     * Reports the access to a book to the eviction policy of its segment, unless the segment is locked by another
+     * thread, in which case the access is dropped.
+     *
+     * @param id The ID of the accessed book.
+     * @param entry The entry of the book which is accessed.
+     */
+    private void recordAccess(long id, @NotNull Entry entry) {
+        final var segment = segmentOf(id);
+        if (!segment.lock.tryLock()) {
+            return;
+        }
+        try {
+            // The book may have been removed since it is looked up, in which case the policy no longer tracks it.
+            if (entries.get(id) == entry) {
+                segment.evictionPolicy.onAccess(id);
+            }
+        } finally {
+            segment.lock.unlock();
+        }
+    }
+
+    /**
+     * Adds or replaces the record of a book.
+     *
+     * The record must be read after the transactions which changed the row before {@code stamp} is obtained have ended,
+     * for example while holding the lock of the row, or after a statement which waited for the lock of the row.
+     *
+     * @param stamp The stamp obtained before the record is read.
+     * @param book The record to cache.
+     * @return {@code true} if the record is put into the cache, or {@code false} if the book has been invalidated since
+     * {@code stamp} is obtained.
+     */
+    public boolean put(long stamp, @NotNull Book book) {
+        final var segment = segmentOf(book.getId());
+        segment.lock.lock();
+        try {
+            return putEntry(segment, stamp, book.getId(), new Entry(book.getTitle(), book));
+        } finally {
+            segment.lock.unlock();
+        }
+    }
+
+    /**
+     * Changes the availability of a cached book, after the change is committed.
+     *
+     * @param stamp The stamp obtained before the book is changed.
+     * @param id The ID of the book.
+     * @param available The new availability of the book.
+     * @return {@code true} if the cached book is changed, or {@code false} if the book is not cached or has been
+     * invalidated since {@code stamp} is obtained.
+     */
+    public boolean putAvailability(long stamp, long id, boolean available) {
+        final var segment = segmentOf(id);
+        segment.lock.lock();
+        try {
+            final var existing = entries.get(id);
+            if (existing == null || existing.book == null) {
+                return false;
+            }
+
+            final var book = existing.book;
+            final var newBook = new Book(book.getId(), book.getTitle(), book.getAuthor(), book.getPublisher(), book.getYear(), available);
+            return putEntry(segment, stamp, id, new Entry(book.getTitle(), newBook));
+        } finally {
+            segment.lock.unlock();
+        }
+    }
+
+    /**
+     * Adds a book to the title index.
+     *
+     * @param stamp The stamp obtained before the book is read.
+     * @param title The title of the book.
+     * @param id The ID of the book.
+     * @return {@code true} if the book is put into the cache, or {@code false} if the book has been invalidated since
+     * {@code stamp} is obtained.
+     */
+    public boolean putTitle(long stamp, @NotNull String title, long id) {
+        final var segment = segmentOf(id);
+        segment.lock.lock();
+        try {
+            final var existing = entries.get(id);
+            if (existing != null && existing.title.equals(title)) {
+                // The title is already indexed, possibly along with the record of the book.
+                return true;
+            }
+
+            return putEntry(segment, stamp, id, new Entry(title, null));
+        } finally {
+            segment.lock.unlock();
+        }
+    }
+
+    /**
+     * Must be called while holding the lock of {@code segment}.
+     */
+    private boolean putEntry(@NotNull Segment segment, long stamp, long id, @NotNull Entry entry) {
+        if (lastInvalidated[stripeOf(id)] > stamp) {
+            return false;
+        }
+
+        final var previous = entries.put(id, entry);
+        if (previous != null) {
+            titleIndex.remove(previous.title, id);
+            segment.evictionPolicy.onAccess(id);
+        } else {
+            segment.evictionPolicy.onInsert(id);
+            ++segment.size;
+        }
+        titleIndex.put(entry.title, id);
+
+        evictExcess(segment);
+        return true;
+    }
+
+    /**
+     * Removes a book from the cache, and prevents records read before this call from being put into the cache.
+     *
+     * This must be called whenever a book is modified or deleted.
+     *
+     * @param id The ID of the book to remove.
+     */
+    public void invalidate(long id) {
+        final var segment = segmentOf(id);
+        segment.lock.lock();
+        try {
+            lastInvalidated[stripeOf(id)] = clock.incrementAndGet();
+            remove(segment, id);
+        } finally {
+            segment.lock.unlock();
+        }
+    }
+
+    /**
+     * Removes all books from the cache.
+     */
+    public void invalidateAll() {
+        lockAllSegments();
+        try {
+            final var stamp = clock.incrementAndGet();
+            for (int i = 0; i < lastInvalidated.length; ++i) {
+                lastInvalidated[i] = stamp;
+            }
+            entries.clear();
+            titleIndex.clear();
+            for (final var segment : segments) {
+                segment.evictionPolicy.clear();
+                segment.size = 0;
+            }
+        } finally {
+            unlockAllSegments();
+        }
+    }
+
+    /**
+     * Must be called while holding the lock of {@code segment}.
+     */
+    private void remove(@NotNull Segment segment, long id) {
+        final var entry = entries.remove(id);
+        if (entry != null) {
+            titleIndex.remove(entry.title, id);
+            segment.evictionPolicy.onRemove(id);
+            --segment.size;
+        }
+    }
+
+    /**
+     * Evicts books from a segment until it is within its capacity. Must be called while holding the lock of
+     * {@code segment}.
+     */
+    private void evictExcess(@NotNull Segment segment) {
+        while (segment.size > segment.capacity) {
+            remove(segment, segment.evictionPolicy.selectVictim());
+            evictionCount.increment();
+        }
+    }
+
+    @NotNull
+    private Segment segmentOf(long id) {
+        return segments[(int) (id & (segments.length - 1))];
+    }
+
+    private static int stripeOf(long id) {
+        return (int) (id & (INVALIDATION_STRIPES - 1));
+    }
+
+    private static int segmentCapacity(int capacity, int segmentCount) {
+        return (capacity + segmentCount - 1) / segmentCount;
+    }
+
+    /**
+     * Locks all segments in order, so that concurrent callers cannot deadlock.
+     */
+    private void lockAllSegments() {
+        for (final var segment : segments) {
+            segment.lock.lock();
+        }
+    }
+
+    private void unlockAllSegments() {
+        for (int i = segments.length - 1; i >= 0; --i) {
+            segments[i].lock.unlock();
+        }
+    }
+
+    /**
+     * Sets the maximum number of books held by the cache, evicting books if the cache holds more books.
+     *
+     * @param capacity New capacity, which is divided evenly among the segments.
+     * @throws IllegalArgumentException if {@code capacity} is not a positive value.
+     */
+    public void setCapacity(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Capacity must be a positive value");
+        }
+
+        for (final var segment : segments) {
+            segment.lock.lock();
+            try {
+                segment.capacity = segmentCapacity(capacity, segments.length);
+                evictExcess(segment);
+            } finally {
+                segment.lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Resets the maximum number of books held by the cache.
+     *
+     * The default value is {@link BookCache#DEFAULT_CAPACITY}.
+     */
+    public void resetCapacity() {
+        setCapacity(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Sets the policy for selecting books to evict. All books are removed from the cache.
+     *
+     * @param evictionPolicy Factory of the new eviction policy.
+     */
+    public void setEvictionPolicy(@NotNull Supplier<EvictionPolicy> evictionPolicy) {
+        lockAllSegments();
+        try {
+            invalidateAll();
+            for (final var segment : segments) {
+                segment.evictionPolicy = evictionPolicy.get();
+            }
+        } finally {
+            unlockAllSegments();
+        }
+    }
+
+    /**
+     * @return The number of lookups answered by the cache.
+     */
+    public long getHitCount() {
+        return hitCount.sum();
+    }
+
+    /**
+     * @return The number of lookups which are not answered by the cache.
+     */
+    public long getMissCount() {
+        return missCount.sum();
+    }
+
+    /**
+     * @return The fraction of lookups answered by the cache, or {@code 0} if there are no lookups.
+     */
+    public double getHitRate() {
+        final var hits = hitCount.sum();
+        final var total = hits + missCount.sum();
+        return total == 0 ? 0 : (double) hits / total;
+    }
+
+    /**
+     * @return The number of books evicted due to the capacity of the cache.
+     */
+    public long getEvictionCount() {
+        return evictionCount.sum();
+    }
+
+    /**
+     * @return The number of books currently held by the cache.
+     */
+    public int size() {
+        return entries.size();
+    }
+}
@@ -0,0 +1,520 @@
+package comp4111.dal;
+
+import comp4111.handler.BooksGetHandler.QueryParams;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * An in-memory copy of the {@code Book} table for answering {@code GET /books} queries without the database.
+ *
+ * The catalog keeps a list of books sorted by each {@link QueryParams.SortField}, so that a sorted page is read by
+ * locating its first book with a binary search, and an index of the trigrams of the titles and authors, so that
+ * substring searches only examine books containing every trigram of the search string. Titles and authors are compared
+ * and searched by their keys in the {@link Collation} of the database, so that listings are the same whether they are
+ * answered by the catalog or by the database.
+ *
+ * Listings do not include the availability of books, so only additions and deletions of books update the catalog. The
+ * catalog must be the only writer of the {@code Book} table, as changes made by other processes are not observed until
+ * the catalog is loaded again.
+ *
+ * The catalog is not loaded by default, in which case {@link BookCatalog#query(QueryParams)} returns {@code null} and
+ * queries are answered by the database.
+ */
+public class BookCatalog {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(BookCatalog.class);
+
+    /**
+     * The length of the n-grams in the substring index.
+     */
+    static final int GRAM_LENGTH = 3;
+    /**
+     * The ratio between the size of the catalog and the number of matching books, below which the matching books are
+     * sorted directly instead of filtering the sorted list.
+     */
+    private static final int SORT_CANDIDATES_RATIO = 16;
+
+    /**
+     * A book in the catalog.
+     */
+    private static final class Entry {
+
+        @NotNull
+        final BooksGetDataAccess.ListedBook listed;
+        /**
+         * The key of the title in the collation of the database.
+         */
+        @NotNull
+        final String titleKey;
+        /**
+         * The key of the author in the collation of the database.
+         */
+        @NotNull
+        final String authorKey;
+
+        Entry(@NotNull BooksGetDataAccess.ListedBook listed) {
+            this.listed = listed;
+            this.titleKey = Collation.fold(listed.book.getTitle());
+            this.authorKey = Collation.fold(listed.book.getAuthor());
+        }
+
+        /**
+         * Compares the sort key of this book against a cursor, where books with the same key are ordered by ID.
+         */
+        int compareTo(@NotNull QueryParams.Cursor cursor) {
+            final int cmp;
+            switch (cursor.sort) {
+                case TITLE:
+                    cmp = Collation.compare(titleKey, Collation.fold((String) Objects.requireNonNull(cursor.sortValue)));
+                    break;
+                case AUTHOR:
+                    cmp = Collation.compare(authorKey, Collation.fold((String) Objects.requireNonNull(cursor.sortValue)));
+                    break;
+                case YEAR:
+                    cmp = Integer.compare(listed.book.getYear(), (Integer) Objects.requireNonNull(cursor.sortValue));
+                    break;
+                default:
+                    cmp = 0;
+                    break;
+            }
+            return cmp != 0 ? cmp : Long.compare(listed.id, cursor.id);
+        }
+    }
+
+    /**
+     * Comparators of books for each sort field. Text fields are compared by their keys in the collation of the
+     * database, and books with the same key are ordered by ID.
+     */
+    private static final Map<QueryParams.SortField, Comparator<Entry>> COMPARATORS;
+
+    static {
+        final Comparator<Entry> byId = Comparator.comparingLong(e -> e.listed.id);
+
+        COMPARATORS = new EnumMap<>(QueryParams.SortField.class);
+        COMPARATORS.put(QueryParams.SortField.ID, byId);
+        COMPARATORS.put(QueryParams.SortField.TITLE,
+                Comparator.<Entry, String>comparing(e -> e.titleKey, Collation::compare).thenComparing(byId));
+        COMPARATORS.put(QueryParams.SortField.AUTHOR,
+                Comparator.<Entry, String>comparing(e -> e.authorKey, Collation::compare).thenComparing(byId));
+        COMPARATORS.put(QueryParams.SortField.YEAR,
+                Comparator.<Entry>comparingInt(e -> e.listed.book.getYear()).thenComparing(byId));
+    }
+
+    @Nullable
+    private static BookCatalog INSTANCE;
+
+    /**
+     * @return The singleton instance of this class.
+     */
+    @NotNull
+    public synchronized static BookCatalog getInstance() {
+        if (INSTANCE == null) {
+            INSTANCE = new BookCatalog();
+        }
+
+        return INSTANCE;
+    }
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private final Map<@NotNull Long, @NotNull Entry> books = new HashMap<>();
+    /**
+     * Books sorted by each sort field. Listings without a sort field use the list sorted by ID.
+     */
+    private final Map<QueryParams.SortField, List<Entry>> sortedBooks = new EnumMap<>(QueryParams.SortField.class);
+    private final Map<@NotNull String, @NotNull Set<Long>> titleGrams = new HashMap<>();
+    private final Map<@NotNull String, @NotNull Set<Long>> authorGrams = new HashMap<>();
+
+    private boolean isLoaded = false;
+    /**
+     * Changes made while the catalog is being loaded, which are replayed after the books are loaded. {@code null} if
+     * the catalog is not being loaded.
+     */
+    @Nullable
+    private List<Runnable> pendingChanges = null;
+
+    BookCatalog() {
+        COMPARATORS.keySet().forEach(field -> sortedBooks.put(field, new ArrayList<>()));
+    }
+
+    /**
+     * Loads all books from the database, replacing the books in the catalog.
+     *
+     * Books added or deleted while the catalog is loading are applied after the books are loaded.
+     *
+     * @throws Exception if the books cannot be read from the database, in which case the catalog is unloaded.
+     */
+    public void load() throws Exception {
+        beginLoad();
+
+        final List<BooksGetDataAccess.ListedBook> rows;
+        try {
+            rows = BooksGetDataAccess.queryAll();
+        } catch (Exception e) {
+            unload();
+            throw e;
+        }
+
+        finishLoad(rows);
+        LOGGER.info("Loaded {} books into catalog", rows.size());
+    }
+
+    /**
+     * Starts loading the catalog, recording the changes made from now on.
+     */
+    void beginLoad() {
+        lock.writeLock().lock();
+        try {
+            clearIndexes();
+            isLoaded = false;
+            pendingChanges = new ArrayList<>();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Finishes loading the catalog with the books read after {@link BookCatalog#beginLoad()} is called.
+     *
+     * @param rows All books in the database.
+     */
+    void finishLoad(@NotNull Collection<BooksGetDataAccess.ListedBook> rows) {
+        lock.writeLock().lock();
+        try {
+            rows.forEach(this::insert);
+            if (pendingChanges != null) {
+                pendingChanges.forEach(Runnable::run);
+            }
+            pendingChanges = null;
+            isLoaded = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Removes all books from the catalog, such that queries are answered by the database.
+     */
+    public void unload() {
+        lock.writeLock().lock();
+        try {
+            clearIndexes();
+            isLoaded = false;
+            pendingChanges = null;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Removes all books from the catalog, keeping the catalog loaded. This must be called when the {@code Book} table
+     * is recreated.
+     */
+    public void clear() {
+        lock.writeLock().lock();
+        try {
+            clearIndexes();
+            if (pendingChanges != null) {
+                pendingChanges.clear();
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * @return Whether the catalog is loaded and answers queries.
+     */
+    public boolean isLoaded() {
+        lock.readLock().lock();
+        try {
+            return isLoaded;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Adds a book which is inserted into the database.
+     *
+     * @param id The ID of the book.
+     * @param book The book.
+     */
+    public void add(long id, @NotNull comp4111.model.Book book) {
+        final var listed = new BooksGetDataAccess.ListedBook(id, book);
+        applyChange(() -> insert(listed));
+    }
+
+    /**
+     * Adds books which are inserted into the database.
+     *
+     * @param books The books.
+     */
+    public void addAll(@NotNull Collection<BooksGetDataAccess.ListedBook> books) {
+        if (books.isEmpty()) {
+            return;
+        }
+
+        final var copy = List.copyOf(books);
+        applyChange(() -> copy.forEach(this::insert));
+    }
+
+    /**
+     * Removes a book which is deleted from the database.
+     *
+     * @param id The ID of the book.
+     */
+    public void remove(long id) {
+        applyChange(() -> delete(id));
+    }
+
+    private void applyChange(@NotNull Runnable change) {
+        lock.writeLock().lock();
+        try {
+            if (pendingChanges != null) {
+                pendingChanges.add(change);
+            } else if (isLoaded) {
+                change.run();
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * @return The number of books in the catalog.
+     */
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return books.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void insert(@NotNull BooksGetDataAccess.ListedBook listed) {
+        // Changes replayed after loading may already be reflected by the loaded books.
+        delete(listed.id);
+
+        final var entry = new Entry(listed);
+        books.put(listed.id, entry);
+        sortedBooks.forEach((field, list) -> {
+            final var index = Collections.binarySearch(list, entry, COMPARATORS.get(field));
+            list.add(-(index + 1), entry);
+        });
+        forEachGram(entry.titleKey, gram -> titleGrams.computeIfAbsent(gram, k -> new HashSet<>()).add(listed.id));
+        forEachGram(entry.authorKey, gram -> authorGrams.computeIfAbsent(gram, k -> new HashSet<>()).add(listed.id));
+    }
+
+    private void delete(long id) {
+        final var entry = books.remove(id);
+        if (entry == null) {
+            return;
+        }
+
+        sortedBooks.forEach((field, list) -> list.remove(Collections.binarySearch(list, entry, COMPARATORS.get(field))));
+        forEachGram(entry.titleKey, gram -> removeFromGram(titleGrams, gram, id));
+        forEachGram(entry.authorKey, gram -> removeFromGram(authorGrams, gram, id));
+    }
+
+    private void clearIndexes() {
+        books.clear();
+        sortedBooks.values().forEach(List::clear);
+        titleGrams.clear();
+        authorGrams.clear();
+    }
+
+    private static void removeFromGram(@NotNull Map<String, Set<Long>> grams, @NotNull String gram, long id) {
+        final var ids = grams.get(gram);
+        if (ids != null && ids.remove(id) && ids.isEmpty()) {
+            grams.remove(gram);
+        }
+    }
+
+    private static void forEachGram(@NotNull String str, @NotNull Consumer<String> action) {
+        for (int i = 0; i + GRAM_LENGTH <= str.length(); ++i) {
+            action.accept(str.substring(i, i + GRAM_LENGTH));
+        }
+    }
+
+    /**
+     * Queries the books matching a request.
+     *
+     * @param queryParams The parameters of the request.
+     * @return The matching books in the requested order, with at most one book more than the limit of the request, or
+     * {@code null} if the catalog is not loaded.
+     */
+    @Nullable
+    List<BooksGetDataAccess.ListedBook> query(@NotNull QueryParams queryParams) {
+        return query(
+                queryParams.id,
+                queryParams.title,
+                queryParams.author,
+                queryParams.limit,
+                queryParams.sort,
+                queryParams.order,
+                queryParams.after);
+    }
+
+    /**
+     * @see BookCatalog#query(QueryParams)
+     */
+    @Nullable
+    List<BooksGetDataAccess.ListedBook> query(
+            @Nullable Long id,
+            @Nullable String title,
+            @Nullable String author,
+            @Nullable Integer limit,
+            @NotNull QueryParams.SortField sort,
+            @NotNull QueryParams.OutputOrder order,
+            @Nullable QueryParams.Cursor after) {
+        lock.readLock().lock();
+        try {
+            if (!isLoaded) {
+                return null;
+            }
+
+            final var maxSize = limit != null ? limit + 1L : Long.MAX_VALUE;
+            final var isDescending = order == QueryParams.OutputOrder.DESC;
+            final var field = sort == QueryParams.SortField.NONE ? QueryParams.SortField.ID : sort;
+            final var list = sortedBooks.get(field);
+
+            final var matches = findMatches(id, title, author);
+            final var result = new ArrayList<BooksGetDataAccess.ListedBook>();
+            if (matches != null && (long) matches.size() * SORT_CANDIDATES_RATIO < list.size()) {
+                // Few books match, so sorting them is cheaper than walking the sorted list.
+                var comparator = COMPARATORS.get(field);
+                if (isDescending) {
+                    comparator = comparator.reversed();
+                }
+
+                final var candidates = new ArrayList<Entry>(matches.size());
+                for (final var matchId : matches) {
+                    final var entry = books.get(matchId);
+                    if (after == null || isAfter(entry, after)) {
+                        candidates.add(entry);
+                    }
+                }
+                candidates.sort(comparator);
+                for (int i = 0; i < candidates.size() && result.size() < maxSize; ++i) {
+                    result.add(candidates.get(i).listed);
+                }
+            } else {
+                final var step = isDescending ? -1 : 1;
+                for (int i = startIndex(list, after, isDescending); i >= 0 && i < list.size() && result.size() < maxSize; i += step) {
+                    final var entry = list.get(i);
+                    if (matches == null || matches.contains(entry.listed.id)) {
+                        result.add(entry.listed);
+                    }
+                }
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return Whether a book is listed after a cursor.
+     */
+    private static boolean isAfter(@NotNull Entry entry, @NotNull QueryParams.Cursor cursor) {
+        final var cmp = entry.compareTo(cursor);
+        return cursor.isDescending() ? cmp < 0 : cmp > 0;
+    }
+
+    /**
+     * @return The index of the first book to list in a sorted list.
+     */
+    private static int startIndex(@NotNull List<Entry> list, @Nullable QueryParams.Cursor after, boolean isDescending) {
+        if (after == null) {
+            return isDescending ? list.size() - 1 : 0;
+        }
+
+        // Find the number of books listed up to the cursor in ascending order.
+        int low = 0;
+        int high = list.size();
+        while (low < high) {
+            final var mid = (low + high) >>> 1;
+            final var cmp = list.get(mid).compareTo(after);
+            if (cmp < 0 || (cmp == 0 && !isDescending)) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return isDescending ? low - 1 : low;
+    }
+
+    /**
+     * Finds the books matching any of the filters of a request.
+     *
+     * @return The IDs of the matching books, or {@code null} if the request has no filters.
+     */
+    @Nullable
+    private Set<Long> findMatches(@Nullable Long id, @Nullable String title, @Nullable String author) {
+        if (id == null && title == null && author == null) {
+            return null;
+        }
+
+        final var matches = new HashSet<Long>();
+        if (id != null && books.containsKey(id)) {
+            matches.add(id);
+        }
+        if (title != null) {
+            findSubstringMatches(titleGrams, e -> e.titleKey, title, matches);
+        }
+        if (author != null) {
+            findSubstringMatches(authorGrams, e -> e.authorKey, author, matches);
+        }
+        return matches;
+    }
+
+    /**
+     * Finds the books whose field contains a string, ignoring case and accents as the collation of the database does.
+     *
+     * @param grams The n-gram index of the field.
+     * @param field The key of the field of a book.
+     * @param str The string to search for.
+     * @param matches The set to add the IDs of the matching books to.
+     */
+    private void findSubstringMatches(
+            @NotNull Map<String, Set<Long>> grams,
+            @NotNull Function<Entry, String> field,
+            @NotNull String str,
+            @NotNull Set<Long> matches) {
+        final var key = Collation.fold(str);
+
+        Collection<Long> candidates;
+        if (key.length() < GRAM_LENGTH) {
+            // The string is too short to be indexed, so all books have to be checked.
+            candidates = books.keySet();
+        } else {
+            // Books containing the string must contain all its n-grams, so only the books of the rarest n-gram are checked.
+            candidates = null;
+            for (int i = 0; i + GRAM_LENGTH <= key.length(); ++i) {
+                final var ids = grams.get(key.substring(i, i + GRAM_LENGTH));
+                if (ids == null) {
+                    return;
+                }
+                if (candidates == null || ids.size() < candidates.size()) {
+                    candidates = ids;
+                }
+            }
+        }
+
+        for (final var candidate : Objects.requireNonNull(candidates)) {
+            if (field.apply(books.get(candidate)).contains(key)) {
+                matches.add(candidate);
+            }
+        }
+    }
+}
@@ -0,0 +1,435 @@
+package comp4111.dal;
+
+import comp4111.metrics.MetricsRegistry;
+import comp4111.util.ExecutorUtils;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A table of in-process locks of books, which serializes conflicting writes to a book before they reach the database.
+ *
+ * Writers waiting for the lock of a row in InnoDB hold a pooled connection for the whole wait, so a burst of writes to
+ * a popular book can exhaust the pool and time out in the lock queue of the database. Writers instead take the lock of
+ * the book from this table before checking out a connection, so that they queue in memory in arrival order, and only
+ * the writer holding the lock occupies a connection.
+ *
+ * Books are mapped onto a fixed number of stripes, so books sharing a stripe are serialized with each other. Locks are
+ * acquired asynchronously: each stripe keeps a FIFO queue of waiters, and a waiter is only completed when the lock is
+ * handed to it, so waiting for a lock does not occupy a thread. Each stripe keeps statistics of how often and how long
+ * its lock is waited for.
+ *
+ * The table does not replace the row locks of the database, which still protect books written by transactions spanning
+ * multiple requests. Such transactions hold their row locks across requests, and therefore do not take locks from this
+ * table.
+ */
+public class BookLockTable {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(BookLockTable.class);
+
+    /**
+     * The number of stripes of the table. Must be a power of two.
+     */
+    static final int STRIPES = 1024;
+    /**
+     * The default time to wait for the lock of a book.
+     */
+    private static final Duration DEFAULT_LOCK_TIMEOUT = Duration.ofSeconds(10);
+
+    /**
+     * A held lock of one or more books, which is released by {@link Lease#close()}.
+     */
+    public interface Lease extends AutoCloseable {
+
+        /**
+         * Releases the locks held by this lease. Calling this more than once has no effect.
+         */
+        @Override
+        void close();
+    }
+
+    /**
+     * A caller waiting for the lock of a stripe.
+     */
+    private static final class Waiter {
+
+        /**
+         * Completes with {@code true} when the lock is handed to this waiter, or {@code false} when the wait times out.
+         */
+        @NotNull
+        final CompletableFuture<Boolean> future = new CompletableFuture<>();
+        final long startNanos = System.nanoTime();
+        /**
+         * The task expiring this waiter after the lock timeout.
+         */
+        @Nullable
+        ScheduledFuture<?> timeoutTask;
+    }
+
+    /**
+     * A lock guarding the books of a stripe, together with the statistics of the stripe.
+     *
+     * The state of the lock is guarded by the monitor of the stripe, which is only held to change the state and
+     * never while waiting for the lock. Whenever the lock is not held, the queue of waiters is empty, since releasing
+     * the lock hands it to the first waiter directly.
+     */
+    private static final class Stripe {
+
+        private boolean isHeld = false;
+        @NotNull
+        private final Deque<Waiter> waiters = new ArrayDeque<>();
+
+        final LongAdder acquiredCount = new LongAdder();
+        final LongAdder contendedCount = new LongAdder();
+        final LongAdder timedOutCount = new LongAdder();
+        final LongAdder waitNanos = new LongAdder();
+        final LongAccumulator maxWaitNanos = new LongAccumulator(Math::max, 0);
+
+        synchronized int getQueueLength() {
+            return waiters.size();
+        }
+
+        void recordWait(@NotNull Waiter waiter) {
+            final var elapsed = System.nanoTime() - waiter.startNanos;
+            waitNanos.add(elapsed);
+            maxWaitNanos.accumulate(elapsed);
+        }
+    }
+
+    /**
+     * A snapshot of the statistics of a stripe.
+     */
+    public static final class StripeStats {
+
+        private final int stripe;
+        private final long acquiredCount;
+        private final long contendedCount;
+        private final long timedOutCount;
+        private final long waitNanos;
+        private final long maxWaitNanos;
+        private final int queueLength;
+
+        private StripeStats(int stripe, @NotNull Stripe s) {
+            this.stripe = stripe;
+            this.acquiredCount = s.acquiredCount.sum();
+            this.contendedCount = s.contendedCount.sum();
+            this.timedOutCount = s.timedOutCount.sum();
+            this.waitNanos = s.waitNanos.sum();
+            this.maxWaitNanos = s.maxWaitNanos.get();
+            this.queueLength = s.getQueueLength();
+        }
+
+        /**
+         * @return The index of the stripe.
+         */
+        public int getStripe() {
+            return stripe;
+        }
+
+        /**
+         * @return The number of times the lock of the stripe is acquired.
+         */
+        public long getAcquiredCount() {
+            return acquiredCount;
+        }
+
+        /**
+         * @return The number of times the lock of the stripe is held by another caller when requested.
+         */
+        public long getContendedCount() {
+            return contendedCount;
+        }
+
+        /**
+         * @return The number of times the lock of the stripe is not acquired before the lock timeout.
+         */
+        public long getTimedOutCount() {
+            return timedOutCount;
+        }
+
+        /**
+         * @return The total time spent waiting for the lock of the stripe.
+         */
+        @NotNull
+        public Duration getWaitTime() {
+            return Duration.ofNanos(waitNanos);
+        }
+
+        /**
+         * @return The longest time spent waiting for the lock of the stripe.
+         */
+        @NotNull
+        public Duration getMaxWaitTime() {
+            return Duration.ofNanos(maxWaitNanos);
+        }
+
+        /**
+         * @return The number of callers currently waiting for the lock of the stripe.
+         */
+        public int getQueueLength() {
+            return queueLength;
+        }
+    }
+
+    @Nullable
+    private static BookLockTable INSTANCE;
+
+    /**
+     * @return The singleton instance of this class, which hands locks to waiters on the executor of the connection
+     * pool.
+     */
+    @NotNull
+    public synchronized static BookLockTable getInstance() {
+        if (INSTANCE == null) {
+            INSTANCE = new BookLockTable(DatabaseConnectionPoolV2.getInstance().getExecutor());
+
+            final var lockTable = INSTANCE;
+            final var registry = MetricsRegistry.getInstance();
+            registry.counterCallback("book_lock_contended_total", "Book locks held by another caller when requested",
+                    () -> lockTable.getStripeStats().stream().mapToLong(StripeStats::getContendedCount).sum());
+            registry.counterCallback("book_lock_timeouts_total", "Book locks not acquired before the lock timeout",
+                    () -> lockTable.getStripeStats().stream().mapToLong(StripeStats::getTimedOutCount).sum());
+            registry.counterCallback("book_lock_wait_seconds_total", "Time spent waiting for book locks",
+                    () -> lockTable.getStripeStats().stream().mapToLong(it -> it.getWaitTime().toNanos()).sum() / 1e9);
+            registry.gauge("book_lock_waiters", "Number of callers waiting for book locks",
+                    () -> lockTable.getStripeStats().stream().mapToInt(StripeStats::getQueueLength).sum());
+        }
+
+        return INSTANCE;
+    }
+
+    @NotNull
+    private final Stripe[] stripes = new Stripe[STRIPES];
+    /**
+     * The executor to complete waiters on when the lock is handed to them, so that the holder releasing the lock does
+     * not run the work of the next holder.
+     */
+    @NotNull
+    private final Executor handOffExecutor;
+    /**
+     * Executor for expiring waiters after the lock timeout.
+     */
+    @NotNull
+    private final ScheduledThreadPoolExecutor timer;
+
+    @NotNull
+    private volatile Duration lockTimeout = DEFAULT_LOCK_TIMEOUT;
+
+    /**
+     * @param handOffExecutor The executor to complete waiters on when the lock is handed to them.
+     */
+    BookLockTable(@NotNull Executor handOffExecutor) {
+        this.handOffExecutor = handOffExecutor;
+        for (int i = 0; i < STRIPES; ++i) {
+            stripes[i] = new Stripe();
+        }
+
+        timer = new ScheduledThreadPoolExecutor(1, ExecutorUtils.newDaemonThreadFactory("book-lock-timeout"));
+        // Most waiters are handed the lock before they time out, so their timeout tasks should not pile up.
+        timer.setRemoveOnCancelPolicy(true);
+    }
+
+    static int stripeOf(long id) {
+        return (int) (id & (STRIPES - 1));
+    }
+
+    /**
+     * Acquires the lock of a book, waiting for at most the lock timeout.
+     *
+     * @param id The ID of the book.
+     * @return A {@link CompletableFuture} completing with the lease of the lock, or with {@code null} if the lock is
+     * not acquired before the lock timeout.
+     */
+    @NotNull
+    public CompletableFuture<@Nullable Lease> lock(long id) {
+        final var stripe = stripes[stripeOf(id)];
+        return acquire(stripe, lockTimeout.toNanos())
+                .thenApply(isAcquired -> isAcquired ? newLease(() -> release(stripe)) : null);
+    }
+
+    /**
+     * Acquires the locks of multiple books, waiting for at most the lock timeout for each of the locks.
+     *
+     * Locks are acquired one at a time in the order of their stripes, so that callers locking overlapping sets of books
+     * cannot deadlock each other.
+     *
+     * @param ids The IDs of the books.
+     * @return A {@link CompletableFuture} completing with the lease of all locks, or with {@code null} if any of the
+     * locks is not acquired before the lock timeout, in which case none of the locks are held.
+     */
+    @NotNull
+    public CompletableFuture<@Nullable Lease> lockAll(@NotNull Collection<Long> ids) {
+        final var indices = new TreeSet<Integer>();
+        ids.forEach(id -> indices.add(stripeOf(id)));
+
+        final var timeoutNanos = lockTimeout.toNanos();
+        // Each stripe is only added after the previous stripe is acquired, so the list is never accessed concurrently.
+        final var held = new ArrayList<Stripe>(indices.size());
+        var acquired = CompletableFuture.completedFuture(true);
+        for (final var index : indices) {
+            final var stripe = stripes[index];
+            acquired = acquired.thenCompose(isAcquired -> {
+                if (!isAcquired) {
+                    return CompletableFuture.completedFuture(false);
+                }
+
+                return acquire(stripe, timeoutNanos).thenApply(it -> {
+                    if (it) {
+                        held.add(stripe);
+                    }
+                    return it;
+                });
+            });
+        }
+
+        return acquired.handle((isAcquired, tr) -> {
+            if (tr != null || !isAcquired) {
+                releaseAll(held);
+                if (tr != null) {
+                    throw new CompletionException(tr);
+                }
+                return null;
+            }
+
+            return newLease(() -> releaseAll(held));
+        });
+    }
+
+    /**
+     * Acquires the lock of a stripe, or queues for it if it is held.
+     *
+     * @param timeoutNanos The time to wait for the lock.
+     * @return A {@link CompletableFuture} completing with {@code true} when the lock is acquired, or with {@code false}
+     * if the lock is not acquired before the timeout.
+     */
+    @NotNull
+    private CompletableFuture<Boolean> acquire(@NotNull Stripe stripe, long timeoutNanos) {
+        synchronized (stripe) {
+            if (!stripe.isHeld) {
+                stripe.isHeld = true;
+                stripe.acquiredCount.increment();
+                return CompletableFuture.completedFuture(true);
+            }
+
+            stripe.contendedCount.increment();
+            final var waiter = new Waiter();
+            stripe.waiters.addLast(waiter);
+            // The timeout task takes the monitor of the stripe, so it cannot observe the waiter before this returns.
+            waiter.timeoutTask = timer.schedule(() -> expire(stripe, waiter), timeoutNanos, TimeUnit.NANOSECONDS);
+            return waiter.future;
+        }
+    }
+
+    /**
+     * Removes a waiter which has timed out from the queue of a stripe.
+     */
+    private void expire(@NotNull Stripe stripe, @NotNull Waiter waiter) {
+        synchronized (stripe) {
+            if (!stripe.waiters.remove(waiter)) {
+                // The lock has been handed to the waiter in the meantime.
+                return;
+            }
+        }
+
+        stripe.recordWait(waiter);
+        stripe.timedOutCount.increment();
+        waiter.future.complete(false);
+    }
+
+    /**
+     * Releases the lock of a stripe, handing it to the first waiter if there is one.
+     */
+    private void release(@NotNull Stripe stripe) {
+        while (true) {
+            final Waiter next;
+            synchronized (stripe) {
+                next = stripe.waiters.pollFirst();
+                if (next == null) {
+                    stripe.isHeld = false;
+                    return;
+                }
+            }
+
+            // The lock stays held, and is now owned by the next waiter.
+            Objects.requireNonNull(next.timeoutTask).cancel(false);
+            stripe.recordWait(next);
+            try {
+                handOffExecutor.execute(() -> next.future.complete(true));
+                stripe.acquiredCount.increment();
+                return;
+            } catch (RejectedExecutionException e) {
+                // The waiter cannot run its work anyway, so it fails, and the lock is handed to the waiter after it.
+                LOGGER.warn("Unable to hand the lock of a book to its waiter: Rejecting waiter");
+                next.future.completeExceptionally(e);
+            }
+        }
+    }
+
+    private void releaseAll(@NotNull List<Stripe> held) {
+        for (int i = held.size() - 1; i >= 0; --i) {
+            release(held.get(i));
+        }
+    }
+
+    /**
+     * @param release The action releasing the locks of the lease.
+     * @return A lease which runs {@code release} when it is closed for the first time.
+     */
+    @NotNull
+    private static Lease newLease(@NotNull Runnable release) {
+        final var isClosed = new AtomicBoolean(false);
+        return () -> {
+            if (isClosed.compareAndSet(false, true)) {
+                release.run();
+            }
+        };
+    }
+
+    /**
+     * @return The statistics of every stripe, in the order of the stripes.
+     */
+    @NotNull
+    public List<StripeStats> getStripeStats() {
+        final var stats = new ArrayList<StripeStats>(STRIPES);
+        for (int i = 0; i < STRIPES; ++i) {
+            stats.add(new StripeStats(i, stripes[i]));
+        }
+        return stats;
+    }
+
+    /**
+     * @param id The ID of a book.
+     * @return The statistics of the stripe of the book.
+     */
+    @NotNull
+    public StripeStats getStripeStats(long id) {
+        final var index = stripeOf(id);
+        return new StripeStats(index, stripes[index]);
+    }
+
+    /**
+     * Sets the time to wait for the lock of a book.
+     *
+     * @param timeout New lock timeout.
+     */
+    public void setLockTimeout(@NotNull Duration timeout) {
+        this.lockTimeout = timeout;
+    }
+
+    /**
+     * Resets the time to wait for the lock of a book.
+     *
+     * The default value is {@link BookLockTable#DEFAULT_LOCK_TIMEOUT}.
+     */
+    public void resetLockTimeout() {
+        this.lockTimeout = DEFAULT_LOCK_TIMEOUT;
+    }
+}
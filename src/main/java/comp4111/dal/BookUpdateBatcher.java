@@ -0,0 +1,277 @@
+package comp4111.dal;
+
+import comp4111.util.ExecutorUtils;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * A batching stage which coalesces availability updates of books into group commits.
+ *
+ * Updates submitted within a short window are collected into a batch, which is applied in a single transaction, so that
+ * the batch pays for one commit instead of one per update. A batch is applied when the window since its first update
+ * has elapsed, or as soon as it reaches the maximum batch size. Each update still completes with its own result.
+ *
+ * Batches are applied independently of each other on the executor of the batcher, so a batch may be collected while
+ * previous batches are being applied, and several batches may be applied at the same time.
+ */
+public class BookUpdateBatcher {
+
+    /**
+     * The default time to wait for more updates after the first update of a batch.
+     */
+    private static final Duration DEFAULT_WINDOW = Duration.ofMillis(1);
+    /**
+     * The default maximum number of updates in a batch.
+     */
+    private static final int DEFAULT_MAX_BATCH_SIZE = 64;
+
+    /**
+     * An update of the availability of a book.
+     */
+    public static final class Update {
+
+        public final long id;
+        public final boolean available;
+
+        public Update(long id, boolean available) {
+            this.id = id;
+            this.available = available;
+        }
+    }
+
+    /**
+     * An update waiting for its batch to be applied.
+     */
+    private static final class PendingUpdate {
+
+        @NotNull
+        final Update update;
+        @NotNull
+        final CompletableFuture<Integer> future = new CompletableFuture<>();
+
+        PendingUpdate(@NotNull Update update) {
+            this.update = update;
+        }
+    }
+
+    @Nullable
+    private static BookUpdateBatcher INSTANCE;
+
+    /**
+     * @return The singleton instance of this class, which applies batches with
+     * {@link BooksPutDataAccess#updateBooks(List)} on the executor of {@link DatabaseConnectionPoolV2}.
+     */
+    @NotNull
+    public synchronized static BookUpdateBatcher getInstance() {
+        if (INSTANCE == null) {
+            INSTANCE = new BookUpdateBatcher(BooksPutDataAccess::updateBooks,
+                    DatabaseConnectionPoolV2.getInstance().getExecutor());
+        }
+
+        return INSTANCE;
+    }
+
+    /**
+     * Applies a batch of updates asynchronously, completing with the result of each update in the order of the batch.
+     */
+    @NotNull
+    private final Function<List<Update>, CompletableFuture<List<Integer>>> applier;
+    /**
+     * Executor on which {@link BookUpdateBatcher#applier} is called.
+     */
+    @NotNull
+    private final Executor executor;
+    /**
+     * Executor for collecting batches when their window has elapsed.
+     */
+    private final ScheduledExecutorService timer = Executors.newSingleThreadScheduledExecutor(
+            ExecutorUtils.newDaemonThreadFactory("group-commit"));
+
+    private volatile boolean isEnabled = false;
+    @NotNull
+    private volatile Duration window = DEFAULT_WINDOW;
+    private volatile int maxBatchSize = DEFAULT_MAX_BATCH_SIZE;
+
+    /**
+     * The batch currently being collected.
+     */
+    @NotNull
+    private List<PendingUpdate> batch = new ArrayList<>();
+    /**
+     * The task applying the current batch when its window has elapsed.
+     */
+    @Nullable
+    private ScheduledFuture<?> flushTask;
+
+    /**
+     * @param applier The function applying a batch of updates. It returns a {@link CompletableFuture} completing with
+     *                the result of each update in the order of the batch.
+     * @param executor The executor on which {@code applier} is called, so that batches are neither applied on the timer
+     *                 thread one at a time, nor on the thread submitting the update which fills a batch.
+     */
+    BookUpdateBatcher(@NotNull Function<List<Update>, CompletableFuture<List<Integer>>> applier,
+                      @NotNull Executor executor) {
+        this.applier = applier;
+        this.executor = executor;
+    }
+
+    /**
+     * Submits an update to be applied with the current batch.
+     *
+     * @param id The ID of the book.
+     * @param available The new available state of the book.
+     * @return A {@link CompletableFuture} completing with the result of the update when its batch is applied, or
+     * completing exceptionally if the batch cannot be applied.
+     */
+    @NotNull
+    public CompletableFuture<Integer> submit(long id, boolean available) {
+        final var pendingUpdate = new PendingUpdate(new Update(id, available));
+
+        List<PendingUpdate> fullBatch = null;
+        synchronized (this) {
+            batch.add(pendingUpdate);
+            if (batch.size() >= maxBatchSize) {
+                fullBatch = takeBatch();
+            } else if (batch.size() == 1) {
+                flushTask = timer.schedule(this::flush, window.toNanos(), TimeUnit.NANOSECONDS);
+            }
+        }
+
+        if (fullBatch != null) {
+            dispatch(fullBatch);
+        }
+        return pendingUpdate.future;
+    }
+
+    /**
+     * Applies the current batch if it is not empty.
+     */
+    private void flush() {
+        final List<PendingUpdate> currentBatch;
+        synchronized (this) {
+            if (batch.isEmpty()) {
+                return;
+            }
+            currentBatch = takeBatch();
+        }
+
+        dispatch(currentBatch);
+    }
+
+    /**
+     * Replaces the current batch with an empty batch.
+     *
+     * @return The current batch.
+     */
+    @NotNull
+    private synchronized List<PendingUpdate> takeBatch() {
+        if (flushTask != null) {
+            flushTask.cancel(false);
+            flushTask = null;
+        }
+
+        final var currentBatch = batch;
+        batch = new ArrayList<>();
+        return currentBatch;
+    }
+
+    /**
+     * Applies a batch on {@link BookUpdateBatcher#executor}, and completes the updates of the batch with their results.
+     */
+    private void dispatch(@NotNull List<PendingUpdate> pendingUpdates) {
+        try {
+            executor.execute(() -> apply(pendingUpdates));
+        } catch (RejectedExecutionException e) {
+            pendingUpdates.forEach(it -> it.future.completeExceptionally(e));
+        }
+    }
+
+    /**
+     * Applies a batch, and completes the updates of the batch with their results.
+     */
+    private void apply(@NotNull List<PendingUpdate> pendingUpdates) {
+        final var updates = pendingUpdates.stream().map(it -> it.update).collect(Collectors.toList());
+
+        CompletableFuture<List<Integer>> batchResults;
+        try {
+            batchResults = applier.apply(updates);
+        } catch (RuntimeException e) {
+            batchResults = CompletableFuture.failedFuture(e);
+        }
+
+        batchResults.whenComplete((results, tr) -> {
+            for (int i = 0; i < pendingUpdates.size(); ++i) {
+                final var future = pendingUpdates.get(i).future;
+                if (tr != null) {
+                    future.completeExceptionally(tr);
+                } else {
+                    future.complete(results.get(i));
+                }
+            }
+        });
+    }
+
+    /**
+     * @return Whether updates of books outside transactions are coalesced by this instance.
+     */
+    public boolean isEnabled() {
+        return isEnabled;
+    }
+
+    /**
+     * Sets whether updates of books outside transactions are coalesced by this instance.
+     *
+     * @param enabled If {@code true}, updates are submitted to this instance.
+     */
+    public void setEnabled(boolean enabled) {
+        this.isEnabled = enabled;
+    }
+
+    /**
+     * Sets the time to wait for more updates after the first update of a batch.
+     *
+     * @param window New batching window.
+     */
+    public void setWindow(@NotNull Duration window) {
+        this.window = window;
+    }
+
+    /**
+     * Resets the time to wait for more updates after the first update of a batch.
+     *
+     * The default value is {@link BookUpdateBatcher#DEFAULT_WINDOW}.
+     */
+    public void resetWindow() {
+        this.window = DEFAULT_WINDOW;
+    }
+
+    /**
+     * Sets the maximum number of updates in a batch.
+     *
+     * @param size New maximum batch size.
+     * @throws IllegalArgumentException if {@code size} is not a positive value.
+     */
+    public void setMaxBatchSize(int size) {
+        if (size <= 0) {
+            throw new IllegalArgumentException("Batch size must be a positive value");
+        }
+
+        this.maxBatchSize = size;
+    }
+
+    /**
+     * Resets the maximum number of updates in a batch.
+     *
+     * The default value is {@link BookUpdateBatcher#DEFAULT_MAX_BATCH_SIZE}.
+     */
+    public void resetMaxBatchSize() {
+        this.maxBatchSize = DEFAULT_MAX_BATCH_SIZE;
+    }
+}
@@ -16,12 +16,16 @@ public class BooksDeleteDataAccess {
                     stmt.setLong(1, id);
                     return stmt.executeUpdate() > 0;
                 }
-            }).get();
+            }, true).get();
         } catch (Exception e) {
             LOGGER.error("Unable to delete book", e);
             isSuccess = false;
         }
 
+        BookCache.getInstance().invalidate(id);
+        if (isSuccess) {
+            BookCatalog.getInstance().remove(id);
+        }
         return isSuccess;
     }
 }
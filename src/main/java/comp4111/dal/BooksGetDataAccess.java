@@ -11,6 +11,8 @@ import org.jetbrains.annotations.Nullable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.sql.ResultSet;
+import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.CompletionException;
@@ -19,8 +21,74 @@ public class BooksGetDataAccess extends Book {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(BooksGetDataAccess.class);
 
+    /**
+     * The columns needed for listing books, in the order expected by {@link Book#toJsonBook(ResultSet)}.
+     */
+    private static final String LISTING_COLUMNS = "id, title, author, publisher, year";
+
+    /**
+     * A book in a listing, along with its ID for creating cursors.
+     */
+    static final class ListedBook {
+
+        final long id;
+        @NotNull
+        final comp4111.model.Book book;
+
+        ListedBook(long id, @NotNull comp4111.model.Book book) {
+            this.id = id;
+            this.book = book;
+        }
+
+        @NotNull
+        static ListedBook fromResultSet(@NotNull ResultSet rs) {
+            try {
+                return new ListedBook(rs.getLong(1), toJsonBook(rs));
+            } catch (SQLException e) {
+                throw new RuntimeException(e);
+            }
+        }
+    }
+
     @Nullable
     public static BooksGetResult getBooksAsync(@NotNull BooksGetHandler.QueryParams queryParams) {
+        if (queryParams.sort == BooksGetHandler.QueryParams.SortField.NONE && queryParams.order != BooksGetHandler.QueryParams.OutputOrder.NONE) {
+            throw new CompletionException(new HttpHandlingException(HttpStatus.SC_BAD_REQUEST));
+        }
+
+        try {
+            // The catalog answers the query from memory if it is loaded.
+            var booksInDb = BookCatalog.getInstance().query(queryParams);
+            if (booksInDb == null) {
+                booksInDb = queryDatabase(queryParams);
+            }
+
+            final String nextCursor;
+            final List<ListedBook> page;
+            if (queryParams.limit != null && booksInDb.size() > queryParams.limit) {
+                page = booksInDb.subList(0, queryParams.limit);
+                nextCursor = page.isEmpty() ? null : toCursor(queryParams, page.get(page.size() - 1)).encode();
+            } else {
+                page = booksInDb;
+                nextCursor = null;
+            }
+
+            final var books = new ArrayList<comp4111.model.Book>(page.size());
+            page.forEach(it -> books.add(it.book));
+            return new BooksGetResult(books, nextCursor);
+        } catch (Exception e) {
+            LOGGER.error("Error querying the table", e);
+            throw new CompletionException(new HttpHandlingException(HttpStatus.SC_BAD_REQUEST, e));
+        }
+    }
+
+    /**
+     * Queries the books matching a request from the database.
+     *
+     * @return The matching books in the requested order, with at most one book more than the limit of the request.
+     */
+    @NotNull
+    private static List<ListedBook> queryDatabase(@NotNull BooksGetHandler.QueryParams queryParams) throws Exception {
         final var params = new ArrayList<>();
         final var list = new ArrayList<String>();
         if (queryParams.id != null) {
@@ -29,48 +97,102 @@ public class BooksGetDataAccess extends Book {
         }
         if (queryParams.title != null) {
             // https://stackoverflow.com/a/2876802
+            // Wildcards are escaped, so that the string is matched literally as it is by the catalog.
             list.add("LOWER(title) LIKE ?");
-            params.add("%" + queryParams.title + "%");
+            params.add("%" + Collation.escapeLike(queryParams.title) + "%");
         }
         if (queryParams.author != null) {
             list.add("LOWER(author) LIKE ?");
-            params.add("%" + queryParams.author + "%");
+            params.add("%" + Collation.escapeLike(queryParams.author) + "%");
         }
-        final var chunk1 = list.isEmpty() ? "" : "WHERE " + String.join(" OR ", list);
 
-        if (queryParams.sort == BooksGetHandler.QueryParams.SortField.NONE && queryParams.order != BooksGetHandler.QueryParams.OutputOrder.NONE) {
-            throw new CompletionException(new HttpHandlingException(HttpStatus.SC_BAD_REQUEST));
+        // Pages must be in a total order for cursors to work, so ties of the sort field are broken by the ID.
+        final var isPaged = queryParams.limit != null || queryParams.after != null;
+        final var isSortedById = queryParams.sort == BooksGetHandler.QueryParams.SortField.NONE
+                || queryParams.sort == BooksGetHandler.QueryParams.SortField.ID;
+        final var orderComponent = queryParams.order == BooksGetHandler.QueryParams.OutputOrder.NONE
+                ? ""
+                : " " + queryParams.order.toSQLComponent();
+
+        final var conditions = new ArrayList<String>();
+        if (!list.isEmpty()) {
+            conditions.add("(" + String.join(" OR ", list) + ")");
         }
+        if (queryParams.after != null) {
+            final var cmp = queryParams.after.isDescending() ? "<" : ">";
+            if (isSortedById) {
+                conditions.add("id " + cmp + " ?");
+                params.add(queryParams.after.id);
+            } else {
+                final var column = queryParams.sort.toSQLComponent();
+                conditions.add("(" + column + " " + cmp + " ? OR (" + column + " = ? AND id " + cmp + " ?))");
+                params.add(queryParams.after.sortValue);
+                params.add(queryParams.after.sortValue);
+                params.add(queryParams.after.id);
+            }
+        }
+        final var chunk1 = conditions.isEmpty() ? "" : "WHERE " + String.join(" AND ", conditions);
 
         final String chunk2;
-        if (queryParams.sort == BooksGetHandler.QueryParams.SortField.NONE) {
-            chunk2 = "";
-        } else if (queryParams.order == BooksGetHandler.QueryParams.OutputOrder.NONE) {
-            chunk2 = "ORDER BY " + queryParams.sort.toSQLComponent();
+        if (isSortedById) {
+            chunk2 = isPaged ? "ORDER BY id" + orderComponent : "";
+        } else if (isPaged) {
+            chunk2 = "ORDER BY " + queryParams.sort.toSQLComponent() + orderComponent + ", id" + orderComponent;
         } else {
-            chunk2 = "ORDER BY " + queryParams.sort.toSQLComponent() + " " + queryParams.order.toSQLComponent();
+            chunk2 = "ORDER BY " + queryParams.sort.toSQLComponent() + orderComponent;
         }
 
-        try {
-            final var ext = String.join(" ", chunk1, chunk2, InnoDBLockMode.SHARE.asSQLQueryComponent()).trim();
+        // One more book than the limit is fetched to determine whether there is a next page.
+        final String chunk3;
+        if (queryParams.limit != null) {
+            chunk3 = "LIMIT ?";
+            params.add(queryParams.limit + 1L);
+        } else {
+            chunk3 = "";
+        }
 
-            final var booksInDb = QueryUtils.queryTable(
-                    null,
-                    "Book",
-                    ext,
-                    params,
-                    Book::toJsonBook)
-                    .get();
+        // Listings only need committed rows, so they are read from a snapshot without locking the books.
+        final var ext = String.join(" ", chunk1, chunk2, chunk3).trim();
 
-            if (queryParams.limit == null || booksInDb.size() <= queryParams.limit) {
-                return new BooksGetResult(booksInDb);
-            } else {
-                return new BooksGetResult(booksInDb.subList(0, queryParams.limit));
-            }
-        } catch (Exception e) {
-            LOGGER.error("Error querying the table", e);
-            throw new CompletionException(new HttpHandlingException(HttpStatus.SC_BAD_REQUEST, e));
+        return QueryUtils.querySnapshot(
+                LISTING_COLUMNS,
+                "Book",
+                ext,
+                params,
+                ListedBook::fromResultSet)
+                .get();
+    }
+
+    /**
+     * Reads all books from the database for loading {@link BookCatalog}.
+     */
+    @NotNull
+    static List<ListedBook> queryAll() throws Exception {
+        return QueryUtils.querySnapshot(LISTING_COLUMNS, "Book", "", new ArrayList<>(), ListedBook::fromResultSet).get();
+    }
+
+    /**
+     * Creates the cursor pointing after a book in a listing.
+     */
+    @NotNull
+    private static BooksGetHandler.QueryParams.Cursor toCursor(@NotNull BooksGetHandler.QueryParams queryParams,
+                                                               @NotNull ListedBook last) {
+        final Object sortValue;
+        switch (queryParams.sort) {
+            case TITLE:
+                sortValue = last.book.getTitle();
+                break;
+            case AUTHOR:
+                sortValue = last.book.getAuthor();
+                break;
+            case YEAR:
+                sortValue = last.book.getYear();
+                break;
+            default:
+                sortValue = null;
+                break;
         }
+        return new BooksGetHandler.QueryParams.Cursor(queryParams.sort, queryParams.order, last.id, sortValue);
     }
 
     public static BooksGetResult getBooks(@Nullable Long queryId,
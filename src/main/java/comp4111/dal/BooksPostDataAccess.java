@@ -3,11 +3,18 @@ package comp4111.dal;
 import comp4111.dal.model.Book;
 import comp4111.util.QueryUtils;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.sql.Connection;
+import java.sql.SQLException;
 import java.sql.Statement;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.concurrent.atomic.AtomicLong;
 
@@ -15,35 +22,260 @@ public class BooksPostDataAccess extends Book {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(BooksPostDataAccess.class);
 
-    public static long addBook(@NotNull Book book) {
-        // https://stackoverflow.com/questions/1915166/how-to-get-the-insert-id-in-jdbc
-        long id;
+    /**
+     * The MySQL error code for a duplicate value of a unique key.
+     */
+    private static final int ER_DUP_ENTRY = 1062;
+    /**
+     * The maximum number of attempts to insert a book, if the duplicate book is deleted before its ID is read.
+     */
+    private static final int MAX_INSERT_ATTEMPTS = 3;
+
+    /**
+     * The result of {@link BooksPostDataAccess#addBookIfAbsent(Book)}.
+     */
+    public static final class InsertResult {
+
+        /**
+         * The ID of the inserted book, or the ID of the existing book with the same title.
+         */
+        public final long id;
+        /**
+         * Whether a book with the same title already exists.
+         */
+        public final boolean isDuplicate;
+
+        InsertResult(long id, boolean isDuplicate) {
+            this.id = id;
+            this.isDuplicate = isDuplicate;
+        }
+    }
+
+    /**
+     * Inserts a book unless a book with the same title exists.
+     *
+     * The insertion relies on the {@code UNIQUE} constraint of the title, so concurrent insertions of the same title
+     * cannot both succeed. The insertion is a single statement in autocommit mode; the ID of the existing book is only
+     * read if the insertion fails.
+     *
+     * @param book The book to insert.
+     * @return The result of the insertion, or {@code null} if an error has occurred.
+     */
+    @Nullable
+    public static InsertResult addBookIfAbsent(@NotNull Book book) {
+        final var cache = BookCache.getInstance();
+        final var cachedId = cache.getIdByTitle(book.getTitle());
+        if (cachedId != 0) {
+            return new InsertResult(cachedId, true);
+        }
+
+        final var stamp = cache.getStamp();
+        final InsertResult result;
         try {
-            id = DatabaseConnectionPoolV2.getInstance().execStmt(connection -> {
-                try (var stmt = connection.prepareStatement("INSERT IGNORE INTO Book VALUES(NULL, ?, ?, ?, ?, ?)", Statement.RETURN_GENERATED_KEYS)) {
-                    stmt.setString(1, book.getTitle());
-                    stmt.setString(2, book.getAuthor());
-                    stmt.setString(3, book.getPublisher());
-                    stmt.setInt(4, book.getYear());
-                    stmt.setBoolean(5, book.isAvailable());
-                    stmt.executeUpdate();
-
-                    try (var generatedKeys = stmt.getGeneratedKeys()) {
-                        if (generatedKeys.next()) {
-                            LOGGER.info("Inserted id={}", generatedKeys.getLong(1));
-                            return generatedKeys.getLong(1);
-                        } else {
-                            return 0L;
-                        }
+            result = DatabaseConnectionPoolV2.getInstance().execStmt(connection -> insertOrGet(connection, book), true).get();
+        } catch (Exception e) {
+            LOGGER.error("Unable to insert book", e);
+            return null;
+        }
+
+        if (result.isDuplicate) {
+            cache.putTitle(stamp, book.getTitle(), result.id);
+        } else {
+            cache.put(stamp, new Book(result.id, book.getTitle(), book.getAuthor(), book.getPublisher(), book.getYear(), book.isAvailable()));
+            BookCatalog.getInstance().add(result.id, new comp4111.model.Book(book.getTitle(), book.getAuthor(), book.getPublisher(), book.getYear()));
+        }
+        return result;
+    }
+
+    /**
+     * Inserts a book, or reads the ID of the existing book with the same title.
+     */
+    @NotNull
+    private static InsertResult insertOrGet(@NotNull Connection connection, @NotNull Book book) throws SQLException {
+        for (int i = 0; i < MAX_INSERT_ATTEMPTS; ++i) {
+            // https://stackoverflow.com/questions/1915166/how-to-get-the-insert-id-in-jdbc
+            try (var stmt = connection.prepareStatement("INSERT INTO Book VALUES(NULL, ?, ?, ?, ?, ?)", Statement.RETURN_GENERATED_KEYS)) {
+                stmt.setString(1, book.getTitle());
+                stmt.setString(2, book.getAuthor());
+                stmt.setString(3, book.getPublisher());
+                stmt.setInt(4, book.getYear());
+                stmt.setBoolean(5, book.isAvailable());
+                stmt.executeUpdate();
+
+                try (var generatedKeys = stmt.getGeneratedKeys()) {
+                    if (!generatedKeys.next()) {
+                        throw new SQLException("No ID is generated for the inserted book");
                     }
+
+                    LOGGER.info("Inserted id={}", generatedKeys.getLong(1));
+                    return new InsertResult(generatedKeys.getLong(1), false);
                 }
+            } catch (SQLException e) {
+                if (e.getErrorCode() != ER_DUP_ENTRY) {
+                    throw e;
+                }
+            }
+
+            // The insertion has waited for the duplicate book to be committed. The read is a locking read, so that it
+            // sees the book even if the snapshot of the transaction is taken earlier.
+            try (var stmt = connection.prepareStatement("SELECT id FROM Book WHERE title = ? " + InnoDBLockMode.SHARE.asSQLQueryComponent())) {
+                stmt.setString(1, book.getTitle());
+                try (var rs = stmt.executeQuery()) {
+                    if (rs.next()) {
+                        return new InsertResult(rs.getLong(1), true);
+                    }
+                }
+            }
+        }
+
+        throw new SQLException("Duplicate book is repeatedly deleted during insertion");
+    }
+
+    /**
+     * Inserts a batch of books in a single transaction, skipping books whose titles already exist.
+     *
+     * Existing titles are looked up by a single query, and the remaining books are inserted by a single multi-row
+     * {@code INSERT}. If a book with one of the titles is inserted concurrently, the transaction falls back to
+     * inserting the books one by one. Books with the same title as an earlier book of the batch are reported as
+     * duplicates of the earlier book.
+     *
+     * @param books The books to insert.
+     * @return The result of the insertion of each book, in the order of {@code books}, or {@code null} if an error has
+     * occurred, in which case none of the books are inserted.
+     */
+    @Nullable
+    public static List<InsertResult> addBooksIfAbsent(@NotNull List<Book> books) {
+        if (books.isEmpty()) {
+            return List.of();
+        }
+
+        final List<InsertResult> results;
+        try {
+            results = DatabaseConnectionPoolV2.getInstance().execStmt(connection -> {
+                try {
+                    return insertBatch(connection, books);
+                } catch (SQLException e) {
+                    if (e.getErrorCode() != ER_DUP_ENTRY) {
+                        throw e;
+                    }
+                }
+
+                // Discard the snapshot of the transaction, which does not contain the concurrently inserted book.
+                connection.rollback();
+                final var fallbackResults = new ArrayList<InsertResult>(books.size());
+                final var insertedTitles = new HashMap<String, Long>();
+                for (final var book : books) {
+                    final var insertedId = insertedTitles.get(book.getTitle());
+                    if (insertedId != null) {
+                        fallbackResults.add(new InsertResult(insertedId, true));
+                    } else {
+                        final var result = insertOrGet(connection, book);
+                        insertedTitles.put(book.getTitle(), result.id);
+                        fallbackResults.add(result);
+                    }
+                }
+                return fallbackResults;
             }).get();
         } catch (Exception e) {
-            LOGGER.error("Unable to insert book", e);
-            id = 0;
+            LOGGER.error("Unable to insert books", e);
+            return null;
         }
 
-        return id;
+        final var catalogBooks = new ArrayList<BooksGetDataAccess.ListedBook>();
+        for (int i = 0; i < books.size(); ++i) {
+            final var book = books.get(i);
+            final var result = results.get(i);
+            if (!result.isDuplicate) {
+                catalogBooks.add(new BooksGetDataAccess.ListedBook(result.id, new comp4111.model.Book(book.getTitle(), book.getAuthor(), book.getPublisher(), book.getYear())));
+            }
+        }
+        BookCatalog.getInstance().addAll(catalogBooks);
+        return results;
+    }
+
+    /**
+     * Inserts a batch of books using a multi-row {@code INSERT}.
+     *
+     * @throws SQLException with {@link BooksPostDataAccess#ER_DUP_ENTRY} if a book with one of the titles is inserted
+     * after the existing titles are looked up.
+     */
+    @NotNull
+    private static List<InsertResult> insertBatch(@NotNull Connection connection, @NotNull List<Book> books) throws SQLException {
+        // The index of the first book of the batch with each title.
+        final var firstIndices = new LinkedHashMap<String, Integer>();
+        for (int i = 0; i < books.size(); ++i) {
+            firstIndices.putIfAbsent(books.get(i).getTitle(), i);
+        }
+
+        final var ids = new HashMap<String, Long>();
+        final var existingTitles = new HashSet<String>();
+        final var placeholders = String.join(", ", Collections.nCopies(firstIndices.size(), "?"));
+        try (var stmt = connection.prepareStatement("SELECT id, title FROM Book WHERE title IN (" + placeholders + ")")) {
+            int paramIndex = 0;
+            for (final var title : firstIndices.keySet()) {
+                stmt.setString(++paramIndex, title);
+            }
+            try (var rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    ids.put(rs.getString(2), rs.getLong(1));
+                    existingTitles.add(rs.getString(2));
+                }
+            }
+        }
+
+        // Titles which only differ from an existing title in case are not found here, but are rejected by the unique
+        // key when inserted.
+        final var newBooks = new ArrayList<Book>();
+        firstIndices.forEach((title, index) -> {
+            if (!ids.containsKey(title)) {
+                newBooks.add(books.get(index));
+            }
+        });
+        if (!newBooks.isEmpty()) {
+            final var rows = String.join(", ", Collections.nCopies(newBooks.size(), "(NULL, ?, ?, ?, ?, ?)"));
+            try (var stmt = connection.prepareStatement("INSERT INTO Book VALUES " + rows, Statement.RETURN_GENERATED_KEYS)) {
+                int paramIndex = 0;
+                for (final var book : newBooks) {
+                    stmt.setString(++paramIndex, book.getTitle());
+                    stmt.setString(++paramIndex, book.getAuthor());
+                    stmt.setString(++paramIndex, book.getPublisher());
+                    stmt.setInt(++paramIndex, book.getYear());
+                    stmt.setBoolean(++paramIndex, book.isAvailable());
+                }
+                stmt.executeUpdate();
+
+                // The keys are returned in the order of the rows.
+                try (var generatedKeys = stmt.getGeneratedKeys()) {
+                    for (final var book : newBooks) {
+                        if (!generatedKeys.next()) {
+                            throw new SQLException("No ID is generated for the inserted book");
+                        }
+                        ids.put(book.getTitle(), generatedKeys.getLong(1));
+                    }
+                }
+            }
+            LOGGER.info("Inserted {} books", newBooks.size());
+        }
+
+        final var results = new ArrayList<InsertResult>(books.size());
+        for (int i = 0; i < books.size(); ++i) {
+            final var title = books.get(i).getTitle();
+            results.add(new InsertResult(ids.get(title), existingTitles.contains(title) || firstIndices.get(title) != i));
+        }
+        return results;
+    }
+
+    @Nullable
+    public static InsertResult addBookIfAbsent(@NotNull comp4111.model.Book book) {
+        return addBookIfAbsent(new Book(book.getTitle(), book.getAuthor(), book.getPublisher(), book.getYear()));
+    }
+
+    /**
+     * @return The ID of the inserted book, or {@code 0} if a book with the same title exists or an error has occurred.
+     */
+    public static long addBook(@NotNull Book book) {
+        final var result = addBookIfAbsent(book);
+        return result == null || result.isDuplicate ? 0 : result.id;
     }
 
     @Deprecated
@@ -59,6 +291,13 @@ public class BooksPostDataAccess extends Book {
      * @return The ID of the book or {@code 0} if the book does not exist.
      */
     public static long getBook(String title) {
+        final var cache = BookCache.getInstance();
+        final var cachedId = cache.getIdByTitle(title);
+        if (cachedId != 0) {
+            return cachedId;
+        }
+
+        final var stamp = cache.getStamp();
         try {
             AtomicLong result = new AtomicLong();
             List<Object> params = new ArrayList<>();
@@ -69,6 +308,9 @@ public class BooksPostDataAccess extends Book {
                 result.set(b.getId());
             });
 
+            if (result.longValue() != 0) {
+                cache.putTitle(stamp, title, result.longValue());
+            }
             return result.longValue();
         } catch (Exception e) {
             LOGGER.error("Error querying the table", e);
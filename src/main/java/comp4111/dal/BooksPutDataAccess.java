@@ -10,58 +10,300 @@ import org.slf4j.LoggerFactory;
 
 import java.sql.Connection;
 import java.sql.SQLException;
-import java.util.ArrayList;
+import java.time.Duration;
+import java.util.*;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 public class BooksPutDataAccess extends Book {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(BooksPutDataAccess.class);
 
     /**
-     * Updates the available state of the book with the given ID.
+     * The time a batch of updates waits for the row lock of each book. MySQL 5.7 has no {@code NOWAIT} clause, so this
+     * is the smallest lock wait timeout it supports.
+     */
+    private static final Duration BATCH_LOCK_TIMEOUT = Duration.ofSeconds(1);
+
+    /**
+     * Updates the available state of the book with the given ID in a transaction.
      *
-     * @param con The database connection to use for the query. If {@code null}, use a new connection to execute the
-     * query.
+     * The update is a single conditional statement, which only changes the book if it is not already in the requested
+     * state. The book is only read afterwards if no book is changed, to tell whether the book is missing.
+     *
+     * @param con The database connection of the transaction to execute the update in. The update is executed on the
+     * calling thread.
      * @param id The ID of the book to query.
      * @return {@code 0} for 200 response, {@code 1} for 400 response, {@code 2} for 404 response.
+     * @throws CompletionException if the update fails due to lock contention.
+     * @see RetryPolicy#isContention(Throwable)
      */
-    public static int updateBook(@Nullable Connection con, long id, boolean available) {
-        final ConnectionFunction<Integer> block = connection -> getBook(connection, id, InnoDBLockMode.UPDATE)
-                .thenApply(book -> {
-                    if (book == null) {
-                        return 2;
-                    } else if (book.isAvailable() == available) {
-                        return 1;
-                    } else {
-                        try (var stmt = connection.prepareStatement("UPDATE Book SET available = ? WHERE id = ?")) {
-                            stmt.setBoolean(1, available);
-                            stmt.setLong(2, id);
-                            return stmt.executeUpdate() > 0 ? 0 : 1;
-                        } catch (SQLException e) {
-                            throw new CompletionException(e);
-                        }
+    public static int updateBook(@NotNull Connection con, long id, boolean available) {
+        final int status;
+        try {
+            // In a transaction, the book must be read from the latest version instead of the snapshot of the
+            // transaction.
+            status = applyUpdate(con, id, available, InnoDBLockMode.UPDATE, new AtomicReference<>());
+        } catch (Exception e) {
+            if (RetryPolicy.isContention(e)) {
+                // Lock contention is left to the owner of the transaction, which decides whether the transaction can be
+                // retried.
+                throw new CompletionException(e);
+            }
+
+            LOGGER.error("Caught error while updating book status", e);
+            return 1;
+        }
+
+        // The change is not committed until the transaction is, so the book is not cached until then. The state of a
+        // book in a transaction is not cached either.
+        if (status != 1) {
+            BookCache.getInstance().invalidate(id);
+        }
+        return status;
+    }
+
+    /**
+     * Updates the available state of the book with the given ID outside a transaction.
+     *
+     * If group commit is enabled by {@link BookUpdateBatcher#setEnabled(boolean)}, the update is coalesced with other
+     * updates by {@link BookUpdateBatcher}. Otherwise, the update waits for the lock of the book from
+     * {@link BookLockTable} without occupying a thread, and is only dispatched to the connection pool once the lock is
+     * acquired.
+     *
+     * @param id The ID of the book to update.
+     * @return A {@link CompletableFuture} completing with {@code 0} for 200 response, {@code 1} for 400 response,
+     * {@code 2} for 404 response.
+     */
+    @NotNull
+    public static CompletableFuture<Integer> updateBookAsync(long id, boolean available) {
+        if (isUnchangedInCache(id, available)) {
+            return CompletableFuture.completedFuture(1);
+        }
+
+        final var batcher = BookUpdateBatcher.getInstance();
+        if (!batcher.isEnabled()) {
+            return updateBookWithLock(id, available);
+        }
+
+        return batcher.submit(id, available).exceptionally(tr -> {
+            LOGGER.error("Caught error while updating book status", tr);
+            return 1;
+        });
+    }
+
+    /**
+     * Updates the available state of the book with the given ID outside a transaction, while holding the lock of the
+     * book from {@link BookLockTable}.
+     *
+     * @return A {@link CompletableFuture} completing with {@code 0} for 200 response, {@code 1} for 400 response,
+     * {@code 2} for 404 response.
+     */
+    @NotNull
+    private static CompletableFuture<Integer> updateBookWithLock(long id, boolean available) {
+        final var stamp = BookCache.getInstance().getStamp();
+        final var unchangedBook = new AtomicReference<Book>();
+        final ConnectionFunction<Integer> block = connection -> applyUpdate(connection, id, available, InnoDBLockMode.DEFAULT, unchangedBook);
+
+        // Conflicting updates queue for the lock of the book before checking out a connection, so that only one of them
+        // waits for the lock of the row in the database.
+        return BookLockTable.getInstance().lock(id)
+                .thenCompose(lease -> {
+                    if (lease == null) {
+                        LOGGER.warn("Timed out waiting for the lock of book {}", id);
+                        return CompletableFuture.completedFuture(1);
                     }
+
+                    // The update is a single statement unless it fails, so it does not need an explicit commit.
+                    return DatabaseConnectionPoolV2.getInstance().execStmt(block, true)
+                            .whenComplete((status, tr) -> lease.close())
+                            .thenApply(status -> {
+                                cacheCommittedUpdate(stamp, id, available, status, unchangedBook.get());
+                                return status;
+                            });
                 })
-                .join();
+                .exceptionally(tr -> {
+                    LOGGER.error("Caught error while updating book status", tr);
+                    return 1;
+                });
+    }
 
-        CompletableFuture<Integer> result;
-        try {
-            if (con != null) {
-                result = CompletableFuture.supplyAsync(() -> {
+    /**
+     * Updates the available states of multiple books in a single transaction.
+     *
+     * Updates are applied in the order of the IDs of their books, so that concurrent batches lock rows in the same
+     * order and cannot deadlock each other. Updates of the same book are applied in the order of {@code updates}.
+     *
+     * The batch waits for at most {@link BooksPutDataAccess#BATCH_LOCK_TIMEOUT} for the row lock of each book, and is
+     * never retried, so that a book locked by a transaction does not hold up the whole batch. An update timing out
+     * only rolls back its own statement, so it is skipped along with the later updates of the same book, and the rest
+     * of the batch is committed. Skipped updates are then applied on their own, waiting for the lock as usual. If the
+     * transaction fails, each update is applied on its own instead.
+     *
+     * @param updates The updates to apply.
+     * @return A {@link CompletableFuture} completing with the result of each update in the order of {@code updates}:
+     * {@code 0} for 200 response, {@code 1} for 400 response, {@code 2} for 404 response.
+     */
+    @NotNull
+    static CompletableFuture<List<Integer>> updateBooks(@NotNull List<BookUpdateBatcher.Update> updates) {
+        final var cache = BookCache.getInstance();
+        final var stamp = cache.getStamp();
+
+        // The sort is stable, so updates of the same book keep their order.
+        final var order = IntStream.range(0, updates.size()).boxed()
+                .sorted(Comparator.comparingLong(i -> updates.get(i).id))
+                .collect(Collectors.toList());
+        final var statuses = new int[updates.size()];
+        final var unchangedBooks = new Book[updates.size()];
+        final var skipped = new ArrayList<Integer>();
+
+        final var bookIds = updates.stream().map(update -> update.id).collect(Collectors.toList());
+        return BookLockTable.getInstance().lockAll(bookIds).thenCompose(lease -> {
+            if (lease == null) {
+                LOGGER.warn("Timed out waiting for the locks of books {}", bookIds);
+                return CompletableFuture.completedFuture(Collections.nCopies(updates.size(), 1));
+            }
+
+            return DatabaseConnectionPoolV2.getInstance().execStmtOnce(connection -> {
+                final var skippedIds = new HashSet<Long>();
+                final var unchangedBook = new AtomicReference<Book>();
+                for (final var i : order) {
+                    final var update = updates.get(i);
+                    if (skippedIds.contains(update.id)) {
+                        skipped.add(i);
+                        continue;
+                    }
+
+                    unchangedBook.set(null);
                     try {
-                        return block.apply(con);
-                    } catch (SQLException e) {
-                        throw new CompletionException(e);
+                        statuses[i] = applyUpdate(connection, update.id, update.available, InnoDBLockMode.UPDATE, unchangedBook);
+                    } catch (Exception e) {
+                        if (!RetryPolicy.isLockWaitTimeout(e)) {
+                            throw e;
+                        }
+
+                        skippedIds.add(update.id);
+                        skipped.add(i);
+                        continue;
                     }
-                });
-            } else {
-                result = DatabaseConnectionPoolV2.getInstance().execStmt(block);
+                    unchangedBooks[i] = unchangedBook.get();
+                }
+                return null;
+            }, BATCH_LOCK_TIMEOUT).handle((v, tr) -> {
+                lease.close();
+                if (tr != null) {
+                    LOGGER.error("Caught error while updating books in batch: Updating books separately", tr);
+                    return updateSeparately(updates, order, statuses);
+                }
+
+                // The batch is committed, and the rows are locked until then, so the books read by the batch are
+                // committed.
+                final var skippedSet = new HashSet<>(skipped);
+                for (final var i : order) {
+                    if (!skippedSet.contains(i)) {
+                        cacheCommittedUpdate(stamp, updates.get(i).id, updates.get(i).available, statuses[i], unchangedBooks[i]);
+                    }
+                }
+
+                if (!skipped.isEmpty()) {
+                    LOGGER.info("Timed out waiting for the row locks of {} updates in batch: Updating them separately", skipped.size());
+                }
+                return updateSeparately(updates, skipped, statuses);
+            }).thenCompose(Function.identity());
+        });
+    }
+
+    /**
+     * Applies updates of a batch on their own, one at a time.
+     *
+     * @param updates The updates of the batch.
+     * @param indices The indices of the updates to apply, in the order to apply them.
+     * @param statuses Receives the result of each applied update at its index.
+     * @return A {@link CompletableFuture} completing with the results of all updates of the batch, after the updates
+     * are applied.
+     */
+    @NotNull
+    private static CompletableFuture<List<Integer>> updateSeparately(
+            @NotNull List<BookUpdateBatcher.Update> updates,
+            @NotNull List<Integer> indices,
+            int[] statuses) {
+        var future = CompletableFuture.<Void>completedFuture(null);
+        for (final var i : indices) {
+            final var update = updates.get(i);
+            future = future.thenCompose(v -> updateBookWithLock(update.id, update.available))
+                    .thenAccept(status -> statuses[i] = status);
+        }
+        return future.thenApply(v -> Arrays.stream(statuses).boxed().collect(Collectors.toList()));
+    }
+
+    /**
+     * @return Whether the book with the given ID is cached to be already in the requested state.
+     */
+    private static boolean isUnchangedInCache(long id, boolean available) {
+        final var cachedBook = BookCache.getInstance().get(id);
+        return cachedBook != null && cachedBook.isAvailable() == available;
+    }
+
+    /**
+     * Executes the conditional update of the available state of a book.
+     *
+     * The update only changes the book if it is not already in the requested state. The book is only read afterwards if
+     * no book is changed, to tell whether the book is missing.
+     *
+     * @param connection The connection to execute the update on.
+     * @param id The ID of the book to update.
+     * @param lockMode The lock mode when reading the book after the update.
+     * @param unchangedBook Receives the book read after the update, if the book is not changed.
+     * @return {@code 0} if the book is changed, {@code 1} if the book is already in the requested state, {@code 2} if
+     * the book does not exist.
+     * @throws SQLException if a database access error has occurred.
+     */
+    private static int applyUpdate(
+            @NotNull Connection connection,
+            long id,
+            boolean available,
+            @NotNull InnoDBLockMode lockMode,
+            @NotNull AtomicReference<Book> unchangedBook) throws SQLException {
+        try (var stmt = connection.prepareStatement("UPDATE Book SET available = ? WHERE id = ? AND available <> ?")) {
+            stmt.setBoolean(1, available);
+            stmt.setLong(2, id);
+            stmt.setBoolean(3, available);
+            if (stmt.executeUpdate() > 0) {
+                return 0;
             }
-            return result.get();
-        } catch (Exception e) {
-            LOGGER.error("Caught error while updating book status", e);
-            return 1;
+        }
+
+        // In a transaction, the lock of the row is already held by the update, so the locking read does not wait.
+        // Outside a transaction, the lock is released when the update ends, so the book is read without a lock, and
+        // may have been changed by another transaction in between.
+        final var book = getBook(connection, id, lockMode).join();
+        unchangedBook.set(book);
+        return book == null ? 2 : 1;
+    }
+
+    /**
+     * Updates the cache with the result of a committed update.
+     *
+     * @param stamp The stamp of the cache obtained before the update.
+     * @param status The result of {@link BooksPutDataAccess#applyUpdate}.
+     * @param unchangedBook The book read after the update, if the book is not changed.
+     */
+    private static void cacheCommittedUpdate(long stamp, long id, boolean available, int status, @Nullable Book unchangedBook) {
+        final var cache = BookCache.getInstance();
+        if (status == 0) {
+            cache.putAvailability(stamp, id, available);
+        } else if (status == 1) {
+            // The book is read without the lock of its row, so it may miss a change which is not committed yet.
+            // Transactions invalidate a book as soon as they change it, and the update has waited for the transactions
+            // which changed the book before the stamp was obtained. A book missing a change has therefore been
+            // invalidated since the stamp, and is rejected by the cache.
+            cache.put(stamp, Objects.requireNonNull(unchangedBook));
+        } else {
+            cache.invalidate(id);
         }
     }
 
@@ -0,0 +1,114 @@
+package comp4111.dal;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.text.Normalizer;
+
+/**
+ * The collation of the text columns of the {@code Book} table, which is {@link Collation#NAME}.
+ *
+ * Text compared in memory must follow the same collation as the database, so that listings answered by
+ * {@link BookCatalog} are in the same order and contain the same books as listings answered by the database, and
+ * cursors issued by either are valid for both. Strings are first folded into keys by {@link Collation#fold(String)},
+ * and keys are compared by {@link Collation#compare(String, String)}.
+ */
+final class Collation {
+
+    /**
+     * The name of the collation in the database.
+     */
+    static final String NAME = "utf8mb4_general_ci";
+
+    /**
+     * The weight of characters outside the Basic Multilingual Plane, which the collation does not distinguish.
+     */
+    private static final char SUPPLEMENTARY_WEIGHT = '\uFFFD';
+
+    private Collation() {
+    }
+
+    /**
+     * Folds a string into its key, where each character is replaced by its weight in the collation.
+     *
+     * The weight of a character is its upper case without accents, so that keys are equal if and only if the strings
+     * are equal ignoring case and accents. Characters between {@code 'Z'} and {@code 'a'} such as {@code '_'} are
+     * therefore ordered after all letters, as they are by the database.
+     *
+     * @param str The string to fold.
+     * @return The key of {@code str}. Each character of {@code str} is folded on its own, so substrings of a string
+     * fold into substrings of its key, and keys can also be used for substring searches.
+     */
+    @NotNull
+    static String fold(@NotNull String str) {
+        final var key = new StringBuilder(str.length());
+        for (int i = 0; i < str.length(); ) {
+            final var codePoint = str.codePointAt(i);
+            i += Character.charCount(codePoint);
+            key.append(weightOf(codePoint));
+        }
+        return key.toString();
+    }
+
+    private static char weightOf(int codePoint) {
+        if (codePoint < 0x80) {
+            return (char) (codePoint >= 'a' && codePoint <= 'z' ? codePoint - ('a' - 'A') : codePoint);
+        }
+        if (Character.isSupplementaryCodePoint(codePoint)) {
+            return SUPPLEMENTARY_WEIGHT;
+        }
+        if (codePoint == '\u00DF') {
+            // Sharp s is weighted as a single 'S'.
+            return 'S';
+        }
+
+        // Accents are dropped by taking the base character of the canonical decomposition.
+        final var decomposed = Normalizer.normalize(String.valueOf((char) codePoint), Normalizer.Form.NFD);
+        return Character.toUpperCase(decomposed.charAt(0));
+    }
+
+    /**
+     * Compares two keys created by {@link Collation#fold(String)}.
+     *
+     * The collation pads the shorter string with spaces before comparing, so trailing spaces are ignored.
+     *
+     * @return A negative integer, zero, or a positive integer if {@code key1} is ordered before, equal to, or after
+     * {@code key2}.
+     */
+    static int compare(@NotNull String key1, @NotNull String key2) {
+        final var length = Math.min(key1.length(), key2.length());
+        for (int i = 0; i < length; ++i) {
+            final var cmp = Character.compare(key1.charAt(i), key2.charAt(i));
+            if (cmp != 0) {
+                return cmp;
+            }
+        }
+
+        final var longer = key1.length() > length ? key1 : key2;
+        for (int i = length; i < longer.length(); ++i) {
+            final var cmp = Character.compare(longer.charAt(i), ' ');
+            if (cmp != 0) {
+                return longer == key1 ? cmp : -cmp;
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Escapes the wildcards of a {@code LIKE} pattern, so that the pattern matches the string literally.
+     *
+     * @param str The string to match.
+     * @return {@code str} with {@code '%'}, {@code '_'} and the escape character {@code '\'} escaped.
+     */
+    @NotNull
+    static String escapeLike(@NotNull String str) {
+        final var escaped = new StringBuilder(str.length());
+        for (int i = 0; i < str.length(); ++i) {
+            final var c = str.charAt(i);
+            if (c == '%' || c == '_' || c == '\\') {
+                escaped.append('\\');
+            }
+            escaped.append(c);
+        }
+        return escaped.toString();
+    }
+}
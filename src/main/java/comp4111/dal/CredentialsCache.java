@@ -0,0 +1,96 @@
+package comp4111.dal;
+
+import comp4111.dal.model.Credentials;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A bounded cache of {@link Credentials}, keyed by username.
+ *
+ * When the number of cached credentials exceeds the capacity of the cache, the least-recently-used entry is evicted.
+ */
+public class CredentialsCache {
+
+    /**
+     * The default number of credentials held by the cache.
+     */
+    static final int DEFAULT_CAPACITY = 16384;
+
+    @Nullable
+    private static CredentialsCache INSTANCE;
+
+    /**
+     * @return The singleton instance of this class.
+     */
+    @NotNull
+    public synchronized static CredentialsCache getInstance() {
+        if (INSTANCE == null) {
+            INSTANCE = new CredentialsCache(DEFAULT_CAPACITY);
+        }
+
+        return INSTANCE;
+    }
+
+    @NotNull
+    private final Map<@NotNull String, @NotNull Credentials> cache;
+
+    /**
+     * @param capacity The maximum number of credentials to hold in the cache.
+     */
+    CredentialsCache(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Capacity must be a positive value");
+        }
+
+        cache = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Credentials> eldest) {
+                return size() > capacity;
+            }
+        };
+    }
+
+    /**
+     * @param username The username to look up.
+     * @return The cached credentials of the user, or {@code null} if the user is not in the cache.
+     */
+    @Nullable
+    public synchronized Credentials get(@NotNull String username) {
+        return cache.get(username);
+    }
+
+    /**
+     * Adds or replaces the credentials of a user.
+     *
+     * @param credentials The credentials to cache.
+     */
+    public synchronized void put(@NotNull Credentials credentials) {
+        cache.put(credentials.getUsername(), credentials);
+    }
+
+    /**
+     * Removes the credentials of a user from the cache.
+     *
+     * @param username The user to remove.
+     */
+    public synchronized void invalidate(@NotNull String username) {
+        cache.remove(username);
+    }
+
+    /**
+     * Removes all credentials from the cache.
+     */
+    public synchronized void invalidateAll() {
+        cache.clear();
+    }
+
+    /**
+     * @return The number of credentials currently held by the cache.
+     */
+    public synchronized int size() {
+        return cache.size();
+    }
+}
@@ -1,19 +1,21 @@
 package comp4111.dal;
 
 import comp4111.function.ConnectionFunction;
+import comp4111.metrics.LatencyHistogram;
+import comp4111.metrics.MetricsRegistry;
+import comp4111.util.ExecutorUtils;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
 import java.time.Duration;
-import java.util.HashSet;
+import java.util.Deque;
 import java.util.Set;
-import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.CompletionException;
-import java.util.concurrent.ForkJoinPool;
-import java.util.function.Predicate;
+import java.util.concurrent.*;
+import java.util.function.Supplier;
 
 import static comp4111.dal.DatabaseInfo.*;
 
@@ -30,6 +32,31 @@ public class DatabaseConnectionPoolV2 implements AutoCloseable {
      * The default timeout of a transaction.
      */
     private static final Duration DEFAULT_TX_TIMEOUT = Duration.ofSeconds(90);
+    /**
+     * The default maximum number of connections opened by the pool.
+     */
+    private static final int DEFAULT_MAX_POOL_SIZE = 100;
+    /**
+     * The default time to wait for a free connection when the pool is exhausted.
+     */
+    private static final Duration DEFAULT_ACQUIRE_TIMEOUT = Duration.ofSeconds(30);
+    /**
+     * The default interval between two scans for timed out transactions.
+     */
+    private static final Duration DEFAULT_REAPER_INTERVAL = Duration.ofSeconds(1);
+    /**
+     * The maximum number of database operations waiting to be executed.
+     */
+    private static final int DEFAULT_EXECUTOR_QUEUE_CAPACITY = 65536;
+
+    /**
+     * Whether the current thread belongs to the executor of a pool.
+     */
+    private static final ThreadLocal<Boolean> IS_EXECUTOR_THREAD = ThreadLocal.withInitial(() -> false);
+    /**
+     * Whether the current thread belongs to the transaction executor of a pool.
+     */
+    private static final ThreadLocal<Boolean> IS_TX_EXECUTOR_THREAD = ThreadLocal.withInitial(() -> false);
 
     private static DatabaseConnectionPoolV2 INSTANCE = null;
 
@@ -49,11 +76,132 @@ public class DatabaseConnectionPoolV2 implements AutoCloseable {
      */
     @NotNull
     private Duration defaultTxTimeout = DEFAULT_TX_TIMEOUT;
+    /**
+     * The maximum number of connections which can be opened by this pool at the same time.
+     */
+    private int maxPoolSize = DEFAULT_MAX_POOL_SIZE;
+    /**
+     * The time to wait for a free connection when the pool is exhausted.
+     */
+    @NotNull
+    private volatile Duration acquireTimeout = DEFAULT_ACQUIRE_TIMEOUT;
+    /**
+     * Whether operations are executed on the calling thread instead of the executor of this pool.
+     */
+    private volatile boolean inlineExecution = false;
+    /**
+     * The policy for retrying operations which fail due to lock contention.
+     */
+    @NotNull
+    private volatile RetryPolicy retryPolicy = new RetryPolicy();
 
     /**
-     * The pool of connection instances.
+     * The pool of connection instances, including connections which are currently checked out.
+     */
+    private final Set<DatabaseConnectionV2> connectionPool = ConcurrentHashMap.newKeySet();
+    /**
+     * Connections which are opened and not checked out.
+     *
+     * Connections are checked out from and returned to the head of the deque, so that the most recently used
+     * connections are reused first.
+     */
+    private final Deque<DatabaseConnectionV2> idleConnections = new ConcurrentLinkedDeque<>();
+    /**
+     * Permits for checking out a connection. Callers waiting for a permit are queued in FIFO order.
+     */
+    private final ResizableSemaphore connectionPermits = new ResizableSemaphore(DEFAULT_MAX_POOL_SIZE);
+    /**
+     * Index of connections which are currently bound to a transaction, keyed by the transaction ID.
+     */
+    private final ConcurrentMap<Long, DatabaseConnectionV2> txConnections = new ConcurrentHashMap<>();
+    private final ThreadFactory executorThreadFactory = ExecutorUtils.newDaemonThreadFactory("dal");
+    private final ThreadFactory txExecutorThreadFactory = ExecutorUtils.newDaemonThreadFactory("dal-tx");
+    /**
+     * Executor for running blocking database operations. The number of threads follows the maximum pool size.
+     */
+    private final ThreadPoolExecutor executor = ExecutorUtils.newBoundedExecutor(
+            r -> executorThreadFactory.newThread(() -> {
+                IS_EXECUTOR_THREAD.set(true);
+                r.run();
+            }),
+            DEFAULT_MAX_POOL_SIZE,
+            DEFAULT_EXECUTOR_QUEUE_CAPACITY);
+    /**
+     * Executor for running operations on transactions which are bound to a connection.
+     *
+     * Bound transactions hold their connections while no thread is running for them, so threads of
+     * {@link DatabaseConnectionPoolV2#executor} may all be waiting for a connection which is only returned by a commit
+     * or rollback. These operations never wait for a connection, so they are kept off that executor to ensure that they
+     * are never queued behind such threads. The number of threads follows the maximum pool size, since at most that
+     * many transactions can be bound at the same time.
+     */
+    private final ThreadPoolExecutor txExecutor = ExecutorUtils.newBoundedExecutor(
+            r -> txExecutorThreadFactory.newThread(() -> {
+                IS_TX_EXECUTOR_THREAD.set(true);
+                r.run();
+            }),
+            DEFAULT_MAX_POOL_SIZE,
+            DEFAULT_EXECUTOR_QUEUE_CAPACITY);
+    /**
+     * Executor for periodically rolling back timed out transactions.
+     */
+    private final ScheduledExecutorService reaperExecutor = Executors.newSingleThreadScheduledExecutor(
+            ExecutorUtils.newDaemonThreadFactory("tx-reaper"));
+    /**
+     * The interval between two scans for timed out transactions.
      */
-    private final Set<DatabaseConnectionV2> connectionPool = new HashSet<>();
+    @NotNull
+    private Duration reaperInterval = DEFAULT_REAPER_INTERVAL;
+    /**
+     * The scheduled task of the transaction reaper.
+     */
+    @Nullable
+    private ScheduledFuture<?> reaperTask;
+    /**
+     * Latencies of waiting for a free connection.
+     */
+    private final LatencyHistogram acquireLatency = MetricsRegistry.getInstance().latency(
+            "dal_connection_acquire_seconds", "Time waiting for a free connection from the pool");
+    /**
+     * Latencies of executing blocks of statements, keyed by the kind of the block.
+     */
+    private final LatencyHistogram stmtLatency = MetricsRegistry.getInstance().latency(
+            "dal_operation_seconds", "Time taken to execute a block of statements, including its commit", "operation", "statement");
+    private final LatencyHistogram readOnlyLatency = MetricsRegistry.getInstance().latency(
+            "dal_operation_seconds", "Time taken to execute a block of statements, including its commit", "operation", "read_only");
+    private final LatencyHistogram txLatency = MetricsRegistry.getInstance().latency(
+            "dal_operation_seconds", "Time taken to execute a block of statements, including its commit", "operation", "transaction");
+    /**
+     * Listener for keeping {@link DatabaseConnectionPoolV2#txConnections} updated.
+     */
+    private final DatabaseConnectionV2.TransactionBindingListener txBindingListener = new DatabaseConnectionV2.TransactionBindingListener() {
+        @Override
+        public void onBind(long txId, @NotNull DatabaseConnectionV2 connection) {
+            txConnections.put(txId, connection);
+        }
+
+        @Override
+        public void onUnbind(long txId, @NotNull DatabaseConnectionV2 connection) {
+            txConnections.remove(txId, connection);
+        }
+    };
+
+    /**
+     * A {@link Semaphore} whose number of permits can be reduced by the pool.
+     */
+    private static class ResizableSemaphore extends Semaphore {
+
+        private static final long serialVersionUID = 1L;
+
+        ResizableSemaphore(int permits) {
+            super(permits, true);
+        }
+
+        @Override
+        protected void reducePermits(int reduction) {
+            super.reducePermits(reduction);
+        }
+    }
 
     /**
      * @return The default instance of the connection pool.
@@ -61,6 +209,7 @@ public class DatabaseConnectionPoolV2 implements AutoCloseable {
     public synchronized static DatabaseConnectionPoolV2 getInstance() {
         if (INSTANCE == null) {
             INSTANCE = new DatabaseConnectionPoolV2(MYSQL_URL, DB_NAME, MYSQL_LOGIN, MYSQL_PASSWORD);
+            INSTANCE.registerMetrics(MetricsRegistry.getInstance());
         }
 
         return INSTANCE;
@@ -83,6 +232,8 @@ public class DatabaseConnectionPoolV2 implements AutoCloseable {
         this.login = username;
         this.password = password;
         this.db = database;
+
+        scheduleReaper();
     }
 
     /**
@@ -94,10 +245,8 @@ public class DatabaseConnectionPoolV2 implements AutoCloseable {
     @NotNull
     private DatabaseConnectionV2 newConnection() {
         try {
-            final var connection = new DatabaseConnectionV2(url, db, login, password);
-            synchronized (connectionPool) {
-                connectionPool.add(connection);
-            }
+            final var connection = new DatabaseConnectionV2(url, db, login, password, txBindingListener);
+            connectionPool.add(connection);
             return connection;
         } catch (SQLException e) {
             throw new CompletionException(e);
@@ -105,54 +254,174 @@ public class DatabaseConnectionPoolV2 implements AutoCloseable {
     }
 
     /**
-     * Finds an existing connection, or creates a new connection if no existing connections are available.
+     * Checks out a free connection from the pool.
+     *
+     * If the pool has reached its maximum size, this method waits until another connection is returned to the pool,
+     * or the acquire timeout has elapsed. A connection checked out by this method must be returned by
+     * {@link DatabaseConnectionPoolV2#releaseConnection(DatabaseConnectionV2)}.
      *
      * @return A free connection from the pool, either by reusing one or creating one.
+     * @throws CompletionException if a free connection cannot be obtained before the acquire timeout.
      */
     @NotNull
-    private DatabaseConnectionV2 findOrNewConnection() {
-        synchronized (connectionPool) {
-            return connectionPool.parallelStream()
-                    .filter(con -> !con.isInUse())
-                    .findAny()
-                    .orElseGet(this::newConnection);
+    private DatabaseConnectionV2 acquireConnection() {
+        final var timeout = acquireTimeout;
+        final var startNanos = System.nanoTime();
+        try {
+            final var isAcquired = connectionPermits.tryAcquire(timeout.toMillis(), TimeUnit.MILLISECONDS);
+            acquireLatency.recordSince(startNanos);
+            if (!isAcquired) {
+                throw new CompletionException(new SQLTransientConnectionException(
+                        "Timed out after " + timeout + " while waiting for a free connection"));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CompletionException(e);
+        }
+
+        try {
+            DatabaseConnectionV2 connection;
+            while ((connection = idleConnections.pollFirst()) != null) {
+                if (!connection.isClosed()) {
+                    return connection;
+                }
+                connectionPool.remove(connection);
+            }
+
+            return newConnection();
+        } catch (Throwable tr) {
+            connectionPermits.release();
+            throw tr;
+        }
+    }
+
+    /**
+     * Returns a connection checked out by {@link DatabaseConnectionPoolV2#acquireConnection()} to the pool.
+     *
+     * Closed connections are evicted from the pool instead.
+     *
+     * @param connection Connection to return.
+     */
+    private void releaseConnection(@NotNull DatabaseConnectionV2 connection) {
+        if (connection.isClosed()) {
+            connectionPool.remove(connection);
+        } else {
+            idleConnections.offerFirst(connection);
         }
+        connectionPermits.release();
     }
 
     /**
-     * Finds a connection from the pool matching a predicate.
+     * Finds the connection bound to a transaction.
      *
-     * @param predicate Predicate to filter the connections in the pool.
-     * @return A connection in the pool matching the given predicate, or {@code null} if none matches the predicate.
+     * @param txId The ID of the transaction.
+     * @return The connection bound to the transaction, or {@code null} if no connection is bound to the transaction.
      */
     @Nullable
-    private DatabaseConnectionV2 findConnection(@NotNull Predicate<DatabaseConnectionV2> predicate) {
-        synchronized (connectionPool) {
-            return connectionPool.parallelStream()
-                    .filter(predicate)
-                    .findFirst()
-                    .orElse(null);
+    private DatabaseConnectionV2 findConnection(long txId) {
+        return txConnections.get(txId);
+    }
+
+    /**
+     * Schedules {@link DatabaseConnectionPoolV2#reapTimedOutTransactions()} to run at the current reaper interval,
+     * replacing any previously scheduled task.
+     */
+    private synchronized void scheduleReaper() {
+        if (reaperTask != null) {
+            reaperTask.cancel(false);
         }
+
+        final var intervalMs = reaperInterval.toMillis();
+        reaperTask = reaperExecutor.scheduleWithFixedDelay(this::reapTimedOutTransactions, intervalMs, intervalMs, TimeUnit.MILLISECONDS);
     }
 
     /**
-     * Evicts a connection from the connection pool if it is closed.
+     * Rolls back all timed out transactions, and returns their connections to the pool.
      *
-     * @param connection Connection to check.
+     * This releases any row locks held by transactions which are abandoned by their clients, instead of waiting for
+     * the next operation on the transaction to discover that it has timed out.
+     *
+     * Connections which are busy are skipped rather than waited for, so that a long statement cannot stall the reaper;
+     * their transactions are either in use or reaped by a later run.
      */
-    private void evictConnectionIfClosed(@NotNull DatabaseConnectionV2 connection) {
-        if (connection.isClosed()) {
-            synchronized (connectionPool) {
-                connectionPool.remove(connection);
+    private void reapTimedOutTransactions() {
+        try {
+            txConnections.forEach((txId, connection) -> {
+                if (!connection.tryLock()) {
+                    return;
+                }
+                try {
+                    if (connection.getTransactionIdNoExcept() == txId && connection.hasTimedOut()) {
+                        LOGGER.info("Transaction timed out: Rolling back transaction {}", txId);
+                        try {
+                            connection.rollback();
+                        } finally {
+                            releaseConnection(connection);
+                        }
+                    }
+                } finally {
+                    connection.unlock();
+                }
+            });
+        } catch (Throwable tr) {
+            LOGGER.error("Unable to reap timed out transactions", tr);
+        }
+    }
+
+    /**
+     * Runs a block of blocking database operations on the executor of this pool.
+     *
+     * If the caller is already running on the executor of this pool, the block is executed inline, so that callers
+     * which are themselves scheduled on the executor cannot deadlock waiting on tasks queued behind them. The block is
+     * also executed inline if inline execution is enabled.
+     *
+     * @param block The block to execute.
+     * @param <R> The return type from the block.
+     * @return A {@link CompletableFuture} completing with the result of the block.
+     */
+    @NotNull
+    private <R> CompletableFuture<R> supplyAsync(@NotNull Supplier<R> block) {
+        if (inlineExecution || IS_EXECUTOR_THREAD.get()) {
+            try {
+                return CompletableFuture.completedFuture(block.get());
+            } catch (Throwable tr) {
+                return CompletableFuture.failedFuture(tr);
             }
         }
+
+        try {
+            return CompletableFuture.supplyAsync(block, executor);
+        } catch (RejectedExecutionException e) {
+            LOGGER.warn("Database executor is saturated: Rejecting request");
+            return CompletableFuture.failedFuture(e);
+        }
     }
 
-    private void runBlocking(@NotNull ForkJoinPool.ManagedBlocker block) {
+    /**
+     * Runs a block of blocking operations on a transaction bound to a connection.
+     *
+     * The block is executed inline if the caller is already running on either executor of this pool, or if inline
+     * execution is enabled. Otherwise, the block is executed on {@link DatabaseConnectionPoolV2#txExecutor}.
+     *
+     * @param block The block to execute. The block must not check out a connection.
+     * @param <R> The return type from the block.
+     * @return A {@link CompletableFuture} completing with the result of the block.
+     */
+    @NotNull
+    private <R> CompletableFuture<R> supplyTxAsync(@NotNull Supplier<R> block) {
+        if (inlineExecution || IS_EXECUTOR_THREAD.get() || IS_TX_EXECUTOR_THREAD.get()) {
+            try {
+                return CompletableFuture.completedFuture(block.get());
+            } catch (Throwable tr) {
+                return CompletableFuture.failedFuture(tr);
+            }
+        }
+
         try {
-            ForkJoinPool.managedBlock(block);
-        } catch (Exception e) {
-            throw new CompletionException(e.getCause());
+            return CompletableFuture.supplyAsync(block, txExecutor);
+        } catch (RejectedExecutionException e) {
+            LOGGER.warn("Transaction executor is saturated: Rejecting request");
+            return CompletableFuture.failedFuture(e);
         }
     }
 
@@ -168,46 +437,99 @@ public class DatabaseConnectionPoolV2 implements AutoCloseable {
      */
     @NotNull
     public <R> CompletableFuture<R> execStmt(@NotNull ConnectionFunction<R> block) {
-        final var execBlock = new ForkJoinPool.ManagedBlocker() {
-
-            R object;
-
-            @Override
-            public boolean block() {
-                while (true) {
-                    final var connection = findOrNewConnection();
-
-                    if (!connection.isInUse()) {
-                        synchronized (connection) {
-                            if (!connection.isInUse()) {
-                                try {
-                                    final var result = connection.execStmt(block);
-                                    evictConnectionIfClosed(connection);
-                                    object = result;
-                                    break;
-                                } catch (SQLException e) {
-                                    throw new CompletionException(e);
-                                }
-                            }
-                        }
-                    }
-                }
+        return execStmt(block, false);
+    }
 
-                return true;
+    /**
+     * Executes a block of SQL statements on the SQL server managed by this pool.
+     *
+     * If the block fails due to a deadlock or a lock wait timeout, it is rolled back and executed again, as allowed by
+     * the {@link RetryPolicy} of this pool. {@code block} must therefore not have side effects outside the database.
+     *
+     * @param block The block of SQL statements to execute.
+     * @param autoCommit If {@code true}, executes the block in autocommit mode, which saves the round trip of an
+     *                   explicit commit. This should only be used when {@code block} consists of a single statement, or
+     *                   its statements do not need to be atomic.
+     * @param <R> The return type from the block.
+     * @return The return value of the block. May be {@code null}.
+     * @see DatabaseConnectionV2#execStmt(ConnectionFunction, boolean)
+     */
+    @NotNull
+    public <R> CompletableFuture<R> execStmt(@NotNull ConnectionFunction<R> block, boolean autoCommit) {
+        // A failed block is rolled back as a whole, so it can be retried from the start. The connection is returned
+        // before backing off, so that it can be used by other operations in the meantime.
+        return supplyAsync(() -> retryPolicy.execute(() -> {
+            final var connection = acquireConnection();
+            final var startNanos = System.nanoTime();
+            try {
+                return connection.execStmt(block, autoCommit);
+            } catch (SQLException e) {
+                throw new CompletionException(e);
+            } finally {
+                stmtLatency.recordSince(startNanos);
+                releaseConnection(connection);
             }
+        }, true));
+    }
 
-            @Override
-            public boolean isReleasable() {
-                return false;
+    /**
+     * Executes a block of SQL statements on the SQL server managed by this pool with the given lock timeout, without
+     * retrying the block.
+     *
+     * This is for blocks which handle lock wait timeouts of their own statements, such as batches which skip the
+     * statements waiting for a locked row instead of holding up all other statements. A lock wait timeout only rolls
+     * back the statement which timed out, so the rest of the block can still be committed.
+     *
+     * @param block The block of SQL statements to execute.
+     * @param lockTimeout Timeout for database locking.
+     * @param <R> The return type from the block.
+     * @return The return value of the block. May be {@code null}.
+     * @see DatabaseConnectionV2#execStmt(ConnectionFunction, boolean, Duration)
+     */
+    @NotNull
+    public <R> CompletableFuture<R> execStmtOnce(@NotNull ConnectionFunction<R> block, @NotNull Duration lockTimeout) {
+        return supplyAsync(() -> {
+            final var connection = acquireConnection();
+            final var startNanos = System.nanoTime();
+            try {
+                return connection.execStmt(block, false, lockTimeout);
+            } catch (SQLException e) {
+                throw new CompletionException(e);
+            } finally {
+                stmtLatency.recordSince(startNanos);
+                releaseConnection(connection);
             }
-        };
-
-        return CompletableFuture.supplyAsync(() -> {
-            runBlocking(execBlock);
-            return execBlock.object;
         });
     }
 
+    /**
+     * Executes a block of read-only statements on the SQL server managed by this pool, without taking any row locks.
+     *
+     * Use this instead of {@link DatabaseConnectionPoolV2#execStmt(ConnectionFunction)} for queries which do not need
+     * to lock the rows they read, so that they do not contend with transactions modifying the same rows.
+     *
+     * @param block The block of SQL statements to execute. The statements must not contain locking clauses.
+     * @param consistentSnapshot Whether all statements of {@code block} should read from the same snapshot.
+     * @param <R> The return type from the block.
+     * @return The return value of the block. May be {@code null}.
+     * @see DatabaseConnectionV2#execReadOnly(ConnectionFunction, boolean)
+     */
+    @NotNull
+    public <R> CompletableFuture<R> execReadOnly(@NotNull ConnectionFunction<R> block, boolean consistentSnapshot) {
+        return supplyAsync(() -> retryPolicy.execute(() -> {
+            final var connection = acquireConnection();
+            final var startNanos = System.nanoTime();
+            try {
+                return connection.execReadOnly(block, consistentSnapshot);
+            } catch (SQLException e) {
+                throw new CompletionException(e);
+            } finally {
+                readOnlyLatency.recordSince(startNanos);
+                releaseConnection(connection);
+            }
+        }, true));
+    }
+
     /**
      * Obtains an ID to queue transactions on the SQL server managed by this pool.
      *
@@ -219,41 +541,18 @@ public class DatabaseConnectionPoolV2 implements AutoCloseable {
      */
     @NotNull
     public CompletableFuture<Long> getIdForTransaction() {
-        final var execBlock = new ForkJoinPool.ManagedBlocker() {
-
-            long txId;
-
-            @Override
-            public boolean block() {
-                while (true) {
-                    final var connection = findOrNewConnection();
-
-                    if (!connection.isInUse()) {
-                        synchronized (connection) {
-                            if (!connection.isInUse()) {
-                                try {
-                                    txId = connection.getIdForTransaction(defaultTxTimeout, defaultLockTimeout);
-                                    break;
-                                } catch (SQLException e) {
-                                    throw new CompletionException(e);
-                                }
-                            }
-                        }
-                    }
-                }
-
-                return true;
+        return supplyAsync(() -> {
+            final var connection = acquireConnection();
+            try {
+                return connection.getIdForTransaction(defaultTxTimeout, defaultLockTimeout);
+            } catch (SQLException e) {
+                // The connection is only kept checked out if it is bound to the new transaction.
+                releaseConnection(connection);
+                throw new CompletionException(e);
+            } catch (RuntimeException e) {
+                releaseConnection(connection);
+                throw e;
             }
-
-            @Override
-            public boolean isReleasable() {
-                return false;
-            }
-        };
-
-        return CompletableFuture.supplyAsync(() -> {
-            runBlocking(execBlock);
-            return execBlock.txId;
         });
     }
 
@@ -264,6 +563,12 @@ public class DatabaseConnectionPoolV2 implements AutoCloseable {
      * {@link DatabaseConnectionPoolV2#executeTransaction(long, boolean)} must be called to commit or rollback the
      * transaction.
      *
+     * If the block fails due to a lock wait timeout, only the statement which timed out is rolled back, and the block
+     * is executed again as allowed by the {@link RetryPolicy} of this pool. A deadlock rolls back the whole
+     * transaction, including the blocks executed before, so it is never retried. Instead, the transaction is aborted:
+     * its connection is unbound and returned to the pool, so that committing the transaction fails rather than
+     * committing only the blocks executed after the deadlock.
+     *
      * @param id The ID of the transaction assigned by {@link DatabaseConnectionPoolV2#getIdForTransaction()}.
      * @param block The block of SQL statements to execute in the transaction.
      * @param <R> The return type from the block.
@@ -272,37 +577,43 @@ public class DatabaseConnectionPoolV2 implements AutoCloseable {
      */
     @NotNull
     public <R> CompletableFuture<R> putTransactionWithId(long id, @NotNull ConnectionFunction<R> block) {
-        final var execBlock = new ForkJoinPool.ManagedBlocker() {
-
-            R object = null;
-
-            @Override
-            public boolean block() {
-                final var connection = findConnection(it -> it.getTransactionIdNoExcept() == id && it.isInUse());
-                if (connection != null) {
-                    synchronized (connection) {
-                        if (connection.isInUse()) {
-                            try {
-                                object = connection.execTransaction(block);
-                            } catch (SQLException e) {
-                                throw new CompletionException(e);
+        return supplyTxAsync(() -> {
+            final var connection = findConnection(id);
+            if (connection != null) {
+                connection.lock();
+                try {
+                    if (connection.getTransactionIdNoExcept() == id) {
+                        // The connection stays bound to the transaction while backing off, since the transaction holds
+                        // the locks taken by its previous blocks.
+                        try {
+                            return retryPolicy.execute(() -> {
+                                final var startNanos = System.nanoTime();
+                                try {
+                                    return connection.execTransaction(block);
+                                } catch (SQLException e) {
+                                    throw new CompletionException(e);
+                                } finally {
+                                    txLatency.recordSince(startNanos);
+                                }
+                            }, false);
+                        } catch (RuntimeException e) {
+                            if (RetryPolicy.isDeadlock(e)) {
+                                LOGGER.info("Deadlock: Aborting transaction {}", id);
+                                try {
+                                    connection.rollback();
+                                } finally {
+                                    releaseConnection(connection);
+                                }
                             }
+                            throw e;
                         }
                     }
+                } finally {
+                    connection.unlock();
                 }
-
-                return true;
             }
 
-            @Override
-            public boolean isReleasable() {
-                return false;
-            }
-        };
-
-        return CompletableFuture.supplyAsync(() -> {
-            runBlocking(execBlock);
-            return execBlock.object;
+            return null;
         });
     }
 
@@ -316,46 +627,87 @@ public class DatabaseConnectionPoolV2 implements AutoCloseable {
      */
     @NotNull
     public CompletableFuture<Boolean> executeTransaction(long id, boolean shouldCommit) {
-        final var execBlock = new ForkJoinPool.ManagedBlocker() {
-
-            boolean committed = false;
-
-            @Override
-            public boolean block() {
-                final var connection = findConnection(it -> it.getTransactionIdNoExcept() == id && it.isInUse());
-
-                if (connection != null) {
-                    synchronized (connection) {
-                        if (connection.isInUse()) {
-                            if (shouldCommit) {
-                                committed = connection.commit();
-                            } else {
-                                connection.rollback();
-                                committed = false;
-                            }
+        return supplyTxAsync(() -> {
+            final var connection = findConnection(id);
+            if (connection == null) {
+                return false;
+            }
 
-                            evictConnectionIfClosed(connection);
-                        } else {
-                            committed = false;
-                        }
-                    }
-                } else {
-                    committed = false;
+            connection.lock();
+            try {
+                if (connection.getTransactionIdNoExcept() != id) {
+                    return false;
                 }
 
-                return true;
+                try {
+                    if (shouldCommit) {
+                        return connection.commit();
+                    } else {
+                        connection.rollback();
+                        return false;
+                    }
+                } finally {
+                    releaseConnection(connection);
+                }
+            } finally {
+                connection.unlock();
             }
+        });
+    }
 
-            @Override
-            public boolean isReleasable() {
-                return false;
-            }
-        };
+    /**
+     * Registers the gauges and counters tracked by this pool.
+     *
+     * @param registry The registry to register into.
+     */
+    private void registerMetrics(@NotNull MetricsRegistry registry) {
+        registry.gauge("dal_pool_connections", "Number of connections opened by the pool", this::getPoolSize);
+        registry.gauge("dal_pool_idle_connections", "Number of opened connections which are not checked out", this::getIdleCount);
+        registry.gauge("dal_pool_max_connections", "Maximum number of connections opened by the pool", this::getMaxPoolSize);
+        registry.gauge("dal_pool_waiters", "Estimated number of callers waiting for a free connection", this::getWaitQueueLength);
+        registry.gauge("dal_executor_queue_depth", "Number of database operations waiting to be executed", this::getExecutorQueueDepth);
+        registry.gauge("dal_executor_active_threads", "Number of threads executing database operations", this::getExecutorActiveCount);
+        registry.gauge("dal_tx_executor_queue_depth", "Number of operations on bound transactions waiting to be executed", () -> txExecutor.getQueue().size());
+        registry.gauge("dal_tx_executor_active_threads", "Number of threads executing operations on bound transactions", txExecutor::getActiveCount);
+        registry.counterCallback("dal_statement_cache_hits_total", "Prepared statements served from the statement caches", this::getStatementCacheHitCount);
+        registry.counterCallback("dal_statement_cache_misses_total", "Prepared statements not served from the statement caches", this::getStatementCacheMissCount);
+        registry.counterCallback("dal_retries_total", "Operations retried due to lock contention", () -> retryPolicy.getRetryCount());
+        registry.counterCallback("dal_retry_budget_exhausted_total", "Retryable failures not retried as the retry budget has run out", () -> retryPolicy.getBudgetExhaustedCount());
+    }
 
-        return CompletableFuture.supplyAsync(() -> {
-            runBlocking(execBlock);
-            return execBlock.committed;
-        });
+    /**
+     * @return The executor running the blocking database operations of this pool. Tasks running on this executor may
+     * call the methods of this pool without being rescheduled.
+     */
+    @NotNull
+    public Executor getExecutor() {
+        return executor;
+    }
+
+    /**
+     * @return The executor running the operations of this pool on transactions bound to a connection. Tasks running on
+     * this executor may call {@link DatabaseConnectionPoolV2#putTransactionWithId(long, ConnectionFunction)} and
+     * {@link DatabaseConnectionPoolV2#executeTransaction(long, boolean)} without being rescheduled, and are never
+     * queued behind operations waiting for a free connection. Other operations are still dispatched to
+     * {@link DatabaseConnectionPoolV2#getExecutor()}.
+     */
+    @NotNull
+    public Executor getTransactionExecutor() {
+        return txExecutor;
+    }
+
+    /**
+     * @return The number of database operations waiting to be executed.
+     */
+    public int getExecutorQueueDepth() {
+        return executor.getQueue().size();
+    }
+
+    /**
+     * @return The approximate number of threads actively executing database operations.
+     */
+    public int getExecutorActiveCount() {
+        return executor.getActiveCount();
     }
 
     /**
@@ -392,26 +744,197 @@ public class DatabaseConnectionPoolV2 implements AutoCloseable {
         this.defaultTxTimeout = DEFAULT_TX_TIMEOUT;
     }
 
+    /**
+     * Sets whether operations are executed on the calling thread instead of the executor of this pool.
+     *
+     * This is intended for callers which already run each request on its own thread, where handing the operation to
+     * another thread only adds a context switch. The number of concurrent operations is still bounded by the maximum
+     * pool size.
+     *
+     * @param inline If {@code true}, executes operations on the calling thread.
+     */
+    public void setInlineExecution(boolean inline) {
+        this.inlineExecution = inline;
+    }
+
+    /**
+     * Sets the policy for retrying operations which fail due to lock contention.
+     *
+     * @param policy New retry policy. Use a policy with a maximum of one attempt to disable retries.
+     */
+    public void setRetryPolicy(@NotNull RetryPolicy policy) {
+        this.retryPolicy = policy;
+    }
+
+    /**
+     * Resets the policy for retrying operations which fail due to lock contention to a policy with the default values,
+     * which also refills the retry budget.
+     */
+    public void resetRetryPolicy() {
+        this.retryPolicy = new RetryPolicy();
+    }
+
+    /**
+     * @return The policy for retrying operations which fail due to lock contention.
+     */
+    @NotNull
+    public RetryPolicy getRetryPolicy() {
+        return retryPolicy;
+    }
+
+    /**
+     * Sets the interval between two scans for timed out transactions.
+     *
+     * @param interval New reaper interval.
+     * @throws IllegalArgumentException if {@code interval} is not a positive value.
+     */
+    public synchronized void setReaperInterval(@NotNull Duration interval) {
+        if (interval.isNegative() || interval.isZero()) {
+            throw new IllegalArgumentException("Reaper interval must be a positive value");
+        }
+
+        this.reaperInterval = interval;
+        scheduleReaper();
+    }
+
+    /**
+     * Resets the interval between two scans for timed out transactions.
+     *
+     * The default value is {@link DatabaseConnectionPoolV2#DEFAULT_REAPER_INTERVAL}.
+     */
+    public synchronized void resetReaperInterval() {
+        setReaperInterval(DEFAULT_REAPER_INTERVAL);
+    }
+
+    /**
+     * Sets the maximum number of connections which can be opened by this pool at the same time.
+     *
+     * If the new size is smaller than the number of connections currently checked out, the pool will not hand out new
+     * connections until enough connections are returned.
+     *
+     * @param size New maximum pool size.
+     * @throws IllegalArgumentException if {@code size} is not a positive value.
+     */
+    public synchronized void setMaxPoolSize(int size) {
+        if (size <= 0) {
+            throw new IllegalArgumentException("Pool size must be a positive value");
+        }
+
+        final var delta = size - maxPoolSize;
+        if (delta > 0) {
+            connectionPermits.release(delta);
+        } else if (delta < 0) {
+            connectionPermits.reducePermits(-delta);
+        }
+        ExecutorUtils.resizeBoundedExecutor(executor, size);
+        ExecutorUtils.resizeBoundedExecutor(txExecutor, size);
+        maxPoolSize = size;
+    }
+
+    /**
+     * Resets the maximum number of connections which can be opened by this pool at the same time.
+     *
+     * The default value is {@link DatabaseConnectionPoolV2#DEFAULT_MAX_POOL_SIZE}.
+     */
+    public synchronized void resetMaxPoolSize() {
+        setMaxPoolSize(DEFAULT_MAX_POOL_SIZE);
+    }
+
+    /**
+     * Sets the time to wait for a free connection when the pool is exhausted.
+     *
+     * @param timeout New acquire timeout.
+     */
+    public void setAcquireTimeout(@NotNull Duration timeout) {
+        this.acquireTimeout = timeout;
+    }
+
+    /**
+     * Resets the time to wait for a free connection when the pool is exhausted.
+     *
+     * The default value is {@link DatabaseConnectionPoolV2#DEFAULT_ACQUIRE_TIMEOUT}.
+     */
+    public void resetAcquireTimeout() {
+        this.acquireTimeout = DEFAULT_ACQUIRE_TIMEOUT;
+    }
+
+    /**
+     * @return The maximum number of connections which can be opened by this pool at the same time.
+     */
+    public synchronized int getMaxPoolSize() {
+        return maxPoolSize;
+    }
+
+    /**
+     * @return The number of connections currently opened by this pool, including idle connections.
+     */
+    public int getPoolSize() {
+        return connectionPool.size();
+    }
+
+    /**
+     * @return The number of connections which are opened and not checked out.
+     */
+    public int getIdleCount() {
+        return idleConnections.size();
+    }
+
+    /**
+     * @return The total number of prepared statements served from the statement caches of the open connections.
+     */
+    public long getStatementCacheHitCount() {
+        return connectionPool.stream().mapToLong(DatabaseConnectionV2::getStatementCacheHitCount).sum();
+    }
+
+    /**
+     * @return The total number of prepared statements not served from the statement caches of the open connections.
+     */
+    public long getStatementCacheMissCount() {
+        return connectionPool.stream().mapToLong(DatabaseConnectionV2::getStatementCacheMissCount).sum();
+    }
+
+    /**
+     * @return The estimated number of callers waiting for a free connection.
+     */
+    public int getWaitQueueLength() {
+        return connectionPermits.getQueueLength();
+    }
+
     /**
      * {@inheritDoc}
      *
-     * Closes all connections managed by this connection pool, and clears the pool. The lock timeout and transaction
-     * timeout defaults will also be reverted to their original values.
+     * Closes all connections managed by this connection pool, and clears the pool. The lock timeout, transaction
+     * timeout, pool size, acquire timeout, retry policy and reaper interval defaults will also be reverted to their original values.
+     *
+     * Connections which are checked out when this method is called are evicted when they are returned to the pool.
      */
     @Override
     public void close() {
-        synchronized (connectionPool) {
-            connectionPool.forEach(con -> {
+        connectionPool.forEach(con -> {
+            con.lock();
+            try {
+                // Connections bound to a transaction are never returned to the pool once closed.
+                final var isBoundToTx = con.getTransactionIdNoExcept() != DatabaseConnectionV2.NULL_TRANSACTION_ID;
                 try {
                     con.close();
                 } catch (SQLException e) {
                     LOGGER.error("Unable to close connection", e);
                 }
-            });
-            connectionPool.clear();
-        }
+                if (isBoundToTx) {
+                    connectionPermits.release();
+                }
+            } finally {
+                con.unlock();
+            }
+        });
+        connectionPool.clear();
+        idleConnections.clear();
 
         resetDefaultLockTimeout();
         resetDefaultTxTimeout();
+        resetMaxPoolSize();
+        resetAcquireTimeout();
+        resetRetryPolicy();
+        resetReaperInterval();
     }
 }
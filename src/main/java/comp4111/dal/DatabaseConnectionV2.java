@@ -1,6 +1,8 @@
 package comp4111.dal;
 
 import comp4111.function.ConnectionFunction;
+import comp4111.metrics.LatencyHistogram;
+import comp4111.metrics.MetricsRegistry;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 import org.slf4j.Logger;
@@ -13,7 +15,9 @@ import java.sql.SQLException;
 import java.time.Duration;
 import java.time.Instant;
 import java.util.Objects;
+import java.util.Properties;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantLock;
 
 /**
  * An DAL over {@link Connection} to enable support for connection reuse.
@@ -22,11 +26,23 @@ import java.util.concurrent.atomic.AtomicBoolean;
  * <br>
  * Connection opening and closing refers to the act of opening/closing a connection to a SQL server, whereas connection
  * binding and unbinding refer to the act of assigning/un-assigning the connection to a specific transaction.
+ * <p>
+ * Operations on a connection are serialized by {@link DatabaseConnectionV2#lock()} instead of the monitor of the
+ * instance, so that a virtual thread waiting for a busy connection does not pin its carrier thread. This does not
+ * prevent pinning during the database I/O itself, since MySQL Connector/J performs its socket I/O inside its own
+ * {@code synchronized} blocks; virtual threads only stop pinning there on Java 24 or above, which is why
+ * {@link comp4111.controller.ExecutorManager.ExecutionMode#THREAD_PER_REQUEST} mode requires it.
  */
 public class DatabaseConnectionV2 implements AutoCloseable {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(DatabaseConnectionV2.class);
 
+    /**
+     * Latencies of the commits of all connections.
+     */
+    private static final LatencyHistogram COMMIT_LATENCY = MetricsRegistry.getInstance().latency(
+            "dal_commit_seconds", "Time taken by the database to commit a transaction");
+
     /**
      * Transaction ID representing a transaction which is single-use only.
      *
@@ -35,14 +51,67 @@ public class DatabaseConnectionV2 implements AutoCloseable {
      */
     static final long NULL_TRANSACTION_ID = -1;
 
+    /**
+     * The time a connection can be left idle before it is validated again on its next use.
+     */
+    static final Duration VALIDATION_IDLE_THRESHOLD = Duration.ofSeconds(30);
+    /**
+     * The time to wait for the database when validating a connection.
+     */
+    private static final int VALIDATION_TIMEOUT_SECONDS = 5;
+    /**
+     * The maximum number of prepared statements cached by each connection.
+     */
+    static final int STATEMENT_CACHE_CAPACITY = 64;
+
     private final Connection connection;
+    /**
+     * Cache of the prepared statements of {@link DatabaseConnectionV2#connection}.
+     */
+    @NotNull
+    private final PreparedStatementCache statementCache;
+    /**
+     * View of {@link DatabaseConnectionV2#connection} which prepares statements via
+     * {@link DatabaseConnectionV2#statementCache}. This is the connection passed to statement blocks.
+     */
+    @NotNull
+    private final Connection cachingConnection;
     private final AtomicBoolean isClosed = new AtomicBoolean(false);
+    /**
+     * Lock serializing the operations on this connection.
+     */
+    private final ReentrantLock lock = new ReentrantLock();
 
     /**
      * The default lock timeout as retrieved when the connection is first established to the database.
      */
     private final Duration defaultLockTimeout;
 
+    /**
+     * The lock timeout currently set in the database session, or {@code null} if it is unknown.
+     *
+     * The lock timeout is only sent to the database when it differs from this value.
+     */
+    @Nullable
+    private Duration sessionLockTimeout;
+    /**
+     * Whether the database session is currently in autocommit mode.
+     */
+    private boolean sessionAutoCommit;
+    /**
+     * Whether the transactions of the database session are currently read-only.
+     */
+    private boolean sessionReadOnly = false;
+    /**
+     * Whether the connection must be validated before its next use, because a database access error has occurred on
+     * this connection.
+     */
+    private boolean needsValidation = false;
+    /**
+     * The time which this connection was last released from a transaction, as returned by {@link System#nanoTime()}.
+     */
+    private long lastReleasedNanos = System.nanoTime();
+
     /**
      * The information of the current transaction.
      */
@@ -55,6 +124,37 @@ public class DatabaseConnectionV2 implements AutoCloseable {
     @NotNull
     private final AtomicBoolean isInUse = new AtomicBoolean(false);
 
+    /**
+     * Listener notified when this connection is bound to or unbound from a transaction.
+     */
+    @Nullable
+    private final TransactionBindingListener bindingListener;
+
+    /**
+     * A listener for transactions being bound to or unbound from a connection.
+     *
+     * Only transactions with an ID exposed outside of {@link DatabaseConnectionV2} are reported, i.e. one-time
+     * transactions are not reported.
+     */
+    interface TransactionBindingListener {
+
+        /**
+         * Called after a transaction is bound to a connection.
+         *
+         * @param txId The ID of the transaction.
+         * @param connection The connection the transaction is bound to.
+         */
+        void onBind(long txId, @NotNull DatabaseConnectionV2 connection);
+
+        /**
+         * Called after a transaction is unbound from a connection.
+         *
+         * @param txId The ID of the transaction.
+         * @param connection The connection the transaction was bound to.
+         */
+        void onUnbind(long txId, @NotNull DatabaseConnectionV2 connection);
+    }
+
     /**
      * A POD class for storing transaction information.
      */
@@ -125,15 +225,29 @@ public class DatabaseConnectionV2 implements AutoCloseable {
      * @param databaseUrl The URL to the database.
      * @param user The user to login the database.
      * @param password The password of the user.
+     * @param bindingListener Listener for transactions being bound to or unbound from this connection.
      * @throws SQLException if a database access error has occurred.
      */
     DatabaseConnectionV2(
             @NotNull String databaseUrl,
             @NotNull String user,
-            @NotNull String password) throws SQLException {
-        connection = DriverManager.getConnection(databaseUrl, user, password);
+            @NotNull String password,
+            @Nullable TransactionBindingListener bindingListener) throws SQLException {
+        this.bindingListener = bindingListener;
+
+        final var properties = new Properties();
+        properties.setProperty("user", user);
+        properties.setProperty("password", password);
+        // Statements are prepared on the client by default. Statements reused from the statement cache are prepared on
+        // the server instead, so that they are not parsed again; see PreparedStatementCache.
+        connection = DriverManager.getConnection(databaseUrl, properties);
+        statementCache = new PreparedStatementCache(connection, STATEMENT_CACHE_CAPACITY);
+        cachingConnection = statementCache.wrapConnection();
+
         connection.setAutoCommit(false);
+        sessionAutoCommit = false;
         defaultLockTimeout = DatabaseUtils.getLockTimeout(connection);
+        sessionLockTimeout = defaultLockTimeout;
     }
 
     /**
@@ -150,7 +264,26 @@ public class DatabaseConnectionV2 implements AutoCloseable {
             @NotNull String database,
             @NotNull String username,
             @NotNull String password) throws SQLException {
-        this(String.format("%s/%s", url, database), username, password);
+        this(url, database, username, password, null);
+    }
+
+    /**
+     * Creates a connection to a database.
+     *
+     * @param url The URL to the database.
+     * @param database The database to connection to.
+     * @param username The user to login the database.
+     * @param password The password of the user.
+     * @param bindingListener Listener for transactions being bound to or unbound from this connection.
+     * @throws SQLException if a database access error has occurred.
+     */
+    DatabaseConnectionV2(
+            @NotNull String url,
+            @NotNull String database,
+            @NotNull String username,
+            @NotNull String password,
+            @Nullable TransactionBindingListener bindingListener) throws SQLException {
+        this(String.format("%s/%s", url, database), username, password, bindingListener);
     }
 
     /**
@@ -161,17 +294,156 @@ public class DatabaseConnectionV2 implements AutoCloseable {
      * @return The return value of {@code block}.
      * @throws SQLException if a database access error has occurred.
      */
-    public synchronized <R> R execStmt(@NotNull ConnectionFunction<R> block) throws SQLException {
-        LOGGER.trace("execStmt(block=...)");
+    public <R> R execStmt(@NotNull ConnectionFunction<R> block) throws SQLException {
+        return execStmt(block, false);
+    }
+
+    /**
+     * Executes a block of SQL statements using this connection.
+     *
+     * @param block The block of SQL statements to execute.
+     * @param autoCommit If {@code true}, executes the block in autocommit mode, such that each statement is committed
+     *                   as it executes and no explicit commit is sent. This should only be used when {@code block}
+     *                   consists of a single statement, or its statements do not need to be atomic.
+     * @param <R> The return type from the block.
+     * @return The return value of {@code block}.
+     * @throws SQLException if a database access error has occurred.
+     */
+    public <R> R execStmt(@NotNull ConnectionFunction<R> block, boolean autoCommit) throws SQLException {
+        return execStmt(block, autoCommit, null);
+    }
+
+    /**
+     * Executes a block of SQL statements using this connection.
+     *
+     * @param block The block of SQL statements to execute.
+     * @param autoCommit If {@code true}, executes the block in autocommit mode, such that each statement is committed
+     *                   as it executes and no explicit commit is sent. This should only be used when {@code block}
+     *                   consists of a single statement, or its statements do not need to be atomic.
+     * @param lockTimeout Timeout for database locking, or {@code null} to use the default lock timeout.
+     * @param <R> The return type from the block.
+     * @return The return value of {@code block}.
+     * @throws SQLException if a database access error has occurred.
+     */
+    public <R> R execStmt(@NotNull ConnectionFunction<R> block, boolean autoCommit, @Nullable Duration lockTimeout) throws SQLException {
+        lock.lock();
+        try {
+            LOGGER.trace("execStmt(block=..., autoCommit={}, lockTimeout={})", autoCommit, lockTimeout);
+
+            try {
+                applySessionState(Objects.requireNonNullElse(lockTimeout, defaultLockTimeout), autoCommit, false);
+                getIdForTransaction(Duration.ZERO, true);
+                final var object = execTransaction(block);
+                if (autoCommit) {
+                    unbindConnection();
+                } else {
+                    commit();
+                }
+                return object;
+            } catch (Throwable tr) {
+                // Unbind the connection so that it can be reused by the pool.
+                if (isInUse()) {
+                    rollback();
+                }
+                throw new RuntimeException(tr);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Executes a block of read-only statements using this connection, without taking any row locks.
+     *
+     * Statements in {@code block} must not contain locking clauses such as {@link InnoDBLockMode#SHARE}, so that they
+     * are executed as consistent non-locking reads. Such reads see the rows committed as of the snapshot of the read,
+     * and neither wait for nor block concurrent transactions which lock the same rows.
+     *
+     * @param block The block of SQL statements to execute.
+     * @param consistentSnapshot If {@code true}, all statements of {@code block} read from the same snapshot, which is
+     *                           taken by the first statement; The block is executed in a read-only transaction, which
+     *                           is committed after the block finishes. Otherwise, each statement reads from its own
+     *                           snapshot and is executed in autocommit mode, saving the round trip of the commit. This
+     *                           should be {@code false} when {@code block} consists of a single statement.
+     * @param <R> The return type from the block.
+     * @return The return value of {@code block}.
+     * @throws SQLException if a database access error has occurred.
+     */
+    public <R> R execReadOnly(@NotNull ConnectionFunction<R> block, boolean consistentSnapshot) throws SQLException {
+        lock.lock();
+        try {
+            LOGGER.trace("execReadOnly(block=..., consistentSnapshot={})", consistentSnapshot);
+
+            try {
+                // InnoDB already executes non-locking reads in autocommit mode as read-only transactions, so the session is
+                // only marked as read-only for snapshots spanning multiple statements. Reads do not wait for locks either,
+                // so the current lock timeout is kept.
+                applySessionState(
+                        Objects.requireNonNullElse(sessionLockTimeout, defaultLockTimeout),
+                        !consistentSnapshot,
+                        consistentSnapshot || sessionReadOnly);
+                getIdForTransaction(Duration.ZERO, true);
+                final var object = execTransaction(block);
+                if (consistentSnapshot) {
+                    commit();
+                } else {
+                    unbindConnection();
+                }
+                return object;
+            } catch (Throwable tr) {
+                // Unbind the connection so that it can be reused by the pool.
+                if (isInUse()) {
+                    rollback();
+                }
+                throw new RuntimeException(tr);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
 
+    /**
+     * Brings the database session into the given state, only sending the settings which differ from the current
+     * session state.
+     *
+     * @param lockTimeout Timeout for database locking.
+     * @param autoCommit Whether the session should be in autocommit mode.
+     * @param readOnly Whether transactions of the session should be read-only.
+     * @throws SQLException if a database access error has occurred.
+     */
+    private void applySessionState(@NotNull Duration lockTimeout, boolean autoCommit, boolean readOnly) throws SQLException {
+        lock.lock();
         try {
-            DatabaseUtils.setLockTimeout(connection, defaultLockTimeout);
-            getIdForTransaction(Duration.ZERO, true);
-            final var object = execTransaction(block);
-            commit();
-            return object;
-        } catch (Throwable tr) {
-            throw new RuntimeException(tr);
+            if (!lockTimeout.equals(sessionLockTimeout)) {
+                if (DatabaseUtils.setLockTimeout(connection, lockTimeout)) {
+                    sessionLockTimeout = lockTimeout;
+                } else {
+                    sessionLockTimeout = null;
+                    needsValidation = true;
+                }
+            }
+
+            if (autoCommit != sessionAutoCommit) {
+                try {
+                    connection.setAutoCommit(autoCommit);
+                } catch (SQLException e) {
+                    needsValidation = true;
+                    throw e;
+                }
+                sessionAutoCommit = autoCommit;
+            }
+
+            if (readOnly != sessionReadOnly) {
+                try {
+                    connection.setReadOnly(readOnly);
+                } catch (SQLException e) {
+                    needsValidation = true;
+                    throw e;
+                }
+                sessionReadOnly = readOnly;
+            }
+        } finally {
+            lock.unlock();
         }
     }
 
@@ -183,13 +455,18 @@ public class DatabaseConnectionV2 implements AutoCloseable {
      * @return The transaction ID.
      * @throws SQLException if a database access error has occurred.
      */
-    public synchronized long getIdForTransaction(@NotNull Duration txTimeout, @Nullable Duration lockTimeout) throws SQLException {
-        if (lockTimeout == null) {
-            lockTimeout = this.defaultLockTimeout;
-        }
-        DatabaseUtils.setLockTimeout(connection, lockTimeout);
+    public long getIdForTransaction(@NotNull Duration txTimeout, @Nullable Duration lockTimeout) throws SQLException {
+        lock.lock();
+        try {
+            if (lockTimeout == null) {
+                lockTimeout = this.defaultLockTimeout;
+            }
+            applySessionState(lockTimeout, false, false);
 
-        return getIdForTransaction(txTimeout, false);
+            return getIdForTransaction(txTimeout, false);
+        } finally {
+            lock.unlock();
+        }
     }
 
     /**
@@ -201,16 +478,21 @@ public class DatabaseConnectionV2 implements AutoCloseable {
      * @return The transaction ID.
      * @throws SQLException if a database access error has occurred.
      */
-    private synchronized long getIdForTransaction(@NotNull Duration timeout, boolean isOneTime) throws SQLException {
-        LOGGER.trace("getIdForTransaction(timeout={}, isOneTime={})", timeout, isOneTime);
+    private long getIdForTransaction(@NotNull Duration timeout, boolean isOneTime) throws SQLException {
+        lock.lock();
+        try {
+            LOGGER.trace("getIdForTransaction(timeout={}, isOneTime={})", timeout, isOneTime);
 
-        bindConnection(timeout, isOneTime);
+            bindConnection(timeout, isOneTime);
 
-        synchronized (txInfoMonitor) {
-            if (txInfo == null) {
-                throw new IllegalStateException("Transaction ID should be valid");
+            synchronized (txInfoMonitor) {
+                if (txInfo == null) {
+                    throw new IllegalStateException("Transaction ID should be valid");
+                }
+                return txInfo.txId;
             }
-            return txInfo.txId;
+        } finally {
+            lock.unlock();
         }
     }
 
@@ -222,18 +504,28 @@ public class DatabaseConnectionV2 implements AutoCloseable {
      * @return The return value of {@code block}.
      * @throws SQLException if a database access error has occurred.
      */
-    public synchronized <R> R execTransaction(@NotNull ConnectionFunction<R> block) throws SQLException {
-        LOGGER.trace("execTransaction(block=...)");
+    public <R> R execTransaction(@NotNull ConnectionFunction<R> block) throws SQLException {
+        lock.lock();
+        try {
+            LOGGER.trace("execTransaction(block=...)");
 
-        synchronized (txInfoMonitor) {
-            if (txInfo == null) {
-                throw new IllegalStateException("Attempted to execute a transaction on an unbound connection");
+            synchronized (txInfoMonitor) {
+                if (txInfo == null) {
+                    throw new IllegalStateException("Attempted to execute a transaction on an unbound connection");
+                }
+
+                txInfo.markUsedNow();
             }
 
-            txInfo.markUsedNow();
+            try {
+                return block.apply(cachingConnection);
+            } catch (SQLException e) {
+                needsValidation = true;
+                throw e;
+            }
+        } finally {
+            lock.unlock();
         }
-
-        return block.apply(connection);
     }
 
     /**
@@ -247,43 +539,52 @@ public class DatabaseConnectionV2 implements AutoCloseable {
      * @return {@code true} if the operation succeeded.
      * @throws IllegalStateException if this connection currently does not serve a transaction.
      */
-    public synchronized boolean commit() {
-        LOGGER.trace("commit()");
-
-        final boolean isTxTimedOut;
-        synchronized (txInfoMonitor) {
-            if (txInfo == null) {
-                throw new IllegalStateException("Attempted to commit an unbound connection");
-            }
+    public boolean commit() {
+        lock.lock();
+        try {
+            LOGGER.trace("commit()");
 
-            isTxTimedOut = !txInfo.timeout.isZero() && txInfo.hasTimedOut();
-        }
+            final boolean isTxTimedOut;
+            synchronized (txInfoMonitor) {
+                if (txInfo == null) {
+                    throw new IllegalStateException("Attempted to commit an unbound connection");
+                }
 
-        boolean isCommitted;
-        if (isTxTimedOut) {
-            try {
-                LOGGER.info("Transaction timed out: Rolling back transaction");
-                connection.rollback();
-            } catch (SQLException e) {
-                LOGGER.error("Unable to rollback expired transaction", e);
+                isTxTimedOut = !txInfo.timeout.isZero() && txInfo.hasTimedOut();
             }
-            isCommitted = false;
-        } else {
-            try {
-                connection.commit();
-                isCommitted = true;
-            } catch (SQLException e) {
-                LOGGER.error("Unable to commit transaction", e);
-                isCommitted = false;
+
+            boolean isCommitted;
+            if (isTxTimedOut) {
                 try {
+                    LOGGER.info("Transaction timed out: Rolling back transaction");
                     connection.rollback();
-                } catch (SQLException ee) {
-                    LOGGER.error("Unable to rollback transaction", ee);
+                } catch (SQLException e) {
+                    LOGGER.error("Unable to rollback expired transaction", e);
+                    needsValidation = true;
+                }
+                isCommitted = false;
+            } else {
+                try {
+                    final var startNanos = System.nanoTime();
+                    connection.commit();
+                    COMMIT_LATENCY.recordSince(startNanos);
+                    isCommitted = true;
+                } catch (SQLException e) {
+                    LOGGER.error("Unable to commit transaction", e);
+                    needsValidation = true;
+                    isCommitted = false;
+                    try {
+                        connection.rollback();
+                    } catch (SQLException ee) {
+                        LOGGER.error("Unable to rollback transaction", ee);
+                    }
                 }
             }
+            unbindConnection();
+            return isCommitted;
+        } finally {
+            lock.unlock();
         }
-        unbindConnection();
-        return isCommitted;
     }
 
     /**
@@ -291,22 +592,31 @@ public class DatabaseConnectionV2 implements AutoCloseable {
      *
      * @throws IllegalStateException if this connection currently does not serve a transaction.
      */
-    public synchronized void rollback() {
-        LOGGER.trace("rollback()");
+    public void rollback() {
+        lock.lock();
+        try {
+            LOGGER.trace("rollback()");
 
-        synchronized (txInfoMonitor) {
-            if (txInfo == null) {
-                throw new IllegalStateException("Attempted to commit an unbound connection");
+            synchronized (txInfoMonitor) {
+                if (txInfo == null) {
+                    throw new IllegalStateException("Attempted to commit an unbound connection");
+                }
             }
-        }
 
-        try {
-            connection.rollback();
-        } catch (SQLException e) {
-            LOGGER.error("Unable to rollback transaction", e);
-        }
+            // Statements executed in autocommit mode are already committed, so there is nothing to roll back.
+            if (!sessionAutoCommit) {
+                try {
+                    connection.rollback();
+                } catch (SQLException e) {
+                    LOGGER.error("Unable to rollback transaction", e);
+                    needsValidation = true;
+                }
+            }
 
-        unbindConnection();
+            unbindConnection();
+        } finally {
+            lock.unlock();
+        }
     }
 
     /**
@@ -319,21 +629,70 @@ public class DatabaseConnectionV2 implements AutoCloseable {
      *                                  connection.
      * @throws SQLException             if a database access error has occurred.
      */
-    private synchronized void bindConnection(@NotNull Duration timeout, boolean isOneTime) throws SQLException {
-        LOGGER.trace("bindConnection(timeout={}, isOneTime={})", timeout, isOneTime);
-        if (timeout.isNegative()) {
-            throw new IllegalArgumentException("Timeout must be a non-negative value");
-        }
-        if (!connection.isValid(0)) {
-            throw new IllegalStateException("Attempted to open an already-closed connection");
-        }
-        if (txInfo != null) {
-            throw new IllegalStateException("Attempted to bind a bound connection");
+    private void bindConnection(@NotNull Duration timeout, boolean isOneTime) throws SQLException {
+        lock.lock();
+        try {
+            LOGGER.trace("bindConnection(timeout={}, isOneTime={})", timeout, isOneTime);
+            if (timeout.isNegative()) {
+                throw new IllegalArgumentException("Timeout must be a non-negative value");
+            }
+            if (txInfo != null) {
+                throw new IllegalStateException("Attempted to bind a bound connection");
+            }
+            validateIfNeeded();
+
+            isInUse.lazySet(true);
+            final long txId;
+            synchronized (txInfoMonitor) {
+                txInfo = new TransactionInfo(timeout, isOneTime);
+                txId = txInfo.txId;
+            }
+
+            if (bindingListener != null && txId != NULL_TRANSACTION_ID) {
+                bindingListener.onBind(txId, this);
+            }
+        } finally {
+            lock.unlock();
         }
+    }
 
-        isInUse.lazySet(true);
-        synchronized (txInfoMonitor) {
-            txInfo = new TransactionInfo(timeout, isOneTime);
+    /**
+     * Validates the connection if an error has occurred on it, or it has been idle for longer than
+     * {@link DatabaseConnectionV2#VALIDATION_IDLE_THRESHOLD}. Otherwise, the connection is assumed to be valid, saving
+     * a round trip to the database.
+     *
+     * If the connection is not valid, it is closed, so that the pool evicts it when it is returned.
+     *
+     * @throws IllegalStateException if the connection is not valid.
+     */
+    private void validateIfNeeded() {
+        lock.lock();
+        try {
+            final var idleNanos = System.nanoTime() - lastReleasedNanos;
+            if (!needsValidation && idleNanos < VALIDATION_IDLE_THRESHOLD.toNanos()) {
+                return;
+            }
+
+            boolean isValid;
+            try {
+                isValid = connection.isValid(VALIDATION_TIMEOUT_SECONDS);
+            } catch (SQLException e) {
+                isValid = false;
+            }
+
+            if (!isValid) {
+                isClosed.lazySet(true);
+                statementCache.close();
+                try {
+                    connection.close();
+                } catch (SQLException e) {
+                    LOGGER.warn("Unable to close invalid connection", e);
+                }
+                throw new IllegalStateException("Attempted to open an already-closed connection");
+            }
+            needsValidation = false;
+        } finally {
+            lock.unlock();
         }
     }
 
@@ -342,18 +701,55 @@ public class DatabaseConnectionV2 implements AutoCloseable {
      *
      * @throws IllegalStateException if this connection is not bound to a transaction.
      */
-    private synchronized void unbindConnection() {
-        LOGGER.trace("unbindConnection()");
+    private void unbindConnection() {
+        lock.lock();
+        try {
+            LOGGER.trace("unbindConnection()");
 
-        synchronized (txInfoMonitor) {
-            if (txInfo == null) {
-                throw new IllegalStateException("Attempted to unbind a unbound connection");
+            final long txId;
+            synchronized (txInfoMonitor) {
+                if (txInfo == null) {
+                    throw new IllegalStateException("Attempted to unbind a unbound connection");
+                }
+
+                txId = txInfo.txId;
+                txInfo = null;
+            }
+
+            if (bindingListener != null && txId != NULL_TRANSACTION_ID) {
+                bindingListener.onUnbind(txId, this);
             }
 
-            txInfo = null;
+            lastReleasedNanos = System.nanoTime();
+            isInUse.lazySet(false);
+        } finally {
+            lock.unlock();
         }
+    }
 
-        isInUse.lazySet(false);
+    /**
+     * Acquires the lock serializing the operations on this connection, so that a caller can perform several operations
+     * without being interleaved by other threads. Every call must be paired with {@link DatabaseConnectionV2#unlock()}.
+     */
+    void lock() {
+        lock.lock();
+    }
+
+    /**
+     * Acquires the lock serializing the operations on this connection if it is not held by another thread. Every
+     * successful call must be paired with {@link DatabaseConnectionV2#unlock()}.
+     *
+     * @return {@code true} if the lock is acquired.
+     */
+    boolean tryLock() {
+        return lock.tryLock();
+    }
+
+    /**
+     * Releases the lock acquired by {@link DatabaseConnectionV2#lock()}.
+     */
+    void unlock() {
+        lock.unlock();
     }
 
     long getTransactionIdNoExcept() {
@@ -374,6 +770,16 @@ public class DatabaseConnectionV2 implements AutoCloseable {
         }
     }
 
+    /**
+     * @return Whether the transaction bound to this connection has timed out. Always {@code false} if this connection
+     * is not bound to a transaction, or the transaction has no timeout.
+     */
+    boolean hasTimedOut() {
+        synchronized (txInfoMonitor) {
+            return txInfo != null && !txInfo.timeout.isZero() && txInfo.hasTimedOut();
+        }
+    }
+
     /**
      * @return Whether this connection is currently used by a transaction.
      */
@@ -381,6 +787,20 @@ public class DatabaseConnectionV2 implements AutoCloseable {
         return isInUse.getAcquire();
     }
 
+    /**
+     * @return The number of prepared statements served from the statement cache of this connection.
+     */
+    public long getStatementCacheHitCount() {
+        return statementCache.getHitCount();
+    }
+
+    /**
+     * @return The number of prepared statements which are not served from the statement cache of this connection.
+     */
+    public long getStatementCacheMissCount() {
+        return statementCache.getMissCount();
+    }
+
     /**
      * @return Whether this connection is closed, i.e. {@link DatabaseConnectionV2#close()} is invoked on this instance.
      */
@@ -398,14 +818,20 @@ public class DatabaseConnectionV2 implements AutoCloseable {
      * @throws SQLException if a database access error has occurred.
      */
     @Override
-    public synchronized void close() throws SQLException {
-        LOGGER.trace("close()");
-        isClosed.lazySet(true);
+    public void close() throws SQLException {
+        lock.lock();
+        try {
+            LOGGER.trace("close()");
+            isClosed.lazySet(true);
 
-        if (isInUse()) {
-            rollback();
+            if (isInUse()) {
+                rollback();
+            }
+            statementCache.close();
+            connection.close();
+        } finally {
+            lock.unlock();
         }
-        connection.close();
     }
 
     @Override
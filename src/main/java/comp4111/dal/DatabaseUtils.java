@@ -36,6 +36,10 @@ public class DatabaseUtils {
      * Name for the Books table.
      */
     private static final String NAME_BOOK = "Book";
+    /**
+     * Schema of the Books table. The collation of the text columns is fixed, since {@link BookCatalog} compares and
+     * searches them in memory the same way.
+     */
     @Language(value = "SQL", prefix = "CREATE TABLE ")
     private static final String SCHEMA_BOOK = NAME_BOOK + "(" +
             "id BIGINT NOT NULL AUTO_INCREMENT PRIMARY KEY," +
@@ -44,7 +48,7 @@ public class DatabaseUtils {
             "publisher VARCHAR(80)," +
             "year INT," +
             "available TINYINT" +
-            ");";
+            ") DEFAULT CHARSET = utf8mb4 COLLATE = " + Collation.NAME + ";";
 
     private DatabaseUtils() {
     }
@@ -107,6 +111,9 @@ public class DatabaseUtils {
                 if (overwrite) {
                     dropTable(connection, NAME_USER_CREDENTIALS);
                     dropTable(connection, NAME_BOOK);
+                    CredentialsCache.getInstance().invalidateAll();
+                    BookCache.getInstance().invalidateAll();
+                    BookCatalog.getInstance().clear();
                 }
 
                 createTable(connection, SCHEMA_USER_CREDENTIALS);
@@ -183,13 +190,16 @@ public class DatabaseUtils {
      *
      * @param con Connection to set the timeout.
      * @param timeout New timeout for lock contentions.
+     * @return {@code true} if the timeout is set.
      */
-    static void setLockTimeout(@NotNull final Connection con, @NotNull final Duration timeout) {
+    static boolean setLockTimeout(@NotNull final Connection con, @NotNull final Duration timeout) {
         try (var stmt = con.prepareStatement("SET SESSION innodb_lock_wait_timeout = ?")) {
             stmt.setInt(1, (int) timeout.toSeconds());
             stmt.execute();
+            return true;
         } catch (SQLException e) {
             LOGGER.warn("Cannot set database transaction timeout", e);
+            return false;
         }
     }
 
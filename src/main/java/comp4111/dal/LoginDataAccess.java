@@ -30,6 +30,43 @@ public class LoginDataAccess extends Credentials {
             stmt.setString(3, c.getSalt());
             stmt.execute();
         }
+
+        CredentialsCache.getInstance().invalidate(username);
+    }
+
+    /**
+     * Retrieves the credentials of a user, first from {@link CredentialsCache}, then from the database.
+     *
+     * @param username The username to look up.
+     * @return The credentials of the user, or {@code null} if the user does not exist.
+     * @throws Exception if an error occurred while querying the database.
+     */
+    @Nullable
+    static Credentials getCredentials(@NotNull String username) throws Exception {
+        final var cache = CredentialsCache.getInstance();
+        final var cached = cache.get(username);
+        if (cached != null) {
+            return cached;
+        }
+
+        final var params = new ArrayList<>();
+        params.add(username);
+        // Credentials are never modified by concurrent requests, so they are read without locking.
+        final var credentialsInDb = QueryUtils.querySnapshot(
+                "*",
+                "User_Credentials",
+                "WHERE username = ?",
+                params,
+                Credentials::toCredentials)
+                .get();
+        if (credentialsInDb.isEmpty()) {
+            return null;
+        }
+
+        // There should only be one set, since username is the primary key.
+        final var credentials = credentialsInDb.get(0);
+        cache.put(credentials);
+        return credentials;
     }
 
     /**
@@ -37,28 +74,13 @@ public class LoginDataAccess extends Credentials {
      */
     @Nullable
     public static String[] getHashedPwdAndSalt(@NotNull String username) {
-        // Create a connection to a specific database in the MySQL server.
         try {
-            String[] result = new String[2];
-            final var credentialsInDb = QueryUtils.queryTable(
-                    null,
-                    "User_Credentials",
-                    InnoDBLockMode.SHARE.asSQLQueryComponent(),
-                    new ArrayList<>(),
-                    Credentials::toCredentials)
-                    .get();
-            credentialsInDb.forEach(c -> {
-                if (c.getUsername().equals(username)) {
-                    // There should only be one set.
-                    result[0] = c.getHashedPassword();
-                    result[1] = c.getSalt();
-                }
-            });
-            if (result[0] == null && result[1] == null) {
+            final var credentials = getCredentials(username);
+            if (credentials == null) {
                 return null;
             }
 
-            return result;
+            return new String[]{credentials.getHashedPassword(), credentials.getSalt()};
         } catch (Exception e) {
             LOGGER.error("Error querying the table", e);
         }
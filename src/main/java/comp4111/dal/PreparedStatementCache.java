@@ -0,0 +1,334 @@
+package comp4111.dal;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A bounded cache of {@link PreparedStatement} instances of a single {@link Connection}, keyed by SQL text.
+ *
+ * Statements handed out by this cache are returned to the cache instead of being closed when
+ * {@link PreparedStatement#close()} is called, so that the statement does not need to be prepared on the database
+ * server again. When the number of cached statements exceeds the capacity of the cache, the least-recently-used
+ * statement is closed.
+ *
+ * Statements are prepared on the client when they are first cached, which costs no extra round trip. A statement is
+ * only prepared on the server once it is reused from the cache, so that statements which are executed once, such as
+ * statements with a variable number of parameters, do not pay for a server-side prepare and close. Server-side
+ * prepares are only used if the connection supports them, i.e. it is a MySQL Connector/J connection.
+ *
+ * A {@link Connection} is only used by one thread at a time, so statements are never contended; the methods of this
+ * class only hold a lock so that the counters can be read from other threads. A {@link ReentrantLock} is used instead
+ * of a monitor, since preparing and closing statements block on the database.
+ */
+class PreparedStatementCache implements AutoCloseable {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(PreparedStatementCache.class);
+
+    /**
+     * A cached statement.
+     */
+    private static final class CachedStatement {
+
+        @NotNull
+        PreparedStatement statement;
+        /**
+         * Whether the statement is prepared on the server.
+         */
+        boolean isServerPrepared = false;
+        /**
+         * Whether the statement is currently checked out of the cache.
+         */
+        boolean isInUse = false;
+        /**
+         * Whether the statement has been evicted from the cache while it was checked out, in which case it is closed
+         * when it is returned.
+         */
+        boolean isEvicted = false;
+
+        CachedStatement(@NotNull PreparedStatement statement) {
+            this.statement = statement;
+        }
+    }
+
+    @NotNull
+    private final Connection connection;
+    @NotNull
+    private final Map<String, CachedStatement> cache;
+    /**
+     * {@code serverPrepareStatement(String, int)} of {@link PreparedStatementCache#connection}, or {@code null} if the
+     * connection cannot prepare statements on the server.
+     */
+    @Nullable
+    private final Method serverPrepareMethod;
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private long hitCount = 0;
+    private long missCount = 0;
+
+    /**
+     * @param connection The connection to prepare statements on.
+     * @param capacity The maximum number of statements to hold in the cache.
+     */
+    PreparedStatementCache(@NotNull Connection connection, int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Capacity must be a positive value");
+        }
+
+        this.connection = connection;
+        this.serverPrepareMethod = findServerPrepareMethod(connection);
+        this.cache = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CachedStatement> eldest) {
+                if (size() <= capacity) {
+                    return false;
+                }
+
+                final var entry = eldest.getValue();
+                if (entry.isInUse) {
+                    entry.isEvicted = true;
+                } else {
+                    closeQuietly(entry.statement);
+                }
+                return true;
+            }
+        };
+    }
+
+    /**
+     * Creates a view of a connection which prepares statements via this cache. All other methods are delegated to the
+     * connection.
+     *
+     * @return A {@link Connection} backed by the connection of this cache.
+     */
+    @NotNull
+    Connection wrapConnection() {
+        return (Connection) Proxy.newProxyInstance(
+                Connection.class.getClassLoader(),
+                new Class<?>[]{Connection.class},
+                (proxy, method, args) -> {
+                    if (method.getName().equals("prepareStatement") && args[0] instanceof String) {
+                        final var sql = (String) args[0];
+                        if (args.length == 1) {
+                            return prepareStatement(sql, Statement.NO_GENERATED_KEYS);
+                        } else if (args.length == 2 && args[1] instanceof Integer) {
+                            return prepareStatement(sql, (Integer) args[1]);
+                        }
+                    }
+                    return invoke(connection, method, args);
+                });
+    }
+
+    /**
+     * Obtains a prepared statement from the cache, preparing it if it is not cached.
+     *
+     * If the cached statement of the same SQL is already checked out, an uncached statement is returned instead.
+     *
+     * @param sql The SQL statement.
+     * @param autoGeneratedKeys Whether auto-generated keys should be returned, as in
+     *                          {@link Connection#prepareStatement(String, int)}.
+     * @return A prepared statement which is returned to the cache when closed.
+     * @throws SQLException if a database access error has occurred.
+     */
+    @NotNull
+    PreparedStatement prepareStatement(@NotNull String sql, int autoGeneratedKeys) throws SQLException {
+        lock.lock();
+        try {
+            final var key = autoGeneratedKeys + ":" + sql;
+
+            var entry = cache.get(key);
+            if (entry != null && !entry.isInUse) {
+                ++hitCount;
+                if (!entry.isServerPrepared && serverPrepareMethod != null) {
+                    promote(entry, sql, autoGeneratedKeys);
+                }
+            } else {
+                ++missCount;
+                final var statement = connection.prepareStatement(sql, autoGeneratedKeys);
+                if (entry != null) {
+                    // The cached statement is in use, e.g. by an enclosing loop, so this statement is not cached.
+                    return statement;
+                }
+
+                entry = new CachedStatement(statement);
+                cache.put(key, entry);
+            }
+
+            entry.isInUse = true;
+            return wrapStatement(entry);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Replaces a client-side prepared statement in the cache by a statement prepared on the server.
+     *
+     * If the statement cannot be prepared on the server, the client-side statement is kept and never promoted again.
+     */
+    private void promote(@NotNull CachedStatement entry, @NotNull String sql, int autoGeneratedKeys) {
+        entry.isServerPrepared = true;
+        try {
+            final var statement = (PreparedStatement) invoke(connection, Objects.requireNonNull(serverPrepareMethod), new Object[]{sql, autoGeneratedKeys});
+            closeQuietly(entry.statement);
+            entry.statement = statement;
+        } catch (Throwable tr) {
+            LOGGER.warn("Unable to prepare statement on the server: Keeping client-side statement", tr);
+        }
+    }
+
+    /**
+     * @return {@code serverPrepareStatement(String, int)} of MySQL Connector/J connections, or {@code null} if the
+     * connection does not have such a method.
+     */
+    @Nullable
+    private static Method findServerPrepareMethod(@NotNull Connection connection) {
+        try {
+            return connection.getClass().getMethod("serverPrepareStatement", String.class, int.class);
+        } catch (NoSuchMethodException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Creates a view of a cached statement which returns the statement to the cache when it is closed.
+     */
+    @NotNull
+    private PreparedStatement wrapStatement(@NotNull CachedStatement entry) {
+        final var isClosed = new boolean[]{false};
+        return (PreparedStatement) Proxy.newProxyInstance(
+                PreparedStatement.class.getClassLoader(),
+                new Class<?>[]{PreparedStatement.class},
+                (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "close":
+                            if (!isClosed[0]) {
+                                isClosed[0] = true;
+                                release(entry);
+                            }
+                            return null;
+                        case "isClosed":
+                            return isClosed[0] || entry.statement.isClosed();
+                        default:
+                            if (isClosed[0]) {
+                                throw new SQLException("Statement is closed");
+                            }
+                            return invoke(entry.statement, method, args);
+                    }
+                });
+    }
+
+    /**
+     * Returns a statement to the cache.
+     */
+    private void release(@NotNull CachedStatement entry) throws SQLException {
+        lock.lock();
+        try {
+            entry.isInUse = false;
+            if (entry.isEvicted) {
+                entry.statement.close();
+                return;
+            }
+
+            try {
+                final var resultSet = entry.statement.getResultSet();
+                if (resultSet != null) {
+                    resultSet.close();
+                }
+                entry.statement.clearParameters();
+            } catch (SQLException e) {
+                // The statement cannot be reused, so evict it from the cache.
+                cache.values().remove(entry);
+                closeQuietly(entry.statement);
+                throw e;
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return The number of statements served from the cache.
+     */
+    long getHitCount() {
+        lock.lock();
+        try {
+            return hitCount;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return The number of statements which have to be prepared on the database.
+     */
+    long getMissCount() {
+        lock.lock();
+        try {
+            return missCount;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return The number of statements currently held by the cache.
+     */
+    int size() {
+        lock.lock();
+        try {
+            return cache.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Closes and removes all statements from the cache.
+     */
+    @Override
+    public void close() {
+        lock.lock();
+        try {
+            cache.values().forEach(entry -> {
+                if (entry.isInUse) {
+                    entry.isEvicted = true;
+                } else {
+                    closeQuietly(entry.statement);
+                }
+            });
+            cache.clear();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private static Object invoke(@NotNull Object target, @NotNull Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+
+    private static void closeQuietly(@NotNull Statement statement) {
+        try {
+            statement.close();
+        } catch (SQLException e) {
+            LOGGER.warn("Unable to close cached statement", e);
+        }
+    }
+}
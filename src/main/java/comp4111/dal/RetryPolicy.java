@@ -0,0 +1,297 @@
+package comp4111.dal;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * A policy for retrying database operations which fail due to transient lock contention.
+ *
+ * Only deadlocks ({@code ER_LOCK_DEADLOCK}) and lock wait timeouts ({@code ER_LOCK_WAIT_TIMEOUT}) are retried. InnoDB
+ * rolls back the whole transaction on a deadlock, so a deadlock is only retried if the operation re-runs the whole
+ * transaction. A lock wait timeout only rolls back the failed statement, so it is also retried within a transaction
+ * spanning multiple operations.
+ *
+ * Retries are delayed by an exponential backoff with full jitter, so that the transactions which collided do not
+ * collide again. The number of retries is also limited by a budget, which is refilled by a fraction of a retry for
+ * every operation executed. When the database is overloaded rather than briefly contended, the budget runs out, and
+ * failures are reported to the caller instead of multiplying the load on the database.
+ */
+public class RetryPolicy {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(RetryPolicy.class);
+
+    /**
+     * MySQL error code of a lock wait timeout.
+     */
+    static final int ER_LOCK_WAIT_TIMEOUT = 1205;
+    /**
+     * MySQL error code of a deadlock.
+     */
+    static final int ER_LOCK_DEADLOCK = 1213;
+    /**
+     * SQL state of a serialization failure, which is reported when a transaction is rolled back due to a deadlock.
+     */
+    private static final String SQLSTATE_SERIALIZATION_FAILURE = "40001";
+
+    /**
+     * The default maximum number of times an operation is attempted, including the first attempt.
+     */
+    private static final int DEFAULT_MAX_ATTEMPTS = 3;
+    /**
+     * The default upper bound of the backoff before the first retry.
+     */
+    private static final Duration DEFAULT_BASE_BACKOFF = Duration.ofMillis(10);
+    /**
+     * The default upper bound of the backoff before any retry.
+     */
+    private static final Duration DEFAULT_MAX_BACKOFF = Duration.ofMillis(200);
+    /**
+     * The default number of retries added to the budget for every operation executed.
+     */
+    private static final double DEFAULT_BUDGET_RATIO = 0.2;
+    /**
+     * The default maximum number of retries held by the budget.
+     */
+    private static final int DEFAULT_BUDGET_CAPACITY = 100;
+
+    /**
+     * The number of budget units representing a single retry.
+     */
+    private static final long UNITS_PER_RETRY = 1000;
+    /**
+     * The maximum exponent of the backoff, which keeps the backoff from overflowing.
+     */
+    private static final int MAX_BACKOFF_EXPONENT = 30;
+
+    private final int maxAttempts;
+    private final long baseBackoffNanos;
+    private final long maxBackoffNanos;
+    /**
+     * The number of budget units added for every operation executed.
+     */
+    private final long depositUnits;
+    /**
+     * The maximum number of budget units held by the budget.
+     */
+    private final long capacityUnits;
+
+    /**
+     * The current number of budget units. The budget starts full, so that bursts of contention can be retried.
+     */
+    @NotNull
+    private final AtomicLong balanceUnits;
+
+    private final LongAdder retryCount = new LongAdder();
+    private final LongAdder budgetExhaustedCount = new LongAdder();
+
+    /**
+     * Creates a retry policy with the default values.
+     */
+    public RetryPolicy() {
+        this(DEFAULT_MAX_ATTEMPTS, DEFAULT_BASE_BACKOFF, DEFAULT_MAX_BACKOFF, DEFAULT_BUDGET_RATIO, DEFAULT_BUDGET_CAPACITY);
+    }
+
+    /**
+     * @param maxAttempts The maximum number of times an operation is attempted, including the first attempt. {@code 1}
+     *                    disables retries.
+     * @param baseBackoff The upper bound of the backoff before the first retry. The bound is doubled for every
+     *                    subsequent retry.
+     * @param maxBackoff The upper bound of the backoff before any retry.
+     * @param budgetRatio The number of retries added to the budget for every operation executed.
+     * @param budgetCapacity The maximum number of retries held by the budget.
+     * @throws IllegalArgumentException if any of the values is out of range.
+     */
+    public RetryPolicy(int maxAttempts, @NotNull Duration baseBackoff, @NotNull Duration maxBackoff, double budgetRatio, int budgetCapacity) {
+        if (maxAttempts <= 0) {
+            throw new IllegalArgumentException("Maximum attempts must be a positive value");
+        }
+        if (baseBackoff.isNegative() || maxBackoff.compareTo(baseBackoff) < 0) {
+            throw new IllegalArgumentException("Backoff must be non-negative and not exceed the maximum backoff");
+        }
+        if (budgetRatio < 0 || budgetCapacity < 0) {
+            throw new IllegalArgumentException("Retry budget must be non-negative");
+        }
+
+        this.maxAttempts = maxAttempts;
+        this.baseBackoffNanos = baseBackoff.toNanos();
+        this.maxBackoffNanos = maxBackoff.toNanos();
+        this.depositUnits = Math.round(budgetRatio * UNITS_PER_RETRY);
+        this.capacityUnits = budgetCapacity * UNITS_PER_RETRY;
+        this.balanceUnits = new AtomicLong(capacityUnits);
+    }
+
+    /**
+     * @param tr The failure of an operation.
+     * @return The first {@link SQLException} in the causal chain of {@code tr}, or {@code null} if there is none.
+     */
+    @Nullable
+    private static SQLException findSQLException(@Nullable Throwable tr) {
+        for (var t = tr; t != null; t = t.getCause() != t ? t.getCause() : null) {
+            if (t instanceof SQLException) {
+                return (SQLException) t;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @param tr The failure of an operation.
+     * @return Whether {@code tr} is caused by a deadlock, in which case the whole transaction is rolled back.
+     */
+    public static boolean isDeadlock(@Nullable Throwable tr) {
+        final var e = findSQLException(tr);
+        if (e == null || e.getErrorCode() == ER_LOCK_WAIT_TIMEOUT) {
+            return false;
+        }
+
+        return e.getErrorCode() == ER_LOCK_DEADLOCK || SQLSTATE_SERIALIZATION_FAILURE.equals(e.getSQLState());
+    }
+
+    /**
+     * @param tr The failure of an operation.
+     * @return Whether {@code tr} is caused by a lock wait timeout, in which case only the failed statement is rolled
+     * back.
+     */
+    public static boolean isLockWaitTimeout(@Nullable Throwable tr) {
+        final var e = findSQLException(tr);
+        return e != null && e.getErrorCode() == ER_LOCK_WAIT_TIMEOUT;
+    }
+
+    /**
+     * @param tr The failure of an operation.
+     * @return Whether {@code tr} is caused by lock contention, regardless of whether the operation can be retried.
+     */
+    public static boolean isContention(@Nullable Throwable tr) {
+        return isDeadlock(tr) || isLockWaitTimeout(tr);
+    }
+
+    /**
+     * @param tr The failure of an operation.
+     * @param isWholeTransaction Whether the operation re-runs the whole transaction when it is retried.
+     * @return Whether the operation can be retried after failing with {@code tr}.
+     */
+    public static boolean isRetryable(@Nullable Throwable tr, boolean isWholeTransaction) {
+        return isLockWaitTimeout(tr) || (isWholeTransaction && isDeadlock(tr));
+    }
+
+    /**
+     * Executes an operation, retrying it while it fails due to lock contention.
+     *
+     * The calling thread sleeps during the backoff. If the thread is interrupted, the last failure is rethrown.
+     *
+     * @param operation The operation to execute. It is executed again from the start on every retry.
+     * @param isWholeTransaction Whether {@code operation} runs a whole transaction, instead of statements in a
+     *                           transaction spanning multiple operations.
+     * @param <R> The return type of the operation.
+     * @return The result of the first successful attempt.
+     * @throws RuntimeException the failure of the last attempt, if the operation cannot be retried.
+     */
+    public <R> R execute(@NotNull Supplier<R> operation, boolean isWholeTransaction) {
+        deposit();
+
+        for (int attempt = 1; ; ++attempt) {
+            try {
+                return operation.get();
+            } catch (RuntimeException e) {
+                if (attempt >= maxAttempts || !isRetryable(e, isWholeTransaction)) {
+                    throw e;
+                }
+                if (!tryWithdraw()) {
+                    budgetExhaustedCount.increment();
+                    LOGGER.warn("Retry budget exhausted: Not retrying operation failed due to lock contention");
+                    throw e;
+                }
+
+                retryCount.increment();
+                final var backoffNanos = getBackoffNanos(attempt);
+                LOGGER.debug("Operation failed due to lock contention: Retrying attempt {} after {}ns", attempt + 1, backoffNanos);
+                try {
+                    TimeUnit.NANOSECONDS.sleep(backoffNanos);
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    throw e;
+                }
+            }
+        }
+    }
+
+    /**
+     * @param retry The number of the retry, starting from {@code 1}.
+     * @return The upper bound of the backoff before the retry.
+     */
+    long getMaxBackoffNanos(int retry) {
+        final var exponent = Math.min(retry - 1, MAX_BACKOFF_EXPONENT);
+        final var backoff = baseBackoffNanos << exponent;
+        // Shifting may overflow for large base backoffs.
+        return backoff < 0 || backoff > maxBackoffNanos ? maxBackoffNanos : backoff;
+    }
+
+    /**
+     * @param retry The number of the retry, starting from {@code 1}.
+     * @return A random backoff between zero and {@link RetryPolicy#getMaxBackoffNanos(int)}.
+     */
+    long getBackoffNanos(int retry) {
+        return ThreadLocalRandom.current().nextLong(getMaxBackoffNanos(retry) + 1);
+    }
+
+    /**
+     * Adds the share of an executed operation to the budget.
+     */
+    private void deposit() {
+        balanceUnits.getAndUpdate(balance -> Math.min(balance + depositUnits, capacityUnits));
+    }
+
+    /**
+     * Takes a retry from the budget.
+     *
+     * @return {@code true} if the budget holds at least one retry.
+     */
+    private boolean tryWithdraw() {
+        var balance = balanceUnits.get();
+        while (balance >= UNITS_PER_RETRY) {
+            if (balanceUnits.compareAndSet(balance, balance - UNITS_PER_RETRY)) {
+                return true;
+            }
+            balance = balanceUnits.get();
+        }
+        return false;
+    }
+
+    /**
+     * @return The maximum number of times an operation is attempted, including the first attempt.
+     */
+    public int getMaxAttempts() {
+        return maxAttempts;
+    }
+
+    /**
+     * @return The number of whole retries currently held by the budget.
+     */
+    public long getBudget() {
+        return balanceUnits.get() / UNITS_PER_RETRY;
+    }
+
+    /**
+     * @return The total number of retries performed.
+     */
+    public long getRetryCount() {
+        return retryCount.sum();
+    }
+
+    /**
+     * @return The total number of retryable failures which are not retried because the budget has run out.
+     */
+    public long getBudgetExhaustedCount() {
+        return budgetExhaustedCount.sum();
+    }
+}
@@ -1,15 +1,28 @@
 package comp4111.dal;
 
+import comp4111.controller.TransactionManager;
 import comp4111.model.TransactionPostRequest;
+import comp4111.model.TransactionPutRequest;
 import org.jetbrains.annotations.NotNull;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Collectors;
+
 public class TransactionPostDataAccess {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(TransactionPostDataAccess.class);
 
     public static Long startNewTransaction() {
+        final var transactionMgr = TransactionManager.getInstance();
+        if (transactionMgr.isDeferredExecution()) {
+            return transactionMgr.newTransaction();
+        }
+
         try {
             return DatabaseConnectionPoolV2.getInstance().getIdForTransaction().get();
         } catch (Exception e) {
@@ -18,16 +31,72 @@ public class TransactionPostDataAccess {
         }
     }
 
-    public static boolean commitOrCancelTransaction(Long transaction, @NotNull TransactionPostRequest.Operation operation) {
+    /**
+     * @return A {@link CompletableFuture} completing with {@code true} if the transaction is committed or cancelled as
+     * requested.
+     */
+    @NotNull
+    public static CompletableFuture<Boolean> commitOrCancelTransaction(Long transaction, @NotNull TransactionPostRequest.Operation operation) {
         final var shouldCommit = operation == TransactionPostRequest.Operation.COMMIT;
-        try {
-            return DatabaseConnectionPoolV2.getInstance()
-                    .executeTransaction(transaction, operation == TransactionPostRequest.Operation.COMMIT)
-                    .thenApply(it -> it == shouldCommit)
-                    .get();
-        } catch (Exception e) {
-            LOGGER.error("Error completing transaction", e);
-            return false;
+
+        final var plans = TransactionManager.getInstance().getAndEraseTransaction(transaction);
+        if (plans != null) {
+            return shouldCommit ? applyPlans(plans) : CompletableFuture.completedFuture(true);
         }
+
+        return DatabaseConnectionPoolV2.getInstance()
+                .executeTransaction(transaction, operation == TransactionPostRequest.Operation.COMMIT)
+                .thenApply(it -> it == shouldCommit)
+                .exceptionally(tr -> {
+                    LOGGER.error("Error completing transaction", tr);
+                    return false;
+                });
+    }
+
+    /**
+     * Applies the buffered actions of a deferred transaction in a single database transaction.
+     *
+     * Actions are validated when they are pushed, but the books may have been changed since. If any action can no
+     * longer be applied, none of the actions are applied.
+     *
+     * @param plans The actions of the transaction, in the order they are pushed.
+     * @return A {@link CompletableFuture} completing with {@code true} if all actions are applied.
+     */
+    @NotNull
+    private static CompletableFuture<Boolean> applyPlans(@NotNull List<TransactionPutRequest> plans) {
+        if (plans.isEmpty()) {
+            return CompletableFuture.completedFuture(true);
+        }
+
+        // Rows are locked in the order of their IDs so that concurrent commits cannot deadlock. The sort is stable, so
+        // actions on the same book are still applied in the order they are pushed.
+        final var sortedPlans = new ArrayList<>(plans);
+        sortedPlans.sort(Comparator.comparingLong(TransactionPutRequest::getId));
+
+        // The books are locked before checking out a connection, so that commits and standalone updates of the same
+        // books queue in memory instead of in the database.
+        final var bookIds = sortedPlans.stream().map(TransactionPutRequest::getId).collect(Collectors.toList());
+        return BookLockTable.getInstance().lockAll(bookIds)
+                .thenCompose(lease -> {
+                    if (lease == null) {
+                        LOGGER.warn("Timed out waiting for the locks of books {}", bookIds);
+                        return CompletableFuture.completedFuture(false);
+                    }
+
+                    return DatabaseConnectionPoolV2.getInstance().execStmt(connection -> {
+                        for (final var plan : sortedPlans) {
+                            final var available = plan.getAction() == TransactionPutRequest.Action.RETURN;
+                            if (BooksPutDataAccess.updateBook(connection, plan.getId(), available) != 0) {
+                                connection.rollback();
+                                return false;
+                            }
+                        }
+                        return true;
+                    }).whenComplete((isApplied, tr) -> lease.close());
+                })
+                .exceptionally(tr -> {
+                    LOGGER.error("Error applying deferred transaction", tr);
+                    return false;
+                });
     }
 }
@@ -1,5 +1,6 @@
 package comp4111.dal;
 
+import comp4111.controller.TransactionManager;
 import comp4111.model.TransactionPutRequest;
 import org.jetbrains.annotations.NotNull;
 import org.slf4j.Logger;
@@ -13,6 +14,10 @@ public class TransactionPutDataAccess {
      * @return {@code 0} for 200 response, {@code 1} for 400 response, {@code 2} for 404 response.
      */
     public static int pushAction(@NotNull Long transaction, long bookId, @NotNull TransactionPutRequest.Action action) {
+        if (TransactionManager.getInstance().containsTransaction(transaction)) {
+            return bufferAction(transaction, bookId, action);
+        }
+
         try {
             final var res = DatabaseConnectionPoolV2.getInstance().putTransactionWithId(transaction, connection -> {
                 final var savepoint = connection.setSavepoint();
@@ -33,8 +38,48 @@ public class TransactionPutDataAccess {
 
             return res != null ? res : 1;
         } catch (Exception e) {
-            LOGGER.error("Error starting a new transaction", e);
+            if (RetryPolicy.isDeadlock(e)) {
+                // The transaction is rolled back and unbound by the pool, so committing it later fails.
+                LOGGER.warn("Transaction {} aborted due to a deadlock", transaction);
+            } else {
+                LOGGER.error("Error executing action in transaction", e);
+            }
+            return 1;
+        }
+    }
+
+    /**
+     * Validates an action of a deferred transaction against the committed state of the book, and buffers it until the
+     * transaction is committed. No locks are taken, so the action is validated again when it is applied.
+     *
+     * @return {@code 0} for 200 response, {@code 1} for 400 response, {@code 2} for 404 response.
+     */
+    private static int bufferAction(long transaction, long bookId, @NotNull TransactionPutRequest.Action action) {
+        final var transactionMgr = TransactionManager.getInstance();
+        final var available = action == TransactionPutRequest.Action.RETURN;
+
+        var isAvailable = transactionMgr.getPlannedAvailability(transaction, bookId);
+        if (isAvailable == null) {
+            var book = BookCache.getInstance().get(bookId);
+            if (book == null) {
+                try {
+                    book = DatabaseConnectionPoolV2.getInstance()
+                            .execReadOnly(connection -> BooksPutDataAccess.getBook(connection, bookId, InnoDBLockMode.DEFAULT).join(), false)
+                            .get();
+                } catch (Exception e) {
+                    LOGGER.error("Error reading book for deferred transaction", e);
+                    return 1;
+                }
+            }
+            if (book == null) {
+                return 2;
+            }
+            isAvailable = book.isAvailable();
+        }
+
+        if (isAvailable == available) {
             return 1;
         }
+        return transactionMgr.addTransactionPlan(new TransactionPutRequest(transaction, bookId, action)) ? 0 : 1;
     }
 }
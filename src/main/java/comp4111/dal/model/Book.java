@@ -17,7 +17,7 @@ public class Book {
     public Book() {
     }
 
-    public Book(int id, @NotNull String title, @NotNull String author,
+    public Book(long id, @NotNull String title, @NotNull String author,
                 @NotNull String publisher, int year, boolean available) {
         this.id = id;
         this.title = title;
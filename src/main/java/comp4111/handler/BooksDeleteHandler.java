@@ -7,6 +7,7 @@ import org.apache.hc.core5.http.HttpStatus;
 import org.apache.hc.core5.http.Message;
 import org.apache.hc.core5.http.Method;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CompletionException;
@@ -30,11 +31,20 @@ public abstract class BooksDeleteHandler extends HttpAsyncEndpointHandler<Long>
         }
     };
 
-    private long bookId;
+    @Nullable
+    private static BooksDeleteHandler INSTANCE;
 
+    /**
+     * @return The singleton instance of this class. The instance is shared by all requests, so it must not hold
+     * per-request state.
+     */
     @NotNull
-    public static BooksDeleteHandler getInstance() {
-        return new BooksDeleteHandlerImpl();
+    public synchronized static BooksDeleteHandler getInstance() {
+        if (INSTANCE == null) {
+            INSTANCE = new BooksDeleteHandlerImpl();
+        }
+
+        return INSTANCE;
     }
 
     @Override
@@ -45,24 +55,19 @@ public abstract class BooksDeleteHandler extends HttpAsyncEndpointHandler<Long>
     @Override
     protected CompletableFuture<Long> handleAsync(Message<HttpRequest, String> requestObject) {
         return CompletableFuture.completedFuture(requestObject)
-                .thenApplyAsync(this::checkMethodAsync)
-                .thenApplyAsync(this::checkTokenAsync)
-                .thenApplyAsync(request -> BooksHandler.getIdFromRequestAsync(request.getHead().getPath()))
-                .thenApplyAsync(id -> {
+                .thenApply(this::checkMethodAsync)
+                .thenApply(this::checkTokenAsync)
+                .thenApply(request -> BooksHandler.getIdFromRequestAsync(request.getHead().getPath()))
+                .thenApply(id -> {
                     if (id <= 0) {
                         throw new CompletionException(new HttpHandlingException(HttpStatus.SC_BAD_REQUEST));
                     }
 
-                    bookId = id;
-                    return bookId;
+                    return id;
                 })
-                .thenApplyAsync(id -> {
+                .thenApply(id -> {
                     LOGGER.info("DELETE /books id={}", id);
                     return id;
                 });
     }
-
-    long getBookId() {
-        return bookId;
-    }
 }
@@ -3,6 +3,7 @@ package comp4111.handler;
 import comp4111.exception.HttpHandlingException;
 import comp4111.handler.impl.BooksGetHandlerImpl;
 import comp4111.util.HttpUtils;
+import comp4111.util.SecurityUtils;
 import org.apache.hc.core5.http.HttpRequest;
 import org.apache.hc.core5.http.HttpStatus;
 import org.apache.hc.core5.http.Message;
@@ -10,8 +11,8 @@ import org.apache.hc.core5.http.Method;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
+import java.nio.charset.StandardCharsets;
 import java.util.Map;
-import java.util.Objects;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CompletionException;
 
@@ -20,6 +21,15 @@ import java.util.concurrent.CompletionException;
  */
 public abstract class BooksGetHandler extends HttpAsyncEndpointHandler<BooksGetHandler.QueryParams> {
 
+    /**
+     * The query parameter for the cursor of the page to list.
+     */
+    public static final String CURSOR_PARAM = "after";
+    /**
+     * The response header carrying the cursor of the next page, which is only present when more books are available.
+     */
+    public static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+
     private static final HttpEndpoint HANDLER_DEFINITION = new HttpEndpoint() {
         @Override
         public @NotNull String getHandlePattern() {
@@ -62,6 +72,91 @@ public abstract class BooksGetHandler extends HttpAsyncEndpointHandler<BooksGetH
             }
         }
 
+        /**
+         * A position in a sorted listing of books, after which the next page of a listing starts.
+         *
+         * A cursor holds the sort key and ID of the last book of a page, so that the next page can be located via the
+         * index of the sort key instead of skipping the books of all previous pages. Cursors are only valid for the
+         * sort field and order of the listing which they are created from.
+         */
+        public static final class Cursor {
+
+            @NotNull
+            public final SortField sort;
+            @NotNull
+            public final OutputOrder order;
+            /**
+             * The ID of the last book of the page.
+             */
+            public final long id;
+            /**
+             * The value of the sort field of the last book of the page, or {@code null} if the listing is sorted by
+             * ID only.
+             */
+            @Nullable
+            public final Object sortValue;
+
+            public Cursor(@NotNull SortField sort, @NotNull OutputOrder order, long id, @Nullable Object sortValue) {
+                if ((sort == SortField.NONE || sort == SortField.ID) != (sortValue == null)) {
+                    throw new IllegalArgumentException("Sort value must only be present for non-ID sort fields");
+                }
+
+                this.sort = sort;
+                this.order = order;
+                this.id = id;
+                this.sortValue = sortValue;
+            }
+
+            /**
+             * @return Whether the listing is sorted in descending order.
+             */
+            public boolean isDescending() {
+                return order == OutputOrder.DESC;
+            }
+
+            /**
+             * @return The URL-safe string representation of this cursor.
+             */
+            @NotNull
+            public String encode() {
+                final var str = sort + "\n" + order + "\n" + id + "\n" + (sortValue != null ? sortValue : "");
+                return SecurityUtils.encodeBase64(str.getBytes(StandardCharsets.UTF_8));
+            }
+
+            /**
+             * Parses a cursor created by {@link Cursor#encode()}.
+             *
+             * @param value String representation of the cursor.
+             * @return The parsed cursor.
+             * @throws IllegalArgumentException if {@code value} is not a valid cursor.
+             */
+            @NotNull
+            public static Cursor decode(@NotNull String value) {
+                final var fields = new String(SecurityUtils.decodeBase64(value), StandardCharsets.UTF_8).split("\n", 4);
+                if (fields.length != 4) {
+                    throw new IllegalArgumentException("Malformed cursor");
+                }
+
+                final var sort = SortField.valueOf(fields[0]);
+                final var order = OutputOrder.valueOf(fields[1]);
+                final var id = Long.parseLong(fields[2]);
+                final Object sortValue;
+                switch (sort) {
+                    case NONE:
+                    case ID:
+                        sortValue = null;
+                        break;
+                    case YEAR:
+                        sortValue = Integer.parseInt(fields[3]);
+                        break;
+                    default:
+                        sortValue = fields[3];
+                        break;
+                }
+                return new Cursor(sort, order, id, sortValue);
+            }
+        }
+
         @Nullable
         public final Long id;
         @Nullable
@@ -74,6 +169,11 @@ public abstract class BooksGetHandler extends HttpAsyncEndpointHandler<BooksGetH
         public final SortField sort;
         @NotNull
         public final OutputOrder order;
+        /**
+         * The position after which books are listed, or {@code null} to list from the first book.
+         */
+        @Nullable
+        public final Cursor after;
 
         private QueryParams(
                 @Nullable Long id,
@@ -81,22 +181,32 @@ public abstract class BooksGetHandler extends HttpAsyncEndpointHandler<BooksGetH
                 @Nullable String author,
                 @Nullable Integer limit,
                 @NotNull SortField sort,
-                @NotNull OutputOrder order) {
+                @NotNull OutputOrder order,
+                @Nullable Cursor after) {
             this.id = id;
             this.title = title;
             this.author = author;
             this.limit = limit;
             this.sort = sort;
             this.order = order;
+            this.after = after;
         }
     }
 
     @Nullable
-    private QueryParams queryParams;
+    private static BooksGetHandler INSTANCE;
 
+    /**
+     * @return The singleton instance of this class. The instance is shared by all requests, so it must not hold
+     * per-request state.
+     */
     @NotNull
-    public static BooksGetHandler getInstance() {
-        return new BooksGetHandlerImpl();
+    public synchronized static BooksGetHandler getInstance() {
+        if (INSTANCE == null) {
+            INSTANCE = new BooksGetHandlerImpl();
+        }
+
+        return INSTANCE;
     }
 
     @Override
@@ -107,10 +217,11 @@ public abstract class BooksGetHandler extends HttpAsyncEndpointHandler<BooksGetH
     @Override
     protected CompletableFuture<QueryParams> handleAsync(Message<HttpRequest, String> requestObject) {
         return CompletableFuture.completedFuture(requestObject)
-                .thenApplyAsync(this::checkMethodAsync)
-                .thenApplyAsync(this::checkTokenAsync)
-                .thenApplyAsync(request -> HttpUtils.parseQueryParamsAsync(request.getHead().getPath()))
-                .thenApplyAsync(params -> {
+                .thenApply(this::checkMethodAsync)
+                .thenApply(this::checkTokenAsync)
+                .thenApply(request -> HttpUtils.parseQueryParamsAsync(request.getHead().getPath()))
+                .thenApply(params -> {
+                    QueryParams queryParams;
                     try {
                         long queryId = BooksHandler.getIdFromRequestAsync(requestObject.getHead().getPath());
 
@@ -124,21 +235,23 @@ public abstract class BooksGetHandler extends HttpAsyncEndpointHandler<BooksGetH
                                 null,
                                 null,
                                 QueryParams.SortField.NONE,
-                                QueryParams.OutputOrder.NONE
+                                QueryParams.OutputOrder.NONE,
+                                null
                         );
                     } catch (Exception e) {
                         queryParams = parseQueryParams(params);
                     }
                     return queryParams;
                 })
-                .thenApplyAsync(queryParams -> {
-                    LOGGER.info("GET /books id={} title=\"{}\" author=\"{}\" limit={} sort={} order={}",
+                .thenApply(queryParams -> {
+                    LOGGER.info("GET /books id={} title=\"{}\" author=\"{}\" limit={} sort={} order={} after={}",
                             queryParams.id,
                             queryParams.title,
                             queryParams.author,
                             queryParams.limit,
                             queryParams.sort,
-                            queryParams.order);
+                            queryParams.order,
+                            queryParams.after != null ? queryParams.after.id : null);
                     return queryParams;
                 });
     }
@@ -182,47 +295,17 @@ public abstract class BooksGetHandler extends HttpAsyncEndpointHandler<BooksGetH
             throw new CompletionException("<0 limit value", new HttpHandlingException(HttpStatus.SC_BAD_REQUEST));
         }
 
-        return new QueryParams(queryId, queryTitle, queryAuthor, queryLimit, querySort, queryOrder);
-    }
-
-    @NotNull
-    QueryParams getQueryParams() {
-        return Objects.requireNonNull(queryParams);
-    }
-
-    @Nullable
-    @Deprecated(forRemoval = true)
-    protected Long getQueryId() {
-        return getQueryParams().id;
-    }
-
-    @Nullable
-    @Deprecated(forRemoval = true)
-    protected String getQueryTitle() {
-        return getQueryParams().title;
-    }
-
-    @Nullable
-    @Deprecated(forRemoval = true)
-    protected String getQueryAuthor() {
-        return getQueryParams().author;
-    }
-
-    @Nullable
-    @Deprecated(forRemoval = true)
-    protected Integer getQueryLimit() {
-        return getQueryParams().limit;
-    }
-
-    @Nullable
-    @Deprecated(forRemoval = true)
-    protected String getQuerySort() {
-        return getQueryParams().sort.toSQLComponent();
-    }
+        QueryParams.Cursor queryAfter;
+        final var queryAfterStr = params.getOrDefault(CURSOR_PARAM, null);
+        try {
+            queryAfter = queryAfterStr != null ? QueryParams.Cursor.decode(queryAfterStr) : null;
+        } catch (IllegalArgumentException e) {
+            throw new CompletionException("Bad after value", new HttpHandlingException(HttpStatus.SC_BAD_REQUEST, e));
+        }
+        if (queryAfter != null && (queryAfter.sort != querySort || queryAfter.order != queryOrder)) {
+            throw new CompletionException("Cursor of a different listing", new HttpHandlingException(HttpStatus.SC_BAD_REQUEST));
+        }
 
-    @Nullable
-    @Deprecated(forRemoval = true)
-    protected String getQueryOrder() {
-        return getQueryParams().order.toSQLComponent();
+        return new QueryParams(queryId, queryTitle, queryAuthor, queryLimit, querySort, queryOrder, queryAfter);
     }
 }
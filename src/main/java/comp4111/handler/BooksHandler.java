@@ -2,13 +2,13 @@ package comp4111.handler;
 
 import comp4111.exception.HttpHandlingException;
 import comp4111.handler.impl.BooksHandlerImpl;
-import org.apache.hc.core5.http.ClassicHttpRequest;
-import org.apache.hc.core5.http.HttpException;
-import org.apache.hc.core5.http.HttpStatus;
+import org.apache.hc.core5.http.*;
+import org.apache.hc.core5.http.nio.AsyncRequestConsumer;
 import org.apache.hc.core5.http.nio.AsyncResponseProducer;
 import org.apache.hc.core5.http.nio.support.AsyncResponseBuilder;
 import org.apache.hc.core5.http.protocol.HttpContext;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
 import java.io.IOException;
 import java.util.concurrent.CompletionException;
@@ -27,9 +27,20 @@ public abstract class BooksHandler extends HttpAsyncPathHandler {
         }
     };
 
+    @Nullable
+    private static BooksHandler INSTANCE;
+
+    /**
+     * @return The singleton instance of this class. The instance is shared by all requests, so it must not hold
+     * per-request state.
+     */
     @NotNull
-    public static BooksHandler getInstance() {
-        return new BooksHandlerImpl();
+    public synchronized static BooksHandler getInstance() {
+        if (INSTANCE == null) {
+            INSTANCE = new BooksHandlerImpl();
+        }
+
+        return INSTANCE;
     }
 
     protected BooksHandler() {
@@ -40,6 +51,26 @@ public abstract class BooksHandler extends HttpAsyncPathHandler {
         return HANDLER_DEFINITION;
     }
 
+    @Override
+    public AsyncRequestConsumer<Message<HttpRequest, String>> prepare(HttpRequest request, EntityDetails entityDetails, HttpContext context) {
+        // The payload of an import is consumed by the import handler, which inserts the books as the payload arrives.
+        if (BooksImportHandler.isImportRequest(request)) {
+            return BooksImportHandler.getInstance().prepare(request, entityDetails, context);
+        }
+
+        return super.prepare(request, entityDetails, context);
+    }
+
+    @Override
+    public void handle(Message<HttpRequest, String> requestObject, ResponseTrigger responseTrigger, HttpContext context) throws HttpException, IOException {
+        if (BooksImportHandler.isImportRequest(requestObject.getHead())) {
+            BooksImportHandler.getInstance().handle(requestObject, responseTrigger, context);
+            return;
+        }
+
+        super.handle(requestObject, responseTrigger, context);
+    }
+
     /**
      * Retrieves the book ID from the HTTP path.
      *
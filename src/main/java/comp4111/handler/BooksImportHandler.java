@@ -0,0 +1,435 @@
+package comp4111.handler;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import comp4111.controller.ExecutorManager;
+import comp4111.dal.DatabaseConnectionPoolV2;
+import comp4111.exception.HttpHandlingException;
+import comp4111.handler.impl.BooksImportHandlerImpl;
+import comp4111.model.Book;
+import comp4111.model.BooksImportResult;
+import comp4111.util.HttpUtils;
+import comp4111.util.JsonStreamParser;
+import comp4111.util.JsonStreamProducer;
+import org.apache.hc.core5.concurrent.FutureCallback;
+import org.apache.hc.core5.http.*;
+import org.apache.hc.core5.http.nio.AsyncEntityConsumer;
+import org.apache.hc.core5.http.nio.AsyncRequestConsumer;
+import org.apache.hc.core5.http.nio.CapacityChannel;
+import org.apache.hc.core5.http.nio.entity.StringAsyncEntityConsumer;
+import org.apache.hc.core5.http.nio.support.BasicRequestConsumer;
+import org.apache.hc.core5.http.protocol.HttpContext;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.stream.Collectors;
+
+/**
+ * Endpoint handler for {@code /books/import} POST requests, which insert books in bulk.
+ *
+ * The payload is either a JSON array of books, or a stream of books separated by newlines (NDJSON). The payload is
+ * parsed as it arrives, and books are inserted in batches, each of which is committed on its own. Reading of the
+ * payload is paused while batches are being inserted, so that the payload is never buffered in memory.
+ *
+ * The response lists the result of each book in the order of the payload, followed by a summary which counts the
+ * books by their outcome. The response is sent while the payload is read, and the results of each batch are written
+ * to it as soon as the batch is inserted, so that the memory held by a request does not grow with the size of the
+ * payload. Reading of the payload is also paused while the client does not read the response.
+ *
+ * Since the status of the response is sent before the payload is read, a malformed payload does not change the
+ * status. The books before the malformed part are still inserted, and the summary carries the reason.
+ */
+public abstract class BooksImportHandler extends HttpAsyncEndpointHandler<JsonStreamProducer> {
+
+    public static final String HANDLE_PATTERN = BooksHandler.HANDLE_PATTERN + "/import";
+
+    /**
+     * The number of books inserted by each transaction.
+     */
+    static final int BATCH_SIZE = 500;
+    /**
+     * The maximum number of batches waiting to be inserted before reading of the payload is paused.
+     */
+    private static final int MAX_PENDING_BATCHES = 2;
+    /**
+     * The maximum number of bytes of the response waiting to be sent before reading of the payload is paused.
+     */
+    private static final int MAX_BUFFERED_RESPONSE = 65536;
+    /**
+     * The number of bytes of the payload to read each time reading is resumed.
+     */
+    private static final int CAPACITY_INCREMENT = 65536;
+    /**
+     * The {@link HttpContext} attribute holding the {@link ImportConsumer} of the request.
+     */
+    private static final String CONSUMER_ATTRIBUTE = BooksImportHandler.class.getName() + ".consumer";
+
+    private static final HttpEndpoint HANDLER_DEFINITION = new HttpEndpoint() {
+        @NotNull
+        @Override
+        public String getHandlePattern() {
+            return HANDLE_PATTERN;
+        }
+
+        @NotNull
+        @Override
+        public Method getHandleMethod() {
+            return Method.POST;
+        }
+    };
+
+    @Nullable
+    private static BooksImportHandler INSTANCE;
+
+    /**
+     * @return The singleton instance of this class. The instance is shared by all requests, so it must not hold
+     * per-request state.
+     */
+    @NotNull
+    public synchronized static BooksImportHandler getInstance() {
+        if (INSTANCE == null) {
+            INSTANCE = new BooksImportHandlerImpl();
+        }
+
+        return INSTANCE;
+    }
+
+    @Override
+    public @NotNull HttpEndpoint getHandlerDefinition() {
+        return HANDLER_DEFINITION;
+    }
+
+    /**
+     * @param request The head of an HTTP request.
+     * @return Whether the request should be handled by this handler.
+     */
+    static boolean isImportRequest(@NotNull HttpRequest request) {
+        final var path = request.getPath();
+        final var endIdx = path.indexOf('?') != -1 ? path.indexOf('?') : path.length();
+        return path.substring(0, endIdx).equals(HANDLE_PATTERN);
+    }
+
+    @Override
+    public AsyncRequestConsumer<Message<HttpRequest, String>> prepare(HttpRequest request, EntityDetails entityDetails, HttpContext context) {
+        if (entityDetails == null || HttpUtils.toMethodOrNull(request.getMethod()) != getHandleMethod()) {
+            return new BasicRequestConsumer<>(entityDetails != null ? new StringAsyncEntityConsumer() : null);
+        }
+
+        // Books are inserted while the payload is read, so the token is checked before reading the payload.
+        boolean isAuthorized;
+        try {
+            final var token = HttpUtils.parseQueryParamsAsync(request.getPath()).get("token");
+            isAuthorized = token != null && getTokenMgr().containsToken(token);
+        } catch (CompletionException e) {
+            isAuthorized = false;
+        }
+
+        final var consumer = new ImportConsumer(isAuthorized);
+        context.setAttribute(CONSUMER_ATTRIBUTE, consumer);
+        return new BasicRequestConsumer<>(consumer);
+    }
+
+    /**
+     * Handles an import request. Requests with a valid token are handled as soon as the payload starts to arrive, and
+     * the returned entity is written to while the payload is read.
+     */
+    protected CompletableFuture<JsonStreamProducer> handleAsync(Message<HttpRequest, String> requestObject, HttpContext context) {
+        return CompletableFuture.completedFuture(requestObject)
+                .thenApply(this::checkMethodAsync)
+                .thenApply(request -> {
+                    final var consumer = (ImportConsumer) context.getAttribute(CONSUMER_ATTRIBUTE);
+                    if (consumer == null || !consumer.isAuthorized) {
+                        checkTokenAsync(request);
+                        throw new CompletionException(new HttpHandlingException(HttpStatus.SC_BAD_REQUEST, "Payload must be specified"));
+                    }
+
+                    // The token is not checked again, since books may already be inserted under the token checked
+                    // before the payload is read.
+                    LOGGER.info("POST /books/import token=\"{}\"", getTokenAsync(requestObject));
+                    return consumer.response;
+                });
+    }
+
+    /**
+     * @return The executor for inserting batches of books. Batches are submitted from the I/O thread reading the
+     * payload, so they are run on the executor of the connection pool even in
+     * {@link ExecutorManager.ExecutionMode#THREAD_PER_REQUEST} mode, where the DAL executor runs them on the calling
+     * thread.
+     */
+    @NotNull
+    protected Executor getImportExecutor() {
+        return DatabaseConnectionPoolV2.getInstance().getExecutor();
+    }
+
+    /**
+     * Inserts a batch of books. This is called on the import executor, one batch at a time.
+     *
+     * @param books The books to insert.
+     * @return The result of each book, in the order of {@code books}.
+     */
+    @NotNull
+    protected abstract List<BooksImportResult.Item> importBooks(@NotNull List<Book> books);
+
+    /**
+     * Consumes the payload of an import request, inserting the books as they are read and writing their results to
+     * the response.
+     */
+    private final class ImportConsumer implements AsyncEntityConsumer<String>, JsonStreamParser.Listener<Book> {
+
+        /**
+         * Whether the request carries a valid token. Payloads of other requests are discarded.
+         */
+        private final boolean isAuthorized;
+        @Nullable
+        private JsonStreamParser<Book> parser;
+        @Nullable
+        private FutureCallback<String> resultCallback;
+        /**
+         * The entity of the response, which is written to as batches are inserted.
+         */
+        @NotNull
+        final JsonStreamProducer response = new JsonStreamProducer("Results", "Summary");
+
+        /**
+         * Books read since the last batch is submitted. Invalid books are represented by {@code null}.
+         */
+        @NotNull
+        private List<@Nullable Book> batch = new ArrayList<>();
+        private long createdCount = 0;
+        private long conflictedCount = 0;
+        private long invalidCount = 0;
+        private long failedCount = 0;
+        /**
+         * Completes when all submitted batches are inserted.
+         */
+        @NotNull
+        private CompletableFuture<Void> pendingBatches = CompletableFuture.completedFuture(null);
+        private int pendingBatchCount = 0;
+        /**
+         * The channel to resume reading with, if reading is paused.
+         */
+        @Nullable
+        private CapacityChannel pausedChannel;
+        @Nullable
+        private String error;
+
+        ImportConsumer(boolean isAuthorized) {
+            this.isAuthorized = isAuthorized;
+        }
+
+        @Override
+        public void streamStart(EntityDetails entityDetails, FutureCallback<String> resultCallback) throws IOException {
+            this.resultCallback = resultCallback;
+            if (isAuthorized) {
+                parser = new JsonStreamParser<>(Book.class, this);
+                response.setDrainListener(this::resumeReading);
+
+                // The response is sent while the payload is read, so the request is handed to the handler before its
+                // payload is consumed.
+                resultCallback.completed("");
+            }
+        }
+
+        @Override
+        public void updateCapacity(CapacityChannel capacityChannel) throws IOException {
+            synchronized (this) {
+                if (isReadingPaused()) {
+                    pausedChannel = capacityChannel;
+                    return;
+                }
+            }
+
+            capacityChannel.update(CAPACITY_INCREMENT);
+        }
+
+        /**
+         * @return Whether reading of the payload should be paused, either because batches are waiting to be inserted,
+         * or because the results of inserted batches are waiting to be sent.
+         */
+        private synchronized boolean isReadingPaused() {
+            return pendingBatchCount >= MAX_PENDING_BATCHES || response.getBufferedSize() > MAX_BUFFERED_RESPONSE;
+        }
+
+        @Override
+        public void consume(ByteBuffer src) throws IOException {
+            if (parser == null || error != null) {
+                src.position(src.limit());
+                return;
+            }
+
+            try {
+                parser.feed(src);
+            } catch (JsonProcessingException e) {
+                error = e.getOriginalMessage();
+                src.position(src.limit());
+            }
+        }
+
+        @Override
+        public void streamEnd(List<? extends Header> trailers) throws IOException {
+            if (parser != null && error == null) {
+                try {
+                    parser.endOfInput();
+                } catch (JsonProcessingException e) {
+                    error = e.getOriginalMessage();
+                }
+            }
+            if (!batch.isEmpty()) {
+                submitBatch();
+            }
+
+            final CompletableFuture<Void> allBatches;
+            synchronized (this) {
+                allBatches = pendingBatches;
+            }
+            if (parser == null) {
+                Objects.requireNonNull(resultCallback).completed("");
+                return;
+            }
+
+            allBatches.whenComplete((v, tr) -> {
+                final BooksImportResult summary;
+                synchronized (this) {
+                    summary = new BooksImportResult(createdCount, conflictedCount, invalidCount, failedCount, error);
+                }
+                LOGGER.info("POST /books/import Books={}", summary.getTotalCount());
+                response.end(summary);
+            });
+        }
+
+        @Override
+        public void onValue(@NotNull Book value) {
+            batch.add(value);
+            if (batch.size() >= BATCH_SIZE) {
+                submitBatch();
+            }
+        }
+
+        @Override
+        public void onInvalidValue(@NotNull IOException e) {
+            batch.add(null);
+            if (batch.size() >= BATCH_SIZE) {
+                submitBatch();
+            }
+        }
+
+        /**
+         * Submits the books read so far to be inserted after all previously submitted batches.
+         */
+        private synchronized void submitBatch() {
+            final var books = batch;
+            batch = new ArrayList<>();
+
+            ++pendingBatchCount;
+            pendingBatches = pendingBatches
+                    .thenRunAsync(() -> importBatch(books), getImportExecutor())
+                    .handle((v, tr) -> {
+                        if (tr != null) {
+                            LOGGER.error("Unable to import books", tr);
+                            addResults(books, null);
+                        }
+                        onBatchImported();
+                        return null;
+                    });
+        }
+
+        private void importBatch(@NotNull List<@Nullable Book> books) {
+            final var validBooks = books.stream().filter(Objects::nonNull).collect(Collectors.toList());
+            addResults(books, validBooks.isEmpty() ? List.of() : importBooks(validBooks));
+        }
+
+        /**
+         * Records the results of a batch, and writes them to the response.
+         *
+         * @param books The books of the batch.
+         * @param validResults The results of the valid books of the batch, or {@code null} if the batch is not
+         *                     inserted.
+         */
+        private synchronized void addResults(@NotNull List<@Nullable Book> books, @Nullable List<BooksImportResult.Item> validResults) {
+            final var it = validResults != null ? validResults.iterator() : null;
+            for (final var book : books) {
+                if (book == null) {
+                    addResult(new BooksImportResult.Item(null, HttpStatus.SC_BAD_REQUEST));
+                } else if (it != null) {
+                    addResult(it.next());
+                } else {
+                    addResult(new BooksImportResult.Item(null, HttpStatus.SC_INTERNAL_SERVER_ERROR));
+                }
+            }
+        }
+
+        private void addResult(@NotNull BooksImportResult.Item item) {
+            switch (item.getStatus()) {
+                case HttpStatus.SC_CREATED:
+                    ++createdCount;
+                    break;
+                case HttpStatus.SC_CONFLICT:
+                    ++conflictedCount;
+                    break;
+                case HttpStatus.SC_BAD_REQUEST:
+                    ++invalidCount;
+                    break;
+                default:
+                    ++failedCount;
+                    break;
+            }
+
+            response.write(item);
+        }
+
+        private void onBatchImported() {
+            synchronized (this) {
+                --pendingBatchCount;
+            }
+            resumeReading();
+        }
+
+        /**
+         * Resumes reading of the payload if it is paused, and neither batches nor results are waiting.
+         */
+        private void resumeReading() {
+            final CapacityChannel channel;
+            synchronized (this) {
+                if (pausedChannel == null || isReadingPaused()) {
+                    return;
+                }
+                channel = pausedChannel;
+                pausedChannel = null;
+            }
+
+            if (channel != null) {
+                try {
+                    channel.update(CAPACITY_INCREMENT);
+                } catch (IOException e) {
+                    LOGGER.error("Unable to resume reading of payload", e);
+                }
+            }
+        }
+
+        @Override
+        public void failed(Exception cause) {
+            if (parser != null) {
+                // The request is already handed to the handler, so only the response is abandoned.
+                response.releaseResources();
+            } else if (resultCallback != null) {
+                resultCallback.failed(cause);
+            }
+        }
+
+        @Override
+        public String getContent() {
+            return "";
+        }
+
+        @Override
+        public void releaseResources() {
+        }
+    }
+}
@@ -1,6 +1,6 @@
 package comp4111.handler;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
 import comp4111.exception.HttpHandlingException;
 import comp4111.handler.impl.BooksPostHandlerImpl;
 import comp4111.model.Book;
@@ -12,7 +12,6 @@ import org.apache.hc.core5.http.Method;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
-import java.util.Objects;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CompletionException;
 
@@ -35,7 +34,7 @@ public abstract class BooksPostHandler extends HttpAsyncEndpointHandler<BooksPos
         }
     };
 
-    private final ObjectMapper objectMapper = JacksonUtils.getDefaultObjectMapper();
+    private static final ObjectReader REQUEST_READER = JacksonUtils.getReader(Book.class);
 
     public static class Request {
 
@@ -53,11 +52,19 @@ public abstract class BooksPostHandler extends HttpAsyncEndpointHandler<BooksPos
     }
 
     @Nullable
-    private Request request;
+    private static BooksPostHandler INSTANCE;
 
+    /**
+     * @return The singleton instance of this class. The instance is shared by all requests, so it must not hold
+     * per-request state.
+     */
     @NotNull
-    public static BooksPostHandler getInstance() {
-        return new BooksPostHandlerImpl();
+    public synchronized static BooksPostHandler getInstance() {
+        if (INSTANCE == null) {
+            INSTANCE = new BooksPostHandlerImpl();
+        }
+
+        return INSTANCE;
     }
 
     @Override
@@ -68,23 +75,22 @@ public abstract class BooksPostHandler extends HttpAsyncEndpointHandler<BooksPos
     @Override
     protected CompletableFuture<Request> handleAsync(Message<HttpRequest, String> requestObject) {
         return CompletableFuture.completedFuture(requestObject)
-                .thenApplyAsync(this::checkMethodAsync)
-                .thenApplyAsync(this::checkTokenAsync)
-                .thenApplyAsync(HttpAsyncEndpointHandler::getPayloadAsync)
-                .thenApplyAsync(payload -> {
+                .thenApply(this::checkMethodAsync)
+                .thenApply(this::checkTokenAsync)
+                .thenApply(HttpAsyncEndpointHandler::getPayloadAsync)
+                .thenApply(payload -> {
                     final var token = getTokenAsync(requestObject);
 
                     final Book book;
                     try {
-                        book = objectMapper.readValue(payload, Book.class);
+                        book = REQUEST_READER.readValue(payload);
                     } catch (Exception e) {
                         throw new CompletionException(new HttpHandlingException(HttpStatus.SC_BAD_REQUEST, e));
                     }
 
-                    request = new Request(token, book);
-                    return request;
+                    return new Request(token, book);
                 })
-                .thenApplyAsync(request -> {
+                .thenApply(request -> {
                     LOGGER.info("POST /books token=\"{}\" Title=\"{}\" Author=\"{}\" Publisher=\"{}\" Year={}",
                             request.token,
                             request.book.getTitle(),
@@ -94,21 +100,4 @@ public abstract class BooksPostHandler extends HttpAsyncEndpointHandler<BooksPos
                     return request;
                 });
     }
-
-    @NotNull
-    Request getRequest() {
-        return Objects.requireNonNull(request);
-    }
-
-    @NotNull
-    @Deprecated(forRemoval = true)
-    protected String getToken() {
-        return getRequest().token;
-    }
-
-    @NotNull
-    @Deprecated(forRemoval = true)
-    protected Book getBook() {
-        return getRequest().book;
-    }
 }
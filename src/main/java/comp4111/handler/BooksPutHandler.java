@@ -1,6 +1,7 @@
 package comp4111.handler;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectReader;
 import comp4111.exception.HttpHandlingException;
 import comp4111.handler.impl.BooksPutHandlerImpl;
 import comp4111.util.JacksonUtils;
@@ -11,7 +12,6 @@ import org.apache.hc.core5.http.Method;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
-import java.util.Objects;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CompletionException;
 
@@ -32,7 +32,7 @@ public abstract class BooksPutHandler extends HttpAsyncEndpointHandler<BooksPutH
         }
     };
 
-    private final ObjectMapper objectMapper = JacksonUtils.getDefaultObjectMapper();
+    private static final ObjectReader REQUEST_READER = JacksonUtils.getReader(JsonNode.class);
 
     public static class Request {
 
@@ -47,11 +47,19 @@ public abstract class BooksPutHandler extends HttpAsyncEndpointHandler<BooksPutH
     }
 
     @Nullable
-    private Request request;
+    private static BooksPutHandler INSTANCE;
 
+    /**
+     * @return The singleton instance of this class. The instance is shared by all requests, so it must not hold
+     * per-request state.
+     */
     @NotNull
-    public static BooksPutHandler getInstance() {
-        return new BooksPutHandlerImpl();
+    public synchronized static BooksPutHandler getInstance() {
+        if (INSTANCE == null) {
+            INSTANCE = new BooksPutHandlerImpl();
+        }
+
+        return INSTANCE;
     }
 
     @Override
@@ -62,12 +70,12 @@ public abstract class BooksPutHandler extends HttpAsyncEndpointHandler<BooksPutH
     @Override
     protected CompletableFuture<Request> handleAsync(Message<HttpRequest, String> requestObject) {
         return CompletableFuture.completedFuture(requestObject)
-                .thenApplyAsync(this::checkMethodAsync)
-                .thenApplyAsync(this::checkTokenAsync)
-                .thenApplyAsync(HttpAsyncEndpointHandler::getPayloadAsync)
-                .thenApplyAsync(payload -> {
+                .thenApply(this::checkMethodAsync)
+                .thenApply(this::checkTokenAsync)
+                .thenApply(HttpAsyncEndpointHandler::getPayloadAsync)
+                .thenApply(payload -> {
                     try {
-                        final var rootNode = objectMapper.readTree(payload);
+                        final var rootNode = REQUEST_READER.readTree(payload);
                         final var node = rootNode.get("Available");
                         if (!node.isBoolean()) {
                             throw new IllegalArgumentException();
@@ -77,31 +85,14 @@ public abstract class BooksPutHandler extends HttpAsyncEndpointHandler<BooksPutH
                         throw new CompletionException(new HttpHandlingException(HttpStatus.SC_BAD_REQUEST, e));
                     }
                 })
-                .thenApplyAsync(isAvailable -> {
+                .thenApply(isAvailable -> {
                     final var bookId = BooksHandler.getIdFromRequestAsync(requestObject.getHead().getPath());
 
-                    request = new Request(bookId, isAvailable);
-                    return request;
+                    return new Request(bookId, isAvailable);
                 })
-                .thenApplyAsync(request -> {
+                .thenApply(request -> {
                     LOGGER.info("PUT /books id={} Available={}", request.bookId, request.bookId);
                     return request;
                 });
     }
-
-    @NotNull
-    public Request getRequest() {
-        return Objects.requireNonNull(request);
-    }
-
-    @Deprecated(forRemoval = true)
-    protected long getBookId() {
-        return getRequest().bookId;
-    }
-
-    @NotNull
-    @Deprecated(forRemoval = true)
-    protected Boolean getAvailable() {
-        return getRequest().available;
-    }
 }
@@ -1,13 +1,15 @@
 package comp4111.handler;
 
+import comp4111.controller.ExecutorManager;
 import comp4111.controller.TokenManager;
+import comp4111.dal.DatabaseConnectionPoolV2;
 import comp4111.exception.HttpHandlingException;
+import comp4111.metrics.LatencyHistogram;
+import comp4111.metrics.MetricsRegistry;
 import comp4111.util.HttpUtils;
 import org.apache.hc.core5.http.*;
 import org.apache.hc.core5.http.message.BasicHttpResponse;
-import org.apache.hc.core5.http.nio.AsyncRequestConsumer;
-import org.apache.hc.core5.http.nio.AsyncResponseProducer;
-import org.apache.hc.core5.http.nio.AsyncServerRequestHandler;
+import org.apache.hc.core5.http.nio.*;
 import org.apache.hc.core5.http.nio.entity.BasicAsyncEntityProducer;
 import org.apache.hc.core5.http.nio.entity.StringAsyncEntityConsumer;
 import org.apache.hc.core5.http.nio.support.AsyncResponseBuilder;
@@ -22,6 +24,10 @@ import java.io.IOException;
 import java.util.Map;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Supplier;
 
 /**
  * This class is modified from {@link HttpEndpointHandler}. A handler which binds to a specific {@link HttpEndpoint}.
@@ -30,6 +36,73 @@ public abstract class HttpAsyncEndpointHandler<ASYNC_T> implements AsyncServerRe
 
     protected final Logger LOGGER = LoggerFactory.getLogger(this.getClass());
 
+    /**
+     * The number of distinct HTTP status codes tracked by {@link HttpAsyncEndpointHandler#latencyByStatus}.
+     */
+    private static final int STATUS_CODE_LIMIT = 600;
+
+    /**
+     * Latencies of the requests handled by this handler, indexed by the status code of the response. Histograms are
+     * created when a status is first responded.
+     */
+    private final AtomicReferenceArray<LatencyHistogram> latencyByStatus = new AtomicReferenceArray<>(STATUS_CODE_LIMIT);
+
+    /**
+     * A response which records the latency of its request when the head of the response is sent.
+     */
+    private final class MeteredResponseProducer implements AsyncResponseProducer {
+
+        @NotNull
+        private final AsyncResponseProducer response;
+        private final long startNanos;
+
+        MeteredResponseProducer(@NotNull AsyncResponseProducer response, long startNanos) {
+            this.response = response;
+            this.startNanos = startNanos;
+        }
+
+        @Override
+        public void sendResponse(ResponseChannel channel, HttpContext context) throws HttpException, IOException {
+            response.sendResponse(new ResponseChannel() {
+                @Override
+                public void sendInformation(HttpResponse response, HttpContext context) throws HttpException, IOException {
+                    channel.sendInformation(response, context);
+                }
+
+                @Override
+                public void sendResponse(HttpResponse response, EntityDetails entityDetails, HttpContext context) throws HttpException, IOException {
+                    getLatencyHistogram(response.getCode()).recordSince(startNanos);
+                    channel.sendResponse(response, entityDetails, context);
+                }
+
+                @Override
+                public void pushPromise(HttpRequest promise, AsyncPushProducer responseProducer, HttpContext context) throws HttpException, IOException {
+                    channel.pushPromise(promise, responseProducer, context);
+                }
+            }, context);
+        }
+
+        @Override
+        public void failed(Exception cause) {
+            response.failed(cause);
+        }
+
+        @Override
+        public int available() {
+            return response.available();
+        }
+
+        @Override
+        public void produce(DataStreamChannel channel) throws IOException {
+            response.produce(channel);
+        }
+
+        @Override
+        public void releaseResources() {
+            response.releaseResources();
+        }
+    }
+
     protected CompletableFuture<ASYNC_T> handleAsync(Message<HttpRequest, String> requestObject) {
         throw new IllegalStateException("Method not implemented");
     }
@@ -39,6 +112,42 @@ public abstract class HttpAsyncEndpointHandler<ASYNC_T> implements AsyncServerRe
         return TokenManager.getInstance();
     }
 
+    /**
+     * @return The executor for running CPU-only stages of the request pipeline.
+     */
+    @NotNull
+    protected Executor getPipelineExecutor() {
+        return ExecutorManager.getInstance().getPipelineExecutor();
+    }
+
+    /**
+     * @return The executor for running stages which block on the database. In
+     * {@link ExecutorManager.ExecutionMode#THREAD_PER_REQUEST} mode, stages are run on the thread of the request.
+     */
+    @NotNull
+    protected Executor getDalExecutor() {
+        final var executorMgr = ExecutorManager.getInstance();
+        if (executorMgr.getMode() == ExecutorManager.ExecutionMode.THREAD_PER_REQUEST) {
+            return executorMgr.getPipelineExecutor();
+        }
+        return DatabaseConnectionPoolV2.getInstance().getExecutor();
+    }
+
+    /**
+     * @return The executor for running stages which operate on a transaction bound to a database connection. These
+     * stages are not queued behind stages waiting for a free connection, since the connections are only freed when the
+     * transactions are committed or rolled back. In {@link ExecutorManager.ExecutionMode#THREAD_PER_REQUEST} mode,
+     * stages are run on the thread of the request.
+     */
+    @NotNull
+    protected Executor getTransactionExecutor() {
+        final var executorMgr = ExecutorManager.getInstance();
+        if (executorMgr.getMode() == ExecutorManager.ExecutionMode.THREAD_PER_REQUEST) {
+            return executorMgr.getPipelineExecutor();
+        }
+        return DatabaseConnectionPoolV2.getInstance().getTransactionExecutor();
+    }
+
     /**
      * @return The handler definition, which may be any object which inherits from {@link HttpEndpoint}.
      */
@@ -245,6 +354,67 @@ public abstract class HttpAsyncEndpointHandler<ASYNC_T> implements AsyncServerRe
         return responseBuilder.build();
     }
 
+    /**
+     * @param status The status code of a response.
+     * @return The histogram of the latencies of requests handled by this handler with the given status.
+     */
+    @NotNull
+    private LatencyHistogram getLatencyHistogram(int status) {
+        final var index = status >= 0 && status < STATUS_CODE_LIMIT ? status : 0;
+        final var histogram = latencyByStatus.get(index);
+        if (histogram != null) {
+            return histogram;
+        }
+
+        // Histograms with the same labels are shared by the registry, so concurrent creation is harmless.
+        final var newHistogram = MetricsRegistry.getInstance().latency(
+                "http_server_requests_seconds",
+                "Time from receiving a request to sending the head of its response",
+                "pattern", getHandlePattern(),
+                "method", getHandleMethod().toString(),
+                "status", Integer.toString(status));
+        latencyByStatus.set(index, newHistogram);
+        return newHistogram;
+    }
+
+    /**
+     * Runs the pipeline of a request, and emits its response.
+     *
+     * The pipeline is built and started on the pipeline executor. Stages chained using the non-async methods of
+     * {@link CompletableFuture} run inline on the thread which completes the previous stage, so the only thread hops
+     * are the start of the pipeline and the stages explicitly scheduled on another executor, such as
+     * {@link HttpAsyncEndpointHandler#getDalExecutor()}.
+     *
+     * The latency of the request is recorded by the status of its response when the response is sent.
+     *
+     * @param pipeline Supplier building the pipeline of the request, completing with the response to emit.
+     * @param responseTrigger {@link ResponseTrigger} of the request.
+     * @param context {@link HttpContext} of the request.
+     */
+    protected final void runPipeline(
+            @NotNull Supplier<CompletableFuture<AsyncResponseProducer>> pipeline,
+            @NotNull ResponseTrigger responseTrigger,
+            @NotNull HttpContext context) {
+        final var startNanos = System.nanoTime();
+        try {
+            getPipelineExecutor().execute(() -> {
+                CompletableFuture<AsyncResponseProducer> response;
+                try {
+                    response = pipeline.get();
+                } catch (Throwable tr) {
+                    response = CompletableFuture.failedFuture(tr);
+                }
+
+                response.exceptionally(this::exceptionToResponse)
+                        .thenAccept(it -> emitResponse(new MeteredResponseProducer(it, startNanos), responseTrigger, context));
+            });
+        } catch (RejectedExecutionException e) {
+            LOGGER.warn("Pipeline executor is saturated: Rejecting request");
+            final var response = AsyncResponseBuilder.create(HttpStatus.SC_SERVICE_UNAVAILABLE).build();
+            emitResponse(new MeteredResponseProducer(response, startNanos), responseTrigger, context);
+        }
+    }
+
     protected static void emitResponse(
             @NotNull AsyncResponseProducer response,
             @NotNull ResponseTrigger responseTrigger,
@@ -1,5 +1,6 @@
 package comp4111.handler;
 
+import comp4111.controller.ExecutorManager;
 import comp4111.util.HttpUtils;
 import org.apache.hc.core5.http.*;
 import org.apache.hc.core5.http.nio.AsyncRequestConsumer;
@@ -75,7 +76,7 @@ public abstract class HttpAsyncPathHandler implements AsyncServerRequestHandler<
      * @param context {@link HttpContext} of the request. Usually the third argument of {@link AsyncServerRequestHandler#handle}.
      * @param lut Lookup table for matching a {@link Method} to its corresponding {@link HttpAsyncEndpointHandler} creator.
      */
-    private static void dispatchByMethod(Message<HttpRequest, String> requestObject, ResponseTrigger responseTrigger,
+    private void dispatchByMethod(Message<HttpRequest, String> requestObject, ResponseTrigger responseTrigger,
                                          HttpContext context, Map<Method, Supplier<HttpAsyncEndpointHandler<?>>> lut) throws HttpException, IOException {
         final AsyncResponseProducer response;
         final Method method = HttpUtils.toMethodOrNull(requestObject.getHead().getMethod());
@@ -85,7 +86,17 @@ public abstract class HttpAsyncPathHandler implements AsyncServerRequestHandler<
             handler = lut.get(method);
         }
 
-        if (handler != null) {
+        final var requestExecutor = ExecutorManager.getInstance().getRequestExecutor();
+        if (handler != null && requestExecutor != null) {
+            final var endpointHandler = handler.get();
+            requestExecutor.execute(() -> {
+                try {
+                    endpointHandler.handle(requestObject, responseTrigger, context);
+                } catch (Throwable tr) {
+                    LOGGER.error("Caught exception while processing request", tr);
+                }
+            });
+        } else if (handler != null) {
             handler.get().handle(requestObject, responseTrigger, context);
         } else {
             response = AsyncResponseBuilder.create(HttpStatus.SC_METHOD_NOT_ALLOWED)
@@ -2,6 +2,7 @@ package comp4111.handler;
 
 import comp4111.handler.impl.LoginHandlerImpl;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
 public abstract class LoginHandler extends HttpAsyncPathHandler {
 
@@ -15,9 +16,20 @@ public abstract class LoginHandler extends HttpAsyncPathHandler {
         }
     };
 
+    @Nullable
+    private static LoginHandler INSTANCE;
+
+    /**
+     * @return The singleton instance of this class. The instance is shared by all requests, so it must not hold
+     * per-request state.
+     */
     @NotNull
-    public static LoginHandler getInstance() {
-        return new LoginHandlerImpl();
+    public synchronized static LoginHandler getInstance() {
+        if (INSTANCE == null) {
+            INSTANCE = new LoginHandlerImpl();
+        }
+
+        return INSTANCE;
     }
 
     protected LoginHandler() {
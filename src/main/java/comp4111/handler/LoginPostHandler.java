@@ -1,6 +1,6 @@
 package comp4111.handler;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
 import comp4111.exception.HttpHandlingException;
 import comp4111.handler.impl.LoginPostHandlerImpl;
 import comp4111.model.LoginRequest;
@@ -12,7 +12,6 @@ import org.apache.hc.core5.http.Method;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
-import java.util.Objects;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CompletionException;
 
@@ -37,14 +36,22 @@ public abstract class LoginPostHandler extends HttpAsyncEndpointHandler<LoginReq
         }
     };
 
-    private final ObjectMapper objectMapper = JacksonUtils.getDefaultObjectMapper();
+    private static final ObjectReader REQUEST_READER = JacksonUtils.getReader(LoginRequest.class);
 
     @Nullable
-    private LoginRequest loginRequest;
+    private static LoginPostHandler INSTANCE;
 
+    /**
+     * @return The singleton instance of this class. The instance is shared by all requests, so it must not hold
+     * per-request state.
+     */
     @NotNull
-    public static LoginPostHandler getInstance() {
-        return new LoginPostHandlerImpl();
+    public synchronized static LoginPostHandler getInstance() {
+        if (INSTANCE == null) {
+            INSTANCE = new LoginPostHandlerImpl();
+        }
+
+        return INSTANCE;
     }
 
     @NotNull
@@ -62,24 +69,20 @@ public abstract class LoginPostHandler extends HttpAsyncEndpointHandler<LoginReq
     @Override
     protected CompletableFuture<LoginRequest> handleAsync(Message<HttpRequest, String> requestObject) {
         return CompletableFuture.completedFuture(requestObject)
-                .thenApplyAsync(this::checkMethodAsync)
-                .thenApplyAsync(HttpAsyncEndpointHandler::getPayloadAsync)
-                .thenApplyAsync(payload -> {
+                .thenApply(this::checkMethodAsync)
+                .thenApply(HttpAsyncEndpointHandler::getPayloadAsync)
+                .thenApply(payload -> {
+                    final LoginRequest loginRequest;
                     try {
-                        loginRequest = objectMapper.readValue(payload, LoginRequest.class);
+                        loginRequest = REQUEST_READER.readValue(payload);
                     } catch (Exception e) {
                         throw new CompletionException(new HttpHandlingException(HttpStatus.SC_BAD_REQUEST, e));
                     }
                     return loginRequest;
                 })
-                .thenApplyAsync(loginRequest -> {
+                .thenApply(loginRequest -> {
                     LOGGER.info("POST /login Username=\"{}\" Password=\"{}\"", loginRequest.getUsername(), loginRequest.getPassword());
                     return loginRequest;
                 });
     }
-
-    @NotNull
-    LoginRequest getLoginRequest() {
-        return Objects.requireNonNull(loginRequest);
-    }
 }
@@ -7,7 +7,6 @@ import org.apache.hc.core5.http.Method;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
-import java.util.Objects;
 import java.util.concurrent.CompletableFuture;
 
 /**
@@ -30,11 +29,19 @@ public abstract class LogoutGetHandler extends HttpAsyncEndpointHandler<String>
     };
 
     @Nullable
-    private String token;
+    private static LogoutGetHandler INSTANCE;
 
+    /**
+     * @return The singleton instance of this class. The instance is shared by all requests, so it must not hold
+     * per-request state.
+     */
     @NotNull
-    public static LogoutGetHandler getInstance() {
-        return new LogoutGetHandlerImpl();
+    public synchronized static LogoutGetHandler getInstance() {
+        if (INSTANCE == null) {
+            INSTANCE = new LogoutGetHandlerImpl();
+        }
+
+        return INSTANCE;
     }
 
     @NotNull
@@ -45,19 +52,11 @@ public abstract class LogoutGetHandler extends HttpAsyncEndpointHandler<String>
 
     protected CompletableFuture<String> handleAsync(Message<HttpRequest, String> requestObject) {
         return CompletableFuture.completedFuture(requestObject)
-                .thenApplyAsync(this::checkMethodAsync)
-                .thenApplyAsync(request -> {
-                    token = HttpAsyncEndpointHandler.getTokenAsync(request);
-                    return token;
-                })
-                .thenApplyAsync(token -> {
+                .thenApply(this::checkMethodAsync)
+                .thenApply(HttpAsyncEndpointHandler::getTokenAsync)
+                .thenApply(token -> {
                     LOGGER.info("GET /logout token=\"{}\"", token);
                     return token;
                 });
     }
-
-    @NotNull
-    String getToken() {
-        return Objects.requireNonNull(token);
-    }
 }
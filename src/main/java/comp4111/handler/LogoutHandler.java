@@ -2,6 +2,7 @@ package comp4111.handler;
 
 import comp4111.handler.impl.LogoutHandlerImpl;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
 public abstract class LogoutHandler extends HttpAsyncPathHandler {
 
@@ -13,9 +14,20 @@ public abstract class LogoutHandler extends HttpAsyncPathHandler {
         }
     };
 
+    @Nullable
+    private static LogoutHandler INSTANCE;
+
+    /**
+     * @return The singleton instance of this class. The instance is shared by all requests, so it must not hold
+     * per-request state.
+     */
     @NotNull
-    public static LogoutHandler getInstance() {
-        return new LogoutHandlerImpl();
+    public synchronized static LogoutHandler getInstance() {
+        if (INSTANCE == null) {
+            INSTANCE = new LogoutHandlerImpl();
+        }
+
+        return INSTANCE;
     }
 
     protected LogoutHandler() {
@@ -0,0 +1,67 @@
+package comp4111.handler;
+
+import comp4111.handler.impl.MetricsGetHandlerImpl;
+import comp4111.metrics.MetricsRegistry;
+import org.apache.hc.core5.http.HttpRequest;
+import org.apache.hc.core5.http.Message;
+import org.apache.hc.core5.http.Method;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Endpoint handler for all {@code /metrics} GET requests.
+ *
+ * The metrics are exported in the Prometheus text format. As the endpoint is meant to be scraped by monitoring, it
+ * does not require a token.
+ */
+public abstract class MetricsGetHandler extends HttpAsyncEndpointHandler<String> {
+
+    private static final HttpEndpoint HANDLER_DEFINITION = new HttpEndpoint() {
+        @NotNull
+        @Override
+        public Method getHandleMethod() {
+            return Method.GET;
+        }
+
+        @NotNull
+        @Override
+        public String getHandlePattern() {
+            return MetricsHandler.HANDLE_PATTERN;
+        }
+    };
+
+    @Nullable
+    private static MetricsGetHandler INSTANCE;
+
+    /**
+     * @return The singleton instance of this class. The instance is shared by all requests, so it must not hold
+     * per-request state.
+     */
+    @NotNull
+    public synchronized static MetricsGetHandler getInstance() {
+        if (INSTANCE == null) {
+            INSTANCE = new MetricsGetHandlerImpl();
+        }
+
+        return INSTANCE;
+    }
+
+    @NotNull
+    @Override
+    public HttpEndpoint getHandlerDefinition() {
+        return HANDLER_DEFINITION;
+    }
+
+    protected CompletableFuture<String> handleAsync(Message<HttpRequest, String> requestObject) {
+        return CompletableFuture.completedFuture(requestObject)
+                .thenApply(this::checkMethodAsync)
+                .thenApply(request -> getMetricsRegistry().export());
+    }
+
+    @NotNull
+    protected MetricsRegistry getMetricsRegistry() {
+        return MetricsRegistry.getInstance();
+    }
+}
@@ -0,0 +1,43 @@
+package comp4111.handler;
+
+import comp4111.handler.impl.MetricsHandlerImpl;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Path handler for all {@code /metrics} requests.
+ */
+public abstract class MetricsHandler extends HttpAsyncPathHandler {
+
+    public static final String HANDLE_PATTERN = PATH_PREFIX + "/metrics";
+    private static final HttpPath HANDLER_DEFINITION = new HttpPath() {
+        @Override
+        public @NotNull String getHandlePattern() {
+            return HANDLE_PATTERN;
+        }
+    };
+
+    @Nullable
+    private static MetricsHandler INSTANCE;
+
+    /**
+     * @return The singleton instance of this class. The instance is shared by all requests, so it must not hold
+     * per-request state.
+     */
+    @NotNull
+    public synchronized static MetricsHandler getInstance() {
+        if (INSTANCE == null) {
+            INSTANCE = new MetricsHandlerImpl();
+        }
+
+        return INSTANCE;
+    }
+
+    protected MetricsHandler() {
+    }
+
+    @Override
+    public @NotNull HttpPath getHandlerDefinition() {
+        return HANDLER_DEFINITION;
+    }
+}
@@ -2,6 +2,7 @@ package comp4111.handler;
 
 import comp4111.handler.impl.TransactionHandlerImpl;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
 public abstract class TransactionHandler extends HttpAsyncPathHandler {
 
@@ -13,9 +14,20 @@ public abstract class TransactionHandler extends HttpAsyncPathHandler {
         }
     };
 
+    @Nullable
+    private static TransactionHandler INSTANCE;
+
+    /**
+     * @return The singleton instance of this class. The instance is shared by all requests, so it must not hold
+     * per-request state.
+     */
     @NotNull
-    public static TransactionHandler getInstance() {
-        return new TransactionHandlerImpl();
+    public synchronized static TransactionHandler getInstance() {
+        if (INSTANCE == null) {
+            INSTANCE = new TransactionHandlerImpl();
+        }
+
+        return INSTANCE;
     }
 
     protected TransactionHandler() {
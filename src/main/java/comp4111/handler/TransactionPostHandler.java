@@ -1,6 +1,6 @@
 package comp4111.handler;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
 import comp4111.exception.HttpHandlingException;
 import comp4111.handler.impl.TransactionPostHandlerImpl;
 import comp4111.model.TransactionPostRequest;
@@ -29,14 +29,22 @@ public abstract class TransactionPostHandler extends HttpAsyncEndpointHandler<Tr
         }
     };
 
-    private final ObjectMapper objectMapper = JacksonUtils.getDefaultObjectMapper();
+    private static final ObjectReader REQUEST_READER = JacksonUtils.getReader(TransactionPostRequest.class);
 
     @Nullable
-    private TransactionPostRequest txRequest;
+    private static TransactionPostHandler INSTANCE;
 
+    /**
+     * @return The singleton instance of this class. The instance is shared by all requests, so it must not hold
+     * per-request state.
+     */
     @NotNull
-    public static TransactionPostHandler getInstance() {
-        return new TransactionPostHandlerImpl();
+    public synchronized static TransactionPostHandler getInstance() {
+        if (INSTANCE == null) {
+            INSTANCE = new TransactionPostHandlerImpl();
+        }
+
+        return INSTANCE;
     }
 
     @Override
@@ -47,16 +55,17 @@ public abstract class TransactionPostHandler extends HttpAsyncEndpointHandler<Tr
     @Override
     protected CompletableFuture<TransactionPostRequest> handleAsync(Message<HttpRequest, String> requestObject) {
         return CompletableFuture.completedFuture(requestObject)
-                .thenApplyAsync(this::checkMethodAsync)
-                .thenApplyAsync(this::checkTokenAsync)
-                .thenApplyAsync(request -> {
+                .thenApply(this::checkMethodAsync)
+                .thenApply(this::checkTokenAsync)
+                .thenApply(request -> {
                     if (request.getBody() == null || request.getBody().isEmpty()) {
                         LOGGER.info("POST /transaction");
                         return null;
                     } else {
                         final var payload = HttpAsyncEndpointHandler.getPayloadAsync(request);
+                        final TransactionPostRequest txRequest;
                         try {
-                            txRequest = objectMapper.readValue(payload, TransactionPostRequest.class);
+                            txRequest = REQUEST_READER.readValue(payload);
                         } catch (Exception e) {
                             throw new CompletionException(new HttpHandlingException(HttpStatus.SC_BAD_REQUEST, e));
                         }
@@ -69,9 +78,4 @@ public abstract class TransactionPostHandler extends HttpAsyncEndpointHandler<Tr
                     }
                 });
     }
-
-    @Nullable
-    TransactionPostRequest getTxRequest() {
-        return txRequest;
-    }
 }
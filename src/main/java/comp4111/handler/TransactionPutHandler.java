@@ -1,6 +1,6 @@
 package comp4111.handler;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
 import comp4111.exception.HttpHandlingException;
 import comp4111.handler.impl.TransactionPutHandlerImpl;
 import comp4111.model.TransactionPutRequest;
@@ -12,7 +12,6 @@ import org.apache.hc.core5.http.Method;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
-import java.util.Objects;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CompletionException;
 
@@ -30,14 +29,22 @@ public abstract class TransactionPutHandler extends HttpAsyncEndpointHandler<Tra
         }
     };
 
-    private final ObjectMapper objectMapper = JacksonUtils.getDefaultObjectMapper();
+    private static final ObjectReader REQUEST_READER = JacksonUtils.getReader(TransactionPutRequest.class);
 
     @Nullable
-    private TransactionPutRequest putRequest;
+    private static TransactionPutHandler INSTANCE;
 
+    /**
+     * @return The singleton instance of this class. The instance is shared by all requests, so it must not hold
+     * per-request state.
+     */
     @NotNull
-    public static TransactionPutHandler getInstance() {
-        return new TransactionPutHandlerImpl();
+    public synchronized static TransactionPutHandler getInstance() {
+        if (INSTANCE == null) {
+            INSTANCE = new TransactionPutHandlerImpl();
+        }
+
+        return INSTANCE;
     }
 
     @Override
@@ -48,18 +55,19 @@ public abstract class TransactionPutHandler extends HttpAsyncEndpointHandler<Tra
     @Override
     protected CompletableFuture<TransactionPutRequest> handleAsync(Message<HttpRequest, String> requestObject) {
         return CompletableFuture.completedFuture(requestObject)
-                .thenApplyAsync(this::checkMethodAsync)
-                .thenApplyAsync(this::checkTokenAsync)
-                .thenApplyAsync(HttpAsyncEndpointHandler::getPayloadAsync)
-                .thenApplyAsync(payload -> {
+                .thenApply(this::checkMethodAsync)
+                .thenApply(this::checkTokenAsync)
+                .thenApply(HttpAsyncEndpointHandler::getPayloadAsync)
+                .thenApply(payload -> {
+                    final TransactionPutRequest putRequest;
                     try {
-                        putRequest = objectMapper.readValue(payload, TransactionPutRequest.class);
+                        putRequest = REQUEST_READER.readValue(payload);
                     } catch (Exception e) {
                         throw new CompletionException(new HttpHandlingException(HttpStatus.SC_BAD_REQUEST, e));
                     }
                     return putRequest;
                 })
-                .thenApplyAsync(putRequest -> {
+                .thenApply(putRequest -> {
                     LOGGER.info("PUT /transaction transaction={} id={} action={}",
                             putRequest.getTransaction(),
                             putRequest.getId(),
@@ -67,9 +75,4 @@ public abstract class TransactionPutHandler extends HttpAsyncEndpointHandler<Tra
                     return putRequest;
                 });
     }
-
-    @NotNull
-    TransactionPutRequest getPutRequest() {
-        return Objects.requireNonNull(putRequest);
-    }
 }
@@ -6,6 +6,7 @@ import org.apache.hc.core5.http.HttpRequest;
 import org.apache.hc.core5.http.Message;
 import org.apache.hc.core5.http.protocol.HttpContext;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
 import java.io.IOException;
 
@@ -14,9 +15,20 @@ import java.io.IOException;
  */
 public abstract class WildcardHandler extends HttpAsyncPathHandler {
 
+    @Nullable
+    private static WildcardHandler INSTANCE;
+
+    /**
+     * @return The singleton instance of this class. The instance is shared by all requests, so it must not hold
+     * per-request state.
+     */
     @NotNull
-    public static WildcardHandler getInstance() {
-        return new WildcardHandlerImpl();
+    public synchronized static WildcardHandler getInstance() {
+        if (INSTANCE == null) {
+            INSTANCE = new WildcardHandlerImpl();
+        }
+
+        return INSTANCE;
     }
 
     @Override
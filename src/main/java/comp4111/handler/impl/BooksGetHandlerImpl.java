@@ -1,11 +1,11 @@
 package comp4111.handler.impl;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
 import comp4111.dal.BooksGetDataAccess;
 import comp4111.exception.HttpHandlingException;
 import comp4111.handler.BooksGetHandler;
-import comp4111.handler.HttpAsyncEndpointHandler;
+import comp4111.model.BooksGetResult;
 import comp4111.util.JacksonUtils;
 import org.apache.hc.core5.http.ContentType;
 import org.apache.hc.core5.http.HttpRequest;
@@ -18,27 +18,28 @@ import java.util.concurrent.CompletionException;
 
 public class BooksGetHandlerImpl extends BooksGetHandler {
 
-    private final ObjectMapper objectMapper = JacksonUtils.getDefaultObjectMapper();
+    private static final ObjectWriter RESULT_WRITER = JacksonUtils.getWriter(BooksGetResult.class);
 
     @Override
     public void handle(Message<HttpRequest, String> requestObject, ResponseTrigger responseTrigger, HttpContext context) {
-        super.handleAsync(requestObject)
-                .thenApplyAsync(BooksGetDataAccess::getBooksAsync)
-                .thenApplyAsync(result -> {
+        runPipeline(() -> super.handleAsync(requestObject)
+                .thenApplyAsync(BooksGetDataAccess::getBooksAsync, getDalExecutor())
+                .thenApply(result -> {
                     if (result.getFoundBooks() == 0) {
                         throw new CompletionException("No books found", new HttpHandlingException(HttpStatus.SC_NO_CONTENT));
                     }
-                    return result;
-                })
-                .thenApplyAsync(result -> {
+
+                    final String json;
                     try {
-                        return objectMapper.writeValueAsString(result);
+                        json = RESULT_WRITER.writeValueAsString(result);
                     } catch (JsonProcessingException e) {
                         throw new CompletionException(new HttpHandlingException(HttpStatus.SC_INTERNAL_SERVER_ERROR, e));
                     }
-                })
-                .thenApplyAsync(json -> AsyncResponseBuilder.create(HttpStatus.SC_OK).setEntity(json, ContentType.APPLICATION_JSON).build())
-                .exceptionally(this::exceptionToResponse)
-                .thenAcceptAsync(response -> HttpAsyncEndpointHandler.emitResponse(response, responseTrigger, context));
+                    final var response = AsyncResponseBuilder.create(HttpStatus.SC_OK).setEntity(json, ContentType.APPLICATION_JSON);
+                    if (result.getNextCursor() != null) {
+                        response.setHeader(NEXT_CURSOR_HEADER, result.getNextCursor());
+                    }
+                    return response.build();
+                }), responseTrigger, context);
     }
 }
@@ -0,0 +1,42 @@
+package comp4111.handler.impl;
+
+import comp4111.dal.BooksPostDataAccess;
+import comp4111.handler.BooksImportHandler;
+import comp4111.model.Book;
+import comp4111.model.BooksImportResult;
+import org.apache.hc.core5.http.HttpRequest;
+import org.apache.hc.core5.http.HttpStatus;
+import org.apache.hc.core5.http.Message;
+import org.apache.hc.core5.http.nio.support.AsyncResponseBuilder;
+import org.apache.hc.core5.http.protocol.HttpContext;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+public class BooksImportHandlerImpl extends BooksImportHandler {
+
+    @Override
+    public void handle(Message<HttpRequest, String> requestObject, ResponseTrigger responseTrigger, HttpContext context) {
+        runPipeline(() -> super.handleAsync(requestObject, context)
+                .thenApply(entity -> AsyncResponseBuilder.create(HttpStatus.SC_OK).setEntity(entity).build()),
+                responseTrigger, context);
+    }
+
+    @NotNull
+    @Override
+    protected List<BooksImportResult.Item> importBooks(@NotNull List<Book> books) {
+        final var results = BooksPostDataAccess.addBooksIfAbsent(books.stream()
+                .map(book -> new comp4111.dal.model.Book(book.getTitle(), book.getAuthor(), book.getPublisher(), book.getYear()))
+                .collect(Collectors.toList()));
+        if (results == null) {
+            return books.stream()
+                    .map(book -> new BooksImportResult.Item(null, HttpStatus.SC_INTERNAL_SERVER_ERROR))
+                    .collect(Collectors.toList());
+        }
+
+        return results.stream()
+                .map(result -> new BooksImportResult.Item(result.id, result.isDuplicate ? HttpStatus.SC_CONFLICT : HttpStatus.SC_CREATED))
+                .collect(Collectors.toList());
+    }
+}
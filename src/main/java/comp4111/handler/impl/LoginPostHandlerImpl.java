@@ -1,8 +1,7 @@
 package comp4111.handler.impl;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
 import comp4111.exception.HttpHandlingException;
-import comp4111.handler.HttpAsyncEndpointHandler;
 import comp4111.handler.LoginPostHandler;
 import comp4111.model.LoginResult;
 import comp4111.util.JacksonUtils;
@@ -16,35 +15,31 @@ import java.util.concurrent.CompletionException;
 
 public class LoginPostHandlerImpl extends LoginPostHandler {
 
-    private final ObjectMapper objectMapper = JacksonUtils.getDefaultObjectMapper();
+    private static final ObjectWriter RESULT_WRITER = JacksonUtils.getWriter(LoginResult.class);
 
     @Override
     public void handle(Message<HttpRequest, String> requestObject, ResponseTrigger responseTrigger, HttpContext context) throws HttpException, IOException {
-        super.handleAsync(requestObject)
+        runPipeline(() -> super.handleAsync(requestObject)
                 .thenApplyAsync(request -> {
                     if (!SecurityUtils.userLogin(request.getUsername(), request.getPassword())) {
                         throw new CompletionException("Bad login details", new HttpHandlingException(HttpStatus.SC_BAD_REQUEST));
                     }
                     return request;
-                })
-                .thenApplyAsync(request -> getTokenMgr().newToken(request.getUsername()))
-                .thenApplyAsync(token -> {
+                }, getDalExecutor())
+                .thenApply(request -> {
+                    final var token = getTokenMgr().newToken(request.getUsername());
                     if (token == null) {
                         throw new CompletionException("User already logged in", new HttpHandlingException(HttpStatus.SC_CONFLICT));
                     }
-                    return token;
-                })
-                .thenApplyAsync(LoginResult::new)
-                .thenApplyAsync(loginResult -> {
+
+                    final String json;
                     try {
-                        return objectMapper.writeValueAsString(loginResult);
+                        json = RESULT_WRITER.writeValueAsString(new LoginResult(token));
                     } catch (Throwable tr) {
                         throw new CompletionException("Error while serializing response", new HttpHandlingException(HttpStatus.SC_INTERNAL_SERVER_ERROR, tr));
                     }
-                })
-                .thenApplyAsync(json -> AsyncResponseBuilder.create(HttpStatus.SC_OK).setEntity(json, ContentType.APPLICATION_JSON).build())
-                .exceptionally(this::exceptionToResponse)
-                .thenAcceptAsync(response -> HttpAsyncEndpointHandler.emitResponse(response, responseTrigger, context));
+                    return AsyncResponseBuilder.create(HttpStatus.SC_OK).setEntity(json, ContentType.APPLICATION_JSON).build();
+                }), responseTrigger, context);
 
     }
 }
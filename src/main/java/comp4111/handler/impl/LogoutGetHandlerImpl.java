@@ -1,7 +1,6 @@
 package comp4111.handler.impl;
 
 import comp4111.exception.HttpHandlingException;
-import comp4111.handler.HttpAsyncEndpointHandler;
 import comp4111.handler.LogoutGetHandler;
 import org.apache.hc.core5.http.HttpException;
 import org.apache.hc.core5.http.HttpRequest;
@@ -19,14 +18,12 @@ public class LogoutGetHandlerImpl extends LogoutGetHandler {
     public void handle(Message<HttpRequest, String> requestObject, ResponseTrigger responseTrigger, HttpContext context)
             throws HttpException, IOException {
 
-        super.handleAsync(requestObject)
-                .thenApplyAsync(token -> {
+        runPipeline(() -> super.handleAsync(requestObject)
+                .thenApply(token -> {
                     if (!getTokenMgr().removeToken(token)) {
                         throw new CompletionException(new HttpHandlingException(HttpStatus.SC_BAD_REQUEST));
                     }
                     return AsyncResponseBuilder.create(HttpStatus.SC_OK).build();
-                })
-                .exceptionally(this::exceptionToResponse)
-                .thenAcceptAsync(response -> HttpAsyncEndpointHandler.emitResponse(response, responseTrigger, context));
+                }), responseTrigger, context);
     }
 }
@@ -8,15 +8,14 @@ import org.jetbrains.annotations.Nullable;
 
 import java.util.List;
 import java.util.Map;
-import java.util.function.Function;
 import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
 public class LogoutHandlerImpl extends LogoutHandler {
 
-    private static final Map<Method, Supplier<HttpAsyncEndpointHandler<?>>> METHOD_LUT = List.<Supplier<HttpAsyncEndpointHandler<?>>>of(
-            LogoutGetHandler::getInstance
-    ).stream().collect(Collectors.toUnmodifiableMap(it -> it.get().getHandleMethod(), Function.identity()));
+    private static final Map<Method, Supplier<HttpAsyncEndpointHandler<?>>> METHOD_LUT = List.<HttpAsyncEndpointHandler<?>>of(
+            LogoutGetHandler.getInstance()
+    ).stream().collect(Collectors.toUnmodifiableMap(HttpAsyncEndpointHandler::getHandleMethod, handler -> () -> handler));
 
     @Nullable
     @Override
@@ -0,0 +1,30 @@
+package comp4111.handler.impl;
+
+import comp4111.handler.MetricsGetHandler;
+import org.apache.hc.core5.http.ContentType;
+import org.apache.hc.core5.http.HttpException;
+import org.apache.hc.core5.http.HttpRequest;
+import org.apache.hc.core5.http.HttpStatus;
+import org.apache.hc.core5.http.Message;
+import org.apache.hc.core5.http.nio.support.AsyncResponseBuilder;
+import org.apache.hc.core5.http.protocol.HttpContext;
+
+import java.io.IOException;
+
+public class MetricsGetHandlerImpl extends MetricsGetHandler {
+
+    /**
+     * The content type of the Prometheus text format.
+     */
+    private static final ContentType EXPOSITION_CONTENT_TYPE = ContentType.parse("text/plain; version=0.0.4; charset=utf-8");
+
+    @Override
+    public void handle(Message<HttpRequest, String> requestObject, ResponseTrigger responseTrigger, HttpContext context)
+            throws HttpException, IOException {
+
+        runPipeline(() -> super.handleAsync(requestObject)
+                .thenApply(metrics -> AsyncResponseBuilder.create(HttpStatus.SC_OK)
+                        .setEntity(metrics, EXPOSITION_CONTENT_TYPE)
+                        .build()), responseTrigger, context);
+    }
+}
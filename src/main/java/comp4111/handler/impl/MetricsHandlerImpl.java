@@ -0,0 +1,25 @@
+package comp4111.handler.impl;
+
+import comp4111.handler.HttpAsyncEndpointHandler;
+import comp4111.handler.MetricsGetHandler;
+import comp4111.handler.MetricsHandler;
+import org.apache.hc.core5.http.Method;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+public class MetricsHandlerImpl extends MetricsHandler {
+
+    private static final Map<Method, Supplier<HttpAsyncEndpointHandler<?>>> METHOD_LUT = List.<HttpAsyncEndpointHandler<?>>of(
+            MetricsGetHandler.getInstance()
+    ).stream().collect(Collectors.toUnmodifiableMap(HttpAsyncEndpointHandler::getHandleMethod, handler -> () -> handler));
+
+    @Nullable
+    @Override
+    public Map<Method, Supplier<HttpAsyncEndpointHandler<?>>> getMethodLut() {
+        return METHOD_LUT;
+    }
+}
@@ -9,16 +9,15 @@ import org.jetbrains.annotations.Nullable;
 
 import java.util.List;
 import java.util.Map;
-import java.util.function.Function;
 import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
 public class TransactionHandlerImpl extends TransactionHandler {
 
-    private static final Map<Method, Supplier<HttpAsyncEndpointHandler<?>>> METHOD_LUT = List.<Supplier<HttpAsyncEndpointHandler<?>>>of(
-            TransactionPostHandler::getInstance,
-            TransactionPutHandler::getInstance
-    ).stream().collect(Collectors.toUnmodifiableMap(it -> it.get().getHandleMethod(), Function.identity()));
+    private static final Map<Method, Supplier<HttpAsyncEndpointHandler<?>>> METHOD_LUT = List.<HttpAsyncEndpointHandler<?>>of(
+            TransactionPostHandler.getInstance(),
+            TransactionPutHandler.getInstance()
+    ).stream().collect(Collectors.toUnmodifiableMap(HttpAsyncEndpointHandler::getHandleMethod, handler -> () -> handler));
 
     @Override
     public @Nullable Map<Method, Supplier<HttpAsyncEndpointHandler<?>>> getMethodLut() {
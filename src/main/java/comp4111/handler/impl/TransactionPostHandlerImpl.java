@@ -1,10 +1,9 @@
 package comp4111.handler.impl;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
 import comp4111.dal.TransactionPostDataAccess;
 import comp4111.exception.HttpHandlingException;
-import comp4111.handler.HttpAsyncEndpointHandler;
 import comp4111.handler.TransactionPostHandler;
 import comp4111.model.TransactionPostRequest;
 import comp4111.model.TransactionPostResult;
@@ -16,26 +15,28 @@ import org.apache.hc.core5.http.protocol.HttpContext;
 import org.jetbrains.annotations.NotNull;
 
 import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CompletionException;
 
 public class TransactionPostHandlerImpl extends TransactionPostHandler {
 
-    private final ObjectMapper objectMapper = JacksonUtils.getDefaultObjectMapper();
+    private static final ObjectWriter RESULT_WRITER = JacksonUtils.getWriter(TransactionPostResult.class);
 
     @Override
     public void handle(Message<HttpRequest, String> requestObject, ResponseTrigger responseTrigger, HttpContext context)
             throws HttpException, IOException {
 
-        super.handleAsync(requestObject)
-                .thenApplyAsync(txRequest -> {
+        // Starting a transaction waits for a free connection, while committing or rolling back frees one, so the latter
+        // must not be queued behind the former. Committing a bound transaction runs on the transaction executor of the
+        // pool, and committing a deferred transaction waits for the locks of its books without occupying a thread.
+        runPipeline(() -> super.handleAsync(requestObject)
+                .thenCompose(txRequest -> {
                     if (txRequest != null) {
                         return handleTransactionCommitRequestAsync(txRequest);
                     } else {
-                        return handleTransactionIdRequestAsync();
+                        return CompletableFuture.supplyAsync(this::handleTransactionIdRequestAsync, getDalExecutor());
                     }
-                })
-                .exceptionally(this::exceptionToResponse)
-                .thenAcceptAsync(response -> HttpAsyncEndpointHandler.emitResponse(response, responseTrigger, context));
+                }), responseTrigger, context);
     }
 
     private AsyncResponseProducer handleTransactionIdRequestAsync() {
@@ -48,25 +49,25 @@ public class TransactionPostHandlerImpl extends TransactionPostHandler {
 
         try {
             return AsyncResponseBuilder.create(HttpStatus.SC_OK)
-                    .setEntity(objectMapper.writeValueAsString(transactionResponse), ContentType.APPLICATION_JSON)
+                    .setEntity(RESULT_WRITER.writeValueAsString(transactionResponse), ContentType.APPLICATION_JSON)
                     .build();
         } catch (JsonProcessingException e) {
             throw new IllegalStateException("Cannot serialize transaction ID response", e);
         }
     }
 
-    private AsyncResponseProducer handleTransactionCommitRequestAsync(@NotNull TransactionPostRequest request) {
-        final boolean isSuccessful = TransactionPostDataAccess.commitOrCancelTransaction(
+    private CompletableFuture<AsyncResponseProducer> handleTransactionCommitRequestAsync(@NotNull TransactionPostRequest request) {
+        return TransactionPostDataAccess.commitOrCancelTransaction(
                 request.getTransaction(),
                 request.getOperation()
-        );
-
-        final AsyncResponseProducer response;
-        if (isSuccessful) {
-            response = AsyncResponseBuilder.create(HttpStatus.SC_OK).build();
-        } else {
-            response = AsyncResponseBuilder.create(HttpStatus.SC_BAD_REQUEST).build();
-        }
-        return response;
+        ).thenApply(isSuccessful -> {
+            final AsyncResponseProducer response;
+            if (isSuccessful) {
+                response = AsyncResponseBuilder.create(HttpStatus.SC_OK).build();
+            } else {
+                response = AsyncResponseBuilder.create(HttpStatus.SC_BAD_REQUEST).build();
+            }
+            return response;
+        });
     }
 }
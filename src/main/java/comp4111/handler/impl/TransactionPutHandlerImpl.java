@@ -1,7 +1,6 @@
 package comp4111.handler.impl;
 
 import comp4111.dal.TransactionPutDataAccess;
-import comp4111.handler.HttpAsyncEndpointHandler;
 import comp4111.handler.TransactionPutHandler;
 import org.apache.hc.core5.http.HttpRequest;
 import org.apache.hc.core5.http.HttpStatus;
@@ -14,16 +13,14 @@ public class TransactionPutHandlerImpl extends TransactionPutHandler {
     @Override
     public void handle(Message<HttpRequest, String> requestObject, ResponseTrigger responseTrigger, HttpContext context) {
 
-        super.handleAsync(requestObject)
-                .thenApplyAsync(request -> TransactionPutDataAccess.pushAction(request.getTransaction(), request.getId(), request.getAction()))
-                .thenApplyAsync(result -> {
+        runPipeline(() -> super.handleAsync(requestObject)
+                .thenApplyAsync(request -> TransactionPutDataAccess.pushAction(request.getTransaction(), request.getId(), request.getAction()), getTransactionExecutor())
+                .thenApply(result -> {
                     if (result == 0) {
                         return AsyncResponseBuilder.create(HttpStatus.SC_OK).build();
                     } else {
                         return AsyncResponseBuilder.create(HttpStatus.SC_BAD_REQUEST).build();
                     }
-                })
-                .exceptionally(this::exceptionToResponse)
-                .thenAcceptAsync(response -> HttpAsyncEndpointHandler.emitResponse(response, responseTrigger, context));
+                }), responseTrigger, context);
     }
 }
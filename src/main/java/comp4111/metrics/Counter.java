@@ -0,0 +1,34 @@
+package comp4111.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A monotonically increasing count.
+ *
+ * Increments from concurrent threads are spread across cells, so that counting never contends on a single value.
+ */
+public final class Counter {
+
+    private final LongAdder count = new LongAdder();
+
+    Counter() {
+    }
+
+    public void increment() {
+        count.increment();
+    }
+
+    /**
+     * @param delta The amount to add. Must not be negative.
+     */
+    public void add(long delta) {
+        count.add(delta);
+    }
+
+    /**
+     * @return The current count.
+     */
+    public long get() {
+        return count.sum();
+    }
+}
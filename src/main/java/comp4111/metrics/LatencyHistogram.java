@@ -0,0 +1,157 @@
+package comp4111.metrics;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A histogram of latencies with bounded relative error, in the style of HdrHistogram.
+ *
+ * Latencies are recorded in nanoseconds into log-linear buckets: Each power of two is divided into
+ * {@link LatencyHistogram#SUB_BUCKET_COUNT} buckets of equal width, so the bucket of any value is at most 1/16 of the
+ * value wide. Values below {@code 2 * SUB_BUCKET_COUNT} nanoseconds are recorded exactly, and values above
+ * {@link LatencyHistogram#MAX_TRACKABLE_NANOS} are recorded into the last bucket.
+ *
+ * Recording is lock-free and does not allocate, so it is cheap enough to be done on every request. Readers may observe
+ * a recording in progress, in which case the count and the buckets may be off by the recordings in progress.
+ */
+public final class LatencyHistogram {
+
+    private static final int SUB_BUCKET_BITS = 4;
+    static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+    /**
+     * The exponent of the largest power of two which can be recorded. Values up to about 73 minutes are tracked.
+     */
+    private static final int MAX_EXPONENT = 41;
+    static final long MAX_TRACKABLE_NANOS = (1L << (MAX_EXPONENT + 1)) - 1;
+    /**
+     * The number of values recorded exactly.
+     */
+    private static final int LINEAR_BUCKET_COUNT = SUB_BUCKET_COUNT * 2;
+    private static final int BUCKET_COUNT = LINEAR_BUCKET_COUNT + (MAX_EXPONENT - SUB_BUCKET_BITS) * SUB_BUCKET_COUNT;
+
+    private final AtomicLongArray buckets = new AtomicLongArray(BUCKET_COUNT);
+    private final LongAdder count = new LongAdder();
+    private final LongAdder sumNanos = new LongAdder();
+    private final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0);
+
+    LatencyHistogram() {
+    }
+
+    /**
+     * @param nanos A latency in nanoseconds.
+     * @return The index of the bucket recording {@code nanos}.
+     */
+    static int bucketOf(long nanos) {
+        final var value = Math.min(Math.max(nanos, 0), MAX_TRACKABLE_NANOS);
+        if (value < LINEAR_BUCKET_COUNT) {
+            return (int) value;
+        }
+
+        final var exponent = 63 - Long.numberOfLeadingZeros(value);
+        final var subBucket = (int) (value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKET_COUNT - 1);
+        return LINEAR_BUCKET_COUNT + (exponent - SUB_BUCKET_BITS - 1) * SUB_BUCKET_COUNT + subBucket;
+    }
+
+    /**
+     * @param bucket The index of a bucket.
+     * @return The largest value recorded into the bucket.
+     */
+    static long highestValueOf(int bucket) {
+        if (bucket < LINEAR_BUCKET_COUNT) {
+            return bucket;
+        }
+
+        final var exponent = (bucket - LINEAR_BUCKET_COUNT) / SUB_BUCKET_COUNT + SUB_BUCKET_BITS + 1;
+        final var subBucket = (bucket - LINEAR_BUCKET_COUNT) % SUB_BUCKET_COUNT;
+        final var width = 1L << (exponent - SUB_BUCKET_BITS);
+        return (SUB_BUCKET_COUNT + subBucket) * width + width - 1;
+    }
+
+    /**
+     * Records a latency.
+     *
+     * @param nanos The latency in nanoseconds.
+     */
+    public void record(long nanos) {
+        buckets.incrementAndGet(bucketOf(nanos));
+        count.increment();
+        sumNanos.add(nanos);
+        maxNanos.accumulate(nanos);
+    }
+
+    /**
+     * Records the time elapsed since a point in time.
+     *
+     * @param startNanos The start time obtained from {@link System#nanoTime()}.
+     */
+    public void recordSince(long startNanos) {
+        record(System.nanoTime() - startNanos);
+    }
+
+    /**
+     * @return The number of recorded latencies.
+     */
+    public long getCount() {
+        return count.sum();
+    }
+
+    /**
+     * @return The sum of the recorded latencies in seconds.
+     */
+    public double getSumSeconds() {
+        return (double) sumNanos.sum() / TimeUnit.SECONDS.toNanos(1);
+    }
+
+    /**
+     * @return The largest recorded latency in nanoseconds.
+     */
+    public long getMaxNanos() {
+        return maxNanos.get();
+    }
+
+    /**
+     * @param quantile The quantile, between {@code 0} and {@code 1}.
+     * @return The latency in nanoseconds at or below which the given fraction of the recorded latencies fall, rounded
+     * up to the largest value of its bucket, or {@code 0} if no latencies are recorded.
+     */
+    public long getValueAtQuantile(double quantile) {
+        final var total = getCount();
+        if (total == 0) {
+            return 0;
+        }
+
+        final var rank = Math.max(1, (long) Math.ceil(quantile * total));
+        long seen = 0;
+        for (int i = 0; i < BUCKET_COUNT; ++i) {
+            seen += buckets.get(i);
+            if (seen >= rank) {
+                return Math.min(highestValueOf(i), getMaxNanos());
+            }
+        }
+        return getMaxNanos();
+    }
+
+    /**
+     * Counts the recorded latencies at or below the largest values of the given buckets, in a single pass over the
+     * buckets.
+     *
+     * @param upperBuckets Indices of buckets in ascending order.
+     * @return The number of recorded latencies at or below the largest value of each of {@code upperBuckets}, followed
+     * by the number of all recorded latencies. The counts are taken from the same pass, so they never decrease.
+     */
+    long[] getCumulativeCounts(int[] upperBuckets) {
+        final var counts = new long[upperBuckets.length + 1];
+        long seen = 0;
+        int next = 0;
+        for (int i = 0; i < BUCKET_COUNT; ++i) {
+            seen += buckets.get(i);
+            while (next < upperBuckets.length && upperBuckets[next] == i) {
+                counts[next++] = seen;
+            }
+        }
+        counts[upperBuckets.length] = seen;
+        return counts;
+    }
+}
@@ -0,0 +1,312 @@
+package comp4111.metrics;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Arrays;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.DoubleSupplier;
+import java.util.stream.IntStream;
+
+/**
+ * A registry of the metrics of the server, which can be exported in the Prometheus text format.
+ *
+ * Metrics are grouped into families by name, and identified within a family by their labels. Looking up a metric
+ * allocates, so components which record on every request should look up their metrics once and keep them.
+ *
+ * Values which are already tracked by a component, such as the size of a pool, are registered as callbacks instead,
+ * which are only invoked when the metrics are exported.
+ */
+public class MetricsRegistry {
+
+    /**
+     * The exponents of the powers of two, in nanoseconds, bounding the buckets exported for each
+     * {@link LatencyHistogram}. The buckets range from about a microsecond to about a minute.
+     */
+    private static final int MIN_BUCKET_EXPONENT = 10;
+    private static final int MAX_BUCKET_EXPONENT = 36;
+    /**
+     * The indices of the {@link LatencyHistogram} buckets ending just below each exported bound. Each power of two is
+     * the boundary of a bucket, so the exported counts are exact, and are identical across instances for aggregation.
+     */
+    private static final int[] EXPORTED_BUCKETS = IntStream.rangeClosed(MIN_BUCKET_EXPONENT, MAX_BUCKET_EXPONENT)
+            .map(exponent -> LatencyHistogram.bucketOf((1L << exponent) - 1))
+            .toArray();
+    /**
+     * The {@code le} label of each of {@link MetricsRegistry#EXPORTED_BUCKETS}, in seconds.
+     */
+    private static final String[] EXPORTED_BUCKET_LABELS = Arrays.stream(EXPORTED_BUCKETS)
+            .mapToObj(bucket -> "le=\"" + formatValue(toSeconds(LatencyHistogram.highestValueOf(bucket))) + "\"")
+            .toArray(String[]::new);
+
+    /**
+     * The type of a metric family, named as in the Prometheus text format.
+     */
+    private enum Type {
+        COUNTER("counter"),
+        GAUGE("gauge"),
+        HISTOGRAM("histogram");
+
+        @NotNull
+        final String exportName;
+
+        Type(@NotNull String exportName) {
+            this.exportName = exportName;
+        }
+    }
+
+    /**
+     * The metrics sharing a name.
+     */
+    private static final class Family {
+
+        @NotNull
+        final String name;
+        @NotNull
+        final String help;
+        @NotNull
+        final Type type;
+        /**
+         * Metrics of the family, keyed by their formatted labels. Values are either {@link Counter},
+         * {@link LatencyHistogram}, or {@link DoubleSupplier} for callbacks.
+         */
+        final ConcurrentMap<String, Object> metrics = new ConcurrentSkipListMap<>();
+
+        Family(@NotNull String name, @NotNull String help, @NotNull Type type) {
+            this.name = name;
+            this.help = help;
+            this.type = type;
+        }
+    }
+
+    @Nullable
+    private static MetricsRegistry INSTANCE;
+
+    /**
+     * @return The singleton instance of this class.
+     */
+    @NotNull
+    public synchronized static MetricsRegistry getInstance() {
+        if (INSTANCE == null) {
+            INSTANCE = new MetricsRegistry();
+        }
+
+        return INSTANCE;
+    }
+
+    private final ConcurrentMap<String, Family> families = new ConcurrentSkipListMap<>();
+    /**
+     * Names of metrics and labels which are known to be well-formed, so that names looked up repeatedly are only
+     * checked once.
+     */
+    private final Set<String> validNames = ConcurrentHashMap.newKeySet();
+
+    MetricsRegistry() {
+    }
+
+    /**
+     * Retrieves or creates a counter.
+     *
+     * @param name The name of the counter. By convention, names of counters end with {@code _total}.
+     * @param help The description of the counter family.
+     * @param labels Alternating names and values of the labels of the counter.
+     * @return The counter with the given name and labels.
+     * @throws IllegalArgumentException if the name is already registered with another type, or the name or labels are
+     * malformed.
+     */
+    @NotNull
+    public Counter counter(@NotNull String name, @NotNull String help, @NotNull String... labels) {
+        return (Counter) getFamily(name, help, Type.COUNTER).metrics.computeIfAbsent(formatLabels(labels), k -> new Counter());
+    }
+
+    /**
+     * Retrieves or creates a latency histogram, which is exported as a histogram in seconds.
+     *
+     * @param name The name of the histogram. By convention, names of latencies end with {@code _seconds}.
+     * @param help The description of the histogram family.
+     * @param labels Alternating names and values of the labels of the histogram.
+     * @return The histogram with the given name and labels.
+     * @throws IllegalArgumentException if the name is already registered with another type, or the name or labels are
+     * malformed.
+     */
+    @NotNull
+    public LatencyHistogram latency(@NotNull String name, @NotNull String help, @NotNull String... labels) {
+        return (LatencyHistogram) getFamily(name, help, Type.HISTOGRAM).metrics.computeIfAbsent(formatLabels(labels), k -> new LatencyHistogram());
+    }
+
+    /**
+     * Registers a gauge whose value is read when the metrics are exported, replacing any gauge with the same name and
+     * labels.
+     *
+     * @param name The name of the gauge.
+     * @param help The description of the gauge family.
+     * @param value The callback returning the current value of the gauge.
+     * @param labels Alternating names and values of the labels of the gauge.
+     * @throws IllegalArgumentException if the name is already registered with another type, or the name or labels are
+     * malformed.
+     */
+    public void gauge(@NotNull String name, @NotNull String help, @NotNull DoubleSupplier value, @NotNull String... labels) {
+        getFamily(name, help, Type.GAUGE).metrics.put(formatLabels(labels), value);
+    }
+
+    /**
+     * Registers a counter whose value is tracked by another component and read when the metrics are exported,
+     * replacing any counter with the same name and labels.
+     *
+     * @param name The name of the counter. By convention, names of counters end with {@code _total}.
+     * @param help The description of the counter family.
+     * @param value The callback returning the current count.
+     * @param labels Alternating names and values of the labels of the counter.
+     * @throws IllegalArgumentException if the name is already registered with another type, or the name or labels are
+     * malformed.
+     */
+    public void counterCallback(@NotNull String name, @NotNull String help, @NotNull DoubleSupplier value, @NotNull String... labels) {
+        getFamily(name, help, Type.COUNTER).metrics.put(formatLabels(labels), value);
+    }
+
+    @NotNull
+    private Family getFamily(@NotNull String name, @NotNull String help, @NotNull Type type) {
+        final var family = families.computeIfAbsent(name, k -> new Family(checkName(name), help, type));
+        if (family.type != type) {
+            throw new IllegalArgumentException("Metric " + name + " is already registered as a " + family.type.exportName);
+        }
+        return family;
+    }
+
+    @NotNull
+    private String checkName(@NotNull String name) {
+        if (validNames.contains(name)) {
+            return name;
+        }
+        if (!name.matches("[a-zA-Z_:][a-zA-Z0-9_:]*")) {
+            throw new IllegalArgumentException("Malformed metric name: " + name);
+        }
+
+        validNames.add(name);
+        return name;
+    }
+
+    /**
+     * @param labels Alternating names and values of labels.
+     * @return The labels in the Prometheus text format without the enclosing braces.
+     */
+    @NotNull
+    private String formatLabels(@NotNull String... labels) {
+        if (labels.length % 2 != 0) {
+            throw new IllegalArgumentException("Labels must be pairs of names and values");
+        }
+
+        final var sb = new StringBuilder();
+        for (int i = 0; i < labels.length; i += 2) {
+            if (i > 0) {
+                sb.append(',');
+            }
+            sb.append(checkName(labels[i])).append("=\"");
+            escapeLabelValue(labels[i + 1], sb);
+            sb.append('"');
+        }
+        return sb.toString();
+    }
+
+    private static void escapeLabelValue(@NotNull String value, @NotNull StringBuilder sb) {
+        for (int i = 0; i < value.length(); ++i) {
+            final var c = value.charAt(i);
+            switch (c) {
+                case '\\':
+                    sb.append("\\\\");
+                    break;
+                case '"':
+                    sb.append("\\\"");
+                    break;
+                case '\n':
+                    sb.append("\\n");
+                    break;
+                default:
+                    sb.append(c);
+            }
+        }
+    }
+
+    /**
+     * Exports all metrics in the Prometheus text format.
+     *
+     * @return The metrics, with families in the order of their names.
+     */
+    @NotNull
+    public String export() {
+        final var sb = new StringBuilder();
+        for (final var family : families.values()) {
+            sb.append("# HELP ").append(family.name).append(' ').append(family.help.replace("\\", "\\\\").replace("\n", "\\n")).append('\n');
+            sb.append("# TYPE ").append(family.name).append(' ').append(family.type.exportName).append('\n');
+
+            family.metrics.forEach((labels, metric) -> {
+                if (metric instanceof Counter) {
+                    appendSample(sb, family.name, labels, null, ((Counter) metric).get());
+                } else if (metric instanceof LatencyHistogram) {
+                    final var histogram = (LatencyHistogram) metric;
+                    final var counts = histogram.getCumulativeCounts(EXPORTED_BUCKETS);
+                    for (int i = 0; i < EXPORTED_BUCKETS.length; ++i) {
+                        appendSample(sb, family.name + "_bucket", labels, EXPORTED_BUCKET_LABELS[i], counts[i]);
+                    }
+                    final var count = counts[EXPORTED_BUCKETS.length];
+                    appendSample(sb, family.name + "_bucket", labels, "le=\"+Inf\"", count);
+                    appendSample(sb, family.name + "_sum", labels, null, histogram.getSumSeconds());
+                    appendSample(sb, family.name + "_count", labels, null, count);
+                } else {
+                    double value;
+                    try {
+                        value = ((DoubleSupplier) metric).getAsDouble();
+                    } catch (RuntimeException e) {
+                        value = Double.NaN;
+                    }
+                    appendSample(sb, family.name, labels, null, value);
+                }
+            });
+        }
+        return sb.toString();
+    }
+
+    private static double toSeconds(long nanos) {
+        return (double) nanos / TimeUnit.SECONDS.toNanos(1);
+    }
+
+    private static void appendSample(
+            @NotNull StringBuilder sb,
+            @NotNull String name,
+            @NotNull String labels,
+            @Nullable String extraLabel,
+            double value) {
+        sb.append(name);
+        if (!labels.isEmpty() || extraLabel != null) {
+            sb.append('{').append(labels);
+            if (extraLabel != null) {
+                if (!labels.isEmpty()) {
+                    sb.append(',');
+                }
+                sb.append(extraLabel);
+            }
+            sb.append('}');
+        }
+        sb.append(' ').append(formatValue(value)).append('\n');
+    }
+
+    /**
+     * @return The value in the Prometheus text format.
+     */
+    @NotNull
+    private static String formatValue(double value) {
+        if (Double.isNaN(value)) {
+            return "NaN";
+        } else if (Double.isInfinite(value)) {
+            return value > 0 ? "+Inf" : "-Inf";
+        } else if (value == Math.rint(value) && Math.abs(value) < 1e15) {
+            return Long.toString((long) value);
+        } else {
+            return Double.toString(value);
+        }
+    }
+}
@@ -1,7 +1,9 @@
 package comp4111.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -16,12 +18,33 @@ public class BooksGetResult {
     @NotNull
     private final List<Book> results = new ArrayList<>();
 
+    /**
+     * The cursor of the next page. This is not part of the response body, and is sent as a header instead.
+     */
+    @JsonIgnore
+    @Nullable
+    private final String nextCursor;
+
     public BooksGetResult(@NotNull List<Book> results) {
+        this(results, null);
+    }
+
+    public BooksGetResult(@NotNull List<Book> results, @Nullable String nextCursor) {
         foundBooks = results.size();
         this.results.addAll(results);
+        this.nextCursor = nextCursor;
     }
 
     public int getFoundBooks() {
         return foundBooks;
     }
+
+    /**
+     * @return The cursor of the next page, or {@code null} if there are no more results.
+     */
+    @JsonIgnore
+    @Nullable
+    public String getNextCursor() {
+        return nextCursor;
+    }
 }
@@ -0,0 +1,103 @@
+package comp4111.model;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * The summary of an import, which counts the books by their outcome. The result of each book is sent as an
+ * {@link Item} before the summary, as the books are inserted.
+ */
+public class BooksImportResult {
+
+    /**
+     * The result of importing a single book.
+     */
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public static class Item {
+
+        /**
+         * The ID of the inserted book, or the ID of the existing book with the same title.
+         */
+        @JsonProperty("Id")
+        @Nullable
+        private final Long id;
+
+        /**
+         * {@code 201} if the book is inserted, {@code 409} if a book with the same title exists, {@code 400} if the book
+         * is invalid, or {@code 500} if the book cannot be inserted.
+         */
+        @JsonProperty("Status")
+        private final int status;
+
+        public Item(@Nullable Long id, int status) {
+            this.id = id;
+            this.status = status;
+        }
+
+        @Nullable
+        public Long getId() {
+            return id;
+        }
+
+        public int getStatus() {
+            return status;
+        }
+    }
+
+    @JsonProperty("Created")
+    private final long createdCount;
+    @JsonProperty("Conflicted")
+    private final long conflictedCount;
+    @JsonProperty("Invalid")
+    private final long invalidCount;
+    @JsonProperty("Failed")
+    private final long failedCount;
+
+    /**
+     * The reason the import is stopped before the end of the request, or {@code null} if all books are read.
+     */
+    @JsonProperty("Error")
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    @Nullable
+    private final String error;
+
+    public BooksImportResult(long createdCount, long conflictedCount, long invalidCount, long failedCount,
+                             @Nullable String error) {
+        this.createdCount = createdCount;
+        this.conflictedCount = conflictedCount;
+        this.invalidCount = invalidCount;
+        this.failedCount = failedCount;
+        this.error = error;
+    }
+
+    public long getCreatedCount() {
+        return createdCount;
+    }
+
+    public long getConflictedCount() {
+        return conflictedCount;
+    }
+
+    public long getInvalidCount() {
+        return invalidCount;
+    }
+
+    public long getFailedCount() {
+        return failedCount;
+    }
+
+    /**
+     * @return The number of books read from the payload.
+     */
+    @JsonIgnore
+    public long getTotalCount() {
+        return createdCount + conflictedCount + invalidCount + failedCount;
+    }
+
+    @Nullable
+    public String getError() {
+        return error;
+    }
+}
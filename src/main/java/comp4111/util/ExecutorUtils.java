@@ -0,0 +1,71 @@
+package comp4111.util;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class ExecutorUtils {
+
+    private ExecutorUtils() {
+    }
+
+    /**
+     * Creates a {@link ThreadFactory} which creates daemon threads with a common name prefix.
+     *
+     * @param namePrefix Prefix of the thread names.
+     * @return A {@link ThreadFactory} for daemon threads.
+     */
+    @NotNull
+    public static ThreadFactory newDaemonThreadFactory(@NotNull String namePrefix) {
+        final var threadCount = new AtomicInteger(0);
+        return r -> {
+            final var thread = new Thread(r, namePrefix + "-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    /**
+     * Creates an executor with a fixed number of threads and a bounded task queue.
+     *
+     * Tasks submitted when the queue is full are rejected with a
+     * {@link java.util.concurrent.RejectedExecutionException}.
+     *
+     * @param threadFactory Factory for creating the threads of the executor.
+     * @param threads Number of threads of the executor.
+     * @param queueCapacity Maximum number of tasks waiting to be executed.
+     * @return A bounded {@link ThreadPoolExecutor}.
+     */
+    @NotNull
+    public static ThreadPoolExecutor newBoundedExecutor(@NotNull ThreadFactory threadFactory, int threads, int queueCapacity) {
+        return new ThreadPoolExecutor(
+                threads,
+                threads,
+                60,
+                TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                threadFactory,
+                new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    /**
+     * Resizes an executor created by {@link ExecutorUtils#newBoundedExecutor(ThreadFactory, int, int)}.
+     *
+     * @param executor Executor to resize.
+     * @param threads New number of threads of the executor.
+     */
+    public static void resizeBoundedExecutor(@NotNull ThreadPoolExecutor executor, int threads) {
+        // The core pool size cannot be larger than the maximum pool size, so the order of operations matters.
+        if (threads > executor.getMaximumPoolSize()) {
+            executor.setMaximumPoolSize(threads);
+            executor.setCorePoolSize(threads);
+        } else {
+            executor.setCorePoolSize(threads);
+            executor.setMaximumPoolSize(threads);
+        }
+    }
+}
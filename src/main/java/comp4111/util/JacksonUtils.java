@@ -1,16 +1,48 @@
 package comp4111.util;
 
 import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.MapperFeature;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import comp4111.model.*;
 import org.jetbrains.annotations.NotNull;
 
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
 public class JacksonUtils {
 
+    /**
+     * Shared {@link ObjectMapper} backing all readers and writers. Sharing the mapper allows serializers and
+     * deserializers to be cached across requests.
+     */
+    @NotNull
+    private static final ObjectMapper SHARED_OBJECT_MAPPER = getDefaultObjectMapper();
+
+    private static final ConcurrentMap<@NotNull Class<?>, @NotNull ObjectReader> READERS = new ConcurrentHashMap<>();
+    private static final ConcurrentMap<@NotNull Class<?>, @NotNull ObjectWriter> WRITERS = new ConcurrentHashMap<>();
+
+    static {
+        // Build readers and writers of the request and response models ahead of time, so that the first requests do
+        // not pay for constructing them.
+        List.of(Book.class, LoginRequest.class, TransactionPostRequest.class, TransactionPutRequest.class, JsonNode.class)
+                .forEach(JacksonUtils::getReader);
+        List.of(Book.class, BooksGetResult.class, BooksImportResult.class, LoginResult.class, TransactionPostResult.class)
+                .forEach(JacksonUtils::getWriter);
+    }
+
     private JacksonUtils() {
     }
 
     /**
+     * Creates a new {@link ObjectMapper}.
+     *
+     * Prefer {@link JacksonUtils#getReader(Class)} and {@link JacksonUtils#getWriter(Class)}, which are shared and do
+     * not need to be rebuilt for each use.
+     *
      * @return An {@link ObjectMapper} which is configured for this project.
      */
     @NotNull
@@ -24,4 +56,24 @@ public class JacksonUtils {
 
         return objectMapper;
     }
+
+    /**
+     * @param type The type to deserialize.
+     * @return A thread-safe {@link ObjectReader} for {@code type}, configured the same way as
+     * {@link JacksonUtils#getDefaultObjectMapper()}.
+     */
+    @NotNull
+    public static ObjectReader getReader(@NotNull Class<?> type) {
+        return READERS.computeIfAbsent(type, SHARED_OBJECT_MAPPER::readerFor);
+    }
+
+    /**
+     * @param type The type to serialize.
+     * @return A thread-safe {@link ObjectWriter} for {@code type}, configured the same way as
+     * {@link JacksonUtils#getDefaultObjectMapper()}.
+     */
+    @NotNull
+    public static ObjectWriter getWriter(@NotNull Class<?> type) {
+        return WRITERS.computeIfAbsent(type, SHARED_OBJECT_MAPPER::writerFor);
+    }
 }
@@ -0,0 +1,163 @@
+package comp4111.util;
+
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.async.ByteArrayFeeder;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.util.TokenBuffer;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * An incremental parser of a stream of JSON values, which may be fed with the stream in arbitrary chunks.
+ *
+ * The stream is either a JSON array of values, or a sequence of values separated by whitespace such as NDJSON. Each
+ * value is bound to {@code T} as soon as its last token is read, so that only the value being read is held in memory.
+ *
+ * This class is not thread-safe.
+ *
+ * @param <T> The type of the values in the stream.
+ */
+public class JsonStreamParser<T> {
+
+    /**
+     * Receives the values read from the stream, in the order of the stream.
+     */
+    public interface Listener<T> {
+
+        /**
+         * Called when a value is read.
+         */
+        void onValue(@NotNull T value);
+
+        /**
+         * Called when a value is well-formed, but cannot be bound to the type of the values.
+         */
+        void onInvalidValue(@NotNull IOException e);
+    }
+
+    @NotNull
+    private final ObjectReader reader;
+    @NotNull
+    private final Listener<T> listener;
+    @NotNull
+    private final JsonParser parser;
+
+    /**
+     * Tokens of the value being read, or {@code null} if the parser is between values.
+     */
+    @Nullable
+    private TokenBuffer value = null;
+    /**
+     * The nesting depth of the value being read.
+     */
+    private int depth = 0;
+    private boolean isStarted = false;
+    private boolean isArray = false;
+    private boolean isArrayClosed = false;
+
+    /**
+     * @param type The type of the values in the stream.
+     * @param listener The listener of the values.
+     * @throws IOException if the parser cannot be created.
+     */
+    public JsonStreamParser(@NotNull Class<T> type, @NotNull Listener<T> listener) throws IOException {
+        this.reader = JacksonUtils.getReader(type);
+        this.listener = listener;
+        this.parser = reader.getFactory().createNonBlockingByteArrayParser();
+    }
+
+    /**
+     * Parses the next chunk of the stream.
+     *
+     * @param src The chunk to parse. All remaining bytes of the buffer are consumed.
+     * @throws JsonParseException if the stream is malformed.
+     */
+    public void feed(@NotNull ByteBuffer src) throws IOException {
+        // The parser holds on to the fed array until it is consumed, so the bytes are copied out of the buffer.
+        final var bytes = new byte[src.remaining()];
+        src.get(bytes);
+        feed(bytes, 0, bytes.length);
+    }
+
+    /**
+     * Parses the next chunk of the stream.
+     *
+     * @param bytes The array containing the chunk. The array must not be modified until this method returns.
+     * @param offset The offset of the chunk in {@code bytes}.
+     * @param length The length of the chunk.
+     * @throws JsonParseException if the stream is malformed.
+     */
+    public void feed(@NotNull byte[] bytes, int offset, int length) throws IOException {
+        ((ByteArrayFeeder) parser.getNonBlockingInputFeeder()).feedInput(bytes, offset, offset + length);
+        drain();
+    }
+
+    /**
+     * Signals the end of the stream.
+     *
+     * @throws JsonParseException if the stream ends in the middle of a value, or an array is not closed.
+     */
+    public void endOfInput() throws IOException {
+        ((ByteArrayFeeder) parser.getNonBlockingInputFeeder()).endOfInput();
+        drain();
+
+        if (value != null || (isArray && !isArrayClosed)) {
+            throw new JsonParseException(parser, "Unexpected end of input");
+        }
+    }
+
+    private void drain() throws IOException {
+        JsonToken token;
+        while ((token = parser.nextToken()) != null && token != JsonToken.NOT_AVAILABLE) {
+            if (value == null) {
+                if (!isStarted) {
+                    isStarted = true;
+                    if (token == JsonToken.START_ARRAY) {
+                        isArray = true;
+                        continue;
+                    }
+                }
+                if (isArrayClosed) {
+                    throw new JsonParseException(parser, "Unexpected value after the end of array");
+                }
+                if (isArray && token == JsonToken.END_ARRAY) {
+                    isArrayClosed = true;
+                    continue;
+                }
+
+                value = new TokenBuffer(parser);
+                depth = 0;
+            }
+
+            value.copyCurrentEvent(parser);
+            if (token.isStructStart()) {
+                ++depth;
+            } else if (token.isStructEnd()) {
+                --depth;
+            }
+
+            if (depth == 0) {
+                final var tokens = value;
+                value = null;
+                emit(tokens);
+            }
+        }
+    }
+
+    private void emit(@NotNull TokenBuffer tokens) {
+        final T result;
+        try (var valueParser = tokens.asParser()) {
+            result = reader.readValue(valueParser);
+        } catch (IOException e) {
+            listener.onInvalidValue(e);
+            return;
+        }
+
+        listener.onValue(result);
+    }
+}
@@ -0,0 +1,221 @@
+package comp4111.util;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import org.apache.hc.core5.http.ContentType;
+import org.apache.hc.core5.http.nio.AsyncEntityProducer;
+import org.apache.hc.core5.http.nio.DataStreamChannel;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.util.Set;
+
+/**
+ * An entity producer of a JSON object whose array of items is written while the entity is being sent.
+ *
+ * The entity has the form {@code {"<items>": [<item>, ...], "<summary>": <summary>}}. Items are serialized into a
+ * buffer as they are written, and the buffer is drained into the connection whenever the connection can accept more
+ * data, so that only the items which are not sent yet are held in memory. Writers are expected to stop writing when
+ * {@link JsonStreamProducer#getBufferedSize()} grows, and resume when the drain listener is called.
+ *
+ * This class is thread-safe. Items may be written from any thread.
+ */
+public class JsonStreamProducer implements AsyncEntityProducer {
+
+    @NotNull
+    private final String summaryName;
+    @NotNull
+    private final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+    @NotNull
+    private final JsonGenerator generator;
+    /**
+     * Called when the buffer is drained into the connection.
+     */
+    @Nullable
+    private volatile Runnable drainListener;
+
+    /**
+     * The bytes taken from {@link JsonStreamProducer#buffer} which the connection has not accepted yet.
+     */
+    @Nullable
+    private ByteBuffer pending;
+    /**
+     * The channel of the connection, or {@code null} if the entity is not being sent yet.
+     */
+    @Nullable
+    private DataStreamChannel channel;
+    private boolean isEnded = false;
+    private boolean isStreamEnded = false;
+    /**
+     * Whether the entity is abandoned, in which case items written afterwards are discarded.
+     */
+    private boolean isReleased = false;
+
+    /**
+     * @param itemsName The name of the field holding the array of items.
+     * @param summaryName The name of the field holding the summary, which is written after all items.
+     */
+    public JsonStreamProducer(@NotNull String itemsName, @NotNull String summaryName) {
+        this.summaryName = summaryName;
+        try {
+            generator = JacksonUtils.getWriter(Object.class).getFactory().createGenerator(buffer);
+            generator.writeStartObject();
+            generator.writeArrayFieldStart(itemsName);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * @param drainListener The listener called on the I/O thread whenever buffered items are sent.
+     */
+    public void setDrainListener(@Nullable Runnable drainListener) {
+        this.drainListener = drainListener;
+    }
+
+    /**
+     * Appends an item to the array of items.
+     */
+    public void write(@NotNull Object item) {
+        final DataStreamChannel channel;
+        synchronized (this) {
+            if (isEnded) {
+                throw new IllegalStateException("Entity is already ended");
+            }
+            if (isReleased) {
+                return;
+            }
+            try {
+                JacksonUtils.getWriter(item.getClass()).writeValue(generator, item);
+                generator.flush();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            channel = this.channel;
+        }
+
+        if (channel != null) {
+            channel.requestOutput();
+        }
+    }
+
+    /**
+     * Closes the array of items, and writes the summary as the last field of the entity.
+     */
+    public void end(@NotNull Object summary) {
+        final DataStreamChannel channel;
+        synchronized (this) {
+            if (isEnded) {
+                throw new IllegalStateException("Entity is already ended");
+            }
+            isEnded = true;
+            if (isReleased) {
+                return;
+            }
+            try {
+                generator.writeEndArray();
+                generator.writeFieldName(summaryName);
+                JacksonUtils.getWriter(summary.getClass()).writeValue(generator, summary);
+                generator.writeEndObject();
+                generator.close();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            channel = this.channel;
+        }
+
+        if (channel != null) {
+            channel.requestOutput();
+        }
+    }
+
+    /**
+     * @return The number of bytes which are written, but not sent yet.
+     */
+    public synchronized int getBufferedSize() {
+        return buffer.size() + (pending != null ? pending.remaining() : 0);
+    }
+
+    @Override
+    public synchronized int available() {
+        final var size = getBufferedSize();
+        // The end of the stream is signalled from produce(), so the producer must be polled once more after the last
+        // byte is sent.
+        return size == 0 && isEnded && !isStreamEnded ? 1 : size;
+    }
+
+    @Override
+    public void produce(DataStreamChannel channel) throws IOException {
+        final boolean isDrained;
+        synchronized (this) {
+            this.channel = channel;
+            if (pending == null && buffer.size() > 0) {
+                pending = ByteBuffer.wrap(buffer.toByteArray());
+                buffer.reset();
+            }
+            if (pending != null) {
+                channel.write(pending);
+                if (!pending.hasRemaining()) {
+                    pending = null;
+                }
+            }
+
+            isDrained = pending == null && buffer.size() == 0;
+            if (isDrained && isEnded && !isStreamEnded) {
+                isStreamEnded = true;
+                channel.endStream();
+            }
+        }
+
+        final var listener = drainListener;
+        if (isDrained && listener != null) {
+            listener.run();
+        }
+    }
+
+    @Override
+    public boolean isRepeatable() {
+        return false;
+    }
+
+    @Override
+    public long getContentLength() {
+        return -1;
+    }
+
+    @Override
+    public String getContentType() {
+        return ContentType.APPLICATION_JSON.toString();
+    }
+
+    @Override
+    public String getContentEncoding() {
+        return null;
+    }
+
+    @Override
+    public boolean isChunked() {
+        return true;
+    }
+
+    @Override
+    public Set<String> getTrailerNames() {
+        return null;
+    }
+
+    @Override
+    public void failed(Exception cause) {
+        releaseResources();
+    }
+
+    @Override
+    public synchronized void releaseResources() {
+        isReleased = true;
+        pending = null;
+        buffer.reset();
+        channel = null;
+    }
+}
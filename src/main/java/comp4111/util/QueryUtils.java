@@ -38,14 +38,90 @@ public class QueryUtils {
             @NotNull String ext,
             @NotNull List<Object> params,
             @NotNull Function<ResultSet, T> transform) {
-        final ConnectionFunction<List<T>> block = connection -> {
+        return queryTable(con, "*", tableName, ext, params, transform);
+    }
+
+    /**
+     * Queries selected columns of a table with extra clauses, converting them into Java objects.
+     *
+     * @param con {@link Connection} to the database.
+     * @param columns Comma-separated list of columns to select. The columns are passed to {@code transform} in the
+     *                same order.
+     * @param tableName Name of the table to query.
+     * @param ext Extra clauses.
+     * @param transform Transformation function to convert a {@link ResultSet} row into a Java object.
+     * @param <T> Type of the object in Java.
+     * @return {@link List} of rows, converted into Java objects.
+     */
+    public static <T> CompletableFuture<List<T>> queryTable(
+            @Nullable final Connection con,
+            @NotNull String columns,
+            @NotNull String tableName,
+            @NotNull String ext,
+            @NotNull List<Object> params,
+            @NotNull Function<ResultSet, T> transform) {
+        final ConnectionFunction<List<T>> block = newQueryBlock(columns, tableName, ext, params, transform);
+
+        if (con != null) {
+            // The caller already owns the connection, so the query is executed on the calling thread.
+            try {
+                return CompletableFuture.completedFuture(block.apply(con));
+            } catch (SQLException e) {
+                return CompletableFuture.failedFuture(new CompletionException(e));
+            } catch (RuntimeException e) {
+                return CompletableFuture.failedFuture(e);
+            }
+        } else {
+            // The query is a single statement, so it does not need an explicit commit.
+            return DatabaseConnectionPoolV2.getInstance().execStmt(block, true);
+        }
+    }
+
+    /**
+     * Queries selected columns of a table using a consistent non-locking read, converting them into Java objects.
+     *
+     * The query neither waits for nor blocks transactions locking the same rows, and returns the rows as committed
+     * when the query starts.
+     *
+     * @param columns Comma-separated list of columns to select. The columns are passed to {@code transform} in the
+     *                same order.
+     * @param tableName Name of the table to query.
+     * @param ext Extra clauses. These must not contain locking clauses.
+     * @param transform Transformation function to convert a {@link ResultSet} row into a Java object.
+     * @param <T> Type of the object in Java.
+     * @return {@link List} of rows, converted into Java objects.
+     * @see DatabaseConnectionPoolV2#execReadOnly(ConnectionFunction, boolean)
+     */
+    public static <T> CompletableFuture<List<T>> querySnapshot(
+            @NotNull String columns,
+            @NotNull String tableName,
+            @NotNull String ext,
+            @NotNull List<Object> params,
+            @NotNull Function<ResultSet, T> transform) {
+        // The query is a single statement, so it always reads from a single snapshot.
+        return DatabaseConnectionPoolV2.getInstance().execReadOnly(
+                newQueryBlock(columns, tableName, ext, params, transform),
+                false);
+    }
+
+    /**
+     * Creates a block which executes a query and converts the rows into Java objects.
+     */
+    @NotNull
+    private static <T> ConnectionFunction<List<T>> newQueryBlock(
+            @NotNull String columns,
+            @NotNull String tableName,
+            @NotNull String ext,
+            @NotNull List<Object> params,
+            @NotNull Function<ResultSet, T> transform) {
+        return connection -> {
             final var list = new ArrayList<T>();
 
             @Language("SQL") final String query;
             if (!ext.isEmpty()) {
-                query = "SELECT * FROM " + tableName + " " + ext;
+                query = "SELECT " + columns + " FROM " + tableName + " " + ext;
             } else {
-                query = "SELECT * FROM " + tableName;
+                query = "SELECT " + columns + " FROM " + tableName;
             }
 
             final PreparedStatement stmt = connection.prepareStatement(query);
@@ -57,6 +133,8 @@ public class QueryUtils {
                         final var p = params.get(i);
                         if (p instanceof Long) {
                             stmt.setLong(idx, (Long) p);
+                        } else if (p instanceof Integer) {
+                            stmt.setInt(idx, (Integer) p);
                         } else if (p instanceof String) {
                             stmt.setString(idx, (String) p);
                         } else {
@@ -73,17 +151,5 @@ public class QueryUtils {
             }
             return list;
         };
-
-        if (con != null) {
-            return CompletableFuture.supplyAsync(() -> {
-                try {
-                    return block.apply(con);
-                } catch (SQLException e) {
-                    throw new CompletionException(e);
-                }
-            });
-        } else {
-            return DatabaseConnectionPoolV2.getInstance().execStmt(block);
-        }
     }
 }
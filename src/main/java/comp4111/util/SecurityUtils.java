@@ -3,7 +3,10 @@ package comp4111.util;
 import comp4111.dal.LoginDataAccess;
 import org.jetbrains.annotations.NotNull;
 
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
 import java.nio.charset.StandardCharsets;
+import java.security.InvalidKeyException;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 import java.security.SecureRandom;
@@ -17,6 +20,14 @@ public class SecurityUtils {
     private static final Base64.Encoder BASE64_ENCODER = Base64.getUrlEncoder();
     @NotNull
     private static final Base64.Decoder BASE64_DECODER = Base64.getUrlDecoder();
+    @NotNull
+    private static final Base64.Encoder BASE64_UNPADDED_ENCODER = Base64.getUrlEncoder().withoutPadding();
+
+    /**
+     * The algorithm used for signing data.
+     */
+    @NotNull
+    public static final String HMAC_ALGORITHM = "HmacSHA256";
 
     /**
      * @return {@code true} if the login is successful.
@@ -39,6 +50,43 @@ public class SecurityUtils {
         return BASE64_ENCODER.encodeToString(bytes);
     }
 
+    /**
+     * @param bytes The bytes to encode.
+     * @return A URL-safe Base64 string without padding.
+     */
+    @NotNull
+    public static String encodeBase64(byte @NotNull [] bytes) {
+        return BASE64_UNPADDED_ENCODER.encodeToString(bytes);
+    }
+
+    /**
+     * @param base64String A URL-safe Base64 string, with or without padding.
+     * @return The decoded bytes.
+     * @throws IllegalArgumentException if {@code base64String} is not a valid Base64 string.
+     */
+    public static byte @NotNull [] decodeBase64(@NotNull String base64String) {
+        return BASE64_DECODER.decode(base64String);
+    }
+
+    /**
+     * Creates a {@link Mac} for signing data with a secret key.
+     *
+     * {@link Mac} instances are not thread-safe, so an instance must not be used by several threads at the same time.
+     *
+     * @param key The secret key.
+     * @return A {@link Mac} using {@link SecurityUtils#HMAC_ALGORITHM}, initialized with {@code key}.
+     */
+    @NotNull
+    public static Mac newHmac(byte @NotNull [] key) {
+        try {
+            final var mac = Mac.getInstance(HMAC_ALGORITHM);
+            mac.init(new SecretKeySpec(key, HMAC_ALGORITHM));
+            return mac;
+        } catch (NoSuchAlgorithmException | InvalidKeyException e) {
+            throw new IllegalStateException("Cannot create HMAC for signing", e);
+        }
+    }
+
     /**
      * https://javainterviewpoint.com/java-salted-password-hashing/
      */
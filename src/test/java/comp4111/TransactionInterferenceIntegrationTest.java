@@ -126,6 +126,13 @@ public class TransactionInterferenceIntegrationTest extends AbstractServerTest {
         }
     }
 
+    void lookUpTheLockedBook() throws Exception {
+        // Reads must not wait for the row lock held by transaction 1, which would time out the request.
+        try (var response = makeRequest(Method.GET, String.format("%s?id=%d&token=%s", BooksHandler.HANDLE_PATTERN, bookId2, token), null)) {
+            assertEquals(HttpStatus.SC_OK, response.getCode());
+        }
+    }
+
     void pushAnInvalidActionIntoATransaction_2() throws Exception {
         final var transaction = new TransactionPutRequest(transactionId2, bookId2, TransactionPutRequest.Action.LOAN);
         @Language("JSON") final var payload = objectMapper.writeValueAsString(transaction);
@@ -178,6 +185,7 @@ public class TransactionInterferenceIntegrationTest extends AbstractServerTest {
         requestATransactionId_1();
         requestATransactionId_2();
         pushAValidActionIntoATransaction_1();
+        lookUpTheLockedBook();
         pushAnInvalidActionIntoATransaction_2();
         commitTheTransaction_1();
         commitTheTransaction_2();
@@ -0,0 +1,146 @@
+package comp4111.controller;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+public class InMemoryTokenBackendTest {
+
+    private static String getUsername(int i) {
+        return String.format("%3s", i);
+    }
+
+    private Map<String, String> backingMap;
+    private AtomicLong clock;
+    private InMemoryTokenBackend tokenMgr;
+
+    @BeforeEach
+    void setUp() {
+        backingMap = new ConcurrentHashMap<>();
+        clock = new AtomicLong();
+        tokenMgr = new InMemoryTokenBackend(backingMap, clock::get);
+    }
+
+    @Test
+    void givenAbsoluteTtlExceeded_assertNotContainsToken() {
+        tokenMgr.setAbsoluteTtl(Duration.ofMinutes(10));
+        final var token = tokenMgr.newToken(getUsername(1));
+        assumeTrue(token != null);
+
+        clock.addAndGet(Duration.ofMinutes(5).toNanos());
+        assumeTrue(tokenMgr.containsToken(token));
+        clock.addAndGet(Duration.ofMinutes(5).toNanos());
+
+        assertFalse(tokenMgr.containsToken(token));
+        assertEquals(0, backingMap.size());
+        assertEquals(1, tokenMgr.getAbsoluteExpiredCount());
+    }
+
+    @Test
+    void givenIdleTtlExceeded_assertNotContainsToken() {
+        tokenMgr.setIdleTtl(Duration.ofMinutes(10));
+        final var token = tokenMgr.newToken(getUsername(1));
+        assumeTrue(token != null);
+
+        clock.addAndGet(Duration.ofMinutes(10).toNanos());
+
+        assertFalse(tokenMgr.containsToken(token));
+        assertEquals(0, backingMap.size());
+        assertEquals(1, tokenMgr.getIdleExpiredCount());
+    }
+
+    @Test
+    void givenTokenUsed_assertIdleTtlRefreshed() {
+        tokenMgr.setIdleTtl(Duration.ofMinutes(10));
+        final var token = tokenMgr.newToken(getUsername(1));
+        assumeTrue(token != null);
+
+        clock.addAndGet(Duration.ofMinutes(6).toNanos());
+        assumeTrue(tokenMgr.containsToken(token));
+        clock.addAndGet(Duration.ofMinutes(6).toNanos());
+
+        assertTrue(tokenMgr.containsToken(token));
+    }
+
+    @Test
+    void givenTokenExpired_tryCreateTokenForSameUser() {
+        tokenMgr.setIdleTtl(Duration.ofMinutes(10));
+        final var user = getUsername(1);
+        assumeTrue(tokenMgr.newToken(user) != null);
+
+        clock.addAndGet(Duration.ofMinutes(10).toNanos());
+
+        assertNotNull(tokenMgr.newToken(user));
+        assertEquals(1, backingMap.size());
+    }
+
+    @Test
+    void givenTokenExpired_whenCreateTokenForAnotherUser_assertExpiredTokenRemoved() {
+        tokenMgr.setAbsoluteTtl(Duration.ofMinutes(10));
+        assumeTrue(tokenMgr.newToken(getUsername(1)) != null);
+
+        clock.addAndGet(Duration.ofMinutes(10).toNanos());
+
+        assertNotNull(tokenMgr.newToken(getUsername(2)));
+        assertEquals(1, backingMap.size());
+        assertEquals(1, tokenMgr.getTokenCount());
+    }
+
+    @Test
+    void givenMaxTokensExceeded_assertOldestTokenEvicted() {
+        tokenMgr.setMaxTokens(2);
+        final var token = tokenMgr.newToken(getUsername(1));
+        assumeTrue(token != null);
+        assumeTrue(tokenMgr.newToken(getUsername(2)) != null);
+        assumeTrue(tokenMgr.newToken(getUsername(3)) != null);
+
+        assertFalse(tokenMgr.containsToken(token));
+        assertEquals(2, backingMap.size());
+        assertEquals(1, tokenMgr.getEvictedCount());
+    }
+
+    @Test
+    void givenExpiredTokens_whenPurge_assertAllRemoved() {
+        tokenMgr.setIdleTtl(Duration.ofMinutes(10));
+        assumeTrue(tokenMgr.newToken(getUsername(1)) != null);
+        assumeTrue(tokenMgr.newToken(getUsername(2)) != null);
+
+        clock.addAndGet(Duration.ofMinutes(10).toNanos());
+        tokenMgr.purgeExpiredTokens();
+
+        assertEquals(0, backingMap.size());
+        assertEquals(2, tokenMgr.getIdleExpiredCount());
+    }
+
+    @Test
+    void givenIdleTokenBehindActiveToken_whenCreateToken_assertIdleTokenRemoved() {
+        tokenMgr.setIdleTtl(Duration.ofMinutes(10));
+        final var active = tokenMgr.newToken(getUsername(1));
+        assumeTrue(active != null);
+        assumeTrue(tokenMgr.newToken(getUsername(2)) != null);
+
+        clock.addAndGet(Duration.ofMinutes(6).toNanos());
+        assumeTrue(tokenMgr.containsToken(active));
+        clock.addAndGet(Duration.ofMinutes(6).toNanos());
+
+        assertNotNull(tokenMgr.newToken(getUsername(3)));
+        assertEquals(2, backingMap.size());
+        assertEquals(2, tokenMgr.getTokenCount());
+        assertEquals(1, tokenMgr.getIdleExpiredCount());
+    }
+
+    @AfterEach
+    void tearDown() {
+        tokenMgr = null;
+        clock = null;
+        backingMap = null;
+    }
+}
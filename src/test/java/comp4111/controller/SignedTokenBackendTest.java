@@ -0,0 +1,156 @@
+package comp4111.controller;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+public class SignedTokenBackendTest {
+
+    private static final Duration TTL = Duration.ofMinutes(10);
+
+    private static byte[] getKey(int i) {
+        final var key = new byte[SignedTokenBackend.MIN_KEY_LENGTH];
+        Arrays.fill(key, (byte) i);
+        return key;
+    }
+
+    private AtomicLong clock;
+    private SignedTokenBackend backend;
+
+    @BeforeEach
+    void setUp() {
+        clock = new AtomicLong(1_000_000L);
+        backend = new SignedTokenBackend(getKey(1), TTL, clock::get);
+    }
+
+    @Test
+    void givenTokenIssued_assertContainsToken() {
+        final var token = backend.newToken("user00001");
+        assumeTrue(token != null);
+
+        assertTrue(backend.containsToken(token));
+        assertTrue(backend.containsUser("user00001"));
+    }
+
+    @Test
+    void givenTokenIssuedByAnotherInstance_assertContainsToken() {
+        final var other = new SignedTokenBackend(getKey(1), TTL, clock::get);
+        final var token = other.newToken("user00001");
+        assumeTrue(token != null);
+
+        assertTrue(backend.containsToken(token));
+    }
+
+    @Test
+    void givenTokenSignedWithAnotherKey_assertNotContainsToken() {
+        final var other = new SignedTokenBackend(getKey(2), TTL, clock::get);
+        final var token = other.newToken("user00001");
+        assumeTrue(token != null);
+
+        assertFalse(backend.containsToken(token));
+    }
+
+    @Test
+    void givenTamperedToken_assertNotContainsToken() {
+        final var token = backend.newToken("user00001");
+        assumeTrue(token != null);
+
+        final var other = backend.newToken("user00002");
+        assumeTrue(other != null);
+        final var forged = other.substring(0, other.indexOf('.')) + token.substring(token.indexOf('.'));
+
+        assertFalse(backend.containsToken(forged));
+        assertFalse(backend.containsToken("not-a-token"));
+        assertFalse(backend.containsToken("!!!.!!!"));
+    }
+
+    @Test
+    void givenTtlExceeded_assertNotContainsToken() {
+        final var token = backend.newToken("user00001");
+        assumeTrue(token != null);
+
+        clock.addAndGet(TTL.toMillis());
+
+        assertFalse(backend.containsToken(token));
+        assertFalse(backend.containsUser("user00001"));
+        assertNotNull(backend.newToken("user00001"));
+    }
+
+    @Test
+    void givenUserLoggedIn_tryCreateToken() {
+        assumeTrue(backend.newToken("user00001") != null);
+
+        assertNull(backend.newToken("user00001"));
+    }
+
+    @Test
+    void givenTokenRemoved_assertNotContainsToken() {
+        final var token = backend.newToken("user00001");
+        assumeTrue(token != null);
+
+        assertTrue(backend.removeToken(token));
+        assertFalse(backend.containsToken(token));
+        assertFalse(backend.removeToken(token));
+        assertNotNull(backend.newToken("user00001"));
+    }
+
+    @Test
+    void givenRevokedTokensExpired_whenRevokeMore_assertRevocationsPurged() {
+        for (int i = 0; i < 1024; ++i) {
+            final var token = backend.newToken(String.format("user%05d", i));
+            assumeTrue(token != null);
+            assumeTrue(backend.removeToken(token));
+        }
+        assumeTrue(backend.getRevokedCount() == 1024);
+
+        clock.addAndGet(TTL.toMillis());
+        for (int i = 0; i < 1024; ++i) {
+            final var token = backend.newToken(String.format("user%05d", i));
+            assumeTrue(token != null);
+            assumeTrue(backend.removeToken(token));
+        }
+
+        assertTrue(backend.getRevokedCount() < 2048);
+    }
+
+    @Test
+    void givenConcurrentVerifications_assertAllTokensContained() throws Exception {
+        final var tokens = new ArrayList<String>();
+        for (int i = 0; i < 64; ++i) {
+            final var token = backend.newToken(String.format("user%05d", i));
+            assumeTrue(token != null);
+            tokens.add(token);
+        }
+
+        final var executor = Executors.newFixedThreadPool(8);
+        try {
+            final var futures = tokens.stream()
+                    .map(token -> CompletableFuture.supplyAsync(() -> backend.containsToken(token), executor))
+                    .toArray(CompletableFuture[]::new);
+            CompletableFuture.allOf(futures).get(5, TimeUnit.SECONDS);
+
+            for (final var future : futures) {
+                assertEquals(true, future.get());
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @AfterEach
+    void tearDown() {
+        backend = null;
+        clock = null;
+    }
+}
@@ -4,7 +4,11 @@ import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import java.util.ArrayList;
 import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.junit.jupiter.api.Assumptions.assumeTrue;
@@ -84,6 +88,59 @@ public class TokenManagerTest {
         assertEquals(0, backingMap.size());
     }
 
+    @Test
+    void givenTokenRemoved_assertNotContainsUser() {
+        final var user = getUsername(1);
+        final var token = tokenMgr.newToken(user);
+        assumeTrue(token != null);
+        assumeTrue(tokenMgr.removeToken(token));
+
+        assertFalse(tokenMgr.containsUser(user));
+    }
+
+    @Test
+    void givenTokenRemoved_tryCreateTokenForSameUser() {
+        final var user = getUsername(1);
+        final var token = tokenMgr.newToken(user);
+        assumeTrue(token != null);
+        assumeTrue(tokenMgr.removeToken(token));
+
+        final var newToken = tokenMgr.newToken(user);
+        assertNotNull(newToken);
+        assertTrue(tokenMgr.containsToken(newToken));
+        assertEquals(1, backingMap.size());
+    }
+
+    @Test
+    void givenConcurrentLoginsOfSameUser_assertOneTokenCreated() throws Exception {
+        final var user = getUsername(1);
+        final var threads = 8;
+        final var startLatch = new CountDownLatch(1);
+        final var executor = Executors.newFixedThreadPool(threads);
+        try {
+            final var futures = new ArrayList<Future<String>>();
+            for (int i = 0; i < threads; ++i) {
+                futures.add(executor.submit(() -> {
+                    startLatch.await();
+                    return tokenMgr.newToken(user);
+                }));
+            }
+            startLatch.countDown();
+
+            var tokenCount = 0;
+            for (final var future : futures) {
+                if (future.get() != null) {
+                    ++tokenCount;
+                }
+            }
+
+            assertEquals(1, tokenCount);
+            assertEquals(1, backingMap.size());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
     @Test
     void givenTokenNotExists_tryRemoveToken() {
         assertFalse(tokenMgr.removeToken(""));
@@ -6,6 +6,7 @@ import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import java.time.Duration;
 import java.util.List;
 import java.util.Map;
 import java.util.Random;
@@ -191,6 +192,60 @@ public class TransactionManagerTest {
         assertEquals(2, backingMap.size());
     }
 
+    @Test
+    void givenPlansOnBook_assertPlannedAvailabilityFromLastPlan() {
+        final var transaction = transactionMgr.newTransaction();
+
+        assertNull(transactionMgr.getPlannedAvailability(transaction, 1));
+
+        assumeTrue(transactionMgr.addTransactionPlan(new TransactionPutRequest(transaction, 1, TransactionPutRequest.Action.LOAN)));
+        assumeTrue(transactionMgr.addTransactionPlan(new TransactionPutRequest(transaction, 2, TransactionPutRequest.Action.LOAN)));
+        assertEquals(false, transactionMgr.getPlannedAvailability(transaction, 1));
+
+        assumeTrue(transactionMgr.addTransactionPlan(new TransactionPutRequest(transaction, 1, TransactionPutRequest.Action.RETURN)));
+        assertEquals(true, transactionMgr.getPlannedAvailability(transaction, 1));
+        assertNull(transactionMgr.getPlannedAvailability(transaction, 3));
+    }
+
+    @Test
+    void givenTransactionExpired_assertTransactionDiscarded() {
+        transactionMgr.setTransactionTimeout(Duration.ZERO);
+        final var transaction = transactionMgr.newTransaction();
+
+        assertFalse(transactionMgr.containsTransaction(transaction));
+        assertFalse(transactionMgr.addTransactionPlan(new TransactionPutRequest(transaction, 1, TransactionPutRequest.Action.LOAN)));
+        assertNull(transactionMgr.getAndEraseTransaction(transaction));
+        assertTrue(backingMap.isEmpty());
+    }
+
+    @Test
+    void givenExpiredTransactions_whenCreateTransaction_assertExpiredRemoved() {
+        transactionMgr.setTransactionTimeout(Duration.ZERO);
+        transactionMgr.newTransaction();
+        transactionMgr.newTransaction();
+        transactionMgr.resetTransactionTimeout();
+
+        final var transaction = transactionMgr.newTransaction();
+
+        assertEquals(1, backingMap.size());
+        assertTrue(transactionMgr.containsTransaction(transaction));
+    }
+
+    @Test
+    void givenExpiredTransactionsAfterLiveTransaction_whenCreateTransaction_assertExpiredRemoved() {
+        final var live = transactionMgr.newTransaction();
+        transactionMgr.setTransactionTimeout(Duration.ZERO);
+        transactionMgr.newTransaction();
+        transactionMgr.newTransaction();
+        transactionMgr.resetTransactionTimeout();
+
+        final var transaction = transactionMgr.newTransaction();
+
+        assertEquals(2, backingMap.size());
+        assertTrue(transactionMgr.containsTransaction(live));
+        assertTrue(transactionMgr.containsTransaction(transaction));
+    }
+
     @AfterEach
     void tearDown() {
         transactionMgr = null;
@@ -0,0 +1,161 @@
+package comp4111.dal;
+
+import comp4111.dal.model.Book;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BookCacheTest {
+
+    private static Book getBook(long id) {
+        return new Book(id, String.format("title%05d", id), "author", "publisher", 2020, true);
+    }
+
+    private BookCache cache;
+
+    @BeforeEach
+    void setUp() {
+        cache = new BookCache(2, BookCache.LruEvictionPolicy::new);
+    }
+
+    @Test
+    void givenBookPut_assertGetReturnsBook() {
+        final var book = getBook(1);
+        assertTrue(cache.put(cache.getStamp(), book));
+
+        assertSame(book, cache.get(1));
+        assertEquals(1, cache.getIdByTitle(book.getTitle()));
+    }
+
+    @Test
+    void givenBookNotPut_assertGetReturnsNull() {
+        assertNull(cache.get(1));
+        assertEquals(0, cache.getIdByTitle(getBook(1).getTitle()));
+    }
+
+    @Test
+    void givenTitlePut_assertOnlyTitleCached() {
+        final var book = getBook(1);
+        assertTrue(cache.putTitle(cache.getStamp(), book.getTitle(), 1));
+
+        assertNull(cache.get(1));
+        assertEquals(1, cache.getIdByTitle(book.getTitle()));
+    }
+
+    @Test
+    void givenBookPut_whenTitlePut_assertBookKept() {
+        final var book = getBook(1);
+        cache.put(cache.getStamp(), book);
+        cache.putTitle(cache.getStamp(), book.getTitle(), 1);
+
+        assertSame(book, cache.get(1));
+    }
+
+    @Test
+    void givenInvalidatedAfterStamp_assertPutRejected() {
+        final var stamp = cache.getStamp();
+        cache.invalidate(1);
+
+        assertFalse(cache.put(stamp, getBook(1)));
+        assertFalse(cache.putTitle(stamp, getBook(1).getTitle(), 1));
+        assertNull(cache.get(1));
+        assertTrue(cache.put(cache.getStamp(), getBook(1)));
+    }
+
+    @Test
+    void givenBookPut_whenPutAvailability_assertBookChanged() {
+        cache.put(cache.getStamp(), getBook(1));
+
+        assertTrue(cache.putAvailability(cache.getStamp(), 1, false));
+        assertFalse(cache.get(1).isAvailable());
+        assertFalse(cache.putAvailability(cache.getStamp(), 2, false));
+        assertNull(cache.get(2));
+    }
+
+    @Test
+    void givenOtherBookInvalidated_assertPutAccepted() {
+        final var stamp = cache.getStamp();
+        cache.invalidate(2);
+
+        assertTrue(cache.put(stamp, getBook(1)));
+    }
+
+    @Test
+    void givenBookPut_whenInvalidate_assertRemovedWithTitle() {
+        cache.put(cache.getStamp(), getBook(1));
+        cache.put(cache.getStamp(), getBook(2));
+        cache.invalidate(1);
+
+        assertNull(cache.get(1));
+        assertEquals(0, cache.getIdByTitle(getBook(1).getTitle()));
+        assertEquals(1, cache.size());
+    }
+
+    @Test
+    void givenCapacityExceeded_assertLeastRecentlyUsedEvicted() {
+        cache.put(cache.getStamp(), getBook(1));
+        cache.put(cache.getStamp(), getBook(2));
+        cache.get(1);
+        cache.put(cache.getStamp(), getBook(3));
+
+        assertEquals(2, cache.size());
+        assertEquals(1, cache.getEvictionCount());
+        assertNotNull(cache.get(1));
+        assertNull(cache.get(2));
+        assertEquals(0, cache.getIdByTitle(getBook(2).getTitle()));
+        assertNotNull(cache.get(3));
+    }
+
+    @Test
+    void givenFifoPolicy_whenCapacityExceeded_assertEldestEvicted() {
+        cache.setEvictionPolicy(BookCache.FifoEvictionPolicy::new);
+        cache.put(cache.getStamp(), getBook(1));
+        cache.put(cache.getStamp(), getBook(2));
+        cache.get(1);
+        cache.put(cache.getStamp(), getBook(3));
+
+        assertNull(cache.get(1));
+        assertNotNull(cache.get(2));
+        assertNotNull(cache.get(3));
+    }
+
+    @Test
+    void givenCapacityReduced_assertBooksEvicted() {
+        cache.put(cache.getStamp(), getBook(1));
+        cache.put(cache.getStamp(), getBook(2));
+        cache.setCapacity(1);
+
+        assertEquals(1, cache.size());
+        assertNotNull(cache.get(2));
+    }
+
+    @Test
+    void givenLookups_assertHitRate() {
+        cache.put(cache.getStamp(), getBook(1));
+        cache.get(1);
+        cache.get(2);
+        cache.getIdByTitle(getBook(1).getTitle());
+        cache.getIdByTitle(getBook(2).getTitle());
+
+        assertEquals(2, cache.getHitCount());
+        assertEquals(2, cache.getMissCount());
+        assertEquals(0.5, cache.getHitRate());
+    }
+
+    @Test
+    void givenBooksPut_whenInvalidateAll_assertEmptyAndOldStampsRejected() {
+        final var stamp = cache.getStamp();
+        cache.put(stamp, getBook(1));
+        cache.invalidateAll();
+
+        assertEquals(0, cache.size());
+        assertFalse(cache.put(stamp, getBook(2)));
+    }
+
+    @AfterEach
+    void tearDown() {
+        cache = null;
+    }
+}
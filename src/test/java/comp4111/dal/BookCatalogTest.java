@@ -0,0 +1,147 @@
+package comp4111.dal;
+
+import comp4111.handler.BooksGetHandler.QueryParams;
+import comp4111.model.Book;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BookCatalogTest {
+
+    private static BooksGetDataAccess.ListedBook getBook(long id, String title, String author, int year) {
+        return new BooksGetDataAccess.ListedBook(id, new Book(title, author, "publisher", year));
+    }
+
+    private static List<Long> idsOf(List<BooksGetDataAccess.ListedBook> books) {
+        return books.stream().map(it -> it.id).collect(Collectors.toList());
+    }
+
+    private BookCatalog catalog;
+
+    @BeforeEach
+    void setUp() {
+        catalog = new BookCatalog();
+        catalog.beginLoad();
+        catalog.finishLoad(List.of(
+                getBook(1, "Alice in Wonderland", "Lewis Carroll", 1865),
+                getBook(2, "Alice", "Lewis", 2020),
+                getBook(3, "SINoALICE", "SQUARE", 2017),
+                getBook(4, "Through the Looking-Glass", "Lewis Carroll", 1871)
+        ));
+    }
+
+    private List<Long> query(Long id, String title, String author, Integer limit,
+                             QueryParams.SortField sort, QueryParams.OutputOrder order, QueryParams.Cursor after) {
+        final var result = catalog.query(id, title, author, limit, sort, order, after);
+        assertNotNull(result);
+        return idsOf(result);
+    }
+
+    @Test
+    void givenNotLoaded_assertQueryReturnsNull() {
+        catalog.unload();
+
+        assertFalse(catalog.isLoaded());
+        assertNull(catalog.query(null, null, null, null, QueryParams.SortField.NONE, QueryParams.OutputOrder.NONE, null));
+    }
+
+    @Test
+    void givenNoFilter_assertAllBooksById() {
+        assertEquals(List.of(1L, 2L, 3L, 4L), query(null, null, null, null, QueryParams.SortField.NONE, QueryParams.OutputOrder.NONE, null));
+    }
+
+    @Test
+    void givenTitleFilter_assertCaseInsensitiveSubstringMatch() {
+        assertEquals(List.of(1L, 2L, 3L), query(null, "alice", null, null, QueryParams.SortField.NONE, QueryParams.OutputOrder.NONE, null));
+        assertEquals(List.of(3L), query(null, "NoA", null, null, QueryParams.SortField.NONE, QueryParams.OutputOrder.NONE, null));
+        assertEquals(List.of(), query(null, "xyz", null, null, QueryParams.SortField.NONE, QueryParams.OutputOrder.NONE, null));
+    }
+
+    @Test
+    void givenShortFilter_assertMatchedWithoutIndex() {
+        assertEquals(List.of(3L), query(null, "sq", "sq", null, QueryParams.SortField.NONE, QueryParams.OutputOrder.NONE, null));
+    }
+
+    @Test
+    void givenFilters_assertUnionOfMatches() {
+        assertEquals(List.of(3L, 4L), query(4L, null, "square", null, QueryParams.SortField.NONE, QueryParams.OutputOrder.NONE, null));
+    }
+
+    @Test
+    void givenSortAndOrder_assertSorted() {
+        assertEquals(List.of(2L, 1L, 3L, 4L), query(null, null, null, null, QueryParams.SortField.TITLE, QueryParams.OutputOrder.ASC, null));
+        assertEquals(List.of(2L, 3L, 4L, 1L), query(null, null, null, null, QueryParams.SortField.YEAR, QueryParams.OutputOrder.DESC, null));
+        assertEquals(List.of(3L, 4L, 1L, 2L), query(null, null, null, null, QueryParams.SortField.AUTHOR, QueryParams.OutputOrder.DESC, null));
+    }
+
+    @Test
+    void givenLimit_assertOneMoreBookReturned() {
+        assertEquals(List.of(1L, 2L, 3L), query(null, null, null, 2, QueryParams.SortField.ID, QueryParams.OutputOrder.NONE, null));
+    }
+
+    @Test
+    void givenCursor_assertBooksAfterCursor() {
+        final var ascending = new QueryParams.Cursor(QueryParams.SortField.YEAR, QueryParams.OutputOrder.ASC, 4, 1871);
+        assertEquals(List.of(3L, 2L), query(null, null, null, null, QueryParams.SortField.YEAR, QueryParams.OutputOrder.ASC, ascending));
+
+        final var descending = new QueryParams.Cursor(QueryParams.SortField.TITLE, QueryParams.OutputOrder.DESC, 3, "SINoALICE");
+        assertEquals(List.of(1L, 2L), query(null, null, null, null, QueryParams.SortField.TITLE, QueryParams.OutputOrder.DESC, descending));
+        assertEquals(List.of(1L, 2L), query(null, "alice", null, null, QueryParams.SortField.TITLE, QueryParams.OutputOrder.DESC, descending));
+    }
+
+    @Test
+    void givenTitlesWithPunctuationAndAccents_assertSortedAsDatabaseCollation() {
+        catalog.add(5, new Book("Alice_Underscore", "Anonymous", "publisher", 1900));
+        catalog.add(6, new Book("\u00C1lice Accent", "Anonymous", "publisher", 1900));
+        catalog.add(7, new Book("Alice ", "Anonymous", "publisher", 1900));
+
+        // Underscores are ordered after letters, accents are ignored, and trailing spaces are ignored.
+        assertEquals(List.of(2L, 7L, 6L, 1L, 5L, 3L, 4L), query(null, null, null, null, QueryParams.SortField.TITLE, QueryParams.OutputOrder.ASC, null));
+
+        final var cursor = new QueryParams.Cursor(QueryParams.SortField.TITLE, QueryParams.OutputOrder.ASC, 1, "alice in wonderland");
+        assertEquals(List.of(5L, 3L, 4L), query(null, null, null, null, QueryParams.SortField.TITLE, QueryParams.OutputOrder.ASC, cursor));
+    }
+
+    @Test
+    void givenFilterWithWildcardsAndAccents_assertMatchedLiterallyIgnoringAccents() {
+        catalog.add(5, new Book("100% Alice", "Anonymous", "publisher", 1900));
+
+        assertEquals(List.of(5L), query(null, "0%", null, null, QueryParams.SortField.NONE, QueryParams.OutputOrder.NONE, null));
+        assertEquals(List.of(), query(null, "e_i", null, null, QueryParams.SortField.NONE, QueryParams.OutputOrder.NONE, null));
+        assertEquals(List.of(1L, 2L, 3L, 5L), query(null, "\u00E1lic", null, null, QueryParams.SortField.NONE, QueryParams.OutputOrder.NONE, null));
+    }
+
+    @Test
+    void givenBookAddedAndRemoved_assertIndexesUpdated() {
+        catalog.add(5, new Book("Alice Returns", "Anonymous", "publisher", 1900));
+        catalog.remove(2);
+
+        assertEquals(4, catalog.size());
+        assertEquals(List.of(1L, 3L, 5L), query(null, "alice", null, null, QueryParams.SortField.NONE, QueryParams.OutputOrder.NONE, null));
+        assertEquals(List.of(1L, 4L, 5L, 3L), query(null, null, null, null, QueryParams.SortField.YEAR, QueryParams.OutputOrder.NONE, null));
+    }
+
+    @Test
+    void givenChangesWhileLoading_assertChangesReplayed() {
+        catalog.beginLoad();
+        catalog.add(5, new Book("Alice Returns", "Anonymous", "publisher", 1900));
+        catalog.remove(1);
+        catalog.finishLoad(List.of(
+                getBook(1, "Alice in Wonderland", "Lewis Carroll", 1865),
+                getBook(5, "Alice Returns", "Anonymous", 1900)
+        ));
+
+        assertTrue(catalog.isLoaded());
+        assertEquals(List.of(5L), query(null, null, null, null, QueryParams.SortField.NONE, QueryParams.OutputOrder.NONE, null));
+    }
+
+    @AfterEach
+    void tearDown() {
+        catalog = null;
+    }
+}
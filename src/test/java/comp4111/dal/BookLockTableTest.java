@@ -0,0 +1,187 @@
+package comp4111.dal;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BookLockTableTest {
+
+    private BookLockTable lockTable;
+
+    @BeforeEach
+    void setUp() {
+        lockTable = new BookLockTable(ForkJoinPool.commonPool());
+        lockTable.setLockTimeout(Duration.ofSeconds(5));
+    }
+
+    @Test
+    void givenUncontendedLock_checkAcquiredImmediatelyAndStats() {
+        final var future = lockTable.lock(1);
+        assertTrue(future.isDone());
+        try (var lease = future.join()) {
+            assertNotNull(lease);
+        }
+
+        final var stats = lockTable.getStripeStats(1);
+        assertEquals(BookLockTable.stripeOf(1), stats.getStripe());
+        assertEquals(1, stats.getAcquiredCount());
+        assertEquals(0, stats.getContendedCount());
+        assertEquals(Duration.ZERO, stats.getWaitTime());
+    }
+
+    @Test
+    void givenHeldLock_checkWaiterQueuedAndContentionRecorded() throws Exception {
+        final var lease = lockTable.lock(1).join();
+        assertNotNull(lease);
+
+        final var waiter = lockTable.lock(1);
+        assertFalse(waiter.isDone());
+        assertEquals(1, lockTable.getStripeStats(1).getQueueLength());
+
+        lease.close();
+        try (var it = waiter.get(5, TimeUnit.SECONDS)) {
+            assertNotNull(it);
+        }
+
+        final var stats = lockTable.getStripeStats(1);
+        assertEquals(2, stats.getAcquiredCount());
+        assertEquals(1, stats.getContendedCount());
+        assertEquals(0, stats.getQueueLength());
+        assertTrue(stats.getMaxWaitTime().compareTo(Duration.ZERO) > 0);
+    }
+
+    @Test
+    void givenMultipleWaiters_checkLockHandedOverInArrivalOrder() throws Exception {
+        final var lease = lockTable.lock(1).join();
+        assertNotNull(lease);
+
+        final var order = new CopyOnWriteArrayList<Integer>();
+        final var waiters = new CompletableFuture<?>[3];
+        for (int i = 0; i < waiters.length; ++i) {
+            final var index = i;
+            waiters[i] = lockTable.lock(1).thenAccept(it -> {
+                order.add(index);
+                it.close();
+            });
+        }
+
+        lease.close();
+        CompletableFuture.allOf(waiters).get(5, TimeUnit.SECONDS);
+        assertEquals(List.of(0, 1, 2), order);
+    }
+
+    @Test
+    void givenLeaseClosedTwice_checkReleasedOnce() throws Exception {
+        final var lease = lockTable.lock(1).join();
+        assertNotNull(lease);
+
+        final var waiter = lockTable.lock(1);
+        lease.close();
+        final var other = waiter.get(5, TimeUnit.SECONDS);
+        assertNotNull(other);
+
+        // Closing the first lease again must not release the lock now held by the waiter.
+        lease.close();
+        assertFalse(lockTable.lock(1).isDone());
+        other.close();
+    }
+
+    @Test
+    void givenBooksSharingStripe_checkSerialized() throws Exception {
+        try (var lease = lockTable.lock(1).join()) {
+            assertNotNull(lease);
+
+            lockTable.setLockTimeout(Duration.ofMillis(10));
+            assertNull(lockTable.lock(1 + BookLockTable.STRIPES).get(5, TimeUnit.SECONDS));
+        }
+
+        final var stats = lockTable.getStripeStats(1);
+        assertEquals(1, stats.getTimedOutCount());
+        assertEquals(0, stats.getQueueLength());
+    }
+
+    @Test
+    void givenBooksInDifferentStripes_checkNotSerialized() {
+        try (var lease = lockTable.lock(1).join()) {
+            assertNotNull(lease);
+
+            final var other = lockTable.lock(2);
+            assertTrue(other.isDone());
+            try (var it = other.join()) {
+                assertNotNull(it);
+            }
+        }
+    }
+
+    @Test
+    void givenOverlappingSetsLockedInOppositeOrder_checkNoDeadlock() throws Exception {
+        final var iterations = 1000;
+        final var start = new CountDownLatch(1);
+        final var first = CompletableFuture.runAsync(() -> lockRepeatedly(start, List.of(1L, 2L, 3L), iterations));
+        final var second = CompletableFuture.runAsync(() -> lockRepeatedly(start, List.of(3L, 2L, 1L), iterations));
+        start.countDown();
+
+        CompletableFuture.allOf(first, second).get(10, TimeUnit.SECONDS);
+        assertEquals(iterations * 2, lockTable.getStripeStats(2).getAcquiredCount());
+    }
+
+    private void lockRepeatedly(CountDownLatch start, List<Long> ids, int iterations) {
+        try {
+            start.await();
+        } catch (InterruptedException e) {
+            throw new RuntimeException(e);
+        }
+
+        for (int i = 0; i < iterations; ++i) {
+            try (var lease = lockTable.lockAll(ids).join()) {
+                assertNotNull(lease);
+            }
+        }
+    }
+
+    @Test
+    void givenLockAllTimedOut_checkNoLockHeld() throws Exception {
+        try (var lease = lockTable.lock(3).join()) {
+            assertNotNull(lease);
+
+            lockTable.setLockTimeout(Duration.ofMillis(10));
+            assertNull(lockTable.lockAll(List.of(1L, 2L, 3L)).get(5, TimeUnit.SECONDS));
+        }
+
+        // Stripes locked before the timed out stripe are released.
+        final var other = lockTable.lock(1);
+        assertTrue(other.isDone());
+        try (var it = other.join()) {
+            assertNotNull(it);
+        }
+    }
+
+    @Test
+    void givenRejectedHandOff_checkWaiterFailedAndLockPassedOn() throws Exception {
+        final var rejectingTable = new BookLockTable(command -> {
+            throw new RejectedExecutionException();
+        });
+
+        final var lease = rejectingTable.lock(1).join();
+        assertNotNull(lease);
+        final var waiter = rejectingTable.lock(1);
+
+        lease.close();
+        assertTrue(waiter.isCompletedExceptionally());
+
+        // The lock is released, since there is no waiter left to hand it to.
+        assertTrue(rejectingTable.lock(1).isDone());
+    }
+
+    @AfterEach
+    void tearDown() {
+        lockTable.resetLockTimeout();
+        lockTable = null;
+    }
+}
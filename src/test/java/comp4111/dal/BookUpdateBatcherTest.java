@@ -0,0 +1,132 @@
+package comp4111.dal;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BookUpdateBatcherTest {
+
+    /**
+     * Books with IDs at or above this value do not exist.
+     */
+    private static final long MISSING_BOOK_ID = 100;
+
+    private BookUpdateBatcher batcher;
+    /**
+     * The batches applied by {@link BookUpdateBatcherTest#batcher}, in the order they are applied.
+     */
+    private List<List<BookUpdateBatcher.Update>> appliedBatches;
+    /**
+     * The threads on which the batches in {@link BookUpdateBatcherTest#appliedBatches} are applied.
+     */
+    private List<Thread> applyingThreads;
+
+    @BeforeEach
+    void setUp() {
+        appliedBatches = new CopyOnWriteArrayList<>();
+        applyingThreads = new CopyOnWriteArrayList<>();
+        batcher = new BookUpdateBatcher(updates -> {
+            appliedBatches.add(updates);
+            applyingThreads.add(Thread.currentThread());
+            return CompletableFuture.completedFuture(updates.stream()
+                    .map(update -> update.id >= MISSING_BOOK_ID ? 2 : (update.available ? 0 : 1))
+                    .collect(Collectors.toList()));
+        }, ForkJoinPool.commonPool());
+    }
+
+    @Test
+    void givenUpdatesWithinWindow_checkAppliedInOneBatch() throws Exception {
+        batcher.setWindow(Duration.ofMillis(200));
+
+        final var first = batcher.submit(1, true);
+        final var second = batcher.submit(2, false);
+        final var third = batcher.submit(MISSING_BOOK_ID, true);
+
+        assertEquals(0, first.get(5, TimeUnit.SECONDS));
+        assertEquals(1, second.get(5, TimeUnit.SECONDS));
+        assertEquals(2, third.get(5, TimeUnit.SECONDS));
+        assertEquals(1, appliedBatches.size());
+        assertEquals(3, appliedBatches.get(0).size());
+    }
+
+    @Test
+    void givenFullBatch_checkAppliedBeforeWindowElapsed() throws Exception {
+        batcher.setWindow(Duration.ofMinutes(1));
+        batcher.setMaxBatchSize(2);
+
+        final var first = batcher.submit(1, true);
+        final var second = batcher.submit(2, true);
+
+        assertEquals(0, first.get(5, TimeUnit.SECONDS));
+        assertEquals(0, second.get(5, TimeUnit.SECONDS));
+        assertEquals(1, appliedBatches.size());
+    }
+
+    @Test
+    void givenUpdatesAfterWindow_checkAppliedInSeparateBatches() throws Exception {
+        batcher.setWindow(Duration.ofMillis(1));
+
+        batcher.submit(1, true).get(5, TimeUnit.SECONDS);
+        batcher.submit(2, true).get(5, TimeUnit.SECONDS);
+
+        assertEquals(2, appliedBatches.size());
+    }
+
+    @Test
+    void givenBatches_checkAppliedOnExecutor() throws Exception {
+        batcher.setWindow(Duration.ofMillis(1));
+        batcher.submit(1, true).get(5, TimeUnit.SECONDS);
+
+        batcher.setMaxBatchSize(1);
+        batcher.submit(2, true).get(5, TimeUnit.SECONDS);
+
+        assertEquals(2, applyingThreads.size());
+        for (final var thread : applyingThreads) {
+            assertNotEquals(Thread.currentThread(), thread);
+            assertFalse(thread.getName().startsWith("group-commit"));
+        }
+    }
+
+    @Test
+    void givenFailingBatch_checkAllUpdatesFailed() {
+        final var failingBatcher = new BookUpdateBatcher(updates -> {
+            throw new IllegalStateException();
+        }, ForkJoinPool.commonPool());
+        failingBatcher.setMaxBatchSize(2);
+
+        final var first = failingBatcher.submit(1, true);
+        final var second = failingBatcher.submit(2, true);
+
+        assertThrows(ExecutionException.class, () -> first.get(5, TimeUnit.SECONDS));
+        assertThrows(ExecutionException.class, () -> second.get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void givenRejectedBatch_checkAllUpdatesFailed() {
+        final var rejectingBatcher = new BookUpdateBatcher(updates -> CompletableFuture.completedFuture(List.of(0)),
+                command -> {
+                    throw new RejectedExecutionException();
+                });
+        rejectingBatcher.setMaxBatchSize(1);
+
+        final var update = rejectingBatcher.submit(1, true);
+
+        assertTrue(update.isCompletedExceptionally());
+    }
+
+    @AfterEach
+    void tearDown() {
+        batcher.resetWindow();
+        batcher.resetMaxBatchSize();
+        batcher = null;
+        appliedBatches = null;
+        applyingThreads = null;
+    }
+}
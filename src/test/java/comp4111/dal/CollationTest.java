@@ -0,0 +1,45 @@
+package comp4111.dal;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CollationTest {
+
+    private static int compare(String str1, String str2) {
+        return Integer.signum(Collation.compare(Collation.fold(str1), Collation.fold(str2)));
+    }
+
+    @Test
+    void givenCaseAndAccents_checkEqual() {
+        assertEquals(0, compare("alice", "ALICE"));
+        assertEquals(0, compare("\u00E9t\u00E9", "ETE"));
+        assertEquals(0, compare("stra\u00DFe", "strase"));
+    }
+
+    @Test
+    void givenCharactersBetweenUpperAndLowerCase_checkOrderedAfterLetters() {
+        for (final var c : new String[]{"[", "\\", "]", "^", "_", "`"}) {
+            assertEquals(1, compare(c, "z"));
+            assertEquals(1, compare(c, "Z"));
+        }
+    }
+
+    @Test
+    void givenTrailingSpaces_checkIgnored() {
+        assertEquals(0, compare("alice", "alice  "));
+        assertEquals(-1, compare("alice", "alice!"));
+        assertEquals(-1, compare("alice\t", "alice"));
+        assertEquals(1, compare("alice ", "alice\t"));
+    }
+
+    @Test
+    void givenSupplementaryCharacter_checkFoldedToSingleCharacter() {
+        assertEquals(3, Collation.fold("a\uD83D\uDE00b").length());
+    }
+
+    @Test
+    void givenWildcards_checkEscaped() {
+        assertEquals("100\\% a\\_b c\\\\d", Collation.escapeLike("100% a_b c\\d"));
+    }
+}
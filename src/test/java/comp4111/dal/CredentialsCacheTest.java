@@ -0,0 +1,72 @@
+package comp4111.dal;
+
+import comp4111.dal.model.Credentials;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CredentialsCacheTest {
+
+    private static Credentials getCredentials(int i) {
+        return new Credentials(String.format("user%05d", i), "hash", "salt");
+    }
+
+    private CredentialsCache cache;
+
+    @BeforeEach
+    void setUp() {
+        cache = new CredentialsCache(2);
+    }
+
+    @Test
+    void givenCredentialsPut_assertGetReturnsCredentials() {
+        final var credentials = getCredentials(1);
+        cache.put(credentials);
+
+        assertSame(credentials, cache.get(credentials.getUsername()));
+    }
+
+    @Test
+    void givenCredentialsNotPut_assertGetReturnsNull() {
+        assertNull(cache.get(getCredentials(1).getUsername()));
+    }
+
+    @Test
+    void givenCapacityExceeded_assertEldestEvicted() {
+        cache.put(getCredentials(1));
+        cache.put(getCredentials(2));
+        cache.get(getCredentials(1).getUsername());
+        cache.put(getCredentials(3));
+
+        assertEquals(2, cache.size());
+        assertNotNull(cache.get(getCredentials(1).getUsername()));
+        assertNull(cache.get(getCredentials(2).getUsername()));
+        assertNotNull(cache.get(getCredentials(3).getUsername()));
+    }
+
+    @Test
+    void givenCredentialsPut_whenInvalidate_assertRemoved() {
+        cache.put(getCredentials(1));
+        cache.put(getCredentials(2));
+        cache.invalidate(getCredentials(1).getUsername());
+
+        assertNull(cache.get(getCredentials(1).getUsername()));
+        assertEquals(1, cache.size());
+    }
+
+    @Test
+    void givenCredentialsPut_whenInvalidateAll_assertEmpty() {
+        cache.put(getCredentials(1));
+        cache.put(getCredentials(2));
+        cache.invalidateAll();
+
+        assertEquals(0, cache.size());
+    }
+
+    @AfterEach
+    void tearDown() {
+        cache = null;
+    }
+}
@@ -0,0 +1,174 @@
+package comp4111.dal;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PreparedStatementCacheTest {
+
+    /**
+     * Physical statements prepared by the fake connection, in order of creation.
+     */
+    private List<PreparedStatement> preparedStatements;
+    /**
+     * Physical statements closed by the cache.
+     */
+    private List<PreparedStatement> closedStatements;
+    private PreparedStatementCache cache;
+    private Connection connection;
+
+    private PreparedStatement newFakeStatement() {
+        final var statement = (PreparedStatement) Proxy.newProxyInstance(
+                PreparedStatement.class.getClassLoader(),
+                new Class<?>[]{PreparedStatement.class},
+                (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "close":
+                            closedStatements.add((PreparedStatement) proxy);
+                            return null;
+                        case "isClosed":
+                            return closedStatements.contains(proxy);
+                        case "hashCode":
+                            return System.identityHashCode(proxy);
+                        case "equals":
+                            return proxy == args[0];
+                        default:
+                            return null;
+                    }
+                });
+        preparedStatements.add(statement);
+        return statement;
+    }
+
+    @BeforeEach
+    void setUp() {
+        preparedStatements = new ArrayList<>();
+        closedStatements = new ArrayList<>();
+        final var fakeConnection = (Connection) Proxy.newProxyInstance(
+                Connection.class.getClassLoader(),
+                new Class<?>[]{Connection.class},
+                (proxy, method, args) -> method.getName().equals("prepareStatement") ? newFakeStatement() : null);
+        cache = new PreparedStatementCache(fakeConnection, 2);
+        connection = cache.wrapConnection();
+    }
+
+    @Test
+    void givenStatementClosed_whenPreparedAgain_assertCacheHit() throws SQLException {
+        connection.prepareStatement("SELECT 1").close();
+        connection.prepareStatement("SELECT 1").close();
+
+        assertEquals(1, preparedStatements.size());
+        assertEquals(1, cache.getHitCount());
+        assertEquals(1, cache.getMissCount());
+        assertTrue(closedStatements.isEmpty());
+    }
+
+    @Test
+    void givenStatementClosed_assertLogicallyClosed() throws SQLException {
+        final var statement = connection.prepareStatement("SELECT 1");
+        statement.close();
+
+        assertTrue(statement.isClosed());
+        assertThrows(SQLException.class, statement::executeQuery);
+    }
+
+    @Test
+    void givenStatementInUse_whenPreparedAgain_assertUncachedStatement() throws SQLException {
+        try (var outer = connection.prepareStatement("SELECT 1")) {
+            final var inner = connection.prepareStatement("SELECT 1");
+            inner.close();
+
+            assertFalse(outer.isClosed());
+            assertEquals(2, preparedStatements.size());
+            assertEquals(List.of(preparedStatements.get(1)), closedStatements);
+        }
+
+        connection.prepareStatement("SELECT 1").close();
+        assertEquals(1, cache.getHitCount());
+    }
+
+    @Test
+    void givenCapacityExceeded_assertEldestClosed() throws SQLException {
+        connection.prepareStatement("SELECT 1").close();
+        connection.prepareStatement("SELECT 2").close();
+        connection.prepareStatement("SELECT 1").close();
+        connection.prepareStatement("SELECT 3").close();
+
+        assertEquals(2, cache.size());
+        assertEquals(List.of(preparedStatements.get(1)), closedStatements);
+    }
+
+    @Test
+    void givenGeneratedKeysRequested_assertCachedSeparately() throws SQLException {
+        connection.prepareStatement("INSERT INTO t VALUES (1)").close();
+        connection.prepareStatement("INSERT INTO t VALUES (1)", PreparedStatement.RETURN_GENERATED_KEYS).close();
+
+        assertEquals(2, cache.getMissCount());
+    }
+
+    @Test
+    void whenClose_assertAllStatementsClosed() throws SQLException {
+        connection.prepareStatement("SELECT 1").close();
+        connection.prepareStatement("SELECT 2").close();
+        cache.close();
+
+        assertEquals(0, cache.size());
+        assertEquals(2, closedStatements.size());
+    }
+
+    /**
+     * A connection which can prepare statements on the server, like MySQL Connector/J connections.
+     */
+    interface ServerPreparingConnection extends Connection {
+
+        PreparedStatement serverPrepareStatement(String sql, int autoGeneratedKeys);
+    }
+
+    @Test
+    void givenServerPrepareSupported_whenReused_assertPromotedOnce() throws SQLException {
+        final var serverPreparedStatements = new ArrayList<PreparedStatement>();
+        final var serverConnection = (Connection) Proxy.newProxyInstance(
+                ServerPreparingConnection.class.getClassLoader(),
+                new Class<?>[]{ServerPreparingConnection.class},
+                (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "prepareStatement":
+                            return newFakeStatement();
+                        case "serverPrepareStatement":
+                            final var statement = newFakeStatement();
+                            serverPreparedStatements.add(statement);
+                            return statement;
+                        default:
+                            return null;
+                    }
+                });
+        final var serverCache = new PreparedStatementCache(serverConnection, 2);
+        final var cachingConnection = serverCache.wrapConnection();
+
+        cachingConnection.prepareStatement("SELECT 1").close();
+        assertTrue(serverPreparedStatements.isEmpty());
+
+        cachingConnection.prepareStatement("SELECT 1").close();
+        cachingConnection.prepareStatement("SELECT 1").close();
+        assertEquals(1, serverPreparedStatements.size());
+        assertEquals(List.of(preparedStatements.get(0)), closedStatements);
+        assertEquals(2, serverCache.getHitCount());
+    }
+
+    @AfterEach
+    void tearDown() {
+        cache = null;
+        connection = null;
+        preparedStatements = null;
+        closedStatements = null;
+    }
+}
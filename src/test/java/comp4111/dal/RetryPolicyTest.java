@@ -0,0 +1,134 @@
+package comp4111.dal;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.SQLException;
+import java.sql.SQLIntegrityConstraintViolationException;
+import java.sql.SQLTransactionRollbackException;
+import java.time.Duration;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class RetryPolicyTest {
+
+    private static final int MAX_ATTEMPTS = 3;
+
+    private RetryPolicy policy;
+    private AtomicInteger attemptCount;
+
+    @BeforeEach
+    void setUp() {
+        policy = new RetryPolicy(MAX_ATTEMPTS, Duration.ZERO, Duration.ZERO, 0.5, 2);
+        attemptCount = new AtomicInteger();
+    }
+
+    /**
+     * @return A failure as thrown by {@link DatabaseConnectionV2#execStmt(comp4111.function.ConnectionFunction, boolean)}.
+     */
+    private static RuntimeException wrap(SQLException e) {
+        return new CompletionException(new RuntimeException(e));
+    }
+
+    private static RuntimeException deadlock() {
+        return wrap(new SQLTransactionRollbackException("Deadlock found", "40001", RetryPolicy.ER_LOCK_DEADLOCK));
+    }
+
+    private static RuntimeException lockWaitTimeout() {
+        return wrap(new SQLException("Lock wait timeout exceeded", "HY000", RetryPolicy.ER_LOCK_WAIT_TIMEOUT));
+    }
+
+    /**
+     * Executes an operation which fails with {@code failure} for the given number of attempts before succeeding.
+     */
+    private int executeFailing(RuntimeException failure, int failedAttempts, boolean isWholeTransaction) {
+        return policy.execute(() -> {
+            if (attemptCount.incrementAndGet() <= failedAttempts) {
+                throw failure;
+            }
+            return attemptCount.get();
+        }, isWholeTransaction);
+    }
+
+    @Test
+    void givenWrappedFailures_checkClassification() {
+        assertTrue(RetryPolicy.isDeadlock(deadlock()));
+        assertFalse(RetryPolicy.isLockWaitTimeout(deadlock()));
+        assertTrue(RetryPolicy.isLockWaitTimeout(lockWaitTimeout()));
+        assertFalse(RetryPolicy.isDeadlock(lockWaitTimeout()));
+
+        final var duplicate = wrap(new SQLIntegrityConstraintViolationException("Duplicate entry", "23000", 1062));
+        assertFalse(RetryPolicy.isContention(duplicate));
+        assertFalse(RetryPolicy.isContention(new IllegalStateException()));
+    }
+
+    @Test
+    void givenDeadlockInWholeTransaction_checkRetriedUntilSuccess() {
+        assertEquals(MAX_ATTEMPTS, executeFailing(deadlock(), MAX_ATTEMPTS - 1, true));
+        assertEquals(MAX_ATTEMPTS - 1, policy.getRetryCount());
+    }
+
+    @Test
+    void givenDeadlockInPartialTransaction_checkNotRetried() {
+        assertThrows(CompletionException.class, () -> executeFailing(deadlock(), 1, false));
+        assertEquals(1, attemptCount.get());
+    }
+
+    @Test
+    void givenLockWaitTimeoutInPartialTransaction_checkRetried() {
+        assertEquals(2, executeFailing(lockWaitTimeout(), 1, false));
+    }
+
+    @Test
+    void givenPersistentContention_checkMaxAttempts() {
+        assertThrows(CompletionException.class, () -> executeFailing(deadlock(), Integer.MAX_VALUE, true));
+        assertEquals(MAX_ATTEMPTS, attemptCount.get());
+    }
+
+    @Test
+    void givenNonContentionFailure_checkNotRetried() {
+        assertThrows(IllegalStateException.class, () -> executeFailing(new IllegalStateException(), 1, true));
+        assertEquals(1, attemptCount.get());
+    }
+
+    @Test
+    void givenExhaustedBudget_checkNotRetriedUntilRefilled() {
+        // The budget holds 2 retries, which are used up by the first operation.
+        assertThrows(CompletionException.class, () -> executeFailing(deadlock(), Integer.MAX_VALUE, true));
+        assertEquals(0, policy.getBudget());
+
+        attemptCount.set(0);
+        assertThrows(CompletionException.class, () -> executeFailing(deadlock(), 1, true));
+        assertEquals(1, attemptCount.get());
+        assertEquals(1, policy.getBudgetExhaustedCount());
+
+        // Each operation refills half a retry.
+        attemptCount.set(0);
+        assertEquals(2, executeFailing(deadlock(), 1, true));
+    }
+
+    @Test
+    void givenRetries_checkBackoffBounds() {
+        final var backoffPolicy = new RetryPolicy(10, Duration.ofMillis(10), Duration.ofMillis(50), 0, 0);
+
+        assertEquals(Duration.ofMillis(10).toNanos(), backoffPolicy.getMaxBackoffNanos(1));
+        assertEquals(Duration.ofMillis(20).toNanos(), backoffPolicy.getMaxBackoffNanos(2));
+        assertEquals(Duration.ofMillis(40).toNanos(), backoffPolicy.getMaxBackoffNanos(3));
+        assertEquals(Duration.ofMillis(50).toNanos(), backoffPolicy.getMaxBackoffNanos(4));
+        assertEquals(Duration.ofMillis(50).toNanos(), backoffPolicy.getMaxBackoffNanos(100));
+
+        for (int i = 0; i < 100; ++i) {
+            final var backoff = backoffPolicy.getBackoffNanos(2);
+            assertTrue(backoff >= 0 && backoff <= Duration.ofMillis(20).toNanos());
+        }
+    }
+
+    @AfterEach
+    void tearDown() {
+        policy = null;
+        attemptCount = null;
+    }
+}
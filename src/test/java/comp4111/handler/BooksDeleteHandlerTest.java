@@ -12,6 +12,8 @@ import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import java.util.concurrent.atomic.AtomicReference;
+
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotEquals;
 import static org.junit.jupiter.api.Assumptions.assumeTrue;
@@ -20,6 +22,10 @@ public class BooksDeleteHandlerTest extends AbstractServerTest {
 
     private TokenManager tokenMgr;
     private BooksDeleteHandler handler;
+    /**
+     * The result of {@link BooksDeleteHandler#handleAsync(Message)} for the last request.
+     */
+    private final AtomicReference<Long> handledBookId = new AtomicReference<>();
     private String token;
 
     @BeforeEach
@@ -35,6 +41,7 @@ public class BooksDeleteHandlerTest extends AbstractServerTest {
             @Override
             public void handle(Message<HttpRequest, String> requestObject, ResponseTrigger responseTrigger, HttpContext context) {
                 super.handleAsync(requestObject)
+                        .whenComplete((result, tr) -> handledBookId.set(result))
                         .thenApplyAsync(json -> AsyncResponseBuilder.create(HttpStatus.SC_OK).build())
                         .exceptionally(this::exceptionToResponse)
                         .thenAcceptAsync(response -> HttpAsyncEndpointHandler.emitResponse(response, responseTrigger, context));
@@ -108,7 +115,7 @@ public class BooksDeleteHandlerTest extends AbstractServerTest {
         final ClassicHttpRequest request = new BasicClassicHttpRequest(handler.getHandleMethod(), BooksHandler.HANDLE_PATTERN + "/1?token=" + token);
         try (final var response = requester.execute(target, request, CLIENT_TIMEOUT, context)) {
             assertEquals(HttpStatus.SC_OK, response.getCode());
-            assertEquals(1, handler.getBookId());
+            assertEquals(1, handledBookId.get());
         }
     }
 
@@ -12,14 +12,19 @@ import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
-import static org.junit.jupiter.api.Assertions.assertEquals;
-import static org.junit.jupiter.api.Assertions.assertNull;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
 import static org.junit.jupiter.api.Assumptions.assumeTrue;
 
 public class BooksGetHandlerTest extends AbstractServerTest {
 
     private TokenManager tokenMgr;
     private BooksGetHandler handler;
+    /**
+     * The result of {@link BooksGetHandler#handleAsync(Message)} for the last request.
+     */
+    private final AtomicReference<BooksGetHandler.QueryParams> handledQueryParams = new AtomicReference<>();
     private String token;
 
     @BeforeEach
@@ -35,6 +40,7 @@ public class BooksGetHandlerTest extends AbstractServerTest {
             @Override
             public void handle(Message<HttpRequest, String> requestObject, ResponseTrigger responseTrigger, HttpContext context) {
                 super.handleAsync(requestObject)
+                        .whenComplete((result, tr) -> handledQueryParams.set(result))
                         .thenApplyAsync(json -> AsyncResponseBuilder.create(HttpStatus.SC_OK).build())
                         .exceptionally(this::exceptionToResponse)
                         .thenAcceptAsync(response -> HttpAsyncEndpointHandler.emitResponse(response, responseTrigger, context));
@@ -85,12 +91,12 @@ public class BooksGetHandlerTest extends AbstractServerTest {
         final ClassicHttpRequest request = new BasicClassicHttpRequest(handler.getHandleMethod(), handler.getHandlePattern() + "?token=" + token);
         try (final var response = requester.execute(target, request, CLIENT_TIMEOUT, context)) {
             assertEquals(HttpStatus.SC_OK, response.getCode());
-            assertNull(handler.getQueryParams().id);
-            assertNull(handler.getQueryParams().title);
-            assertNull(handler.getQueryParams().author);
-            assertNull(handler.getQueryParams().limit);
-            assertEquals(BooksGetHandler.QueryParams.SortField.NONE, handler.getQueryParams().sort);
-            assertEquals(BooksGetHandler.QueryParams.OutputOrder.NONE, handler.getQueryParams().order);
+            assertNull(handledQueryParams.get().id);
+            assertNull(handledQueryParams.get().title);
+            assertNull(handledQueryParams.get().author);
+            assertNull(handledQueryParams.get().limit);
+            assertEquals(BooksGetHandler.QueryParams.SortField.NONE, handledQueryParams.get().sort);
+            assertEquals(BooksGetHandler.QueryParams.OutputOrder.NONE, handledQueryParams.get().order);
         }
     }
 
@@ -101,12 +107,12 @@ public class BooksGetHandlerTest extends AbstractServerTest {
         final ClassicHttpRequest request = new BasicClassicHttpRequest(handler.getHandleMethod(), handler.getHandlePattern() + "?id=1&token=" + token);
         try (final var response = requester.execute(target, request, CLIENT_TIMEOUT, context)) {
             assertEquals(HttpStatus.SC_OK, response.getCode());
-            assertEquals(1, handler.getQueryParams().id);
-            assertNull(handler.getQueryParams().title);
-            assertNull(handler.getQueryParams().author);
-            assertNull(handler.getQueryParams().limit);
-            assertEquals(BooksGetHandler.QueryParams.SortField.NONE, handler.getQueryParams().sort);
-            assertEquals(BooksGetHandler.QueryParams.OutputOrder.NONE, handler.getQueryParams().order);
+            assertEquals(1, handledQueryParams.get().id);
+            assertNull(handledQueryParams.get().title);
+            assertNull(handledQueryParams.get().author);
+            assertNull(handledQueryParams.get().limit);
+            assertEquals(BooksGetHandler.QueryParams.SortField.NONE, handledQueryParams.get().sort);
+            assertEquals(BooksGetHandler.QueryParams.OutputOrder.NONE, handledQueryParams.get().order);
         }
     }
 
@@ -117,12 +123,12 @@ public class BooksGetHandlerTest extends AbstractServerTest {
         final ClassicHttpRequest request = new BasicClassicHttpRequest(handler.getHandleMethod(), handler.getHandlePattern() + "?title=Alice&token=" + token);
         try (final var response = requester.execute(target, request, CLIENT_TIMEOUT, context)) {
             assertEquals(HttpStatus.SC_OK, response.getCode());
-            assertNull(handler.getQueryParams().id);
-            assertEquals("Alice", handler.getQueryParams().title);
-            assertNull(handler.getQueryParams().author);
-            assertNull(handler.getQueryParams().limit);
-            assertEquals(BooksGetHandler.QueryParams.SortField.NONE, handler.getQueryParams().sort);
-            assertEquals(BooksGetHandler.QueryParams.OutputOrder.NONE, handler.getQueryParams().order);
+            assertNull(handledQueryParams.get().id);
+            assertEquals("Alice", handledQueryParams.get().title);
+            assertNull(handledQueryParams.get().author);
+            assertNull(handledQueryParams.get().limit);
+            assertEquals(BooksGetHandler.QueryParams.SortField.NONE, handledQueryParams.get().sort);
+            assertEquals(BooksGetHandler.QueryParams.OutputOrder.NONE, handledQueryParams.get().order);
         }
     }
 
@@ -133,12 +139,12 @@ public class BooksGetHandlerTest extends AbstractServerTest {
         final ClassicHttpRequest request = new BasicClassicHttpRequest(handler.getHandleMethod(), handler.getHandlePattern() + "?author=Lewis&token=" + token);
         try (final var response = requester.execute(target, request, CLIENT_TIMEOUT, context)) {
             assertEquals(HttpStatus.SC_OK, response.getCode());
-            assertNull(handler.getQueryParams().id);
-            assertNull(handler.getQueryParams().title);
-            assertEquals("Lewis", handler.getQueryParams().author);
-            assertNull(handler.getQueryParams().limit);
-            assertEquals(BooksGetHandler.QueryParams.SortField.NONE, handler.getQueryParams().sort);
-            assertEquals(BooksGetHandler.QueryParams.OutputOrder.NONE, handler.getQueryParams().order);
+            assertNull(handledQueryParams.get().id);
+            assertNull(handledQueryParams.get().title);
+            assertEquals("Lewis", handledQueryParams.get().author);
+            assertNull(handledQueryParams.get().limit);
+            assertEquals(BooksGetHandler.QueryParams.SortField.NONE, handledQueryParams.get().sort);
+            assertEquals(BooksGetHandler.QueryParams.OutputOrder.NONE, handledQueryParams.get().order);
         }
     }
 
@@ -149,12 +155,12 @@ public class BooksGetHandlerTest extends AbstractServerTest {
         final ClassicHttpRequest request = new BasicClassicHttpRequest(handler.getHandleMethod(), handler.getHandlePattern() + "?limit=10&token=" + token);
         try (final var response = requester.execute(target, request, CLIENT_TIMEOUT, context)) {
             assertEquals(HttpStatus.SC_OK, response.getCode());
-            assertNull(handler.getQueryParams().id);
-            assertNull(handler.getQueryParams().title);
-            assertNull(handler.getQueryParams().author);
-            assertEquals(10, handler.getQueryParams().limit);
-            assertEquals(BooksGetHandler.QueryParams.SortField.NONE, handler.getQueryParams().sort);
-            assertEquals(BooksGetHandler.QueryParams.OutputOrder.NONE, handler.getQueryParams().order);
+            assertNull(handledQueryParams.get().id);
+            assertNull(handledQueryParams.get().title);
+            assertNull(handledQueryParams.get().author);
+            assertEquals(10, handledQueryParams.get().limit);
+            assertEquals(BooksGetHandler.QueryParams.SortField.NONE, handledQueryParams.get().sort);
+            assertEquals(BooksGetHandler.QueryParams.OutputOrder.NONE, handledQueryParams.get().order);
         }
     }
 
@@ -166,12 +172,12 @@ public class BooksGetHandlerTest extends AbstractServerTest {
         final ClassicHttpRequest request = new BasicClassicHttpRequest(handler.getHandleMethod(), handler.getHandlePattern() + "?sortby=id&token=" + token);
         try (final var response = requester.execute(target, request, CLIENT_TIMEOUT, context)) {
             assertEquals(HttpStatus.SC_OK, response.getCode());
-            assertNull(handler.getQueryParams().id);
-            assertNull(handler.getQueryParams().title);
-            assertNull(handler.getQueryParams().author);
-            assertNull(handler.getQueryParams().limit);
-            assertEquals(BooksGetHandler.QueryParams.SortField.ID, handler.getQueryParams().sort);
-            assertEquals(BooksGetHandler.QueryParams.OutputOrder.NONE, handler.getQueryParams().order);
+            assertNull(handledQueryParams.get().id);
+            assertNull(handledQueryParams.get().title);
+            assertNull(handledQueryParams.get().author);
+            assertNull(handledQueryParams.get().limit);
+            assertEquals(BooksGetHandler.QueryParams.SortField.ID, handledQueryParams.get().sort);
+            assertEquals(BooksGetHandler.QueryParams.OutputOrder.NONE, handledQueryParams.get().order);
         }
     }
 
@@ -183,12 +189,12 @@ public class BooksGetHandlerTest extends AbstractServerTest {
         final ClassicHttpRequest request = new BasicClassicHttpRequest(handler.getHandleMethod(), handler.getHandlePattern() + "?order=asc&token=" + token);
         try (final var response = requester.execute(target, request, CLIENT_TIMEOUT, context)) {
             assertEquals(HttpStatus.SC_OK, response.getCode());
-            assertNull(handler.getQueryParams().id);
-            assertNull(handler.getQueryParams().title);
-            assertNull(handler.getQueryParams().author);
-            assertNull(handler.getQueryParams().limit);
-            assertEquals(BooksGetHandler.QueryParams.SortField.NONE, handler.getQueryParams().sort);
-            assertEquals(BooksGetHandler.QueryParams.OutputOrder.ASC, handler.getQueryParams().order);
+            assertNull(handledQueryParams.get().id);
+            assertNull(handledQueryParams.get().title);
+            assertNull(handledQueryParams.get().author);
+            assertNull(handledQueryParams.get().limit);
+            assertEquals(BooksGetHandler.QueryParams.SortField.NONE, handledQueryParams.get().sort);
+            assertEquals(BooksGetHandler.QueryParams.OutputOrder.ASC, handledQueryParams.get().order);
         }
     }
 
@@ -199,12 +205,12 @@ public class BooksGetHandlerTest extends AbstractServerTest {
         final ClassicHttpRequest request = new BasicClassicHttpRequest(handler.getHandleMethod(), handler.getHandlePattern() + "?author=Lewis&id=5&token=" + token);
         try (final var response = requester.execute(target, request, CLIENT_TIMEOUT, context)) {
             assertEquals(HttpStatus.SC_OK, response.getCode());
-            assertEquals(5, handler.getQueryParams().id);
-            assertNull(handler.getQueryParams().title);
-            assertEquals("Lewis", handler.getQueryParams().author);
-            assertNull(handler.getQueryParams().limit);
-            assertEquals(BooksGetHandler.QueryParams.SortField.NONE, handler.getQueryParams().sort);
-            assertEquals(BooksGetHandler.QueryParams.OutputOrder.NONE, handler.getQueryParams().order);
+            assertEquals(5, handledQueryParams.get().id);
+            assertNull(handledQueryParams.get().title);
+            assertEquals("Lewis", handledQueryParams.get().author);
+            assertNull(handledQueryParams.get().limit);
+            assertEquals(BooksGetHandler.QueryParams.SortField.NONE, handledQueryParams.get().sort);
+            assertEquals(BooksGetHandler.QueryParams.OutputOrder.NONE, handledQueryParams.get().order);
         }
     }
 
@@ -215,12 +221,92 @@ public class BooksGetHandlerTest extends AbstractServerTest {
         final ClassicHttpRequest request = new BasicClassicHttpRequest(handler.getHandleMethod(), handler.getHandlePattern() + "?limit=10&sortby=id&order=desc&token=" + token);
         try (final var response = requester.execute(target, request, CLIENT_TIMEOUT, context)) {
             assertEquals(HttpStatus.SC_OK, response.getCode());
-            assertNull(handler.getQueryParams().id);
-            assertNull(handler.getQueryParams().title);
-            assertNull(handler.getQueryParams().author);
-            assertEquals(10, handler.getQueryParams().limit);
-            assertEquals(BooksGetHandler.QueryParams.SortField.ID, handler.getQueryParams().sort);
-            assertEquals(BooksGetHandler.QueryParams.OutputOrder.DESC, handler.getQueryParams().order);
+            assertNull(handledQueryParams.get().id);
+            assertNull(handledQueryParams.get().title);
+            assertNull(handledQueryParams.get().author);
+            assertEquals(10, handledQueryParams.get().limit);
+            assertEquals(BooksGetHandler.QueryParams.SortField.ID, handledQueryParams.get().sort);
+            assertEquals(BooksGetHandler.QueryParams.OutputOrder.DESC, handledQueryParams.get().order);
+        }
+    }
+
+    @Test
+    void givenCursor_assertRoundTrip() {
+        final var cursor = new BooksGetHandler.QueryParams.Cursor(
+                BooksGetHandler.QueryParams.SortField.TITLE,
+                BooksGetHandler.QueryParams.OutputOrder.DESC,
+                42,
+                "Alice\nin Wonderland");
+        final var encoded = cursor.encode();
+        final var decoded = BooksGetHandler.QueryParams.Cursor.decode(encoded);
+
+        assertTrue(encoded.matches("[A-Za-z0-9_-]+"));
+        assertEquals(cursor.sort, decoded.sort);
+        assertEquals(cursor.order, decoded.order);
+        assertEquals(cursor.id, decoded.id);
+        assertEquals(cursor.sortValue, decoded.sortValue);
+    }
+
+    @Test
+    void givenYearCursor_assertIntegerSortValue() {
+        final var cursor = new BooksGetHandler.QueryParams.Cursor(
+                BooksGetHandler.QueryParams.SortField.YEAR,
+                BooksGetHandler.QueryParams.OutputOrder.NONE,
+                7,
+                1865);
+        final var decoded = BooksGetHandler.QueryParams.Cursor.decode(cursor.encode());
+
+        assertEquals(1865, decoded.sortValue);
+        assertFalse(decoded.isDescending());
+    }
+
+    @Test
+    void givenMalformedCursor_assertThrows() {
+        assertThrows(IllegalArgumentException.class, () -> BooksGetHandler.QueryParams.Cursor.decode("not a cursor"));
+        assertThrows(IllegalArgumentException.class, () -> BooksGetHandler.QueryParams.Cursor.decode("SUQ"));
+    }
+
+    @Test
+    void givenCursorRequest_checkOK() throws Exception {
+        final var cursor = new BooksGetHandler.QueryParams.Cursor(
+                BooksGetHandler.QueryParams.SortField.ID,
+                BooksGetHandler.QueryParams.OutputOrder.DESC,
+                5,
+                null);
+
+        final var target = getDefaultHttpHost(server);
+        final var context = HttpCoreContext.create();
+        final ClassicHttpRequest request = new BasicClassicHttpRequest(handler.getHandleMethod(), handler.getHandlePattern() + "?limit=10&sortby=id&order=desc&after=" + cursor.encode() + "&token=" + token);
+        try (final var response = requester.execute(target, request, CLIENT_TIMEOUT, context)) {
+            assertEquals(HttpStatus.SC_OK, response.getCode());
+            assertNotNull(handledQueryParams.get().after);
+            assertEquals(5, handledQueryParams.get().after.id);
+        }
+    }
+
+    @Test
+    void givenCursorOfDifferentOrder_checkBadRequest() throws Exception {
+        final var cursor = new BooksGetHandler.QueryParams.Cursor(
+                BooksGetHandler.QueryParams.SortField.ID,
+                BooksGetHandler.QueryParams.OutputOrder.ASC,
+                5,
+                null);
+
+        final var target = getDefaultHttpHost(server);
+        final var context = HttpCoreContext.create();
+        final ClassicHttpRequest request = new BasicClassicHttpRequest(handler.getHandleMethod(), handler.getHandlePattern() + "?sortby=id&order=desc&after=" + cursor.encode() + "&token=" + token);
+        try (final var response = requester.execute(target, request, CLIENT_TIMEOUT, context)) {
+            assertEquals(HttpStatus.SC_BAD_REQUEST, response.getCode());
+        }
+    }
+
+    @Test
+    void givenMalformedCursorRequest_checkBadRequest() throws Exception {
+        final var target = getDefaultHttpHost(server);
+        final var context = HttpCoreContext.create();
+        final ClassicHttpRequest request = new BasicClassicHttpRequest(handler.getHandleMethod(), handler.getHandlePattern() + "?after=abc&token=" + token);
+        try (final var response = requester.execute(target, request, CLIENT_TIMEOUT, context)) {
+            assertEquals(HttpStatus.SC_BAD_REQUEST, response.getCode());
         }
     }
 
@@ -0,0 +1,270 @@
+package comp4111.handler;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import comp4111.AbstractServerTest;
+import comp4111.controller.TokenManager;
+import comp4111.model.Book;
+import comp4111.model.BooksImportResult;
+import org.apache.hc.core5.http.*;
+import org.apache.hc.core5.http.io.entity.StringEntity;
+import org.apache.hc.core5.http.nio.support.AsyncResponseBuilder;
+import org.apache.hc.core5.http.protocol.HttpContext;
+import org.jetbrains.annotations.NotNull;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BooksImportHandlerTest extends AbstractServerTest {
+
+    private TokenManager tokenMgr;
+    private BooksImportHandler handler;
+    private ObjectMapper objectMapper;
+    private String token;
+
+    /**
+     * IDs of the imported books, keyed by title.
+     */
+    private Map<String, Long> importedBooks;
+    private AtomicInteger batchCount;
+    /**
+     * The batch whose insertion waits for {@link BooksImportHandlerTest#batchLatch}, or {@code 0} if no batch waits.
+     */
+    private volatile int blockedBatch;
+    private CountDownLatch batchLatch;
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        super.setUp();
+
+        importedBooks = new HashMap<>();
+        batchCount = new AtomicInteger();
+        blockedBatch = 0;
+        batchLatch = new CountDownLatch(1);
+        handler = new BooksImportHandler() {
+            @Override
+            protected @NotNull TokenManager getTokenMgr() {
+                return tokenMgr;
+            }
+
+            @Override
+            protected @NotNull Executor getImportExecutor() {
+                return ForkJoinPool.commonPool();
+            }
+
+            @Override
+            public void handle(Message<HttpRequest, String> requestObject, ResponseTrigger responseTrigger, HttpContext context) {
+                runPipeline(() -> super.handleAsync(requestObject, context)
+                        .thenApply(entity -> AsyncResponseBuilder.create(HttpStatus.SC_OK).setEntity(entity).build()),
+                        responseTrigger, context);
+            }
+
+            @Override
+            protected @NotNull List<BooksImportResult.Item> importBooks(@NotNull List<Book> books) {
+                if (batchCount.incrementAndGet() == blockedBatch) {
+                    try {
+                        batchLatch.await();
+                    } catch (InterruptedException e) {
+                        throw new RuntimeException(e);
+                    }
+                }
+
+                final var results = new ArrayList<BooksImportResult.Item>();
+                for (final var book : books) {
+                    final var existingId = importedBooks.get(book.getTitle());
+                    if (existingId != null) {
+                        results.add(new BooksImportResult.Item(existingId, HttpStatus.SC_CONFLICT));
+                    } else {
+                        final long id = importedBooks.size() + 1;
+                        importedBooks.put(book.getTitle(), id);
+                        results.add(new BooksImportResult.Item(id, HttpStatus.SC_CREATED));
+                    }
+                }
+                return results;
+            }
+        };
+        tokenMgr = TokenManager.getInstance();
+        token = tokenMgr.newToken("user001");
+
+        objectMapper = new ObjectMapper();
+
+        registerAndStartServer(handler);
+    }
+
+    private static String getBookJson(int i) {
+        return String.format("{\"Title\": \"Book %d\", \"Author\": \"Author\", \"Publisher\": \"Publisher\", \"Year\": 2020}", i);
+    }
+
+    private JsonNode readBody(ClassicHttpResponse response) throws Exception {
+        return objectMapper.readTree(response.getEntity().getContent().readAllBytes());
+    }
+
+    @Test
+    void givenBadMethodRequest_checkMethodNotAllowed() throws Exception {
+        try (final var response = makeRequest(Method.PUT, handler.getHandlePattern() + "?token=" + token, new StringEntity("[]"))) {
+            assertEquals(HttpStatus.SC_METHOD_NOT_ALLOWED, response.getCode());
+        }
+    }
+
+    @Test
+    void givenBadToken_checkBadRequestAndNothingImported() throws Exception {
+        final var payload = "[" + getBookJson(1) + "]";
+        try (final var response = makeRequest(Method.POST, handler.getHandlePattern() + "?token=bad", new StringEntity(payload))) {
+            assertEquals(HttpStatus.SC_BAD_REQUEST, response.getCode());
+        }
+
+        assertEquals(0, batchCount.get());
+    }
+
+    @Test
+    void givenNoPayloadRequest_checkBadRequest() throws Exception {
+        try (final var response = makeRequest(Method.POST, handler.getHandlePattern() + "?token=" + token, null)) {
+            assertEquals(HttpStatus.SC_BAD_REQUEST, response.getCode());
+        }
+    }
+
+    @Test
+    void givenArray_checkResultOfEachBookAndSummary() throws Exception {
+        final var payload = "[" +
+                getBookJson(1) + ", " +
+                getBookJson(2) + ", " +
+                getBookJson(1) + ", " +
+                "{\"Title\": \"No Author\"}" +
+                "]";
+        try (final var response = makeRequest(Method.POST, handler.getHandlePattern() + "?token=" + token, new StringEntity(payload))) {
+            assertEquals(HttpStatus.SC_OK, response.getCode());
+
+            final var body = readBody(response);
+            final var results = body.get("Results");
+            assertEquals(4, results.size());
+            assertEquals(HttpStatus.SC_CREATED, results.get(0).get("Status").intValue());
+            assertEquals(importedBooks.get("Book 1"), results.get(0).get("Id").longValue());
+            assertEquals(HttpStatus.SC_CREATED, results.get(1).get("Status").intValue());
+            assertEquals(importedBooks.get("Book 2"), results.get(1).get("Id").longValue());
+            assertEquals(HttpStatus.SC_CONFLICT, results.get(2).get("Status").intValue());
+            assertEquals(importedBooks.get("Book 1"), results.get(2).get("Id").longValue());
+            assertEquals(HttpStatus.SC_BAD_REQUEST, results.get(3).get("Status").intValue());
+            assertFalse(results.get(3).has("Id"));
+
+            final var summary = body.get("Summary");
+            assertEquals(2, summary.get("Created").longValue());
+            assertEquals(1, summary.get("Conflicted").longValue());
+            assertEquals(1, summary.get("Invalid").longValue());
+            assertEquals(0, summary.get("Failed").longValue());
+            assertFalse(summary.has("Error"));
+        }
+    }
+
+    @Test
+    void givenNdjsonOfManyBatches_checkAllBooksImportedInOrder() throws Exception {
+        final var bookCount = BooksImportHandler.BATCH_SIZE * 2 + 1;
+        final var payload = new StringBuilder();
+        for (int i = 1; i <= bookCount; ++i) {
+            payload.append(getBookJson(i)).append('\n');
+        }
+
+        try (final var response = makeRequest(Method.POST, handler.getHandlePattern() + "?token=" + token, new StringEntity(payload.toString()))) {
+            assertEquals(HttpStatus.SC_OK, response.getCode());
+
+            final var body = readBody(response);
+            final var results = body.get("Results");
+            assertEquals(bookCount, results.size());
+            for (int i = 0; i < bookCount; ++i) {
+                assertEquals(i + 1, results.get(i).get("Id").longValue());
+            }
+            assertEquals(bookCount, body.get("Summary").get("Created").longValue());
+        }
+
+        for (int i = 1; i <= bookCount; ++i) {
+            assertEquals(i, importedBooks.get("Book " + i));
+        }
+        assertEquals(3, batchCount.get());
+    }
+
+    @Test
+    void givenSlowBatch_checkResultsOfEarlierBatchesSentBeforeImportEnds() throws Exception {
+        blockedBatch = 2;
+        final var bookCount = BooksImportHandler.BATCH_SIZE * 2;
+        final var payload = new StringBuilder();
+        for (int i = 1; i <= bookCount; ++i) {
+            payload.append(getBookJson(i)).append('\n');
+        }
+
+        try (final var response = makeRequest(Method.POST, handler.getHandlePattern() + "?token=" + token, new StringEntity(payload.toString()))) {
+            assertEquals(HttpStatus.SC_OK, response.getCode());
+
+            // The results of the first batch arrive while the second batch is still being inserted.
+            final var content = response.getEntity().getContent();
+            final var firstBatch = CompletableFuture.supplyAsync(() -> {
+                final var received = new StringBuilder();
+                int itemCount = 0;
+                try {
+                    while (itemCount < BooksImportHandler.BATCH_SIZE) {
+                        final var b = content.read();
+                        if (b == -1) {
+                            break;
+                        }
+                        received.append((char) b);
+                        if (b == '}') {
+                            ++itemCount;
+                        }
+                    }
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                return received.toString();
+            });
+            assertEquals(BooksImportHandler.BATCH_SIZE, countOccurrences(firstBatch.get(5, TimeUnit.SECONDS), "\"Status\""));
+
+            batchLatch.countDown();
+            final var rest = new String(content.readAllBytes());
+            assertEquals(BooksImportHandler.BATCH_SIZE, countOccurrences(rest, "\"Status\""));
+            assertTrue(rest.contains("\"Summary\""));
+        }
+    }
+
+    private static int countOccurrences(@NotNull String text, @NotNull String substring) {
+        int count = 0;
+        for (int i = text.indexOf(substring); i != -1; i = text.indexOf(substring, i + 1)) {
+            ++count;
+        }
+        return count;
+    }
+
+    @Test
+    void givenMalformedPayload_checkErrorInSummaryWithPrecedingBooksImported() throws Exception {
+        final var payload = "[" + getBookJson(1) + ", {\"Title\" 1}]";
+        try (final var response = makeRequest(Method.POST, handler.getHandlePattern() + "?token=" + token, new StringEntity(payload))) {
+            assertEquals(HttpStatus.SC_OK, response.getCode());
+
+            final var body = readBody(response);
+            assertEquals(1, body.get("Results").size());
+            assertTrue(body.get("Summary").has("Error"));
+            assertEquals(1, body.get("Summary").get("Created").longValue());
+        }
+
+        assertEquals(1, importedBooks.size());
+    }
+
+    @AfterEach
+    public void tearDown() throws Exception {
+        tokenMgr.removeToken(token);
+
+        super.tearDown();
+    }
+}
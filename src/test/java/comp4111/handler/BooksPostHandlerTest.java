@@ -16,6 +16,8 @@ import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import java.util.concurrent.atomic.AtomicReference;
+
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assumptions.assumeTrue;
 
@@ -23,6 +25,10 @@ public class BooksPostHandlerTest extends AbstractServerTest {
 
     private TokenManager tokenMgr;
     private BooksPostHandler handler;
+    /**
+     * The result of {@link BooksPostHandler#handleAsync(Message)} for the last request.
+     */
+    private final AtomicReference<BooksPostHandler.Request> handledRequest = new AtomicReference<>();
     private ObjectMapper objectMapper;
     private String token;
 
@@ -39,6 +45,7 @@ public class BooksPostHandlerTest extends AbstractServerTest {
             @Override
             public void handle(Message<HttpRequest, String> requestObject, ResponseTrigger responseTrigger, HttpContext context) {
                 super.handleAsync(requestObject)
+                        .whenComplete((result, tr) -> handledRequest.set(result))
                         .thenApplyAsync(json -> AsyncResponseBuilder.create(HttpStatus.SC_OK).build())
                         .exceptionally(this::exceptionToResponse)
                         .thenAcceptAsync(response -> HttpAsyncEndpointHandler.emitResponse(response, responseTrigger, context));
@@ -266,10 +273,10 @@ public class BooksPostHandlerTest extends AbstractServerTest {
         request.setEntity(new StringEntity(payload, ContentType.APPLICATION_JSON));
         try (final var response = requester.execute(target, request, CLIENT_TIMEOUT, context)) {
             assertEquals(HttpStatus.SC_OK, response.getCode());
-            assertEquals(book.getTitle(), handler.getRequest().book.getTitle());
-            assertEquals(book.getAuthor(), handler.getRequest().book.getAuthor());
-            assertEquals(book.getPublisher(), handler.getRequest().book.getPublisher());
-            assertEquals(book.getYear(), handler.getRequest().book.getYear());
+            assertEquals(book.getTitle(), handledRequest.get().book.getTitle());
+            assertEquals(book.getAuthor(), handledRequest.get().book.getAuthor());
+            assertEquals(book.getPublisher(), handledRequest.get().book.getPublisher());
+            assertEquals(book.getYear(), handledRequest.get().book.getYear());
         }
     }
 
@@ -14,6 +14,8 @@ import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import java.util.concurrent.atomic.AtomicReference;
+
 import static org.junit.jupiter.api.Assertions.*;
 import static org.junit.jupiter.api.Assumptions.assumeTrue;
 
@@ -21,6 +23,10 @@ public class BooksPutHandlerTest extends AbstractServerTest {
 
     private TokenManager tokenMgr;
     private BooksPutHandler handler;
+    /**
+     * The result of {@link BooksPutHandler#handleAsync(Message)} for the last request.
+     */
+    private final AtomicReference<BooksPutHandler.Request> handledRequest = new AtomicReference<>();
     private String token;
 
     @BeforeEach
@@ -36,6 +42,7 @@ public class BooksPutHandlerTest extends AbstractServerTest {
             @Override
             public void handle(Message<HttpRequest, String> requestObject, ResponseTrigger responseTrigger, HttpContext context) {
                 super.handleAsync(requestObject)
+                        .whenComplete((result, tr) -> handledRequest.set(result))
                         .thenApplyAsync(json -> AsyncResponseBuilder.create(HttpStatus.SC_OK).build())
                         .exceptionally(this::exceptionToResponse)
                         .thenAcceptAsync(response -> HttpAsyncEndpointHandler.emitResponse(response, responseTrigger, context));
@@ -151,8 +158,8 @@ public class BooksPutHandlerTest extends AbstractServerTest {
         request.setEntity(new StringEntity(payload, ContentType.APPLICATION_JSON));
         try (final var response = requester.execute(target, request, CLIENT_TIMEOUT, context)) {
             assertEquals(HttpStatus.SC_OK, response.getCode());
-            assertEquals(1, handler.getRequest().bookId);
-            assertTrue(handler.getRequest().available);
+            assertEquals(1, handledRequest.get().bookId);
+            assertTrue(handledRequest.get().available);
         }
     }
 
@@ -166,8 +173,8 @@ public class BooksPutHandlerTest extends AbstractServerTest {
         request.setEntity(new StringEntity(payload, ContentType.APPLICATION_JSON));
         try (final var response = requester.execute(target, request, CLIENT_TIMEOUT, context)) {
             assertEquals(HttpStatus.SC_OK, response.getCode());
-            assertEquals(1, handler.getRequest().bookId);
-            assertFalse(handler.getRequest().available);
+            assertEquals(1, handledRequest.get().bookId);
+            assertFalse(handledRequest.get().available);
         }
     }
 
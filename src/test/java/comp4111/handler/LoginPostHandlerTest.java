@@ -16,12 +16,17 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
 import java.io.IOException;
+import java.util.concurrent.atomic.AtomicReference;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 
 public class LoginPostHandlerTest extends AbstractServerTest {
 
     private LoginPostHandler handler;
+    /**
+     * The result of {@link LoginPostHandler#handleAsync(Message)} for the last request.
+     */
+    private final AtomicReference<LoginRequest> handledLoginRequest = new AtomicReference<>();
     private ObjectMapper objectMapper;
 
     @BeforeEach
@@ -32,6 +37,7 @@ public class LoginPostHandlerTest extends AbstractServerTest {
             @Override
             public void handle(Message<HttpRequest, String> requestObject, ResponseTrigger responseTrigger, HttpContext context) throws HttpException, IOException {
                 super.handleAsync(requestObject)
+                        .whenComplete((result, tr) -> handledLoginRequest.set(result))
                         .thenApplyAsync(json -> AsyncResponseBuilder.create(HttpStatus.SC_OK).build())
                         .exceptionally(this::exceptionToResponse)
                         .thenAcceptAsync(response -> HttpAsyncEndpointHandler.emitResponse(response, responseTrigger, context));
@@ -139,8 +145,8 @@ public class LoginPostHandlerTest extends AbstractServerTest {
         request.setEntity(new StringEntity(payload, ContentType.APPLICATION_JSON));
         try (final var response = requester.execute(target, request, CLIENT_TIMEOUT, context)) {
             assertEquals(HttpStatus.SC_OK, response.getCode());
-            assertEquals(loginRequest.getUsername(), handler.getLoginRequest().getUsername());
-            assertEquals(loginRequest.getPassword(), handler.getLoginRequest().getPassword());
+            assertEquals(loginRequest.getUsername(), handledLoginRequest.get().getUsername());
+            assertEquals(loginRequest.getPassword(), handledLoginRequest.get().getPassword());
         }
     }
 
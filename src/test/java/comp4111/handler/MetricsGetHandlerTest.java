@@ -0,0 +1,69 @@
+package comp4111.handler;
+
+import comp4111.AbstractServerTest;
+import comp4111.metrics.MetricsRegistry;
+import org.apache.hc.core5.http.*;
+import org.apache.hc.core5.http.io.entity.EntityUtils;
+import org.apache.hc.core5.http.message.BasicClassicHttpRequest;
+import org.apache.hc.core5.http.nio.support.AsyncResponseBuilder;
+import org.apache.hc.core5.http.protocol.HttpContext;
+import org.apache.hc.core5.http.protocol.HttpCoreContext;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class MetricsGetHandlerTest extends AbstractServerTest {
+
+    private MetricsGetHandler handler;
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        super.setUp();
+
+        handler = new MetricsGetHandler() {
+            @Override
+            public void handle(Message<HttpRequest, String> requestObject, ResponseTrigger responseTrigger, HttpContext context) {
+                super.handleAsync(requestObject)
+                        .thenApplyAsync(metrics -> AsyncResponseBuilder.create(HttpStatus.SC_OK).setEntity(metrics, ContentType.TEXT_PLAIN).build())
+                        .exceptionally(this::exceptionToResponse)
+                        .thenAcceptAsync(response -> HttpAsyncEndpointHandler.emitResponse(response, responseTrigger, context));
+            }
+        };
+
+        registerAndStartServer(handler);
+    }
+
+    @Test
+    void givenBadMethodRequest_checkMethodNotAllowed() throws Exception {
+        final var target = getDefaultHttpHost(server);
+        final var context = HttpCoreContext.create();
+        final ClassicHttpRequest request = new BasicClassicHttpRequest(Method.POST, handler.getHandlePattern());
+        try (final var response = requester.execute(target, request, CLIENT_TIMEOUT, context)) {
+            assertEquals(HttpStatus.SC_METHOD_NOT_ALLOWED, response.getCode());
+            assertEquals(handler.getHandleMethod().toString(), response.getHeader("Allow").getValue());
+        }
+    }
+
+    @Test
+    void givenGoodRequest_checkMetricsExported() throws Exception {
+        MetricsRegistry.getInstance().counter("metrics_get_handler_test_total", "Test counter").increment();
+
+        final var target = getDefaultHttpHost(server);
+        final var context = HttpCoreContext.create();
+        final ClassicHttpRequest request = new BasicClassicHttpRequest(handler.getHandleMethod(), handler.getHandlePattern());
+        try (final var response = requester.execute(target, request, CLIENT_TIMEOUT, context)) {
+            assertEquals(HttpStatus.SC_OK, response.getCode());
+            assertTrue(EntityUtils.toString(response.getEntity()).contains("metrics_get_handler_test_total 1\n"));
+        }
+    }
+
+    @AfterEach
+    public void tearDown() throws Exception {
+        super.tearDown();
+
+        handler = null;
+    }
+}
@@ -18,6 +18,8 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Disabled;
 import org.junit.jupiter.api.Test;
 
+import java.util.concurrent.atomic.AtomicReference;
+
 import static org.junit.jupiter.api.Assertions.*;
 import static org.junit.jupiter.api.Assumptions.assumeTrue;
 
@@ -26,6 +28,10 @@ public class TransactionPostHandlerTest extends AbstractServerTest {
     private TokenManager tokenMgr;
     private TransactionManager txMgr;
     private TransactionPostHandler handler;
+    /**
+     * The result of {@link TransactionPostHandler#handleAsync(Message)} for the last request.
+     */
+    private final AtomicReference<TransactionPostRequest> handledTxRequest = new AtomicReference<>();
     private ObjectMapper objectMapper;
     private String token;
     private Long transactionId;
@@ -43,6 +49,7 @@ public class TransactionPostHandlerTest extends AbstractServerTest {
             @Override
             public void handle(Message<HttpRequest, String> requestObject, ResponseTrigger responseTrigger, HttpContext context) {
                 super.handleAsync(requestObject)
+                        .whenComplete((result, tr) -> handledTxRequest.set(result))
                         .thenApplyAsync(json -> AsyncResponseBuilder.create(HttpStatus.SC_OK).build())
                         .exceptionally(this::exceptionToResponse)
                         .thenAcceptAsync(response -> HttpAsyncEndpointHandler.emitResponse(response, responseTrigger, context));
@@ -100,7 +107,7 @@ public class TransactionPostHandlerTest extends AbstractServerTest {
         final ClassicHttpRequest request = new BasicClassicHttpRequest(handler.getHandleMethod(), handler.getHandlePattern() + "?token=" + token);
         try (final var response = requester.execute(target, request, CLIENT_TIMEOUT, context)) {
             assertEquals(HttpStatus.SC_OK, response.getCode());
-            assertNull(handler.getTxRequest());
+            assertNull(handledTxRequest.get());
         }
     }
 
@@ -112,7 +119,7 @@ public class TransactionPostHandlerTest extends AbstractServerTest {
         request.setEntity(new StringEntity("", ContentType.APPLICATION_JSON));
         try (final var response = requester.execute(target, request, CLIENT_TIMEOUT, context)) {
             assertEquals(HttpStatus.SC_OK, response.getCode());
-            assertNull(handler.getTxRequest());
+            assertNull(handledTxRequest.get());
         }
     }
 
@@ -236,9 +243,9 @@ public class TransactionPostHandlerTest extends AbstractServerTest {
         request.setEntity(new StringEntity(payload, ContentType.APPLICATION_JSON));
         try (final var response = requester.execute(target, request, CLIENT_TIMEOUT, context)) {
             assertEquals(HttpStatus.SC_OK, response.getCode());
-            assertNotNull(handler.getTxRequest());
-            assertEquals(postRequest.getTransaction(), handler.getTxRequest().getTransaction());
-            assertEquals(postRequest.getOperation(), handler.getTxRequest().getOperation());
+            assertNotNull(handledTxRequest.get());
+            assertEquals(postRequest.getTransaction(), handledTxRequest.get().getTransaction());
+            assertEquals(postRequest.getOperation(), handledTxRequest.get().getOperation());
         }
     }
 
@@ -253,9 +260,9 @@ public class TransactionPostHandlerTest extends AbstractServerTest {
         request.setEntity(new StringEntity(payload, ContentType.APPLICATION_JSON));
         try (final var response = requester.execute(target, request, CLIENT_TIMEOUT, context)) {
             assertEquals(HttpStatus.SC_OK, response.getCode());
-            assertNotNull(handler.getTxRequest());
-            assertEquals(postRequest.getTransaction(), handler.getTxRequest().getTransaction());
-            assertEquals(postRequest.getOperation(), handler.getTxRequest().getOperation());
+            assertNotNull(handledTxRequest.get());
+            assertEquals(postRequest.getTransaction(), handledTxRequest.get().getTransaction());
+            assertEquals(postRequest.getOperation(), handledTxRequest.get().getOperation());
         }
     }
 
@@ -19,6 +19,8 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Disabled;
 import org.junit.jupiter.api.Test;
 
+import java.util.concurrent.atomic.AtomicReference;
+
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assumptions.assumeTrue;
 
@@ -27,6 +29,10 @@ public class TransactionPutHandlerTest extends AbstractServerTest {
     private TokenManager tokenMgr;
     private TransactionManager txMgr;
     private TransactionPutHandler handler;
+    /**
+     * The result of {@link TransactionPutHandler#handleAsync(Message)} for the last request.
+     */
+    private final AtomicReference<TransactionPutRequest> handledPutRequest = new AtomicReference<>();
     private ObjectMapper objectMapper;
     private String token;
     private Long transactionId;
@@ -44,6 +50,7 @@ public class TransactionPutHandlerTest extends AbstractServerTest {
             @Override
             public void handle(Message<HttpRequest, String> requestObject, ResponseTrigger responseTrigger, HttpContext context) {
                 super.handleAsync(requestObject)
+                        .whenComplete((result, tr) -> handledPutRequest.set(result))
                         .thenApplyAsync(json -> AsyncResponseBuilder.create(HttpStatus.SC_OK).build())
                         .exceptionally(this::exceptionToResponse)
                         .thenAcceptAsync(response -> HttpAsyncEndpointHandler.emitResponse(response, responseTrigger, context));
@@ -282,9 +289,9 @@ public class TransactionPutHandlerTest extends AbstractServerTest {
         request.setEntity(new StringEntity(payload, ContentType.APPLICATION_JSON));
         try (final var response = requester.execute(target, request, CLIENT_TIMEOUT, context)) {
             assertEquals(HttpStatus.SC_OK, response.getCode());
-            assertEquals(putRequest.getTransaction(), handler.getPutRequest().getTransaction());
-            assertEquals(putRequest.getId(), handler.getPutRequest().getId());
-            assertEquals(putRequest.getAction(), handler.getPutRequest().getAction());
+            assertEquals(putRequest.getTransaction(), handledPutRequest.get().getTransaction());
+            assertEquals(putRequest.getId(), handledPutRequest.get().getId());
+            assertEquals(putRequest.getAction(), handledPutRequest.get().getAction());
         }
     }
 
@@ -299,9 +306,9 @@ public class TransactionPutHandlerTest extends AbstractServerTest {
         request.setEntity(new StringEntity(payload, ContentType.APPLICATION_JSON));
         try (final var response = requester.execute(target, request, CLIENT_TIMEOUT, context)) {
             assertEquals(HttpStatus.SC_OK, response.getCode());
-            assertEquals(putRequest.getTransaction(), handler.getPutRequest().getTransaction());
-            assertEquals(putRequest.getId(), handler.getPutRequest().getId());
-            assertEquals(putRequest.getAction(), handler.getPutRequest().getAction());
+            assertEquals(putRequest.getTransaction(), handledPutRequest.get().getTransaction());
+            assertEquals(putRequest.getId(), handledPutRequest.get().getId());
+            assertEquals(putRequest.getAction(), handledPutRequest.get().getAction());
         }
     }
 
@@ -0,0 +1,74 @@
+package comp4111.metrics;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LatencyHistogramTest {
+
+    private LatencyHistogram histogram;
+
+    @BeforeEach
+    void setUp() {
+        histogram = new LatencyHistogram();
+    }
+
+    @Test
+    void givenValues_checkBucketContainsValue() {
+        for (long value = 0; value < 1_000_000; value = value * 3 / 2 + 1) {
+            final var bucket = LatencyHistogram.bucketOf(value);
+
+            assertTrue(LatencyHistogram.highestValueOf(bucket) >= value);
+            assertTrue(bucket == 0 || LatencyHistogram.highestValueOf(bucket - 1) < value);
+        }
+    }
+
+    @Test
+    void givenValues_checkBucketRelativeErrorBounded() {
+        for (long value = 1; value < LatencyHistogram.MAX_TRACKABLE_NANOS; value = value * 3 / 2 + 1) {
+            final var highest = LatencyHistogram.highestValueOf(LatencyHistogram.bucketOf(value));
+
+            assertTrue((double) (highest - value) / value <= 1.0 / LatencyHistogram.SUB_BUCKET_COUNT);
+        }
+    }
+
+    @Test
+    void givenOutOfRangeValues_checkClamped() {
+        assertEquals(0, LatencyHistogram.bucketOf(-1));
+        assertEquals(LatencyHistogram.bucketOf(LatencyHistogram.MAX_TRACKABLE_NANOS), LatencyHistogram.bucketOf(Long.MAX_VALUE));
+    }
+
+    @Test
+    void givenNoValues_checkZeroQuantile() {
+        assertEquals(0, histogram.getCount());
+        assertEquals(0, histogram.getValueAtQuantile(0.99));
+    }
+
+    @Test
+    void givenUniformValues_checkQuantilesWithinError() {
+        for (int i = 1; i <= 1000; ++i) {
+            histogram.record(i * 1000L);
+        }
+
+        assertEquals(1000, histogram.getCount());
+        assertEquals(1_000_000, histogram.getMaxNanos());
+        assertEquals(500.5 * 1000 * 1000 / 1e9, histogram.getSumSeconds(), 1e-9);
+        assertEquals(500_000, histogram.getValueAtQuantile(0.5), 500_000.0 / LatencyHistogram.SUB_BUCKET_COUNT);
+        assertEquals(990_000, histogram.getValueAtQuantile(0.99), 990_000.0 / LatencyHistogram.SUB_BUCKET_COUNT);
+        assertEquals(1_000_000, histogram.getValueAtQuantile(1));
+    }
+
+    @Test
+    void givenValues_checkCumulativeCountsAtBucketBoundaries() {
+        histogram.record(100);
+        histogram.record(1023);
+        histogram.record(1024);
+        histogram.record(LatencyHistogram.MAX_TRACKABLE_NANOS + 1);
+
+        final var upperBuckets = new int[]{LatencyHistogram.bucketOf(1023), LatencyHistogram.bucketOf(2047)};
+        assertEquals(1023, LatencyHistogram.highestValueOf(upperBuckets[0]));
+        assertEquals(2047, LatencyHistogram.highestValueOf(upperBuckets[1]));
+        assertArrayEquals(new long[]{2, 3, 4}, histogram.getCumulativeCounts(upperBuckets));
+    }
+}
@@ -0,0 +1,73 @@
+package comp4111.metrics;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MetricsRegistryTest {
+
+    private MetricsRegistry registry;
+
+    @BeforeEach
+    void setUp() {
+        registry = new MetricsRegistry();
+    }
+
+    @Test
+    void givenSameLabels_checkSameMetric() {
+        final var counter = registry.counter("requests_total", "Requests", "method", "GET");
+
+        assertSame(counter, registry.counter("requests_total", "Requests", "method", "GET"));
+        assertNotSame(counter, registry.counter("requests_total", "Requests", "method", "PUT"));
+    }
+
+    @Test
+    void givenConflictingType_checkThrows() {
+        registry.counter("requests_total", "Requests");
+
+        assertThrows(IllegalArgumentException.class, () -> registry.latency("requests_total", "Requests"));
+        assertThrows(IllegalArgumentException.class, () -> registry.gauge("requests_total", "Requests", () -> 0));
+    }
+
+    @Test
+    void givenMalformedNames_checkThrows() {
+        assertThrows(IllegalArgumentException.class, () -> registry.counter("requests-total", "Requests"));
+        assertThrows(IllegalArgumentException.class, () -> registry.counter("requests_total", "Requests", "1method", "GET"));
+        assertThrows(IllegalArgumentException.class, () -> registry.counter("requests_total", "Requests", "method"));
+    }
+
+    @Test
+    void givenMetrics_checkExportFormat() {
+        registry.counter("requests_total", "Requests", "method", "GET").add(3);
+        registry.gauge("pool_size", "Pool size", () -> 2.5);
+        registry.latency("latency_seconds", "Latency", "path", "a\"b").record(1_000_000);
+
+        final var export = registry.export();
+
+        assertTrue(export.contains("# HELP requests_total Requests\n# TYPE requests_total counter\n"));
+        assertTrue(export.contains("requests_total{method=\"GET\"} 3\n"));
+        assertTrue(export.contains("# TYPE pool_size gauge\npool_size 2.5\n"));
+        assertTrue(export.contains("# TYPE latency_seconds histogram\n"));
+        assertTrue(export.contains("latency_seconds_bucket{path=\"a\\\"b\",le=\"5.24287E-4\"} 0\n"));
+        assertTrue(export.contains("latency_seconds_bucket{path=\"a\\\"b\",le=\"0.001048575\"} 1\n"));
+        assertTrue(export.contains("latency_seconds_bucket{path=\"a\\\"b\",le=\"+Inf\"} 1\n"));
+        assertTrue(export.contains("latency_seconds_sum{path=\"a\\\"b\"} 0.001\n"));
+        assertTrue(export.contains("latency_seconds_count{path=\"a\\\"b\"} 1\n"));
+    }
+
+    @Test
+    void givenThrowingCallback_checkExportedAsNaN() {
+        registry.gauge("pool_size", "Pool size", () -> {
+            throw new IllegalStateException();
+        });
+
+        assertTrue(registry.export().contains("pool_size NaN\n"));
+    }
+
+    @AfterEach
+    void tearDown() {
+        registry = null;
+    }
+}
@@ -0,0 +1,46 @@
+package comp4111.util;
+
+import com.fasterxml.jackson.databind.JsonMappingException;
+import comp4111.model.LoginRequest;
+import comp4111.model.LoginResult;
+import org.intellij.lang.annotations.Language;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class JacksonUtilsTest {
+
+    @Test
+    void givenSameType_assertReaderReused() {
+        assertSame(JacksonUtils.getReader(LoginRequest.class), JacksonUtils.getReader(LoginRequest.class));
+    }
+
+    @Test
+    void givenSameType_assertWriterReused() {
+        assertSame(JacksonUtils.getWriter(LoginResult.class), JacksonUtils.getWriter(LoginResult.class));
+    }
+
+    @Test
+    void givenJson_checkReaderCanDeserialize() throws Exception {
+        @Language("JSON") final var json = "{\"Username\": \"user001\", \"Password\": \"passwd001\"}";
+
+        final LoginRequest request = JacksonUtils.getReader(LoginRequest.class).readValue(json);
+
+        assertEquals("user001", request.getUsername());
+        assertEquals("passwd001", request.getPassword());
+    }
+
+    @Test
+    void givenMissingProperty_checkReaderThrows() {
+        @Language("JSON") final var json = "{\"Username\": \"user001\"}";
+
+        assertThrows(JsonMappingException.class, () -> JacksonUtils.getReader(LoginRequest.class).readValue(json));
+    }
+
+    @Test
+    void givenObject_checkWriterCanSerialize() throws Exception {
+        final var json = JacksonUtils.getWriter(LoginResult.class).writeValueAsString(new LoginResult("token"));
+
+        assertEquals(JacksonUtils.getDefaultObjectMapper().writeValueAsString(new LoginResult("token")), json);
+    }
+}
@@ -0,0 +1,111 @@
+package comp4111.util;
+
+import com.fasterxml.jackson.core.JsonParseException;
+import comp4111.model.Book;
+import org.jetbrains.annotations.NotNull;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class JsonStreamParserTest {
+
+    private static final String BOOK_1 = "{\"Title\": \"Alice in Wonderland\", \"Author\": \"Lewis Carroll\", \"Publisher\": \"Macmillan\", \"Year\": 1865}";
+    private static final String BOOK_2 = "{\"Title\": \"Through the Looking-Glass\", \"Author\": \"Lewis Carroll\", \"Publisher\": \"Macmillan\", \"Year\": 1871}";
+
+    /**
+     * Titles of the valid books, and {@code null} for each invalid book, in the order they are read.
+     */
+    private List<String> titles;
+    private JsonStreamParser<Book> parser;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        titles = new ArrayList<>();
+        parser = new JsonStreamParser<>(Book.class, new JsonStreamParser.Listener<>() {
+            @Override
+            public void onValue(@NotNull Book value) {
+                titles.add(value.getTitle());
+            }
+
+            @Override
+            public void onInvalidValue(@NotNull IOException e) {
+                titles.add(null);
+            }
+        });
+    }
+
+    /**
+     * Feeds the stream to the parser a few bytes at a time.
+     */
+    private void feedInChunks(String stream, int chunkSize) throws IOException {
+        final var bytes = stream.getBytes(StandardCharsets.UTF_8);
+        for (int i = 0; i < bytes.length; i += chunkSize) {
+            parser.feed(ByteBuffer.wrap(bytes, i, Math.min(chunkSize, bytes.length - i)));
+        }
+        parser.endOfInput();
+    }
+
+    @Test
+    void givenArray_assertAllValuesRead() throws IOException {
+        feedInChunks("[" + BOOK_1 + ", " + BOOK_2 + "]", 7);
+
+        assertEquals(List.of("Alice in Wonderland", "Through the Looking-Glass"), titles);
+    }
+
+    @Test
+    void givenNdjson_assertAllValuesRead() throws IOException {
+        feedInChunks(BOOK_1 + "\n" + BOOK_2 + "\n", 3);
+
+        assertEquals(List.of("Alice in Wonderland", "Through the Looking-Glass"), titles);
+    }
+
+    @Test
+    void givenValueWithinChunk_assertReadBeforeEndOfInput() throws IOException {
+        parser.feed(ByteBuffer.wrap(("[" + BOOK_1 + ",").getBytes(StandardCharsets.UTF_8)));
+
+        assertEquals(List.of("Alice in Wonderland"), titles);
+    }
+
+    @Test
+    void givenInvalidValue_assertReportedAndParsingContinues() throws IOException {
+        feedInChunks("[" + BOOK_1 + ", {\"Title\": \"No Author\"}, 42, " + BOOK_2 + "]", 5);
+
+        assertEquals(2, titles.stream().filter(it -> it == null).count());
+        assertEquals("Alice in Wonderland", titles.get(0));
+        assertEquals("Through the Looking-Glass", titles.get(3));
+    }
+
+    @Test
+    void givenEmptyArray_assertNoValues() throws IOException {
+        feedInChunks(" [ ] ", 1);
+
+        assertTrue(titles.isEmpty());
+    }
+
+    @Test
+    void givenUnclosedArray_assertThrows() throws IOException {
+        parser.feed(ByteBuffer.wrap(("[" + BOOK_1).getBytes(StandardCharsets.UTF_8)));
+
+        assertThrows(JsonParseException.class, () -> parser.endOfInput());
+        assertEquals(List.of("Alice in Wonderland"), titles);
+    }
+
+    @Test
+    void givenMalformedStream_assertThrows() {
+        assertThrows(JsonParseException.class, () -> feedInChunks("[" + BOOK_1 + ", {\"Title\" 1}]", 4));
+    }
+
+    @AfterEach
+    void tearDown() {
+        parser = null;
+        titles = null;
+    }
+}
@@ -0,0 +1,116 @@
+package comp4111.util;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import comp4111.model.BooksImportResult;
+import org.apache.hc.core5.http.Header;
+import org.apache.hc.core5.http.nio.DataStreamChannel;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class JsonStreamProducerTest {
+
+    /**
+     * A channel which accepts at most {@link RecordingChannel#capacity} bytes each time it is written to.
+     */
+    private static final class RecordingChannel implements DataStreamChannel {
+
+        final ByteArrayOutputStream received = new ByteArrayOutputStream();
+        int capacity = Integer.MAX_VALUE;
+        int outputRequestCount = 0;
+        boolean isEnded = false;
+
+        @Override
+        public void requestOutput() {
+            ++outputRequestCount;
+        }
+
+        @Override
+        public int write(ByteBuffer src) {
+            final var length = Math.min(src.remaining(), capacity);
+            final var bytes = new byte[length];
+            src.get(bytes);
+            received.write(bytes, 0, length);
+            return length;
+        }
+
+        @Override
+        public void endStream() {
+            isEnded = true;
+        }
+
+        @Override
+        public void endStream(List<? extends Header> trailers) {
+            endStream();
+        }
+    }
+
+    private JsonStreamProducer producer;
+    private RecordingChannel channel;
+
+    @BeforeEach
+    void setUp() {
+        producer = new JsonStreamProducer("Results", "Summary");
+        channel = new RecordingChannel();
+    }
+
+    @Test
+    void givenItemsAndSummary_checkEntityIsJsonObject() throws Exception {
+        producer.write(new BooksImportResult.Item(1L, 201));
+        producer.write(new BooksImportResult.Item(null, 400));
+        producer.end(new BooksImportResult(1, 0, 1, 0, null));
+        producer.produce(channel);
+
+        assertTrue(channel.isEnded);
+        assertEquals(0, producer.available());
+
+        final var body = new ObjectMapper().readTree(channel.received.toByteArray());
+        assertEquals(2, body.get("Results").size());
+        assertEquals(1, body.get("Results").get(0).get("Id").longValue());
+        assertFalse(body.get("Results").get(1).has("Id"));
+        assertEquals(1, body.get("Summary").get("Created").longValue());
+    }
+
+    @Test
+    void givenItemWrittenAfterDrained_checkOutputRequested() throws Exception {
+        producer.produce(channel);
+        assertEquals(0, producer.available());
+
+        producer.write(new BooksImportResult.Item(1L, 201));
+        assertEquals(1, channel.outputRequestCount);
+        assertTrue(producer.available() > 0);
+        assertFalse(channel.isEnded);
+    }
+
+    @Test
+    void givenSlowChannel_checkBufferedUntilAcceptedAndDrainListenerCalled() throws Exception {
+        final var drainCount = new int[1];
+        producer.setDrainListener(() -> ++drainCount[0]);
+        producer.write(new BooksImportResult.Item(1L, 201));
+        producer.end(new BooksImportResult(1, 0, 0, 0, null));
+
+        channel.capacity = 4;
+        producer.produce(channel);
+        assertTrue(producer.getBufferedSize() > 0);
+        assertEquals(0, drainCount[0]);
+
+        channel.capacity = Integer.MAX_VALUE;
+        producer.produce(channel);
+        assertEquals(0, producer.getBufferedSize());
+        assertEquals(1, drainCount[0]);
+        assertTrue(channel.isEnded);
+        assertEquals(1, new ObjectMapper().readTree(channel.received.toByteArray()).get("Results").size());
+    }
+
+    @Test
+    void givenReleased_checkItemsDiscarded() {
+        producer.releaseResources();
+        producer.write(new BooksImportResult.Item(1L, 201));
+        assertEquals(0, producer.getBufferedSize());
+    }
+}